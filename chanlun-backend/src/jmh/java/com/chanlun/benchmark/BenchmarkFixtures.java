@@ -0,0 +1,347 @@
+package com.chanlun.benchmark;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.chanlun.entity.Kline;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * 基准测试数据
+ *
+ * 所有数据由固定种子生成，同一参数每次运行完全一致：
+ * - 币安 /klines REST 响应（二维数组，字段顺序和字符串精度与真实响应一致）
+ * - 币安 WebSocket K 线推送（单流 / 组合流格式，含 "B" 等未使用字段）
+ * - 合成 K 线序列（百万级开盘时间序列，按固定规律插入缺口）
+ *
+ * 需要数据库的基准通过 {@link #database} 连接真实 PostgreSQL，数据挂在名为 bench 的数据源下，结束时级联删除
+ *
+ * @author Chanlun Team
+ */
+public final class BenchmarkFixtures {
+
+    /**
+     * 基准起始开盘时间 2023-11-14T22:13:20Z
+     */
+    public static final long BASE_OPEN_TIME = 1700000000000L;
+
+    public static final long ONE_MINUTE_MS = 60_000L;
+
+    private static final long SEED = 20240101L;
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * 生成 /api/v3/klines 响应
+     *
+     * @param candles K 线数量（limit 最大 1000）
+     * @return 响应文本
+     */
+    public static String restKlinesResponse(int candles) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(candles * 200).append('[');
+        double price = 42000;
+        for (int i = 0; i < candles; i++) {
+            long openTime = BASE_OPEN_TIME + i * ONE_MINUTE_MS;
+            double open = price;
+            double close = open * (1 + (random.nextDouble() - 0.5) * 0.004);
+            double high = Math.max(open, close) * (1 + random.nextDouble() * 0.001);
+            double low = Math.min(open, close) * (1 - random.nextDouble() * 0.001);
+            double volume = 5 + random.nextDouble() * 50;
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('[').append(openTime).append(',');
+            appendPrice(sb, open).append(',');
+            appendPrice(sb, high).append(',');
+            appendPrice(sb, low).append(',');
+            appendPrice(sb, close).append(',');
+            appendPrice(sb, volume).append(',');
+            sb.append(openTime + ONE_MINUTE_MS - 1).append(',');
+            appendPrice(sb, volume * close).append(',');
+            sb.append(100 + random.nextInt(900)).append(',');
+            appendPrice(sb, volume / 2).append(',');
+            appendPrice(sb, volume * close / 2).append(",\"0\"]");
+            price = close;
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * 生成 WebSocket K 线推送回放
+     *
+     * 每个流每根 K 线 updatesPerCandle 条未完结更新 + 1 条完结事件，按时间交错排列
+     *
+     * @param streams 流数量
+     * @param updatesPerCandle 每根 K 线的未完结更新数
+     * @param combined 是否为组合流格式
+     * @return 消息列表
+     */
+    public static List<String> webSocketCapture(int streams, int updatesPerCandle, boolean combined) {
+        Random random = new Random(SEED);
+        List<String> messages = new ArrayList<>(streams * (updatesPerCandle + 1));
+        double[] prices = new double[streams];
+        for (int s = 0; s < streams; s++) {
+            prices[s] = 10 + random.nextDouble() * 50000;
+        }
+        for (int update = 0; update <= updatesPerCandle; update++) {
+            boolean closed = update == updatesPerCandle;
+            for (int s = 0; s < streams; s++) {
+                String symbol = "SYM" + s + "USDT";
+                double open = prices[s];
+                double close = open * (1 + (random.nextDouble() - 0.5) * 0.002);
+                StringBuilder sb = new StringBuilder(512);
+                if (combined) {
+                    sb.append("{\"stream\":\"").append(symbol.toLowerCase()).append("@kline_1m\",\"data\":");
+                }
+                sb.append("{\"e\":\"kline\",\"E\":").append(BASE_OPEN_TIME + update * 2000L)
+                        .append(",\"s\":\"").append(symbol).append("\",\"k\":{\"t\":").append(BASE_OPEN_TIME)
+                        .append(",\"T\":").append(BASE_OPEN_TIME + ONE_MINUTE_MS - 1)
+                        .append(",\"s\":\"").append(symbol).append("\",\"i\":\"1m\",\"f\":").append(1000 + update)
+                        .append(",\"L\":").append(2000 + update).append(",\"o\":");
+                appendPrice(sb, open).append(",\"c\":");
+                appendPrice(sb, close).append(",\"h\":");
+                appendPrice(sb, Math.max(open, close) * 1.0005).append(",\"l\":");
+                appendPrice(sb, Math.min(open, close) * 0.9995).append(",\"v\":");
+                appendPrice(sb, 1 + update * 0.37).append(",\"n\":").append(10 + update)
+                        .append(",\"x\":").append(closed).append(",\"q\":");
+                appendPrice(sb, (1 + update * 0.37) * close).append(",\"V\":");
+                appendPrice(sb, 0.5 + update * 0.1).append(",\"Q\":");
+                appendPrice(sb, (0.5 + update * 0.1) * close).append(",\"B\":\"0\"}}");
+                if (combined) {
+                    sb.append('}');
+                }
+                messages.add(sb.toString());
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * 生成连续 K 线实体
+     *
+     * @param count 数量
+     * @param symbolId 交易对ID
+     * @param interval 时间周期（按 1m 步长生成开盘时间）
+     * @return K 线列表
+     */
+    public static List<Kline> klines(int count, Long symbolId, String interval) {
+        Random random = new Random(SEED);
+        List<Kline> klines = new ArrayList<>(count);
+        double price = 42000;
+        for (int i = 0; i < count; i++) {
+            long openTime = BASE_OPEN_TIME + i * ONE_MINUTE_MS;
+            double close = price * (1 + (random.nextDouble() - 0.5) * 0.004);
+            klines.add(Kline.builder()
+                    .symbolId(symbolId)
+                    .interval(interval)
+                    .openTime(Instant.ofEpochMilli(openTime))
+                    .open(decimal(price))
+                    .high(decimal(Math.max(price, close) * 1.001))
+                    .low(decimal(Math.min(price, close) * 0.999))
+                    .close(decimal(close))
+                    .volume(decimal(5 + random.nextDouble() * 50))
+                    .quoteVolume(decimal(close * 20))
+                    .trades(100 + random.nextInt(900))
+                    .closeTime(Instant.ofEpochMilli(openTime + ONE_MINUTE_MS - 1))
+                    .build());
+            price = close;
+        }
+        return klines;
+    }
+
+    /**
+     * 生成带缺口的 1m 开盘时间序列（升序）
+     *
+     * @param candles 序列中实际存在的 K 线数量
+     * @param gapEvery 平均每隔多少根插入一个缺口
+     * @param maxGapCandles 单个缺口最多缺失的 K 线数量
+     * @return 开盘时间（毫秒）
+     */
+    public static long[] openTimeSeries(int candles, int gapEvery, int maxGapCandles) {
+        Random random = new Random(SEED);
+        long[] openTimes = new long[candles];
+        long openTime = BASE_OPEN_TIME;
+        for (int i = 0; i < candles; i++) {
+            openTimes[i] = openTime;
+            openTime += ONE_MINUTE_MS;
+            if (random.nextInt(gapEvery) == 0) {
+                openTime += (1 + random.nextInt(maxGapCandles)) * ONE_MINUTE_MS;
+            }
+        }
+        return openTimes;
+    }
+
+    /**
+     * 创建接口桩（MyBatis Mapper 等），未指定的方法返回 null / 0 / false
+     *
+     * @param type 接口类型
+     * @param handlers 方法名 -> 实现
+     * @return 桩对象
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> handlers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> handler = handlers.get(method.getName());
+            if (handler != null) {
+                return handler.apply(args);
+            }
+            if (method.getName().equals("toString")) {
+                return type.getSimpleName() + "Stub";
+            }
+            Class<?> returnType = method.getReturnType();
+            if (returnType == boolean.class) {
+                return false;
+            }
+            if (returnType == int.class || returnType == long.class) {
+                return returnType == int.class ? (Object) 0 : (Object) 0L;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 连接基准数据库并执行 Flyway 迁移
+     *
+     * @param url JDBC URL（JMH 参数 -p dbUrl=...）
+     * @return 数据源
+     */
+    public static DataSource database(String url, String username, String password) {
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("需要指定 -p dbUrl=jdbc:postgresql://...");
+        }
+        DataSource dataSource = new DriverManagerDataSource(url, username, password);
+        Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("0").load().migrate();
+        return dataSource;
+    }
+
+    /**
+     * 创建基准交易对（上次未清理的 bench 数据先删除）
+     *
+     * @return 交易对ID
+     */
+    public static long createBenchSymbol(DataSource dataSource) throws SQLException {
+        dropBenchData(dataSource);
+        try (Connection con = dataSource.getConnection(); Statement st = con.createStatement()) {
+            long dataSourceId = insertReturningId(st,
+                    "INSERT INTO data_source (name, exchange_type) VALUES ('bench', 'BINANCE') RETURNING id");
+            long marketId = insertReturningId(st,
+                    "INSERT INTO market (data_source_id, name, market_type) VALUES (" + dataSourceId
+                            + ", 'bench', 'SPOT') RETURNING id");
+            return insertReturningId(st,
+                    "INSERT INTO symbol (market_id, symbol, base_asset, quote_asset) VALUES (" + marketId
+                            + ", 'BENCHUSDT', 'BENCH', 'USDT') RETURNING id");
+        }
+    }
+
+    /**
+     * 删除 bench 数据源（交易对、K 线、缺口级联删除）
+     */
+    public static void dropBenchData(DataSource dataSource) throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement st = con.createStatement()) {
+            st.execute("DELETE FROM data_source WHERE name = 'bench'");
+        }
+    }
+
+    /**
+     * 按开盘时间序列写入 1m K 线（价格固定，只用于按开盘时间扫描的基准），并预建覆盖的月分区
+     *
+     * @param openTimes 开盘时间（毫秒，升序）
+     */
+    public static void seedOpenTimes(DataSource dataSource, long symbolId, long[] openTimes) throws SQLException {
+        try (Connection con = dataSource.getConnection()) {
+            LocalDate month = Instant.ofEpochMilli(openTimes[0]).atZone(ZoneOffset.UTC).toLocalDate().withDayOfMonth(1);
+            LocalDate last = Instant.ofEpochMilli(openTimes[openTimes.length - 1]).atZone(ZoneOffset.UTC).toLocalDate();
+            try (PreparedStatement ps = con.prepareStatement("SELECT ensure_kline_partition(?)")) {
+                for (; !month.isAfter(last); month = month.plusMonths(1)) {
+                    ps.setDate(1, Date.valueOf(month));
+                    ps.execute();
+                }
+            }
+            try (PreparedStatement ps = con.prepareStatement(
+                    "INSERT INTO kline (symbol_id, \"interval\", open_time, \"open\", high, low, \"close\", close_time) " +
+                    "SELECT ?, '1m', TIMESTAMPTZ 'epoch' + t * INTERVAL '1 millisecond', 1, 1, 1, 1, " +
+                    "TIMESTAMPTZ 'epoch' + (t + 59999) * INTERVAL '1 millisecond' FROM unnest(?) AS t")) {
+                int chunk = 100_000;
+                for (int from = 0; from < openTimes.length; from += chunk) {
+                    Long[] times = new Long[Math.min(chunk, openTimes.length - from)];
+                    for (int i = 0; i < times.length; i++) {
+                        times[i] = openTimes[from + i];
+                    }
+                    ps.setLong(1, symbolId);
+                    ps.setArray(2, con.createArrayOf("bigint", times));
+                    ps.executeUpdate();
+                }
+            }
+            try (Statement st = con.createStatement()) {
+                st.execute("ANALYZE kline");
+            }
+        }
+    }
+
+    /**
+     * 创建真实 MyBatis Mapper（与应用相同的下划线转驼峰配置），每次调用在独立会话中执行并自动提交
+     *
+     * @param type Mapper 接口
+     * @return Mapper
+     */
+    public static <T> T mapper(DataSource dataSource, Class<T> type) {
+        return sessions(dataSource, type).getMapper(type);
+    }
+
+    /**
+     * 创建注册了指定 Mapper 的会话管理器
+     *
+     * 未开启会话时 Mapper 每次调用自动提交；startManagedSession() 后多次调用在同一事务中，对应 @Transactional 方法
+     *
+     * @param types Mapper 接口
+     * @return 会话管理器
+     */
+    public static SqlSessionManager sessions(DataSource dataSource, Class<?>... types) {
+        MybatisConfiguration configuration = new MybatisConfiguration(
+                new Environment("bench", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.setCacheEnabled(false);
+        for (Class<?> type : types) {
+            configuration.addMapper(type);
+        }
+        return SqlSessionManager.newInstance(new MybatisSqlSessionFactoryBuilder().build(configuration));
+    }
+
+    private static long insertReturningId(Statement st, String sql) throws SQLException {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static StringBuilder appendPrice(StringBuilder sb, double value) {
+        return sb.append('"').append(decimal(value).toPlainString()).append('"');
+    }
+
+    private static BigDecimal decimal(double value) {
+        return BigDecimal.valueOf(value).setScale(8, java.math.RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,54 @@
+package com.chanlun.dto;
+
+import com.chanlun.benchmark.BenchmarkFixtures;
+import com.chanlun.entity.Kline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * KlineDTO.fromEntity 转换基准（与 KlineController 查询接口相同的整页转换）
+ *
+ * @author Chanlun Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KlineDTOBenchmark {
+
+    /**
+     * 每页 K 线数量（默认 500，最大 1000）
+     */
+    @Param({"500", "1000"})
+    public int size;
+
+    private List<Kline> klines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        klines = BenchmarkFixtures.klines(size, 1L, "1m");
+    }
+
+    @Benchmark
+    public List<KlineDTO> fromEntity() {
+        return klines.stream()
+                .map(KlineDTO::fromEntity)
+                .collect(Collectors.toList());
+    }
+}
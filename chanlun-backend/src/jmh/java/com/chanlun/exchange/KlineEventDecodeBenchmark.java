@@ -0,0 +1,98 @@
+package com.chanlun.exchange;
+
+import com.chanlun.benchmark.BenchmarkFixtures;
+import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WebSocket K 线消息处理基准
+ *
+ * 回放 1000 个流、每根 K 线 30 条未完结更新 + 1 条完结事件，每次调用处理一条消息：
+ * - singleStream / combinedStream: 真实的 handleMessage（Mock 模式，不建立连接）
+ * - objectMapperTree: 组合流原 readTree + treeToValue 路径，作为对照
+ *
+ * pushSubscribers=false 时未完结更新只解码消息头即丢弃，true 时全部完整解码
+ *
+ * @author Chanlun Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KlineEventDecodeBenchmark {
+
+    private static final int STREAMS = 1000;
+    private static final int UPDATES_PER_CANDLE = 30;
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Param({"false", "true"})
+    public boolean pushSubscribers;
+
+    private List<String> rawMessages;
+    private List<String> combinedMessages;
+    private BinanceWebSocketClient singleClient;
+    private BinanceCombinedStreamClient combinedClient;
+    private BinanceWsKlineEvent lastEvent;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rawMessages = BenchmarkFixtures.webSocketCapture(STREAMS, UPDATES_PER_CANDLE, false);
+        combinedMessages = BenchmarkFixtures.webSocketCapture(STREAMS, UPDATES_PER_CANDLE, true);
+        singleClient = new BinanceWebSocketClient(null, "btcusdt", "1m", null,
+                event -> lastEvent = event, () -> pushSubscribers, null, null, true);
+        combinedClient = new BinanceCombinedStreamClient(0, null, null, OBJECT_MAPPER, null,
+                (stream, event) -> lastEvent = event, stream -> pushSubscribers, null, null, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        singleClient.close();
+    }
+
+    @Benchmark
+    public BinanceWsKlineEvent singleStream() {
+        singleClient.handleMessage(rawMessages.get(next()));
+        return lastEvent;
+    }
+
+    @Benchmark
+    public BinanceWsKlineEvent combinedStream() {
+        combinedClient.handleMessage(combinedMessages.get(next()));
+        return lastEvent;
+    }
+
+    @Benchmark
+    public BinanceWsKlineEvent objectMapperTree() throws Exception {
+        JsonNode root = OBJECT_MAPPER.readTree(combinedMessages.get(next()));
+        return OBJECT_MAPPER.treeToValue(root.get("data"), BinanceWsKlineEvent.class);
+    }
+
+    private int next() {
+        int index = cursor;
+        cursor = index + 1 == rawMessages.size() ? 0 : index + 1;
+        return index;
+    }
+}
@@ -0,0 +1,81 @@
+package com.chanlun.exchange;
+
+import com.chanlun.benchmark.BenchmarkFixtures;
+import com.chanlun.entity.Kline;
+import com.chanlun.exchange.model.BinanceKline;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K 线 REST 响应解析基准
+ *
+ * - parseKlinesResponse: BinanceClient 原路径，String -> List&lt;Object[]&gt; -> BinanceKline，再转为 Kline
+ * - streamingParse: 同步和回补入库路径，响应流直接解析为 Kline
+ *
+ * @author Chanlun Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KlineResponseParseBenchmark {
+
+    /**
+     * 每页 K 线数量（/api/v3/klines limit 最大 1000）
+     */
+    @Param({"500", "1000"})
+    public int candles;
+
+    private BinanceClient binanceClient;
+    private String body;
+    private byte[] bodyBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        binanceClient = new BinanceClient(null, null, null, null, true);
+        body = BenchmarkFixtures.restKlinesResponse(candles);
+        bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        binanceClient.close();
+    }
+
+    @Benchmark
+    public List<Kline> parseKlinesResponse() throws IOException {
+        // getKlines 接收响应体时也会先生成完整字符串
+        List<BinanceKline> binanceKlines = binanceClient.parseKlinesResponse(
+                new String(bodyBytes, StandardCharsets.UTF_8));
+        List<Kline> klines = new ArrayList<>(binanceKlines.size());
+        for (BinanceKline binanceKline : binanceKlines) {
+            klines.add(binanceKline.toKline(1L, "1m"));
+        }
+        return klines;
+    }
+
+    @Benchmark
+    public List<Kline> streamingParse() throws IOException {
+        return BinanceKlineResponseParser.parse(new ByteArrayInputStream(bodyBytes), 1L, "1m", candles);
+    }
+}
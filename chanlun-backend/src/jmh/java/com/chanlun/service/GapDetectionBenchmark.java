@@ -0,0 +1,120 @@
+package com.chanlun.service;
+
+import com.chanlun.benchmark.BenchmarkFixtures;
+import com.chanlun.entity.DataGap;
+import com.chanlun.mapper.DataGapMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缺口检测基准
+ *
+ * 需要真实 PostgreSQL，通过 JMH 参数指定连接：
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="GapDetection \
+ *     -p dbUrl=jdbc:postgresql://localhost:5432/chanlun_bench -p username=chanlun -p password=chanlun"
+ * </pre>
+ * 目标库会执行 Flyway 迁移，创建临时交易对并写入带缺口的 1m 序列（按月分区），结束后级联删除。
+ * 检测到的缺口每隔一个预先登记到 data_gap，使已有缺口去重（NOT EXISTS）也参与度量：
+ * - detectGaps: DataGapService.detectGapsForSymbolInterval 全量扫描，经真实 Mapper 执行 selectNewGapBoundaries
+ * - planFill: 对检测结果生成回补窗口（GapFillPlanner.plan，纯内存）
+ *
+ * @author Chanlun Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class GapDetectionBenchmark {
+
+    private static final long INTERVAL_MS = BenchmarkFixtures.ONE_MINUTE_MS;
+
+    @Param("")
+    public String dbUrl;
+
+    @Param("chanlun")
+    public String username;
+
+    @Param("chanlun")
+    public String password;
+
+    /**
+     * 序列中的 K 线数量（200 万根 1m 约为 3.8 年）
+     */
+    @Param({"2000000"})
+    public int candles;
+
+    /**
+     * 平均每隔多少根出现一个缺口
+     */
+    @Param({"500"})
+    public int gapEvery;
+
+    private DataSource dataSource;
+    private DataGapService dataGapService;
+    private long symbolId;
+    private List<DataGap> detectedGaps;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkFixtures.database(dbUrl, username, password);
+        symbolId = BenchmarkFixtures.createBenchSymbol(dataSource);
+        BenchmarkFixtures.seedOpenTimes(dataSource, symbolId,
+                BenchmarkFixtures.openTimeSeries(candles, gapEvery, 120));
+
+        DataGapMapper dataGapMapper = BenchmarkFixtures.mapper(dataSource, DataGapMapper.class);
+        dataGapService = new DataGapService(dataGapMapper, null, null, null, null, null, null);
+
+        List<DataGap> recorded = new ArrayList<>();
+        List<DataGap> all = dataGapService.detectGapsForSymbolInterval(symbolId, "1m", Instant.EPOCH);
+        for (int i = 0; i < all.size(); i += 2) {
+            recorded.add(all.get(i));
+        }
+        for (int from = 0; from < recorded.size(); from += 1000) {
+            dataGapMapper.batchInsert(recorded.subList(from, Math.min(from + 1000, recorded.size())));
+        }
+
+        detectedGaps = dataGapService.detectGapsForSymbolInterval(symbolId, "1m", Instant.EPOCH);
+        long id = 1;
+        for (DataGap gap : detectedGaps) {
+            gap.setId(id++);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (dataSource != null) {
+            BenchmarkFixtures.dropBenchData(dataSource);
+        }
+    }
+
+    @Benchmark
+    public List<DataGap> detectGaps() {
+        return dataGapService.detectGapsForSymbolInterval(symbolId, "1m", Instant.EPOCH);
+    }
+
+    @Benchmark
+    public List<GapFillPlanner.FillWindow> planFill() {
+        return GapFillPlanner.plan(detectedGaps, INTERVAL_MS, 1000);
+    }
+}
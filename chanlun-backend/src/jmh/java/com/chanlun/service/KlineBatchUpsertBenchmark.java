@@ -0,0 +1,59 @@
+package com.chanlun.service;
+
+import com.chanlun.benchmark.BenchmarkFixtures;
+import com.chanlun.entity.Kline;
+import com.chanlun.mapper.KlineMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KlineService.batchUpsert 校验与分批基准
+ *
+ * Mapper 为内存桩（按批返回行数），不含数据库往返，只度量服务层的校验、分批和缓存写入开销
+ *
+ * @author Chanlun Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KlineBatchUpsertBenchmark {
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private KlineService klineService;
+    private List<Kline> klines;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        KlineMapper klineMapper = BenchmarkFixtures.stub(KlineMapper.class,
+                Map.of("batchUpsert", args -> ((List<?>) args[0]).size()));
+        KlineCacheService klineCacheService = new KlineCacheService(klineMapper, null);
+        // 不注入 KlineBulkLoader，始终走 ON CONFLICT 分批路径
+        klineService = new KlineService(klineMapper, null, null, null, null, klineCacheService, event -> {
+        });
+        klines = BenchmarkFixtures.klines(size, 1L, "1m");
+    }
+
+    @Benchmark
+    public int batchUpsert() {
+        return klineService.batchUpsert(klines);
+    }
+}
@@ -0,0 +1,132 @@
+package com.chanlun.service;
+
+import com.chanlun.benchmark.BenchmarkFixtures;
+import com.chanlun.entity.Kline;
+import com.chanlun.mapper.KlineMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K 线批量写入基准：KlineService 现有 ON CONFLICT 分批路径（KlineMapper.batchUpsert）vs COPY + 合并
+ *
+ * 需要真实 PostgreSQL，通过 JMH 参数指定连接：
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="KlineBulkLoad \
+ *     -p dbUrl=jdbc:postgresql://localhost:5432/chanlun_bench -p username=chanlun -p password=chanlun"
+ * </pre>
+ * 目标库会执行 Flyway 迁移，并创建一个临时交易对，结束后级联删除。每次调用前清空该交易对的 K 线（不计时），
+ * 整批写入 rows 根。结果中的 rows 指标为每秒写入的 K 线行数。
+ * 现有路径经真实 Mapper 执行，与 @Transactional 的 batchUpsert 一样整批在一个事务中提交
+ *
+ * @author Chanlun Team
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 20)
+@Measurement(iterations = 5, time = 20)
+@Fork(1)
+public class KlineBulkLoadBenchmark {
+
+    @Param("")
+    public String dbUrl;
+
+    @Param("chanlun")
+    public String username;
+
+    @Param("chanlun")
+    public String password;
+
+    @Param("100000")
+    public int rows;
+
+    private DataSource dataSource;
+    private SqlSessionManager sessions;
+    private KlineService klineService;
+    private KlineBulkLoader bulkLoader;
+    private long symbolId;
+    private List<Kline> klines;
+
+    /**
+     * 写入行数计数，按每秒行数报告
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkFixtures.database(dbUrl, username, password);
+        symbolId = BenchmarkFixtures.createBenchSymbol(dataSource);
+        sessions = BenchmarkFixtures.sessions(dataSource, KlineMapper.class);
+        KlineMapper klineMapper = sessions.getMapper(KlineMapper.class);
+        // 不注入 KlineBulkLoader，始终走 ON CONFLICT 分批路径
+        klineService = new KlineService(klineMapper, null, null, null, null,
+                new KlineCacheService(klineMapper, null), event -> {
+        });
+        bulkLoader = new KlineBulkLoader(dataSource, new SimpleMeterRegistry());
+        klines = BenchmarkFixtures.klines(rows, symbolId, "1m");
+    }
+
+    @Setup(Level.Invocation)
+    public void clearKlines() throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement st = con.createStatement()) {
+            st.execute("DELETE FROM kline WHERE symbol_id = " + symbolId);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        if (dataSource != null) {
+            BenchmarkFixtures.dropBenchData(dataSource);
+        }
+    }
+
+    @Benchmark
+    public int batchUpsert(Rows counter) {
+        sessions.startManagedSession();
+        try {
+            int written = klineService.batchUpsert(klines);
+            sessions.commit();
+            counter.rows += written;
+            return written;
+        } finally {
+            sessions.close();
+        }
+    }
+
+    @Benchmark
+    public int copyUpsert(Rows counter) {
+        int written = bulkLoader.copyUpsert(klines);
+        counter.rows += written;
+        return written;
+    }
+}
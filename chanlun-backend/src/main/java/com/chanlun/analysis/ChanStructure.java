@@ -0,0 +1,166 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个 (交易对, 周期) 的笔和线段增量构建流水线
+ *
+ * 已完结 K 线 → {@link FractalSeries}（包含处理、分型）→ {@link StrokeBuilder}（笔）→ {@link SegmentBuilder}（线段）
+ *
+ * 每根 K 线只更新尾部状态：
+ * - 笔只依赖最新确认的分型，分型只保留最近几个
+ * - 已确认的笔和线段输出到 {@link Changes} 由调用方持久化，内存中只有未确认的最后一笔和当前线段的笔
+ *
+ * 状态可导出为 {@link Checkpoint}，重启后恢复并从检查点之后的 K 线继续输入
+ *
+ * @author Chanlun Team
+ */
+public class ChanStructure {
+
+    /**
+     * 内存中保留的分型数量（笔构建只需要最新一个）
+     */
+    private static final int FRACTAL_CAPACITY = 4;
+
+    /**
+     * 构建状态检查点
+     *
+     * @param fractals 分型尾部状态
+     * @param anchor 尚无笔时的起点候选
+     * @param lastStroke 最后一笔（未确认）
+     * @param segmentDirection 当前线段方向，尚无线段时为 null
+     * @param segmentStartTime 当前线段起点时间
+     * @param segmentStartPrice 当前线段起点价格
+     * @param segmentStrokes 当前线段已包含的笔
+     */
+    public record Checkpoint(FractalSeries.Tail fractals, Fractal anchor, Stroke lastStroke,
+                             Direction segmentDirection, long segmentStartTime, double segmentStartPrice,
+                             List<Stroke> segmentStrokes) {
+    }
+
+    /**
+     * 一批 K 线输入产生的变化
+     */
+    public static final class Changes {
+
+        private final List<Stroke> strokes = new ArrayList<>();
+        private final List<Segment> segments = new ArrayList<>();
+        private boolean tailChanged;
+
+        /**
+         * 新确认的笔（升序）
+         */
+        public List<Stroke> getConfirmedStrokes() {
+            return strokes;
+        }
+
+        /**
+         * 新确认的线段（升序）
+         */
+        public List<Segment> getConfirmedSegments() {
+            return segments;
+        }
+
+        /**
+         * 最后一笔或当前线段是否变化
+         */
+        public boolean isTailChanged() {
+            return tailChanged;
+        }
+
+        public boolean isEmpty() {
+            return strokes.isEmpty() && segments.isEmpty() && !tailChanged;
+        }
+    }
+
+    private final FractalSeries fractals;
+    private final StrokeBuilder strokeBuilder;
+    private final SegmentBuilder segmentBuilder;
+
+    public ChanStructure(Long symbolId, String interval) {
+        this.fractals = new FractalSeries(symbolId, interval, FRACTAL_CAPACITY);
+        this.strokeBuilder = new StrokeBuilder();
+        this.segmentBuilder = new SegmentBuilder();
+    }
+
+    /**
+     * 从检查点恢复
+     */
+    public ChanStructure(Long symbolId, String interval, Checkpoint checkpoint) {
+        this.fractals = new FractalSeries(symbolId, interval, FRACTAL_CAPACITY);
+        this.fractals.restore(checkpoint.fractals());
+        this.strokeBuilder = new StrokeBuilder(checkpoint.anchor(), checkpoint.lastStroke());
+        this.segmentBuilder = checkpoint.segmentDirection() == null
+                ? new SegmentBuilder()
+                : new SegmentBuilder(checkpoint.segmentDirection(), checkpoint.segmentStartTime(),
+                        checkpoint.segmentStartPrice(), checkpoint.segmentStrokes());
+    }
+
+    /**
+     * 输入一根已完结 K 线
+     *
+     * @param kline K 线（开盘时间升序）
+     * @param changes 收集产生的变化
+     * @return 分型层的处理结果，OUT_OF_ORDER 表示状态已失效需要重建
+     */
+    public FractalSeries.AppendResult append(Kline kline, Changes changes) {
+        if (kline.getOpenTime() == null || kline.getHigh() == null || kline.getLow() == null) {
+            return FractalSeries.AppendResult.DUPLICATE;
+        }
+        FractalSeries.AppendResult result = fractals.append(kline.getOpenTime().toEpochMilli(),
+                kline.getHigh().doubleValue(), kline.getLow().doubleValue());
+        if (result == FractalSeries.AppendResult.FRACTAL) {
+            onFractal(fractals.lastFractal(), changes);
+        }
+        return result;
+    }
+
+    private void onFractal(Fractal fractal, Changes changes) {
+        Stroke before = strokeBuilder.getLast();
+        Stroke confirmed = strokeBuilder.onFractal(fractal);
+        if (confirmed != null) {
+            changes.strokes.add(confirmed);
+            changes.segments.addAll(segmentBuilder.onStroke(confirmed));
+        }
+        if (confirmed != null || strokeBuilder.getLast() != before) {
+            changes.tailChanged = true;
+        }
+    }
+
+    /**
+     * 最后一笔（未确认），尚未成笔时返回 null
+     */
+    public Stroke getTailStroke() {
+        return strokeBuilder.getLast();
+    }
+
+    /**
+     * 当前线段（未确认），尚无已确认的笔时返回 null
+     */
+    public Segment getTailSegment() {
+        return segmentBuilder.getCurrent();
+    }
+
+    /**
+     * 最新一根已输入 K 线的开盘时间（epoch 毫秒），尚未输入时返回 Long.MIN_VALUE
+     */
+    public long getLastOpenTime() {
+        return fractals.getLastOpenTime();
+    }
+
+    public long getRawCount() {
+        return fractals.getRawCount();
+    }
+
+    /**
+     * 导出检查点
+     */
+    public Checkpoint checkpoint() {
+        return new Checkpoint(fractals.tail(), strokeBuilder.getAnchor(), strokeBuilder.getLast(),
+                segmentBuilder.getDirection(), segmentBuilder.getStartTime(), segmentBuilder.getStartPrice(),
+                segmentBuilder.getStrokes());
+    }
+}
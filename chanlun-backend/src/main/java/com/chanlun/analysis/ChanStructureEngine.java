@@ -0,0 +1,596 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.ChanSegment;
+import com.chanlun.entity.ChanStroke;
+import com.chanlun.entity.Kline;
+import com.chanlun.event.ChanStructureChangedEvent;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.service.KlineService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缠论笔和线段引擎
+ *
+ * 为每个写入过 K 线的 (symbolId, interval) 维护一个 {@link ChanStructure}，结果持久化到 chan_stroke / chan_segment：
+ * - K 线写库事务提交后（{@link KlineUpsertedEvent}）只增量更新尾部，产生变化时写入新确认的笔 / 线段、
+ *   替换未确认的最后一笔 / 当前线段，并保存检查点
+ * - 首次收到某交易对周期的 K 线时在后台构建：有检查点则恢复并补算之后的 K 线，否则游标读取全部历史重建；
+ *   构建期间到达的 K 线先暂存，构建完成后按序合并
+ * - 写入早于最新一根的 K 线（缺口回补、历史重写）时延迟全量重建：等待期间继续到达的乱序 K 线合并到同一次重建，
+ *   连续 rebuildDelayMs 没有乱序 K 线或等待超过 rebuildMaxDelayMs 后才重新读取历史；删除 K 线时清除结果
+ * - 事件监听只做分组，增量计算和写库都交给单线程构建执行器，不占用 K 线写入线程，也不依赖已提交的事务
+ * - 每次写库后发布 {@link ChanStructureChangedEvent}，驱动中枢等下游增量计算
+ * - 常驻状态最多 maxSeries 个，超过 idleEvictMs 未收到 K 线的状态定时移除；达到上限时移除最久未活动的一个，
+ *   全部在构建中时新的交易对周期暂不跟踪。移除后再次收到 K 线时从检查点恢复
+ * - 未完结 K 线（closeTime 晚于当前时间）不参与计算
+ *
+ * 查询直接读取数据库，不依赖内存状态
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+public class ChanStructureEngine {
+
+    private final KlineService klineService;
+    private final ChanStructureStore chanStructureStore;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.analysis.structure.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 乱序 K 线触发重建前的静默期（毫秒），期间再有乱序 K 线则顺延
+     */
+    @Value("${app.analysis.structure.rebuild-delay-ms:5000}")
+    private long rebuildDelayMs = 5000;
+
+    /**
+     * 乱序 K 线触发重建的最长等待（毫秒），持续回补时至少按此间隔重建一次
+     */
+    @Value("${app.analysis.structure.rebuild-max-delay-ms:60000}")
+    private long rebuildMaxDelayMs = 60000;
+
+    /**
+     * 最多常驻的 (交易对, 周期) 数量
+     */
+    @Value("${app.analysis.structure.max-series:2000}")
+    private int maxSeries = 2000;
+
+    /**
+     * 超过此时长（毫秒）未收到 K 线的状态被移除，0 表示不按空闲移除
+     */
+    @Value("${app.analysis.structure.idle-evict-ms:3600000}")
+    private long idleEvictMs = 3600000;
+
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    private final AtomicLong buildCount = new AtomicLong(0);
+    private final AtomicLong evictionCount = new AtomicLong(0);
+    private final AtomicLong rebuildCount = new AtomicLong(0);
+    private final AtomicLong failureCount = new AtomicLong(0);
+
+    private ExecutorService ownedExecutor;
+    private Executor builder;
+    private ScheduledExecutorService rebuildScheduler;
+
+    /**
+     * 单个交易对周期的构建状态，structure 为 null 表示正在后台构建
+     */
+    private static final class Slot {
+        final Long symbolId;
+        final String interval;
+        ChanStructure structure;
+        List<Kline> pending = new ArrayList<>();
+        /**
+         * 延迟重建的登记时间，0 表示没有待执行的重建
+         */
+        long rebuildRequestedAt;
+        /**
+         * 最近一次收到乱序 K 线的时间
+         */
+        long lastOutOfOrderAt;
+        /**
+         * 等待重建期间收到的最新开盘时间，用于识别后续乱序 K 线
+         */
+        long latestOpenTime = Long.MIN_VALUE;
+        /**
+         * 最近一次收到 K 线的时间
+         */
+        volatile long lastActiveAt = System.currentTimeMillis();
+
+        Slot(Long symbolId, String interval) {
+            this.symbolId = symbolId;
+            this.interval = interval;
+        }
+    }
+
+    public ChanStructureEngine(KlineService klineService, ChanStructureStore chanStructureStore,
+                               ApplicationEventPublisher eventPublisher) {
+        this.klineService = klineService;
+        this.chanStructureStore = chanStructureStore;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    public void start() {
+        ownedExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "chan-structure-build");
+            t.setDaemon(true);
+            return t;
+        });
+        builder = ownedExecutor;
+        rebuildScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chan-structure-rebuild-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        if (idleEvictMs > 0) {
+            long period = Math.max(1000, idleEvictMs / 4);
+            rebuildScheduler.scheduleWithFixedDelay(() -> evictIdle(System.currentTimeMillis()),
+                    period, period, TimeUnit.MILLISECONDS);
+        }
+        log.info("ChanStructureEngine started: enabled={}, rebuildDelayMs={}, rebuildMaxDelayMs={}, maxSeries={}, idleEvictMs={}",
+                enabled, rebuildDelayMs, rebuildMaxDelayMs, maxSeries, idleEvictMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (rebuildScheduler != null) {
+            rebuildScheduler.shutdownNow();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 指定构建执行器（测试用）
+     */
+    void setBuilder(Executor builder) {
+        this.builder = builder;
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 查询笔（升序）
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 开始时间（包含），与 endTime 均为空时返回最近 limit 笔
+     * @param endTime 结束时间（包含）
+     * @param limit 返回数量
+     * @return 笔列表，最后一笔可能未确认
+     */
+    public List<ChanStroke> getStrokes(Long symbolId, String interval, Instant startTime, Instant endTime, int limit) {
+        if (startTime == null && endTime == null) {
+            return chanStructureStore.getLatestStrokes(symbolId, interval, limit);
+        }
+        return chanStructureStore.getStrokes(symbolId, interval,
+                startTime != null ? startTime : Instant.EPOCH, endTime != null ? endTime : Instant.now(), limit);
+    }
+
+    /**
+     * 查询线段（升序）
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 开始时间（包含），与 endTime 均为空时返回最近 limit 个线段
+     * @param endTime 结束时间（包含）
+     * @param limit 返回数量
+     * @return 线段列表，最后一段可能未确认
+     */
+    public List<ChanSegment> getSegments(Long symbolId, String interval, Instant startTime, Instant endTime, int limit) {
+        if (startTime == null && endTime == null) {
+            return chanStructureStore.getLatestSegments(symbolId, interval, limit);
+        }
+        return chanStructureStore.getSegments(symbolId, interval,
+                startTime != null ? startTime : Instant.EPOCH, endTime != null ? endTime : Instant.now(), limit);
+    }
+
+    /**
+     * 后台全量重建指定交易对周期
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     */
+    public void rebuild(Long symbolId, String interval) {
+        if (!enabled) {
+            throw new BusinessException("笔和线段引擎未启用");
+        }
+        Slot slot = new Slot(symbolId, interval);
+        // 替换后旧状态的构建结果不再写入
+        slots.put(key(symbolId, interval), slot);
+        schedule(slot, true);
+    }
+
+    // ==================== 事件 ====================
+
+    /**
+     * K 线写库事务提交后增量更新
+     *
+     * 在写入线程只做分组，计算和写库交给构建执行器
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineUpserted(KlineUpsertedEvent event) {
+        if (!enabled || event.getKlines() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Map<String, List<Kline>> grouped = new LinkedHashMap<>();
+        for (Kline kline : event.getKlines()) {
+            if (kline.getSymbolId() == null || kline.getInterval() == null || !isClosed(kline, now)) {
+                continue;
+            }
+            grouped.computeIfAbsent(key(kline.getSymbolId(), kline.getInterval()), k -> new ArrayList<>()).add(kline);
+        }
+        for (List<Kline> klines : grouped.values()) {
+            klines.sort(Comparator.comparing(Kline::getOpenTime));
+            builder.execute(() -> ingest(klines));
+        }
+    }
+
+    /**
+     * K 线删除后清除结果，下次写入时重新构建
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineDeleted(KlineDeletedEvent event) {
+        if (event.getInterval() != null) {
+            remove(key(event.getSymbolId(), event.getInterval()));
+        } else {
+            String prefix = event.getSymbolId() + "_";
+            slots.keySet().stream().filter(k -> k.startsWith(prefix)).toList().forEach(this::remove);
+        }
+        // 排在已提交的构建和写入之后执行
+        builder.execute(() -> {
+            try {
+                chanStructureStore.clear(event.getSymbolId(), event.getInterval());
+            } catch (RuntimeException e) {
+                failureCount.incrementAndGet();
+                log.warn("Chan structure clear failed: symbolId={}, interval={}, error={}",
+                        event.getSymbolId(), event.getInterval(), e.getMessage());
+            }
+        });
+    }
+
+    // ==================== 统计 ====================
+
+    /**
+     * 跟踪中的 (交易对, 周期) 数量
+     */
+    public int getSlotCount() {
+        return slots.size();
+    }
+
+    /**
+     * 指定交易对周期是否已构建完成（可增量更新）
+     */
+    public boolean isReady(Long symbolId, String interval) {
+        Slot slot = slots.get(key(symbolId, interval));
+        if (slot == null) {
+            return false;
+        }
+        synchronized (slot) {
+            return slot.structure != null;
+        }
+    }
+
+    public long getBuildCount() {
+        return buildCount.get();
+    }
+
+    public long getRebuildCount() {
+        return rebuildCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    // ==================== 内部实现 ====================
+
+    /**
+     * 在构建执行器上输入同一交易对周期的一批已完结 K 线（升序）
+     */
+    private void ingest(List<Kline> klines) {
+        Slot slot = activate(klines.get(0).getSymbolId(), klines.get(0).getInterval());
+        if (slot == null) {
+            // 新登记的交易对周期从数据库构建，已包含本批 K 线；未登记时之后从检查点恢复
+            return;
+        }
+        slot.lastActiveAt = System.currentTimeMillis();
+        synchronized (slot) {
+            if (slot.structure != null) {
+                apply(slot, klines);
+                return;
+            }
+            if (slot.rebuildRequestedAt != 0) {
+                // 等待重建期间的乱序 K 线顺延静默期，由同一次重建读取
+                for (Kline kline : klines) {
+                    long openTime = kline.getOpenTime().toEpochMilli();
+                    if (openTime < slot.latestOpenTime) {
+                        slot.lastOutOfOrderAt = System.currentTimeMillis();
+                    } else {
+                        slot.latestOpenTime = openTime;
+                    }
+                }
+            }
+            slot.pending.addAll(klines);
+        }
+    }
+
+    /**
+     * 返回已登记的状态；未登记时登记并提交后台构建，返回 null
+     *
+     * 达到 maxSeries 时先移除最久未活动的状态，没有可移除的状态时不登记，返回 null
+     */
+    private Slot activate(Long symbolId, String interval) {
+        String key = key(symbolId, interval);
+        Slot slot = slots.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        if (slots.size() >= maxSeries && !evictLeastActive()) {
+            log.debug("Chan structure slots full, not tracking: key={}, maxSeries={}", key, maxSeries);
+            return null;
+        }
+        Slot created = new Slot(symbolId, interval);
+        slot = slots.putIfAbsent(key, created);
+        if (slot != null) {
+            return slot;
+        }
+        schedule(created, false);
+        return null;
+    }
+
+    /**
+     * 移除超过 idleEvictMs 未收到 K 线的状态
+     *
+     * @param now 当前时间（epoch 毫秒）
+     * @return 移除的数量
+     */
+    int evictIdle(long now) {
+        int evicted = 0;
+        for (Map.Entry<String, Slot> entry : slots.entrySet()) {
+            Slot slot = entry.getValue();
+            if (now - slot.lastActiveAt >= idleEvictMs && evict(entry.getKey(), slot)) {
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.info("Evicted {} idle chan structure slots, remaining={}", evicted, slots.size());
+        }
+        return evicted;
+    }
+
+    private boolean evictLeastActive() {
+        List<Map.Entry<String, Slot>> candidates = new ArrayList<>(slots.entrySet());
+        candidates.sort(Comparator.comparingLong(entry -> entry.getValue().lastActiveAt));
+        for (Map.Entry<String, Slot> entry : candidates) {
+            if (evict(entry.getKey(), entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 移除已构建完成的状态；构建中或等待重建的状态不移除（检查点可能落后于已重写的历史）
+     */
+    private boolean evict(String key, Slot slot) {
+        synchronized (slot) {
+            if (slot.structure == null || slot.rebuildRequestedAt != 0 || !slots.remove(key, slot)) {
+                return false;
+            }
+            slot.structure = null;
+            slot.pending = new ArrayList<>();
+        }
+        evictionCount.incrementAndGet();
+        return true;
+    }
+
+    private void remove(String key) {
+        Slot removed = slots.remove(key);
+        if (removed != null) {
+            // 等待进行中的写入完成，之后该状态的构建结果不再写入
+            synchronized (removed) {
+                removed.structure = null;
+                removed.pending = new ArrayList<>();
+            }
+        }
+    }
+
+    private void schedule(Slot slot, boolean full) {
+        if (full) {
+            rebuildCount.incrementAndGet();
+        }
+        builder.execute(() -> build(slot, full));
+    }
+
+    /**
+     * 登记延迟重建（调用方持有 slot 锁），已有待执行的重建时直接合并
+     */
+    private void requestRebuild(Slot slot) {
+        long now = System.currentTimeMillis();
+        slot.lastOutOfOrderAt = now;
+        if (slot.rebuildRequestedAt != 0) {
+            return;
+        }
+        slot.rebuildRequestedAt = now;
+        rebuildCount.incrementAndGet();
+        scheduleRebuild(slot, rebuildDelayMs);
+    }
+
+    private void scheduleRebuild(Slot slot, long delayMs) {
+        if (rebuildScheduler == null || delayMs <= 0) {
+            builder.execute(() -> rebuildIfQuiet(slot));
+            return;
+        }
+        rebuildScheduler.schedule(() -> builder.execute(() -> rebuildIfQuiet(slot)), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 静默期内仍有乱序 K 线且未超过最长等待时顺延，否则全量重建
+     */
+    private void rebuildIfQuiet(Slot slot) {
+        synchronized (slot) {
+            if (slots.get(key(slot.symbolId, slot.interval)) != slot || slot.rebuildRequestedAt == 0) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long due = Math.min(slot.lastOutOfOrderAt + rebuildDelayMs, slot.rebuildRequestedAt + rebuildMaxDelayMs);
+            if (rebuildScheduler != null && now < due) {
+                scheduleRebuild(slot, due - now);
+                return;
+            }
+            slot.rebuildRequestedAt = 0;
+            slot.latestOpenTime = Long.MIN_VALUE;
+        }
+        build(slot, true);
+    }
+
+    /**
+     * 恢复检查点并补算之后的 K 线，或从头全量构建，完成后合并暂存的 K 线
+     */
+    private void build(Slot slot, boolean full) {
+        String key = key(slot.symbolId, slot.interval);
+        if (slots.get(key) != slot) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            ChanStructureStore.SavedCheckpoint saved = full
+                    ? null : chanStructureStore.loadCheckpoint(slot.symbolId, slot.interval);
+            ChanStructure structure = saved != null
+                    ? new ChanStructure(slot.symbolId, slot.interval, saved.checkpoint())
+                    : new ChanStructure(slot.symbolId, slot.interval);
+            Instant from = saved != null ? saved.lastOpenTime().plusMillis(1) : Instant.EPOCH;
+            ChanStructure.Changes changes = new ChanStructure.Changes();
+            long now = System.currentTimeMillis();
+            long rows = klineService.forEachInTimeRange(slot.symbolId, slot.interval, from, Instant.ofEpochMilli(now),
+                    kline -> {
+                        if (isClosed(kline, now)) {
+                            structure.append(kline, changes);
+                        }
+                    });
+
+            synchronized (slot) {
+                if (slots.get(key) != slot) {
+                    return;
+                }
+                if (saved == null) {
+                    chanStructureStore.replace(slot.symbolId, slot.interval, structure, changes);
+                    publish(slot, changes, true);
+                } else if (!changes.isEmpty() || rows > 0) {
+                    chanStructureStore.save(slot.symbolId, slot.interval, structure, changes);
+                    publish(slot, changes, false);
+                }
+                slot.structure = structure;
+                List<Kline> buffered = slot.pending;
+                slot.pending = new ArrayList<>();
+                List<Kline> newer = new ArrayList<>(buffered.size());
+                for (Kline kline : buffered) {
+                    // 与游标读取重叠的部分跳过
+                    if (kline.getOpenTime().toEpochMilli() > structure.getLastOpenTime()) {
+                        newer.add(kline);
+                    }
+                }
+                newer.sort(Comparator.comparing(Kline::getOpenTime));
+                apply(slot, newer);
+            }
+            buildCount.incrementAndGet();
+            log.info("Chan structure {}: key={}, klines={}, strokes={}, segments={}, {}ms",
+                    saved != null ? "restored" : "built", key, rows, changes.getConfirmedStrokes().size(),
+                    changes.getConfirmedSegments().size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            failureCount.incrementAndGet();
+            slots.remove(key, slot);
+            log.warn("Chan structure build failed: key={}, error={}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 增量输入一批已完结 K 线（调用方持有 slot 锁）
+     */
+    private void apply(Slot slot, List<Kline> klines) {
+        if (klines.isEmpty()) {
+            return;
+        }
+        ChanStructure.Changes changes = new ChanStructure.Changes();
+        for (Kline kline : klines) {
+            if (slot.structure.append(kline, changes) == FractalSeries.AppendResult.OUT_OF_ORDER) {
+                // 历史 K 线已变化，本批结果作废，由延迟全量重建覆盖
+                log.debug("Chan structure out of order, rebuild requested: symbolId={}, interval={}, openTime={}",
+                        slot.symbolId, slot.interval, kline.getOpenTime());
+                slot.latestOpenTime = slot.structure.getLastOpenTime();
+                slot.structure = null;
+                slot.pending = new ArrayList<>();
+                requestRebuild(slot);
+                return;
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            chanStructureStore.save(slot.symbolId, slot.interval, slot.structure, changes);
+        } catch (RuntimeException e) {
+            // 内存状态已领先于数据库，丢弃后下次写入从检查点恢复
+            failureCount.incrementAndGet();
+            slots.remove(key(slot.symbolId, slot.interval), slot);
+            log.warn("Chan structure save failed: symbolId={}, interval={}, error={}",
+                    slot.symbolId, slot.interval, e.getMessage());
+            return;
+        }
+        publish(slot, changes, false);
+    }
+
+    /**
+     * 写库后通知下游（中枢等），只有新确认的笔 / 线段或全量重建时发布
+     */
+    private void publish(Slot slot, ChanStructure.Changes changes, boolean rebuilt) {
+        if (!rebuilt && changes.getConfirmedStrokes().isEmpty() && changes.getConfirmedSegments().isEmpty()) {
+            return;
+        }
+        eventPublisher.publishEvent(new ChanStructureChangedEvent(this, slot.symbolId, slot.interval,
+                changes.getConfirmedStrokes(), changes.getConfirmedSegments(), rebuilt));
+    }
+
+    private static boolean isClosed(Kline kline, long now) {
+        return kline.getCloseTime() == null || kline.getCloseTime().toEpochMilli() < now;
+    }
+
+    private static String key(Long symbolId, String interval) {
+        return symbolId + "_" + interval;
+    }
+}
@@ -0,0 +1,269 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.ChanSegment;
+import com.chanlun.entity.ChanStroke;
+import com.chanlun.entity.ChanStructureState;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.mapper.ChanSegmentMapper;
+import com.chanlun.mapper.ChanStrokeMapper;
+import com.chanlun.mapper.ChanStructureStateMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 笔和线段持久化
+ *
+ * 每次写入在同一事务中完成：
+ * - 新确认的笔 / 线段 upsert 为 confirmed = true（未确认的行按起点时间原地更新）
+ * - 删除旧的未确认行，写入当前最后一笔 / 当前线段（confirmed = false）
+ * - 保存构建检查点
+ *
+ * 查询直接走 (symbol_id, interval, start_time) 唯一索引和 (symbol_id, interval, end_time) 索引
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChanStructureStore {
+
+    /**
+     * 批量写入分批大小
+     */
+    private static final int BATCH_SIZE = 500;
+
+    private final ChanStrokeMapper chanStrokeMapper;
+    private final ChanSegmentMapper chanSegmentMapper;
+    private final ChanStructureStateMapper chanStructureStateMapper;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 已保存的检查点
+     *
+     * @param lastOpenTime 检查点对应的最新一根 K 线开盘时间
+     * @param checkpoint 构建状态
+     */
+    public record SavedCheckpoint(Instant lastOpenTime, ChanStructure.Checkpoint checkpoint) {
+    }
+
+    /**
+     * 读取检查点，不存在或无法解析时返回 null（调用方全量重建）
+     */
+    public SavedCheckpoint loadCheckpoint(Long symbolId, String interval) {
+        ChanStructureState state = chanStructureStateMapper.selectBySymbolIdAndInterval(symbolId, interval);
+        if (state == null || state.getState() == null) {
+            return null;
+        }
+        try {
+            return new SavedCheckpoint(state.getLastOpenTime(),
+                    objectMapper.readValue(state.getState(), ChanStructure.Checkpoint.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Invalid chan structure checkpoint, rebuilding: symbolId={}, interval={}, error={}",
+                    symbolId, interval, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 增量写入一批变化
+     */
+    @Transactional
+    public void save(Long symbolId, String interval, ChanStructure structure, ChanStructure.Changes changes) {
+        write(symbolId, interval, structure, changes);
+    }
+
+    /**
+     * 全量替换（重建）
+     */
+    @Transactional
+    public void replace(Long symbolId, String interval, ChanStructure structure, ChanStructure.Changes changes) {
+        chanStrokeMapper.deleteBySymbolIdAndInterval(symbolId, interval);
+        chanSegmentMapper.deleteBySymbolIdAndInterval(symbolId, interval);
+        write(symbolId, interval, structure, changes);
+    }
+
+    /**
+     * 清除笔、线段和检查点
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期，为 null 时清除该交易对所有周期
+     */
+    @Transactional
+    public void clear(Long symbolId, String interval) {
+        if (interval == null) {
+            chanStrokeMapper.deleteBySymbolId(symbolId);
+            chanSegmentMapper.deleteBySymbolId(symbolId);
+            chanStructureStateMapper.deleteBySymbolId(symbolId);
+            return;
+        }
+        chanStrokeMapper.deleteBySymbolIdAndInterval(symbolId, interval);
+        chanSegmentMapper.deleteBySymbolIdAndInterval(symbolId, interval);
+        chanStructureStateMapper.deleteBySymbolIdAndInterval(symbolId, interval);
+    }
+
+    /**
+     * 查询与时间范围有重叠的笔（升序）
+     */
+    public List<ChanStroke> getStrokes(Long symbolId, String interval, Instant startTime, Instant endTime, int limit) {
+        return chanStrokeMapper.selectBySymbolIdAndIntervalAndTimeRange(symbolId, interval, startTime, endTime, limit);
+    }
+
+    /**
+     * 查询最近的 limit 笔（升序）
+     */
+    public List<ChanStroke> getLatestStrokes(Long symbolId, String interval, int limit) {
+        List<ChanStroke> strokes = new ArrayList<>(
+                chanStrokeMapper.selectRecentBySymbolIdAndInterval(symbolId, interval, limit));
+        Collections.reverse(strokes);
+        return strokes;
+    }
+
+    /**
+     * 查询与时间范围有重叠的线段（升序）
+     */
+    public List<ChanSegment> getSegments(Long symbolId, String interval, Instant startTime, Instant endTime, int limit) {
+        return chanSegmentMapper.selectBySymbolIdAndIntervalAndTimeRange(symbolId, interval, startTime, endTime, limit);
+    }
+
+    /**
+     * 查询最近的 limit 个线段（升序）
+     */
+    public List<ChanSegment> getLatestSegments(Long symbolId, String interval, int limit) {
+        List<ChanSegment> segments = new ArrayList<>(
+                chanSegmentMapper.selectRecentBySymbolIdAndInterval(symbolId, interval, limit));
+        Collections.reverse(segments);
+        return segments;
+    }
+
+    /**
+     * 按起点时间升序逐条读取已确认的笔（服务端游标）
+     *
+     * @return 读取的数量
+     */
+    @Transactional(readOnly = true)
+    public long forEachConfirmedStroke(Long symbolId, String interval, Consumer<ChanStroke> consumer) {
+        return drain(chanStrokeMapper.streamConfirmedBySymbolIdAndInterval(symbolId, interval), consumer);
+    }
+
+    /**
+     * 按起点时间升序逐条读取已确认的线段（服务端游标）
+     *
+     * @return 读取的数量
+     */
+    @Transactional(readOnly = true)
+    public long forEachConfirmedSegment(Long symbolId, String interval, Consumer<ChanSegment> consumer) {
+        return drain(chanSegmentMapper.streamConfirmedBySymbolIdAndInterval(symbolId, interval), consumer);
+    }
+
+    private static <T> long drain(Cursor<T> cursor, Consumer<T> consumer) {
+        long rows = 0;
+        try (cursor) {
+            for (T row : cursor) {
+                consumer.accept(row);
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new BusinessException("游标关闭失败: " + e.getMessage());
+        }
+        return rows;
+    }
+
+    private void write(Long symbolId, String interval, ChanStructure structure, ChanStructure.Changes changes) {
+        // 同一语句中 ON CONFLICT 不能重复命中同一行，按起点时间去重（后者覆盖前者）
+        Map<Instant, ChanStroke> strokes = new LinkedHashMap<>();
+        for (Stroke stroke : changes.getConfirmedStrokes()) {
+            ChanStroke row = toStroke(symbolId, interval, stroke, true);
+            strokes.put(row.getStartTime(), row);
+        }
+        if (structure.getTailStroke() != null) {
+            ChanStroke row = toStroke(symbolId, interval, structure.getTailStroke(), false);
+            strokes.put(row.getStartTime(), row);
+        }
+        Map<Instant, ChanSegment> segments = new LinkedHashMap<>();
+        for (Segment segment : changes.getConfirmedSegments()) {
+            ChanSegment row = toSegment(symbolId, interval, segment, true);
+            segments.put(row.getStartTime(), row);
+        }
+        if (structure.getTailSegment() != null) {
+            ChanSegment row = toSegment(symbolId, interval, structure.getTailSegment(), false);
+            segments.put(row.getStartTime(), row);
+        }
+
+        chanStrokeMapper.deleteUnconfirmed(symbolId, interval);
+        for (List<ChanStroke> batch : partition(strokes.values())) {
+            chanStrokeMapper.batchUpsert(batch);
+        }
+        chanSegmentMapper.deleteUnconfirmed(symbolId, interval);
+        for (List<ChanSegment> batch : partition(segments.values())) {
+            chanSegmentMapper.batchUpsert(batch);
+        }
+        chanStructureStateMapper.upsert(ChanStructureState.builder()
+                .symbolId(symbolId)
+                .interval(interval)
+                .lastOpenTime(Instant.ofEpochMilli(structure.getLastOpenTime()))
+                .state(serialize(structure.checkpoint()))
+                .build());
+    }
+
+    private String serialize(ChanStructure.Checkpoint checkpoint) {
+        try {
+            return objectMapper.writeValueAsString(checkpoint);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("笔和线段检查点序列化失败: " + e.getMessage());
+        }
+    }
+
+    static ChanStroke toStroke(Long symbolId, String interval, Stroke stroke, boolean confirmed) {
+        return ChanStroke.builder()
+                .symbolId(symbolId)
+                .interval(interval)
+                .direction(stroke.direction().name())
+                .startTime(Instant.ofEpochMilli(stroke.startTime()))
+                .endTime(Instant.ofEpochMilli(stroke.endTime()))
+                .startPrice(BigDecimal.valueOf(stroke.startPrice()))
+                .endPrice(BigDecimal.valueOf(stroke.endPrice()))
+                .startBar(stroke.start().barIndex())
+                .endBar(stroke.end().barIndex())
+                .confirmed(confirmed)
+                .build();
+    }
+
+    static ChanSegment toSegment(Long symbolId, String interval, Segment segment, boolean confirmed) {
+        return ChanSegment.builder()
+                .symbolId(symbolId)
+                .interval(interval)
+                .direction(segment.direction().name())
+                .startTime(Instant.ofEpochMilli(segment.startTime()))
+                .endTime(Instant.ofEpochMilli(segment.endTime()))
+                .startPrice(BigDecimal.valueOf(segment.startPrice()))
+                .endPrice(BigDecimal.valueOf(segment.endPrice()))
+                .strokeCount(segment.strokeCount())
+                .confirmed(confirmed)
+                .build();
+    }
+
+    private static <T> List<List<T>> partition(Collection<T> rows) {
+        List<T> list = new ArrayList<>(rows);
+        List<List<T>> batches = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += BATCH_SIZE) {
+            batches.add(list.subList(i, Math.min(i + BATCH_SIZE, list.size())));
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,23 @@
+package com.chanlun.analysis;
+
+/**
+ * 笔 / 线段方向
+ *
+ * @author Chanlun Team
+ */
+public enum Direction {
+
+    /**
+     * 向上：底分型 -> 顶分型
+     */
+    UP,
+
+    /**
+     * 向下：顶分型 -> 底分型
+     */
+    DOWN;
+
+    public Direction opposite() {
+        return this == UP ? DOWN : UP;
+    }
+}
@@ -0,0 +1,22 @@
+package com.chanlun.analysis;
+
+/**
+ * 已确认的分型
+ *
+ * @param type 分型类型
+ * @param barIndex 中间 K 线在包含处理后序列中的序号（从 0 开始，跨压缩保持不变）
+ * @param time 极值所在原始 K 线的开盘时间（epoch 毫秒）
+ * @param high 中间 K 线（合并后）最高价
+ * @param low 中间 K 线（合并后）最低价
+ *
+ * @author Chanlun Team
+ */
+public record Fractal(FractalType type, long barIndex, long time, double high, double low) {
+
+    /**
+     * 分型价格：顶分型取最高价，底分型取最低价
+     */
+    public double price() {
+        return type == FractalType.TOP ? high : low;
+    }
+}
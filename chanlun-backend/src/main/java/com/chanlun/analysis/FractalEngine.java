@@ -0,0 +1,251 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.service.KlineService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缠论分型引擎
+ *
+ * 为每个 (symbolId, interval) 维护一个 {@link FractalSeries}：
+ * - 首次查询时通过 KlineService 加载最近 lookback 根已完结 K 线并计算
+ * - K 线写库事务提交后（{@link KlineUpsertedEvent}），已加载的交易对周期只增量更新尾部
+ * - 写入早于最新一根的 K 线（缺口回补、历史重写）或删除 K 线时失效，下次查询重新加载
+ * - 未完结 K 线（closeTime 晚于当前时间）不参与计算
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+public class FractalEngine {
+
+    /**
+     * 加载时每页 K 线数量（KlineService 单次查询上限）
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    private final KlineService klineService;
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.analysis.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 加载的历史 K 线数量
+     */
+    @Value("${app.analysis.lookback:5000}")
+    private int lookback = 5000;
+
+    /**
+     * 每个交易对周期保留的分型数量
+     */
+    @Value("${app.analysis.max-fractals:2000}")
+    private int maxFractals = 2000;
+
+    /**
+     * 最多常驻的 (交易对, 周期) 数量，超过后按次计算不缓存
+     */
+    @Value("${app.analysis.max-series:5000}")
+    private int maxSeries = 5000;
+
+    private final Map<String, FractalSeries> series = new ConcurrentHashMap<>();
+
+    private final AtomicLong loadCount = new AtomicLong(0);
+    private final AtomicLong invalidationCount = new AtomicLong(0);
+
+    public FractalEngine(KlineService klineService) {
+        this.klineService = klineService;
+    }
+
+    /**
+     * 获取最近的 limit 个分型（升序）
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param limit 返回数量
+     * @return 分型列表
+     */
+    public List<Fractal> getLatestFractals(Long symbolId, String interval, int limit) {
+        return getSeries(symbolId, interval).latest(limit);
+    }
+
+    /**
+     * 获取极值时间在 [startTime, endTime] 内的分型（升序）
+     *
+     * 只覆盖已加载的最近 lookback 根 K 线范围
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（包含）
+     * @param limit 返回数量
+     * @return 分型列表
+     */
+    public List<Fractal> getFractals(Long symbolId, String interval, Instant startTime, Instant endTime, int limit) {
+        return getSeries(symbolId, interval).range(
+                startTime != null ? startTime.toEpochMilli() : Long.MIN_VALUE,
+                endTime != null ? endTime.toEpochMilli() : Long.MAX_VALUE, limit);
+    }
+
+    /**
+     * 获取已计算的分型状态（按需加载）
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 分型状态
+     */
+    public FractalSeries getSeries(Long symbolId, String interval) {
+        if (!enabled) {
+            throw new BusinessException("分析引擎未启用");
+        }
+        FractalSeries existing = series.get(key(symbolId, interval));
+        if (existing != null && existing.isReady()) {
+            return existing;
+        }
+        return load(symbolId, interval);
+    }
+
+    /**
+     * K 线写库事务提交后增量更新已加载的交易对周期
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineUpserted(KlineUpsertedEvent event) {
+        if (!enabled || series.isEmpty() || event.getKlines() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Kline kline : event.getKlines()) {
+            String key = key(kline.getSymbolId(), kline.getInterval());
+            FractalSeries target = series.get(key);
+            if (target == null || !isClosed(kline, now)) {
+                continue;
+            }
+            if (target.append(kline) == FractalSeries.AppendResult.OUT_OF_ORDER) {
+                invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * K 线删除后失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineDeleted(KlineDeletedEvent event) {
+        if (event.getInterval() != null) {
+            invalidate(key(event.getSymbolId(), event.getInterval()));
+            return;
+        }
+        String prefix = event.getSymbolId() + "_";
+        series.keySet().stream().filter(k -> k.startsWith(prefix)).toList().forEach(this::invalidate);
+    }
+
+    /**
+     * 已加载的 (交易对, 周期) 数量
+     */
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    private void invalidate(String key) {
+        if (series.remove(key) != null) {
+            invalidationCount.incrementAndGet();
+            log.debug("Fractal series invalidated: {}", key);
+        }
+    }
+
+    /**
+     * 加载最近 lookback 根 K 线
+     *
+     * 先登记空状态接收加载期间提交的 K 线，再合并数据库快照；超过 maxSeries 时只计算不登记
+     */
+    private FractalSeries load(Long symbolId, String interval) {
+        String key = key(symbolId, interval);
+        FractalSeries created = new FractalSeries(symbolId, interval, maxFractals);
+        FractalSeries target = series.size() < maxSeries || series.containsKey(key)
+                ? series.compute(key, (k, old) -> old != null && !old.isStale() ? old : created)
+                : created;
+        if (target != created) {
+            if (target.isReady()) {
+                return target;
+            }
+            // 其他线程正在加载：本次单独计算，不登记
+            created.load(loadRecent(symbolId, interval));
+            return created;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            List<Kline> snapshot = loadRecent(symbolId, interval);
+            created.load(snapshot);
+            loadCount.incrementAndGet();
+            log.debug("Fractal series loaded: key={}, klines={}, fractals={}, {}ms",
+                    key, snapshot.size(), created.getFractalCount(), System.currentTimeMillis() - start);
+            return created;
+        } catch (RuntimeException e) {
+            series.remove(key, created);
+            throw e;
+        }
+    }
+
+    /**
+     * 向前翻页读取最近 lookback 根已完结 K 线（升序）
+     */
+    private List<Kline> loadRecent(Long symbolId, String interval) {
+        Deque<List<Kline>> pages = new ArrayDeque<>();
+        int remaining = lookback;
+        int requested = Math.min(PAGE_SIZE, remaining);
+        List<Kline> page = klineService.getLatest(symbolId, interval, requested);
+        while (!page.isEmpty()) {
+            pages.push(page);
+            remaining -= page.size();
+            if (remaining <= 0 || page.size() < requested) {
+                break;
+            }
+            requested = Math.min(PAGE_SIZE, remaining);
+            page = klineService.getLatestBefore(symbolId, interval, page.get(0).getOpenTime(), requested);
+        }
+
+        long now = System.currentTimeMillis();
+        List<Kline> klines = new ArrayList<>(lookback - Math.max(remaining, 0));
+        for (List<Kline> p : pages) {
+            for (Kline kline : p) {
+                if (isClosed(kline, now)) {
+                    klines.add(kline);
+                }
+            }
+        }
+        return klines;
+    }
+
+    private static boolean isClosed(Kline kline, long now) {
+        return kline.getCloseTime() == null || kline.getCloseTime().toEpochMilli() < now;
+    }
+
+    private static String key(Long symbolId, String interval) {
+        return symbolId + "_" + interval;
+    }
+}
@@ -0,0 +1,419 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个 (交易对, 周期) 的分型增量计算状态
+ *
+ * 按开盘时间升序逐根输入已完结 K 线，每根 O(1)（均摊）更新尾部状态：
+ * - 包含处理：与前一根合并后 K 线存在包含关系时合并，方向由前两根合并后 K 线决定
+ *   （向上取高高、向下取低低），不足两根时按向上处理
+ * - 分型识别：新的合并后 K 线生成时，前一根合并后 K 线即不再变化，用相邻三根判断顶 / 底分型
+ *
+ * 状态全部保存在原始类型数组中：
+ * - 合并后 K 线只保留最近 3 根（分型判断所需），其余只计数
+ * - 分型最多保留 2 × maxFractals 个，超出时丢弃最早的 maxFractals 个
+ *
+ * 与 KlineRingBuffer 相同，加载期间到达的 K 线先暂存，加载完成后按序合并。
+ * 早于最新一根的 K 线（缺口回补、历史重写）无法增量处理，返回 OUT_OF_ORDER 由调用方重建。
+ *
+ * @author Chanlun Team
+ */
+public class FractalSeries {
+
+    /**
+     * 输入结果
+     */
+    public enum AppendResult {
+        /**
+         * 已处理，未产生新分型
+         */
+        APPENDED,
+        /**
+         * 已处理，确认了一个新分型
+         */
+        FRACTAL,
+        /**
+         * 开盘时间与最新一根相同，忽略
+         */
+        DUPLICATE,
+        /**
+         * 早于最新一根，状态已失效
+         */
+        OUT_OF_ORDER,
+        /**
+         * 尚未加载，已暂存
+         */
+        PENDING
+    }
+
+    private static final int TAIL = 3;
+
+    private static final byte TOP = 1;
+    private static final byte BOTTOM = -1;
+
+    private final Long symbolId;
+    private final String interval;
+    private final int maxFractals;
+
+    /**
+     * 最新一根原始 K 线的开盘时间
+     */
+    private long lastOpenTime = Long.MIN_VALUE;
+    private long rawCount;
+
+    /**
+     * 最近 3 根合并后 K 线，按 序号 % 3 存放
+     */
+    private final double[] barHigh = new double[TAIL];
+    private final double[] barLow = new double[TAIL];
+    private final long[] barHighTime = new long[TAIL];
+    private final long[] barLowTime = new long[TAIL];
+    private long barCount;
+
+    private byte[] fractalTypes;
+    private long[] fractalBars;
+    private long[] fractalTimes;
+    private double[] fractalHighs;
+    private double[] fractalLows;
+    private int fractalCount;
+
+    /**
+     * 已丢弃的分型数量
+     */
+    private long fractalOffset;
+
+    private boolean ready;
+    private boolean stale;
+    private List<Kline> pending = new ArrayList<>();
+
+    /**
+     * 尾部状态检查点（不含分型列表），恢复后可继续增量输入
+     *
+     * @param lastOpenTime 最新一根原始 K 线的开盘时间
+     * @param rawCount 已输入的原始 K 线数量
+     * @param barCount 包含处理后的 K 线数量
+     * @param barHigh 最近 3 根合并后 K 线最高价（按 序号 % 3 存放）
+     * @param barLow 最近 3 根合并后 K 线最低价
+     * @param barHighTime 最高价所在 K 线开盘时间
+     * @param barLowTime 最低价所在 K 线开盘时间
+     */
+    public record Tail(long lastOpenTime, long rawCount, long barCount, double[] barHigh, double[] barLow,
+                       long[] barHighTime, long[] barLowTime) {
+    }
+
+    public FractalSeries(Long symbolId, String interval, int maxFractals) {
+        this.symbolId = symbolId;
+        this.interval = interval;
+        this.maxFractals = Math.max(maxFractals, 1);
+        int initial = Math.min(64, this.maxFractals * 2);
+        this.fractalTypes = new byte[initial];
+        this.fractalBars = new long[initial];
+        this.fractalTimes = new long[initial];
+        this.fractalHighs = new double[initial];
+        this.fractalLows = new double[initial];
+    }
+
+    /**
+     * 从尾部检查点恢复
+     *
+     * @param tail 检查点
+     */
+    public synchronized void restore(Tail tail) {
+        lastOpenTime = tail.lastOpenTime();
+        rawCount = tail.rawCount();
+        barCount = tail.barCount();
+        System.arraycopy(tail.barHigh(), 0, barHigh, 0, TAIL);
+        System.arraycopy(tail.barLow(), 0, barLow, 0, TAIL);
+        System.arraycopy(tail.barHighTime(), 0, barHighTime, 0, TAIL);
+        System.arraycopy(tail.barLowTime(), 0, barLowTime, 0, TAIL);
+        fractalCount = 0;
+        pending = null;
+        ready = true;
+        stale = false;
+    }
+
+    /**
+     * 生成尾部检查点
+     */
+    public synchronized Tail tail() {
+        return new Tail(lastOpenTime, rawCount, barCount, barHigh.clone(), barLow.clone(),
+                barHighTime.clone(), barLowTime.clone());
+    }
+
+    /**
+     * 用数据库快照初始化，之后合并加载期间暂存的 K 线
+     *
+     * @param snapshot 已完结 K 线（升序）
+     */
+    public synchronized void load(List<Kline> snapshot) {
+        for (Kline kline : snapshot) {
+            appendLocked(kline);
+        }
+        List<Kline> buffered = pending;
+        pending = null;
+        ready = true;
+        for (Kline kline : buffered) {
+            // 与快照重叠的部分按 DUPLICATE / OUT_OF_ORDER 处理
+            if (kline.getOpenTime().toEpochMilli() > lastOpenTime) {
+                appendLocked(kline);
+            }
+        }
+    }
+
+    /**
+     * 输入一根已完结 K 线
+     *
+     * @param kline K 线
+     * @return 处理结果
+     */
+    public synchronized AppendResult append(Kline kline) {
+        if (kline == null || kline.getOpenTime() == null || kline.getHigh() == null || kline.getLow() == null) {
+            return AppendResult.DUPLICATE;
+        }
+        if (!ready) {
+            pending.add(kline);
+            return AppendResult.PENDING;
+        }
+        return appendLocked(kline);
+    }
+
+    /**
+     * 输入一根已完结 K 线（原始类型）
+     *
+     * @param openTime 开盘时间（epoch 毫秒）
+     * @param high 最高价
+     * @param low 最低价
+     * @return 处理结果
+     */
+    public synchronized AppendResult append(long openTime, double high, double low) {
+        if (stale) {
+            return AppendResult.OUT_OF_ORDER;
+        }
+        if (rawCount > 0 && openTime <= lastOpenTime) {
+            if (openTime == lastOpenTime) {
+                return AppendResult.DUPLICATE;
+            }
+            stale = true;
+            return AppendResult.OUT_OF_ORDER;
+        }
+        lastOpenTime = openTime;
+        rawCount++;
+
+        if (barCount > 0) {
+            int last = slot(barCount - 1);
+            if (contains(last, high, low)) {
+                merge(last, openTime, high, low);
+                return AppendResult.APPENDED;
+            }
+        }
+        int slot = slot(barCount);
+        barHigh[slot] = high;
+        barLow[slot] = low;
+        barHighTime[slot] = openTime;
+        barLowTime[slot] = openTime;
+        barCount++;
+        return barCount >= TAIL && detect() ? AppendResult.FRACTAL : AppendResult.APPENDED;
+    }
+
+    private AppendResult appendLocked(Kline kline) {
+        return append(kline.getOpenTime().toEpochMilli(), kline.getHigh().doubleValue(), kline.getLow().doubleValue());
+    }
+
+    private boolean contains(int slot, double high, double low) {
+        return (high >= barHigh[slot] && low <= barLow[slot]) || (high <= barHigh[slot] && low >= barLow[slot]);
+    }
+
+    /**
+     * 合并到最后一根：前一根合并后 K 线更低时向上（高高），否则向下（低低）
+     */
+    private void merge(int last, long openTime, double high, double low) {
+        boolean up = barCount < 2 || barHigh[last] > barHigh[slot(barCount - 2)];
+        if (up) {
+            if (high > barHigh[last]) {
+                barHigh[last] = high;
+                barHighTime[last] = openTime;
+            }
+            if (low > barLow[last]) {
+                barLow[last] = low;
+                barLowTime[last] = openTime;
+            }
+        } else {
+            if (low < barLow[last]) {
+                barLow[last] = low;
+                barLowTime[last] = openTime;
+            }
+            if (high < barHigh[last]) {
+                barHigh[last] = high;
+                barHighTime[last] = openTime;
+            }
+        }
+    }
+
+    /**
+     * 判断倒数第二根合并后 K 线是否构成分型
+     *
+     * 相邻合并后 K 线不存在包含关系，高低点同向且严格不等，顶底分型必然交替出现
+     */
+    private boolean detect() {
+        int left = slot(barCount - 3);
+        int middle = slot(barCount - 2);
+        int right = slot(barCount - 1);
+        if (barHigh[middle] > barHigh[left] && barHigh[middle] > barHigh[right]) {
+            addFractal(TOP, barCount - 2, barHighTime[middle], barHigh[middle], barLow[middle]);
+            return true;
+        }
+        if (barLow[middle] < barLow[left] && barLow[middle] < barLow[right]) {
+            addFractal(BOTTOM, barCount - 2, barLowTime[middle], barHigh[middle], barLow[middle]);
+            return true;
+        }
+        return false;
+    }
+
+    private void addFractal(byte type, long bar, long time, double high, double low) {
+        if (fractalCount == fractalTypes.length) {
+            if (fractalCount >= maxFractals * 2) {
+                compact();
+            } else {
+                grow(Math.min(fractalCount * 2, maxFractals * 2));
+            }
+        }
+        fractalTypes[fractalCount] = type;
+        fractalBars[fractalCount] = bar;
+        fractalTimes[fractalCount] = time;
+        fractalHighs[fractalCount] = high;
+        fractalLows[fractalCount] = low;
+        fractalCount++;
+    }
+
+    private void grow(int capacity) {
+        fractalTypes = Arrays.copyOf(fractalTypes, capacity);
+        fractalBars = Arrays.copyOf(fractalBars, capacity);
+        fractalTimes = Arrays.copyOf(fractalTimes, capacity);
+        fractalHighs = Arrays.copyOf(fractalHighs, capacity);
+        fractalLows = Arrays.copyOf(fractalLows, capacity);
+    }
+
+    /**
+     * 丢弃最早的 maxFractals 个分型
+     */
+    private void compact() {
+        int keep = fractalCount - maxFractals;
+        System.arraycopy(fractalTypes, maxFractals, fractalTypes, 0, keep);
+        System.arraycopy(fractalBars, maxFractals, fractalBars, 0, keep);
+        System.arraycopy(fractalTimes, maxFractals, fractalTimes, 0, keep);
+        System.arraycopy(fractalHighs, maxFractals, fractalHighs, 0, keep);
+        System.arraycopy(fractalLows, maxFractals, fractalLows, 0, keep);
+        fractalCount = keep;
+        fractalOffset += maxFractals;
+    }
+
+    private static int slot(long bar) {
+        return (int) (bar % TAIL);
+    }
+
+    /**
+     * 最近确认的分型，没有时返回 null
+     */
+    public synchronized Fractal lastFractal() {
+        return fractalCount > 0 ? snapshot(fractalCount - 1, fractalCount).get(0) : null;
+    }
+
+    /**
+     * 获取最近的 limit 个分型（升序）
+     */
+    public synchronized List<Fractal> latest(int limit) {
+        int count = Math.min(Math.max(limit, 0), fractalCount);
+        return snapshot(fractalCount - count, fractalCount);
+    }
+
+    /**
+     * 获取极值时间在 [startTime, endTime] 内的分型（升序，最多 limit 个）
+     */
+    public synchronized List<Fractal> range(long startTime, long endTime, int limit) {
+        int from = lowerBound(startTime);
+        int to = lowerBound(endTime == Long.MAX_VALUE ? endTime : endTime + 1);
+        return snapshot(from, Math.min(to, from + Math.max(limit, 0)));
+    }
+
+    /**
+     * 第一个极值时间 >= time 的下标
+     */
+    private int lowerBound(long time) {
+        int lo = 0;
+        int hi = fractalCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (fractalTimes[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private List<Fractal> snapshot(int from, int to) {
+        List<Fractal> result = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            result.add(new Fractal(fractalTypes[i] == TOP ? FractalType.TOP : FractalType.BOTTOM,
+                    fractalBars[i], fractalTimes[i], fractalHighs[i], fractalLows[i]));
+        }
+        return result;
+    }
+
+    public Long getSymbolId() {
+        return symbolId;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    public synchronized boolean isReady() {
+        return ready && !stale;
+    }
+
+    public synchronized boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * 已输入的原始 K 线数量
+     */
+    public synchronized long getRawCount() {
+        return rawCount;
+    }
+
+    /**
+     * 包含处理后的 K 线数量（含尚未定型的最后一根）
+     */
+    public synchronized long getBarCount() {
+        return barCount;
+    }
+
+    /**
+     * 当前保留的分型数量
+     */
+    public synchronized int getFractalCount() {
+        return fractalCount;
+    }
+
+    /**
+     * 累计确认的分型数量（含已丢弃）
+     */
+    public synchronized long getTotalFractalCount() {
+        return fractalOffset + fractalCount;
+    }
+
+    /**
+     * 最新一根原始 K 线的开盘时间，未输入时为 Long.MIN_VALUE
+     */
+    public synchronized long getLastOpenTime() {
+        return lastOpenTime;
+    }
+}
@@ -0,0 +1,19 @@
+package com.chanlun.analysis;
+
+/**
+ * 分型类型
+ *
+ * @author Chanlun Team
+ */
+public enum FractalType {
+
+    /**
+     * 顶分型：中间 K 线高点最高、低点也最高
+     */
+    TOP,
+
+    /**
+     * 底分型：中间 K 线低点最低、高点也最低
+     */
+    BOTTOM
+}
@@ -0,0 +1,358 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.service.DataGapService;
+import com.chanlun.service.KlineService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 技术指标引擎（EMA / MACD / BOLL）
+ *
+ * 为每个 (symbolId, interval) 维护一个 {@link IndicatorSeries}：
+ * - 首次查询时通过 KlineService 加载最近 lookback 根已完结 K 线批量计算
+ * - K 线写库事务提交后（{@link KlineUpsertedEvent}），已加载的交易对周期每根 O(1) 增量更新
+ * - 写入早于最新一根的 K 线（缺口回补、历史重写）或删除 K 线时失效，下次查询重新加载
+ * - 查询区间早于缓存的可信范围（已丢弃或处于 EMA 预热期）时，游标读取区间及之前的预热 K 线批量计算，结果不缓存
+ * - 未完结 K 线（closeTime 晚于当前时间）不参与计算
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+public class IndicatorEngine {
+
+    /**
+     * 加载时每页 K 线数量（KlineService 单次查询上限）
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    private final KlineService klineService;
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.analysis.indicator.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 加载并缓存的最近 K 线数量
+     */
+    @Value("${app.analysis.indicator.lookback:2000}")
+    private int lookback = 2000;
+
+    /**
+     * 最多常驻的 (交易对, 周期) 数量，超过后按次计算不缓存
+     */
+    @Value("${app.analysis.indicator.max-series:500}")
+    private int maxSeries = 500;
+
+    /**
+     * 缓存范围外的区间单次最多计算的 K 线数量（含预热）
+     */
+    @Value("${app.analysis.indicator.max-bulk-klines:500000}")
+    private int maxBulkKlines = 500000;
+
+    @Value("${app.analysis.indicator.macd.fast:12}")
+    private int macdFast = 12;
+
+    @Value("${app.analysis.indicator.macd.slow:26}")
+    private int macdSlow = 26;
+
+    @Value("${app.analysis.indicator.macd.signal:9}")
+    private int macdSignal = 9;
+
+    @Value("${app.analysis.indicator.boll.period:20}")
+    private int bollPeriod = 20;
+
+    @Value("${app.analysis.indicator.boll.width:2.0}")
+    private double bollWidth = 2.0;
+
+    private final Map<String, IndicatorSeries> series = new ConcurrentHashMap<>();
+
+    private final AtomicLong loadCount = new AtomicLong(0);
+    private final AtomicLong invalidationCount = new AtomicLong(0);
+    private final AtomicLong bulkCount = new AtomicLong(0);
+
+    public IndicatorEngine(KlineService klineService) {
+        this.klineService = klineService;
+    }
+
+    /**
+     * 获取与 K 线一一对应的指标值
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param klines K 线（升序）
+     * @return 指标值列表，未完结或缺少数据的 K 线对应 null
+     */
+    public List<IndicatorValue> getValues(Long symbolId, String interval, List<Kline> klines) {
+        if (klines.isEmpty()) {
+            return List.of();
+        }
+        IndicatorSeries source = resolve(symbolId, interval,
+                klines.get(0).getOpenTime().toEpochMilli(), klines.get(klines.size() - 1).getOpenTime().toEpochMilli());
+        List<IndicatorValue> values = new ArrayList<>(klines.size());
+        for (Kline kline : klines) {
+            values.add(source.valueAt(kline.getOpenTime().toEpochMilli()));
+        }
+        return values;
+    }
+
+    /**
+     * 计算开盘时间在 [startTime, endTime] 内的 MACD 柱面积
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（包含）
+     * @return 面积，区间内没有已完结 K 线时返回 null
+     */
+    public MacdArea getMacdArea(Long symbolId, String interval, Instant startTime, Instant endTime) {
+        if (startTime == null || endTime == null) {
+            throw new BusinessException("开始时间和结束时间不能为空");
+        }
+        if (startTime.isAfter(endTime)) {
+            throw new BusinessException("开始时间不能晚于结束时间");
+        }
+        long start = startTime.toEpochMilli();
+        long end = endTime.toEpochMilli();
+        return resolve(symbolId, interval, start, end).macdArea(start, end);
+    }
+
+    /**
+     * 获取已计算的指标状态（按需加载）
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 指标状态
+     */
+    public IndicatorSeries getSeries(Long symbolId, String interval) {
+        if (!enabled) {
+            throw new BusinessException("指标引擎未启用");
+        }
+        IndicatorSeries existing = series.get(key(symbolId, interval));
+        if (existing != null && existing.isReady()) {
+            return existing;
+        }
+        return load(symbolId, interval);
+    }
+
+    /**
+     * 覆盖 [start, end] 的指标状态：缓存可信范围内直接使用，否则批量计算
+     */
+    private IndicatorSeries resolve(Long symbolId, String interval, long start, long end) {
+        IndicatorSeries cached = getSeries(symbolId, interval);
+        if (cached.getTrustedFrom() <= start) {
+            return cached;
+        }
+        return compute(symbolId, interval, start, end);
+    }
+
+    /**
+     * 游标读取 [start - 预热, end] 的已完结 K 线批量计算
+     */
+    private IndicatorSeries compute(Long symbolId, String interval, long start, long end) {
+        IndicatorSeries.Params params = params();
+        long warmup = params.warmupBars() * DataGapService.getIntervalMillis(interval);
+        long from = Math.max(start - warmup, 0);
+        long now = System.currentTimeMillis();
+
+        Buffer buffer = new Buffer();
+        klineService.forEachInTimeRange(symbolId, interval, Instant.ofEpochMilli(from), Instant.ofEpochMilli(end),
+                kline -> {
+                    if (!isClosed(kline, now) || kline.getClose() == null) {
+                        return;
+                    }
+                    if (buffer.size >= maxBulkKlines) {
+                        throw new BusinessException("指标计算区间过大，最多 " + maxBulkKlines + " 根 K 线");
+                    }
+                    buffer.add(kline.getOpenTime().toEpochMilli(), kline.getClose().doubleValue());
+                });
+
+        IndicatorSeries result = new IndicatorSeries(symbolId, interval, params, buffer.size);
+        result.load(buffer.times, buffer.closes, buffer.size, true);
+        bulkCount.incrementAndGet();
+        log.debug("Indicators computed in bulk: symbolId={}, interval={}, klines={}", symbolId, interval, buffer.size);
+        return result;
+    }
+
+    /**
+     * K 线写库事务提交后增量更新已加载的交易对周期
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineUpserted(KlineUpsertedEvent event) {
+        if (!enabled || series.isEmpty() || event.getKlines() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Kline kline : event.getKlines()) {
+            String key = key(kline.getSymbolId(), kline.getInterval());
+            IndicatorSeries target = series.get(key);
+            if (target == null || !isClosed(kline, now)) {
+                continue;
+            }
+            if (target.append(kline) == IndicatorSeries.AppendResult.OUT_OF_ORDER) {
+                invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * K 线删除后失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineDeleted(KlineDeletedEvent event) {
+        if (event.getInterval() != null) {
+            invalidate(key(event.getSymbolId(), event.getInterval()));
+            return;
+        }
+        String prefix = event.getSymbolId() + "_";
+        series.keySet().stream().filter(k -> k.startsWith(prefix)).toList().forEach(this::invalidate);
+    }
+
+    /**
+     * 已加载的 (交易对, 周期) 数量
+     */
+    public int getSeriesCount() {
+        return series.size();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    public long getBulkCount() {
+        return bulkCount.get();
+    }
+
+    private void invalidate(String key) {
+        if (series.remove(key) != null) {
+            invalidationCount.incrementAndGet();
+            log.debug("Indicator series invalidated: {}", key);
+        }
+    }
+
+    /**
+     * 加载最近 lookback 根 K 线
+     *
+     * 先登记空状态接收加载期间提交的 K 线，再合并数据库快照；超过 maxSeries 时只计算不登记
+     */
+    private IndicatorSeries load(Long symbolId, String interval) {
+        String key = key(symbolId, interval);
+        IndicatorSeries created = new IndicatorSeries(symbolId, interval, params(), lookback);
+        IndicatorSeries target = series.size() < maxSeries || series.containsKey(key)
+                ? series.compute(key, (k, old) -> old != null && !old.isStale() ? old : created)
+                : created;
+        if (target != created) {
+            if (target.isReady()) {
+                return target;
+            }
+            // 其他线程正在加载：本次单独计算，不登记
+            Snapshot snapshot = loadRecent(symbolId, interval);
+            created.load(snapshot.klines(), snapshot.complete());
+            return created;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Snapshot snapshot = loadRecent(symbolId, interval);
+            created.load(snapshot.klines(), snapshot.complete());
+            loadCount.incrementAndGet();
+            log.debug("Indicator series loaded: key={}, klines={}, complete={}, {}ms",
+                    key, snapshot.klines().size(), snapshot.complete(), System.currentTimeMillis() - start);
+            return created;
+        } catch (RuntimeException e) {
+            series.remove(key, created);
+            throw e;
+        }
+    }
+
+    /**
+     * 加载的 K 线快照
+     *
+     * @param klines 已完结 K 线（升序）
+     * @param complete 是否已读到该交易对周期的第一根 K 线
+     */
+    private record Snapshot(List<Kline> klines, boolean complete) {
+    }
+
+    /**
+     * 批量计算的输入缓冲
+     */
+    private static final class Buffer {
+        long[] times = new long[256];
+        double[] closes = new double[256];
+        int size;
+
+        void add(long openTime, double close) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                closes = Arrays.copyOf(closes, size * 2);
+            }
+            times[size] = openTime;
+            closes[size] = close;
+            size++;
+        }
+    }
+
+    /**
+     * 向前翻页读取最近 lookback 根已完结 K 线（升序）
+     */
+    private Snapshot loadRecent(Long symbolId, String interval) {
+        Deque<List<Kline>> pages = new ArrayDeque<>();
+        int remaining = lookback;
+        int requested = Math.min(PAGE_SIZE, remaining);
+        List<Kline> page = klineService.getLatest(symbolId, interval, requested);
+        while (!page.isEmpty()) {
+            pages.push(page);
+            remaining -= page.size();
+            if (remaining <= 0 || page.size() < requested) {
+                break;
+            }
+            requested = Math.min(PAGE_SIZE, remaining);
+            page = klineService.getLatestBefore(symbolId, interval, page.get(0).getOpenTime(), requested);
+        }
+
+        long now = System.currentTimeMillis();
+        List<Kline> klines = new ArrayList<>(lookback - Math.max(remaining, 0));
+        for (List<Kline> p : pages) {
+            for (Kline kline : p) {
+                if (isClosed(kline, now)) {
+                    klines.add(kline);
+                }
+            }
+        }
+        return new Snapshot(klines, remaining > 0);
+    }
+
+    private IndicatorSeries.Params params() {
+        return new IndicatorSeries.Params(macdFast, macdSlow, macdSignal, bollPeriod, bollWidth);
+    }
+
+    private static boolean isClosed(Kline kline, long now) {
+        return kline.getCloseTime() == null || kline.getCloseTime().toEpochMilli() < now;
+    }
+
+    private static String key(Long symbolId, String interval) {
+        return symbolId + "_" + interval;
+    }
+}
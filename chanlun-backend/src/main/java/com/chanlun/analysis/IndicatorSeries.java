@@ -0,0 +1,524 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 单个 (交易对, 周期) 的技术指标计算状态（EMA / MACD / BOLL）
+ *
+ * 计算口径与通达信一致：
+ * - EMA 以第一根收盘价为初值，DIF = EMA(fast) - EMA(slow)，DEA = EMA(DIF, signal)，MACD 柱 = 2 × (DIF - DEA)
+ * - BOLL 中轨为 period 根收盘价均值，上下轨为中轨 ± width × 总体标准差，不足 period 根时为 NaN
+ *
+ * 两种输入方式，结果一致：
+ * - 批量：{@link #load(long[], double[], int, boolean)} 按指标分别对原始类型数组做单层循环（历史加载、任意区间补算）
+ * - 增量：{@link #append(Kline)} 每根已完结 K 线 O(1) 更新，开盘时间与最新一根相同时原地重算最新一根
+ *
+ * MACD 柱的正 / 负面积保存为前缀和，任意 [start, end] 区间的面积只需两次二分查找
+ *
+ * 结果保存在原始类型数组中，最多 2 × capacity 根，超出时丢弃最早的 capacity 根。
+ * 与 FractalSeries 相同，加载期间到达的 K 线先暂存，加载完成后按序合并；
+ * 早于最新一根的 K 线无法增量处理，返回 OUT_OF_ORDER 由调用方重建。
+ *
+ * @author Chanlun Team
+ */
+public class IndicatorSeries {
+
+    /**
+     * 指标参数
+     *
+     * @param fast MACD 快线周期
+     * @param slow MACD 慢线周期
+     * @param signal MACD 信号线周期
+     * @param bollPeriod BOLL 周期
+     * @param bollWidth BOLL 标准差倍数
+     */
+    public record Params(int fast, int slow, int signal, int bollPeriod, double bollWidth) {
+
+        public static final Params DEFAULT = new Params(12, 26, 9, 20, 2.0);
+
+        /**
+         * 不是从第一根 K 线开始计算时，前 warmupBars 根的 EMA 受初值影响，不作为结果
+         */
+        public int warmupBars() {
+            return 10 * Math.max(slow, Math.max(fast, signal)) + signal;
+        }
+    }
+
+    /**
+     * 输入结果
+     */
+    public enum AppendResult {
+        /**
+         * 已追加
+         */
+        APPENDED,
+        /**
+         * 开盘时间与最新一根相同，已重算最新一根
+         */
+        REPLACED,
+        /**
+         * 早于最新一根，状态已失效
+         */
+        OUT_OF_ORDER,
+        /**
+         * 尚未加载，已暂存
+         */
+        PENDING,
+        /**
+         * 缺少开盘时间或收盘价，忽略
+         */
+        IGNORED
+    }
+
+    private final Long symbolId;
+    private final String interval;
+    private final Params params;
+    private final int capacity;
+    private final double alphaFast;
+    private final double alphaSlow;
+    private final double alphaSignal;
+
+    private long[] times;
+    private double[] emaFast;
+    private double[] emaSlow;
+    private double[] dea;
+    private double[] bollMid;
+    private double[] bollStd;
+    /**
+     * MACD 柱正 / 负面积前缀和（含当前根，负面积为绝对值）
+     */
+    private double[] positiveArea;
+    private double[] negativeArea;
+    private int size;
+
+    /**
+     * 已输入的 K 线总数（含已丢弃的）
+     */
+    private long count;
+
+    /**
+     * 自该序号起（含）的结果不受 EMA 初值影响
+     */
+    private long trustedFrom;
+
+    /**
+     * BOLL 窗口：最近 bollPeriod 根收盘价，按 序号 % bollPeriod 存放
+     */
+    private final double[] window;
+    private double windowSum;
+    private double windowSumSq;
+
+    private boolean ready;
+    private boolean stale;
+    private List<Kline> pending = new ArrayList<>();
+
+    public IndicatorSeries(Long symbolId, String interval, Params params, int capacity) {
+        this.symbolId = symbolId;
+        this.interval = interval;
+        this.params = params;
+        this.capacity = Math.max(capacity, 2);
+        this.alphaFast = 2.0 / (params.fast() + 1);
+        this.alphaSlow = 2.0 / (params.slow() + 1);
+        this.alphaSignal = 2.0 / (params.signal() + 1);
+        this.window = new double[params.bollPeriod()];
+        allocate(Math.min(64, this.capacity * 2));
+    }
+
+    /**
+     * 用数据库快照初始化，之后合并加载期间暂存的 K 线
+     *
+     * @param snapshot 已完结 K 线（升序）
+     * @param fromStart 快照是否从该交易对周期的第一根 K 线开始
+     */
+    public synchronized void load(List<Kline> snapshot, boolean fromStart) {
+        long[] t = new long[snapshot.size()];
+        double[] c = new double[snapshot.size()];
+        int n = 0;
+        for (Kline kline : snapshot) {
+            if (kline.getOpenTime() == null || kline.getClose() == null) {
+                continue;
+            }
+            t[n] = kline.getOpenTime().toEpochMilli();
+            c[n] = kline.getClose().doubleValue();
+            n++;
+        }
+        load(t, c, n, fromStart);
+    }
+
+    /**
+     * 批量计算，之后合并加载期间暂存的 K 线
+     *
+     * 超过 2 × capacity 根时只保留最近 capacity 根的结果
+     *
+     * @param openTimes 开盘时间（epoch 毫秒，升序）
+     * @param closes 收盘价
+     * @param n 数量
+     * @param fromStart 是否从该交易对周期的第一根 K 线开始
+     */
+    public synchronized void load(long[] openTimes, double[] closes, int n, boolean fromStart) {
+        List<Kline> buffered = pending;
+        pending = null;
+        if (n > 0) {
+            compute(openTimes, closes, n);
+            trustedFrom = fromStart ? 0 : params.warmupBars();
+        }
+        ready = true;
+        if (buffered == null) {
+            return;
+        }
+        for (Kline kline : buffered) {
+            // 与快照重叠的部分（开盘时间早于最新一根）忽略
+            if (count == 0 || kline.getOpenTime().toEpochMilli() >= times[size - 1]) {
+                appendLocked(kline.getOpenTime().toEpochMilli(), kline.getClose().doubleValue());
+            }
+        }
+    }
+
+    private void compute(long[] t, double[] c, int n) {
+        allocate(Math.max(n, Math.min(64, capacity * 2)));
+        System.arraycopy(t, 0, times, 0, n);
+
+        // EMA / DIF / DEA
+        double fast = c[0];
+        double slow = c[0];
+        double signal = 0;
+        for (int i = 0; i < n; i++) {
+            fast += alphaFast * (c[i] - fast);
+            slow += alphaSlow * (c[i] - slow);
+            signal += alphaSignal * (fast - slow - signal);
+            emaFast[i] = fast;
+            emaSlow[i] = slow;
+            dea[i] = signal;
+        }
+
+        // BOLL：滑动窗口和与平方和，每满一个窗口重新求和消除累计误差
+        int period = params.bollPeriod();
+        double sum = 0;
+        double sumSq = 0;
+        for (int i = 0; i < n; i++) {
+            double close = c[i];
+            if (i >= period) {
+                double old = c[i - period];
+                sum += close - old;
+                sumSq += close * close - old * old;
+            } else {
+                sum += close;
+                sumSq += close * close;
+            }
+            if (i % period == period - 1) {
+                sum = 0;
+                sumSq = 0;
+                for (int j = i - period + 1; j <= i; j++) {
+                    sum += c[j];
+                    sumSq += c[j] * c[j];
+                }
+            }
+            setBoll(i, sum, sumSq, i + 1 >= period);
+        }
+        for (int i = Math.max(0, n - period); i < n; i++) {
+            window[i % period] = c[i];
+        }
+        windowSum = sum;
+        windowSumSq = sumSq;
+
+        // MACD 柱面积前缀和
+        double positive = 0;
+        double negative = 0;
+        for (int i = 0; i < n; i++) {
+            double bar = 2 * (emaFast[i] - emaSlow[i] - dea[i]);
+            if (bar > 0) {
+                positive += bar;
+            } else {
+                negative -= bar;
+            }
+            positiveArea[i] = positive;
+            negativeArea[i] = negative;
+        }
+
+        size = n;
+        count = n;
+        if (size > capacity * 2) {
+            compact(size - capacity);
+        }
+    }
+
+    /**
+     * 输入一根已完结 K 线
+     *
+     * @param kline K 线
+     * @return 处理结果
+     */
+    public synchronized AppendResult append(Kline kline) {
+        if (kline == null || kline.getOpenTime() == null || kline.getClose() == null) {
+            return AppendResult.IGNORED;
+        }
+        if (!ready) {
+            pending.add(kline);
+            return AppendResult.PENDING;
+        }
+        return appendLocked(kline.getOpenTime().toEpochMilli(), kline.getClose().doubleValue());
+    }
+
+    private AppendResult appendLocked(long openTime, double close) {
+        if (stale) {
+            return AppendResult.OUT_OF_ORDER;
+        }
+        if (count > 0 && openTime <= times[size - 1]) {
+            if (openTime == times[size - 1]) {
+                replaceLast(close);
+                return AppendResult.REPLACED;
+            }
+            stale = true;
+            return AppendResult.OUT_OF_ORDER;
+        }
+        if (size == times.length) {
+            if (size >= capacity * 2) {
+                compact(size - capacity);
+            } else {
+                grow();
+            }
+        }
+        int period = params.bollPeriod();
+        int slot = (int) (count % period);
+        double old = count >= period ? window[slot] : 0;
+        window[slot] = close;
+        windowSum += close - old;
+        windowSumSq += close * close - old * old;
+        if (slot == period - 1) {
+            resum();
+        }
+        times[size] = openTime;
+        fill(size, close);
+        setBoll(size, windowSum, windowSumSq, count + 1 >= period);
+        size++;
+        count++;
+        return AppendResult.APPENDED;
+    }
+
+    /**
+     * 以前一根为基础重算最新一根
+     */
+    private void replaceLast(double close) {
+        int period = params.bollPeriod();
+        int slot = (int) ((count - 1) % period);
+        double old = window[slot];
+        window[slot] = close;
+        windowSum += close - old;
+        windowSumSq += close * close - old * old;
+        if (slot == period - 1) {
+            resum();
+        }
+        fill(size - 1, close);
+        setBoll(size - 1, windowSum, windowSumSq, count >= period);
+    }
+
+    /**
+     * 由前一根的状态计算第 i 根的 EMA / DEA / 面积前缀和
+     */
+    private void fill(int i, double close) {
+        if (i == 0 && count <= 1) {
+            emaFast[0] = close;
+            emaSlow[0] = close;
+            dea[0] = 0;
+            positiveArea[0] = 0;
+            negativeArea[0] = 0;
+            return;
+        }
+        int prev = i - 1;
+        double fast = emaFast[prev] + alphaFast * (close - emaFast[prev]);
+        double slow = emaSlow[prev] + alphaSlow * (close - emaSlow[prev]);
+        double signal = dea[prev] + alphaSignal * (fast - slow - dea[prev]);
+        double bar = 2 * (fast - slow - signal);
+        emaFast[i] = fast;
+        emaSlow[i] = slow;
+        dea[i] = signal;
+        positiveArea[i] = positiveArea[prev] + (bar > 0 ? bar : 0);
+        negativeArea[i] = negativeArea[prev] + (bar < 0 ? -bar : 0);
+    }
+
+    private void setBoll(int i, double sum, double sumSq, boolean full) {
+        if (!full) {
+            bollMid[i] = Double.NaN;
+            bollStd[i] = Double.NaN;
+            return;
+        }
+        int period = params.bollPeriod();
+        double mean = sum / period;
+        bollMid[i] = mean;
+        bollStd[i] = Math.sqrt(Math.max(sumSq / period - mean * mean, 0));
+    }
+
+    private void resum() {
+        windowSum = 0;
+        windowSumSq = 0;
+        for (double close : window) {
+            windowSum += close;
+            windowSumSq += close * close;
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 开盘时间在 [startTime, endTime] 内的指标值（升序，最多 limit 个）
+     */
+    public synchronized List<IndicatorValue> range(long startTime, long endTime, int limit) {
+        int from = lowerBound(startTime);
+        int to = lowerBound(endTime == Long.MAX_VALUE ? endTime : endTime + 1);
+        to = Math.min(to, from + Math.max(limit, 0));
+        List<IndicatorValue> result = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            result.add(value(i));
+        }
+        return result;
+    }
+
+    /**
+     * 指定开盘时间的指标值，不存在时返回 null
+     */
+    public synchronized IndicatorValue valueAt(long openTime) {
+        int i = lowerBound(openTime);
+        return i < size && times[i] == openTime ? value(i) : null;
+    }
+
+    /**
+     * 开盘时间在 [startTime, endTime] 内的 MACD 柱面积，区间内没有 K 线时返回 null
+     */
+    public synchronized MacdArea macdArea(long startTime, long endTime) {
+        int from = lowerBound(startTime);
+        int to = lowerBound(endTime == Long.MAX_VALUE ? endTime : endTime + 1) - 1;
+        if (from > to) {
+            return null;
+        }
+        double positive = positiveArea[to];
+        double negative = negativeArea[to];
+        if (from > 0) {
+            positive -= positiveArea[from - 1];
+            negative -= negativeArea[from - 1];
+        } else {
+            double bar = macd(0);
+            positive -= positiveArea[0] - Math.max(bar, 0);
+            negative -= negativeArea[0] - Math.max(-bar, 0);
+        }
+        return new MacdArea(times[from], times[to], to - from + 1, positive, negative);
+    }
+
+    private IndicatorValue value(int i) {
+        double dif = emaFast[i] - emaSlow[i];
+        double width = params.bollWidth() * bollStd[i];
+        return new IndicatorValue(times[i], emaFast[i], emaSlow[i], dif, dea[i], macd(i),
+                bollMid[i], bollMid[i] + width, bollMid[i] - width);
+    }
+
+    private double macd(int i) {
+        return 2 * (emaFast[i] - emaSlow[i] - dea[i]);
+    }
+
+    /**
+     * 第一个开盘时间 >= time 的下标
+     */
+    private int lowerBound(long time) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // ==================== 存储 ====================
+
+    private void allocate(int length) {
+        times = new long[length];
+        emaFast = new double[length];
+        emaSlow = new double[length];
+        dea = new double[length];
+        bollMid = new double[length];
+        bollStd = new double[length];
+        positiveArea = new double[length];
+        negativeArea = new double[length];
+    }
+
+    private void grow() {
+        int length = Math.min(times.length * 2, capacity * 2);
+        times = Arrays.copyOf(times, length);
+        emaFast = Arrays.copyOf(emaFast, length);
+        emaSlow = Arrays.copyOf(emaSlow, length);
+        dea = Arrays.copyOf(dea, length);
+        bollMid = Arrays.copyOf(bollMid, length);
+        bollStd = Arrays.copyOf(bollStd, length);
+        positiveArea = Arrays.copyOf(positiveArea, length);
+        negativeArea = Arrays.copyOf(negativeArea, length);
+    }
+
+    /**
+     * 丢弃最早的 drop 根
+     */
+    private void compact(int drop) {
+        int keep = size - drop;
+        System.arraycopy(times, drop, times, 0, keep);
+        System.arraycopy(emaFast, drop, emaFast, 0, keep);
+        System.arraycopy(emaSlow, drop, emaSlow, 0, keep);
+        System.arraycopy(dea, drop, dea, 0, keep);
+        System.arraycopy(bollMid, drop, bollMid, 0, keep);
+        System.arraycopy(bollStd, drop, bollStd, 0, keep);
+        System.arraycopy(positiveArea, drop, positiveArea, 0, keep);
+        System.arraycopy(negativeArea, drop, negativeArea, 0, keep);
+        size = keep;
+    }
+
+    // ==================== 状态 ====================
+
+    public Long getSymbolId() {
+        return symbolId;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    public Params getParams() {
+        return params;
+    }
+
+    public synchronized boolean isReady() {
+        return ready && !stale;
+    }
+
+    public synchronized boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * 结果可信的最早开盘时间（之前的 K 线已丢弃或处于 EMA 预热期），没有可信结果时返回 Long.MAX_VALUE
+     */
+    public synchronized long getTrustedFrom() {
+        long offset = count - size;
+        long index = Math.max(trustedFrom, offset);
+        return index < count ? times[(int) (index - offset)] : Long.MAX_VALUE;
+    }
+
+    /**
+     * 最新一根的开盘时间，尚未输入时返回 Long.MIN_VALUE
+     */
+    public synchronized long getLastOpenTime() {
+        return size > 0 ? times[size - 1] : Long.MIN_VALUE;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+}
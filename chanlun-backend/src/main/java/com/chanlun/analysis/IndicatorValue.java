@@ -0,0 +1,20 @@
+package com.chanlun.analysis;
+
+/**
+ * 单根 K 线的技术指标值
+ *
+ * @param openTime K 线开盘时间（epoch 毫秒）
+ * @param emaFast 快线 EMA
+ * @param emaSlow 慢线 EMA
+ * @param dif DIF = emaFast - emaSlow
+ * @param dea DEA = EMA(DIF)
+ * @param macd MACD 柱 = 2 × (DIF - DEA)
+ * @param bollMid BOLL 中轨，不足周期时为 NaN
+ * @param bollUpper BOLL 上轨，不足周期时为 NaN
+ * @param bollLower BOLL 下轨，不足周期时为 NaN
+ *
+ * @author Chanlun Team
+ */
+public record IndicatorValue(long openTime, double emaFast, double emaSlow, double dif, double dea, double macd,
+                             double bollMid, double bollUpper, double bollLower) {
+}
@@ -0,0 +1,22 @@
+package com.chanlun.analysis;
+
+/**
+ * 区间内 MACD 柱面积（各根柱高之和），用于比较相邻同向走势的力度判断背驰
+ *
+ * @param startTime 区间内第一根 K 线开盘时间（epoch 毫秒）
+ * @param endTime 区间内最后一根 K 线开盘时间（epoch 毫秒）
+ * @param bars K 线数量
+ * @param positive 红柱面积
+ * @param negative 绿柱面积（绝对值）
+ *
+ * @author Chanlun Team
+ */
+public record MacdArea(long startTime, long endTime, int bars, double positive, double negative) {
+
+    /**
+     * 净面积（红柱面积 - 绿柱面积）
+     */
+    public double net() {
+        return positive - negative;
+    }
+}
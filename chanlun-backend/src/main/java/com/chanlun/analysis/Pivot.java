@@ -0,0 +1,22 @@
+package com.chanlun.analysis;
+
+/**
+ * 中枢：连续次级别走势的重叠区间
+ *
+ * 笔中枢、线段中枢由至少三个走势构成；更高级别由两个波动区间 [dd, gg] 重叠的下一级中枢扩张形成
+ *
+ * @param level 级别（1 = 笔中枢，2 = 线段中枢，3 及以上 = 由下一级中枢扩张形成）
+ * @param startTime 第一个走势的起点时间（epoch 毫秒）
+ * @param endTime 最后一个重叠走势的终点时间（epoch 毫秒）
+ * @param zg 中枢上沿：形成中枢的走势高点的最小值
+ * @param zd 中枢下沿：形成中枢的走势低点的最大值
+ * @param gg 中枢内所有走势的最高点
+ * @param dd 中枢内所有走势的最低点
+ * @param moveCount 中枢包含的走势数量
+ * @param closed 是否已结束（出现完全离开 [zd, zg] 的走势）
+ *
+ * @author Chanlun Team
+ */
+public record Pivot(int level, long startTime, long endTime, double zg, double zd, double gg, double dd,
+                    int moveCount, boolean closed) {
+}
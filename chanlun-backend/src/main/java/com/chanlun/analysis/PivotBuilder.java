@@ -0,0 +1,115 @@
+package com.chanlun.analysis;
+
+import java.util.ArrayDeque;
+
+/**
+ * 单一级别中枢的增量构建
+ *
+ * 按时间顺序输入已确认的次级别走势（笔、线段或下一级中枢），每个走势 O(1) 处理：
+ * - 尚无进行中的中枢时，最近 minMoves 个走势的区间存在重叠（高点最小值 > 低点最大值）即形成中枢，
+ *   [zd, zg] 为重叠区间
+ * - 进行中的中枢：走势与 [zd, zg] 有交集时延伸（更新终点和 gg / dd），否则中枢结束，
+ *   离开的走势不参与下一个中枢
+ *
+ * @author Chanlun Team
+ */
+public class PivotBuilder {
+
+    /**
+     * 次级别走势
+     *
+     * @param startTime 起点时间（epoch 毫秒）
+     * @param endTime 终点时间（epoch 毫秒）
+     * @param high 最高价
+     * @param low 最低价
+     */
+    public record Move(long startTime, long endTime, double high, double low) {
+    }
+
+    private final int level;
+    private final int minMoves;
+    private final ArrayDeque<Move> window = new ArrayDeque<>();
+
+    private boolean active;
+    private long startTime;
+    private long endTime;
+    private double zg;
+    private double zd;
+    private double gg;
+    private double dd;
+    private int moveCount;
+
+    /**
+     * @param level 级别
+     * @param minMoves 形成中枢所需的最少走势数量
+     */
+    public PivotBuilder(int level, int minMoves) {
+        this.level = level;
+        this.minMoves = minMoves;
+    }
+
+    /**
+     * 输入一个已确认的走势
+     *
+     * @param move 走势
+     * @return 因此结束的中枢，没有时返回 null
+     */
+    public Pivot onMove(Move move) {
+        if (active) {
+            if (move.high() >= zd && move.low() <= zg) {
+                endTime = move.endTime();
+                gg = Math.max(gg, move.high());
+                dd = Math.min(dd, move.low());
+                moveCount++;
+                return null;
+            }
+            Pivot closed = snapshot(true);
+            active = false;
+            return closed;
+        }
+        window.addLast(move);
+        if (window.size() > minMoves) {
+            window.removeFirst();
+        }
+        if (window.size() == minMoves) {
+            tryForm();
+        }
+        return null;
+    }
+
+    /**
+     * 进行中的中枢，没有时返回 null
+     */
+    public Pivot getActive() {
+        return active ? snapshot(false) : null;
+    }
+
+    private void tryForm() {
+        double high = Double.MAX_VALUE;
+        double low = -Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        double min = Double.MAX_VALUE;
+        for (Move move : window) {
+            high = Math.min(high, move.high());
+            low = Math.max(low, move.low());
+            max = Math.max(max, move.high());
+            min = Math.min(min, move.low());
+        }
+        if (high <= low) {
+            return;
+        }
+        active = true;
+        startTime = window.peekFirst().startTime();
+        endTime = window.peekLast().endTime();
+        zg = high;
+        zd = low;
+        gg = max;
+        dd = min;
+        moveCount = window.size();
+        window.clear();
+    }
+
+    private Pivot snapshot(boolean closed) {
+        return new Pivot(level, startTime, endTime, zg, zd, gg, dd, moveCount, closed);
+    }
+}
@@ -0,0 +1,220 @@
+package com.chanlun.analysis;
+
+import com.chanlun.event.ChanStructureChangedEvent;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.exception.BusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缠论中枢引擎
+ *
+ * 为每个 (symbolId, interval) 维护一个 {@link PivotSet}（各级别中枢）：
+ * - 首次查询时用游标读取 chan_stroke / chan_segment 中已确认的笔和线段构建
+ * - 笔和线段写库后（{@link ChanStructureChangedEvent}），已加载的交易对周期只输入新确认的部分，
+ *   延伸或结束进行中的中枢
+ * - 笔和线段全量重建或删除 K 线时失效，下次查询重新加载
+ *
+ * 查询只访问内存，二分定位时间范围
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+public class PivotEngine {
+
+    private final ChanStructureStore chanStructureStore;
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.analysis.pivot.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 最高级别（1 = 笔中枢，2 = 线段中枢，更高级别由中枢扩张递归形成）
+     */
+    @Value("${app.analysis.pivot.max-level:4}")
+    private int maxLevel = 4;
+
+    /**
+     * 最多常驻的 (交易对, 周期) 数量，超过后按次计算不缓存
+     */
+    @Value("${app.analysis.pivot.max-series:1000}")
+    private int maxSeries = 1000;
+
+    private final Map<String, PivotSet> sets = new ConcurrentHashMap<>();
+
+    private final AtomicLong loadCount = new AtomicLong(0);
+    private final AtomicLong invalidationCount = new AtomicLong(0);
+
+    public PivotEngine(ChanStructureStore chanStructureStore) {
+        this.chanStructureStore = chanStructureStore;
+    }
+
+    /**
+     * 获取最近的 limit 个中枢（升序，最后一个可能进行中）
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param level 级别
+     * @param limit 返回数量
+     * @return 中枢列表
+     */
+    public List<Pivot> getLatestPivots(Long symbolId, String interval, int level, int limit) {
+        validateLevel(level);
+        return getPivotSet(symbolId, interval).latest(level, limit);
+    }
+
+    /**
+     * 获取与 [startTime, endTime] 有重叠的中枢（升序，包含已结束和进行中的中枢）
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param level 级别
+     * @param startTime 开始时间（包含，为空表示最早）
+     * @param endTime 结束时间（包含，为空表示最新）
+     * @param limit 返回数量
+     * @return 中枢列表
+     */
+    public List<Pivot> getPivots(Long symbolId, String interval, int level, Instant startTime, Instant endTime,
+                                 int limit) {
+        validateLevel(level);
+        return getPivotSet(symbolId, interval).range(level,
+                startTime != null ? startTime.toEpochMilli() : Long.MIN_VALUE,
+                endTime != null ? endTime.toEpochMilli() : Long.MAX_VALUE, limit);
+    }
+
+    /**
+     * 获取中枢状态（按需加载）
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 中枢状态
+     */
+    public PivotSet getPivotSet(Long symbolId, String interval) {
+        if (!enabled) {
+            throw new BusinessException("中枢引擎未启用");
+        }
+        PivotSet existing = sets.get(key(symbolId, interval));
+        if (existing != null && existing.isReady()) {
+            return existing;
+        }
+        return load(symbolId, interval);
+    }
+
+    /**
+     * 笔和线段写库后增量更新已加载的交易对周期
+     */
+    @EventListener
+    public void onStructureChanged(ChanStructureChangedEvent event) {
+        String key = key(event.getSymbolId(), event.getInterval());
+        if (event.isRebuilt()) {
+            invalidate(key);
+            return;
+        }
+        PivotSet target = sets.get(key);
+        if (target != null) {
+            target.append(event.getConfirmedStrokes(), event.getConfirmedSegments());
+        }
+    }
+
+    /**
+     * K 线删除后失效
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineDeleted(KlineDeletedEvent event) {
+        if (event.getInterval() != null) {
+            invalidate(key(event.getSymbolId(), event.getInterval()));
+            return;
+        }
+        String prefix = event.getSymbolId() + "_";
+        sets.keySet().stream().filter(k -> k.startsWith(prefix)).toList().forEach(this::invalidate);
+    }
+
+    /**
+     * 已加载的 (交易对, 周期) 数量
+     */
+    public int getSeriesCount() {
+        return sets.size();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    private void validateLevel(int level) {
+        if (level < 1 || level > maxLevel) {
+            throw new BusinessException("不支持的中枢级别: " + level + "，支持 1-" + maxLevel);
+        }
+    }
+
+    private void invalidate(String key) {
+        if (sets.remove(key) != null) {
+            invalidationCount.incrementAndGet();
+            log.debug("Pivot set invalidated: {}", key);
+        }
+    }
+
+    /**
+     * 读取已确认的笔和线段构建中枢
+     *
+     * 先登记空状态接收加载期间确认的笔和线段，再合并数据库快照；超过 maxSeries 时只计算不登记
+     */
+    private PivotSet load(Long symbolId, String interval) {
+        String key = key(symbolId, interval);
+        PivotSet created = new PivotSet(symbolId, interval, maxLevel);
+        PivotSet target = sets.size() < maxSeries || sets.containsKey(key)
+                ? sets.compute(key, (k, old) -> old != null ? old : created)
+                : created;
+        if (target != created) {
+            if (target.isReady()) {
+                return target;
+            }
+            // 其他线程正在加载：本次单独计算，不登记
+            fill(created);
+            return created;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long rows = fill(created);
+            loadCount.incrementAndGet();
+            log.debug("Pivot set loaded: key={}, strokes+segments={}, strokePivots={}, {}ms",
+                    key, rows, created.getClosedCount(1), System.currentTimeMillis() - start);
+            return created;
+        } catch (RuntimeException e) {
+            sets.remove(key, created);
+            throw e;
+        }
+    }
+
+    private long fill(PivotSet set) {
+        long rows = chanStructureStore.forEachConfirmedStroke(set.getSymbolId(), set.getInterval(),
+                stroke -> set.loadStroke(stroke.getStartTime().toEpochMilli(), stroke.getEndTime().toEpochMilli(),
+                        stroke.getStartPrice().max(stroke.getEndPrice()).doubleValue(),
+                        stroke.getStartPrice().min(stroke.getEndPrice()).doubleValue()));
+        rows += chanStructureStore.forEachConfirmedSegment(set.getSymbolId(), set.getInterval(),
+                segment -> set.loadSegment(segment.getStartTime().toEpochMilli(), segment.getEndTime().toEpochMilli(),
+                        segment.getStartPrice().max(segment.getEndPrice()).doubleValue(),
+                        segment.getStartPrice().min(segment.getEndPrice()).doubleValue()));
+        set.finishLoad();
+        return rows;
+    }
+
+    private static String key(Long symbolId, String interval) {
+        return symbolId + "_" + interval;
+    }
+}
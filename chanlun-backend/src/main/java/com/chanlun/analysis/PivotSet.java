@@ -0,0 +1,211 @@
+package com.chanlun.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单个 (交易对, 周期) 各级别的中枢
+ *
+ * - 级别 1：笔中枢，由已确认的笔构建
+ * - 级别 2：线段中枢，由已确认的线段构建
+ * - 级别 3 ~ maxLevel：下一级中枢结束后作为走势（区间 [dd, gg]）输入，两个重叠即扩张为更高级别中枢
+ *
+ * 已结束的中枢按时间顺序追加（起止时间均单调递增），时间范围查询二分定位，O(log n + k)。
+ * 与 FractalSeries 相同，加载期间到达的笔和线段先暂存，加载完成后按起点时间去重合并。
+ *
+ * @author Chanlun Team
+ */
+public class PivotSet {
+
+    /**
+     * 笔中枢、线段中枢所需的最少走势数量
+     */
+    public static final int MIN_MOVES = 3;
+
+    /**
+     * 扩张形成更高级别中枢所需的下一级中枢数量
+     */
+    public static final int MIN_EXPANSION = 2;
+
+    private final Long symbolId;
+    private final String interval;
+    private final int maxLevel;
+
+    private final PivotBuilder[] builders;
+    private final List<List<Pivot>> closed;
+
+    private long lastStrokeStart = Long.MIN_VALUE;
+    private long lastSegmentStart = Long.MIN_VALUE;
+
+    private boolean ready;
+    private List<Stroke> pendingStrokes = new ArrayList<>();
+    private List<Segment> pendingSegments = new ArrayList<>();
+
+    public PivotSet(Long symbolId, String interval, int maxLevel) {
+        this.symbolId = symbolId;
+        this.interval = interval;
+        this.maxLevel = Math.max(2, maxLevel);
+        this.builders = new PivotBuilder[this.maxLevel];
+        this.closed = new ArrayList<>(this.maxLevel);
+        for (int level = 1; level <= this.maxLevel; level++) {
+            builders[level - 1] = new PivotBuilder(level, level <= 2 ? MIN_MOVES : MIN_EXPANSION);
+            closed.add(new ArrayList<>());
+        }
+    }
+
+    // ==================== 输入 ====================
+
+    /**
+     * 加载一笔已保存的已确认笔（只在加载阶段调用，按起点时间升序）
+     */
+    public synchronized void loadStroke(long startTime, long endTime, double high, double low) {
+        onStroke(startTime, endTime, high, low);
+    }
+
+    /**
+     * 加载一个已保存的已确认线段（只在加载阶段调用，按起点时间升序）
+     */
+    public synchronized void loadSegment(long startTime, long endTime, double high, double low) {
+        onSegment(startTime, endTime, high, low);
+    }
+
+    /**
+     * 加载完成，合并加载期间暂存的笔和线段
+     */
+    public synchronized void finishLoad() {
+        ready = true;
+        List<Stroke> strokes = pendingStrokes;
+        List<Segment> segments = pendingSegments;
+        pendingStrokes = null;
+        pendingSegments = null;
+        appendLocked(strokes, segments);
+    }
+
+    /**
+     * 输入新确认的笔和线段（升序），加载完成前暂存
+     */
+    public synchronized void append(List<Stroke> strokes, List<Segment> segments) {
+        if (!ready) {
+            pendingStrokes.addAll(strokes);
+            pendingSegments.addAll(segments);
+            return;
+        }
+        appendLocked(strokes, segments);
+    }
+
+    private void appendLocked(List<Stroke> strokes, List<Segment> segments) {
+        for (Stroke stroke : strokes) {
+            onStroke(stroke.startTime(), stroke.endTime(), stroke.high(), stroke.low());
+        }
+        for (Segment segment : segments) {
+            onSegment(segment.startTime(), segment.endTime(), segment.high(), segment.low());
+        }
+    }
+
+    private void onStroke(long startTime, long endTime, double high, double low) {
+        // 与加载快照重叠的部分跳过
+        if (startTime <= lastStrokeStart) {
+            return;
+        }
+        lastStrokeStart = startTime;
+        feed(1, new PivotBuilder.Move(startTime, endTime, high, low));
+    }
+
+    private void onSegment(long startTime, long endTime, double high, double low) {
+        if (startTime <= lastSegmentStart) {
+            return;
+        }
+        lastSegmentStart = startTime;
+        feed(2, new PivotBuilder.Move(startTime, endTime, high, low));
+    }
+
+    private void feed(int level, PivotBuilder.Move move) {
+        Pivot pivot = builders[level - 1].onMove(move);
+        if (pivot == null) {
+            return;
+        }
+        closed.get(level - 1).add(pivot);
+        // 笔中枢不向上递归，线段中枢及以上逐级扩张
+        if (level >= 2 && level < maxLevel) {
+            feed(level + 1, new PivotBuilder.Move(pivot.startTime(), pivot.endTime(), pivot.gg(), pivot.dd()));
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 获取最近的 limit 个中枢（升序，最后一个可能进行中）
+     */
+    public synchronized List<Pivot> latest(int level, int limit) {
+        List<Pivot> history = closed.get(level - 1);
+        Pivot active = builders[level - 1].getActive();
+        int total = history.size() + (active != null ? 1 : 0);
+        int count = Math.min(Math.max(limit, 0), total);
+        List<Pivot> result = new ArrayList<>(count);
+        int from = total - count;
+        for (int i = from; i < history.size(); i++) {
+            result.add(history.get(i));
+        }
+        if (active != null && count > 0) {
+            result.add(active);
+        }
+        return result;
+    }
+
+    /**
+     * 获取与 [startTime, endTime] 有重叠的中枢（升序，包含进行中的中枢）
+     */
+    public synchronized List<Pivot> range(int level, long startTime, long endTime, int limit) {
+        List<Pivot> history = closed.get(level - 1);
+        List<Pivot> result = new ArrayList<>(Math.min(Math.max(limit, 0), 64));
+        // 二分查找第一个终点 >= startTime 的中枢
+        int lo = 0;
+        int hi = history.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (history.get(mid).endTime() < startTime) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int i = lo; i < history.size() && result.size() < limit; i++) {
+            Pivot pivot = history.get(i);
+            if (pivot.startTime() > endTime) {
+                return result;
+            }
+            result.add(pivot);
+        }
+        Pivot active = builders[level - 1].getActive();
+        if (active != null && result.size() < limit
+                && active.startTime() <= endTime && active.endTime() >= startTime) {
+            result.add(active);
+        }
+        return result;
+    }
+
+    // ==================== 状态 ====================
+
+    public Long getSymbolId() {
+        return symbolId;
+    }
+
+    public String getInterval() {
+        return interval;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    public synchronized boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 指定级别已结束的中枢数量
+     */
+    public synchronized int getClosedCount(int level) {
+        return closed.get(level - 1).size();
+    }
+}
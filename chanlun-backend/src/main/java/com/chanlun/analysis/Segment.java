@@ -0,0 +1,25 @@
+package com.chanlun.analysis;
+
+/**
+ * 线段：至少三笔构成，由特征序列分型确认结束
+ *
+ * @param direction 方向
+ * @param startTime 起点时间（epoch 毫秒）
+ * @param startPrice 起点价格
+ * @param endTime 终点时间（epoch 毫秒）
+ * @param endPrice 终点价格
+ * @param strokeCount 包含的笔数
+ *
+ * @author Chanlun Team
+ */
+public record Segment(Direction direction, long startTime, double startPrice, long endTime, double endPrice,
+                      int strokeCount) {
+
+    public double high() {
+        return Math.max(startPrice, endPrice);
+    }
+
+    public double low() {
+        return Math.min(startPrice, endPrice);
+    }
+}
@@ -0,0 +1,232 @@
+package com.chanlun.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 线段的增量构建
+ *
+ * 按顺序输入已确认的笔，用特征序列判断线段结束：
+ * - 向上线段的特征序列为其中的向下笔（向下线段为向上笔），元素区间为笔的 [低点, 高点]
+ * - 特征序列按线段方向做包含处理（向上线段取高高，向下线段取低低）
+ * - 特征序列出现顶分型（向上线段）/ 底分型（向下线段）时，线段在分型中间元素的起点结束，
+ *   反向的新线段从该点开始，之后的笔重新输入新线段
+ * - 反向笔突破线段起点时，线段在其极值点强制结束（首段尚不足三笔时从该笔重新开始）
+ *
+ * 特征序列分型不区分第一种 / 第二种情况（缺口），分型出现即确认线段结束。
+ * 只保留当前线段的笔和特征序列，每笔均摊 O(1)
+ *
+ * @author Chanlun Team
+ */
+public class SegmentBuilder {
+
+    /**
+     * 线段最少笔数
+     */
+    public static final int MIN_STROKES = 3;
+
+    /**
+     * 当前线段（未确认）
+     */
+    private Run current;
+
+    public SegmentBuilder() {
+    }
+
+    /**
+     * 从检查点恢复：重新输入当前线段的笔，重建特征序列
+     *
+     * @param direction 当前线段方向
+     * @param startTime 起点时间
+     * @param startPrice 起点价格
+     * @param strokes 当前线段已包含的笔
+     */
+    public SegmentBuilder(Direction direction, long startTime, double startPrice, List<Stroke> strokes) {
+        this.current = new Run(direction, startTime, startPrice);
+        List<Segment> confirmed = new ArrayList<>();
+        for (Stroke stroke : strokes) {
+            feed(stroke, confirmed);
+        }
+    }
+
+    /**
+     * 输入一笔已确认的笔
+     *
+     * @param stroke 笔
+     * @return 因此确认的线段（可能为空）
+     */
+    public List<Segment> onStroke(Stroke stroke) {
+        if (current == null) {
+            current = new Run(stroke.direction(), stroke.startTime(), stroke.startPrice());
+        }
+        List<Segment> confirmed = new ArrayList<>(1);
+        feed(stroke, confirmed);
+        return confirmed;
+    }
+
+    /**
+     * 当前线段（未确认，终点为目前的极值点），尚无笔时返回 null
+     */
+    public Segment getCurrent() {
+        if (current == null || current.strokes.isEmpty()) {
+            return null;
+        }
+        int extreme = current.extremeIndex();
+        Stroke end = current.strokes.get(extreme);
+        return new Segment(current.direction, current.startTime, current.startPrice,
+                end.endTime(), end.endPrice(), extreme + 1);
+    }
+
+    public Direction getDirection() {
+        return current != null ? current.direction : null;
+    }
+
+    public long getStartTime() {
+        return current != null ? current.startTime : 0L;
+    }
+
+    public double getStartPrice() {
+        return current != null ? current.startPrice : 0d;
+    }
+
+    /**
+     * 当前线段已包含的笔
+     */
+    public List<Stroke> getStrokes() {
+        return current != null ? List.copyOf(current.strokes) : List.of();
+    }
+
+    private void feed(Stroke stroke, List<Segment> confirmed) {
+        Run run = current;
+        int breakAt = run.add(stroke);
+        if (breakAt == Run.CONTINUE) {
+            return;
+        }
+        List<Stroke> strokes = run.strokes;
+        int end;
+        long endTime;
+        double endPrice;
+        if (breakAt == Run.START_BROKEN) {
+            int extreme = run.extremeIndex();
+            if (extreme + 1 < MIN_STROKES) {
+                // 尚未成段：从突破起点的这一笔重新开始
+                current = new Run(stroke.direction(), stroke.startTime(), stroke.startPrice());
+                current.add(stroke);
+                return;
+            }
+            end = extreme + 1;
+            endTime = strokes.get(extreme).endTime();
+            endPrice = strokes.get(extreme).endPrice();
+        } else {
+            end = breakAt;
+            endTime = strokes.get(breakAt).startTime();
+            endPrice = strokes.get(breakAt).startPrice();
+        }
+        confirmed.add(new Segment(run.direction, run.startTime, run.startPrice, endTime, endPrice, end));
+        current = new Run(run.direction.opposite(), endTime, endPrice);
+        for (Stroke replay : strokes.subList(end, strokes.size())) {
+            feed(replay, confirmed);
+        }
+    }
+
+    /**
+     * 当前线段的笔和特征序列
+     */
+    private static final class Run {
+
+        static final int CONTINUE = -1;
+        static final int START_BROKEN = -2;
+
+        final Direction direction;
+        final long startTime;
+        final double startPrice;
+        final List<Stroke> strokes = new ArrayList<>();
+
+        /**
+         * 包含处理后的特征序列：[高点, 低点, 极值笔在 strokes 中的下标]
+         */
+        final List<double[]> elements = new ArrayList<>();
+
+        Run(Direction direction, long startTime, double startPrice) {
+            this.direction = direction;
+            this.startTime = startTime;
+            this.startPrice = startPrice;
+        }
+
+        /**
+         * @return CONTINUE；START_BROKEN；或线段结束时，结束点所在笔（特征序列分型中间元素）的下标
+         */
+        int add(Stroke stroke) {
+            strokes.add(stroke);
+            int index = strokes.size() - 1;
+            if (stroke.direction() == direction) {
+                return CONTINUE;
+            }
+            boolean up = direction == Direction.UP;
+            if (up ? stroke.endPrice() < startPrice : stroke.endPrice() > startPrice) {
+                return START_BROKEN;
+            }
+            double[] element = {stroke.high(), stroke.low(), index};
+            if (!elements.isEmpty()) {
+                double[] last = elements.get(elements.size() - 1);
+                if (contains(last, element)) {
+                    merge(last, element, up);
+                    return CONTINUE;
+                }
+                if (elements.size() >= 2) {
+                    double[] left = elements.get(elements.size() - 2);
+                    boolean fractal = up
+                            ? last[0] > left[0] && last[0] > element[0]
+                            : last[1] < left[1] && last[1] < element[1];
+                    if (fractal) {
+                        return (int) last[2];
+                    }
+                }
+            }
+            elements.add(element);
+            return CONTINUE;
+        }
+
+        /**
+         * 当前线段方向上的极值笔下标（向上线段为最高的向上笔）
+         */
+        int extremeIndex() {
+            int best = -1;
+            for (int i = 0; i < strokes.size(); i++) {
+                Stroke stroke = strokes.get(i);
+                if (stroke.direction() != direction) {
+                    continue;
+                }
+                if (best < 0 || (direction == Direction.UP
+                        ? stroke.endPrice() > strokes.get(best).endPrice()
+                        : stroke.endPrice() < strokes.get(best).endPrice())) {
+                    best = i;
+                }
+            }
+            return Math.max(best, 0);
+        }
+
+        private static boolean contains(double[] a, double[] b) {
+            return (a[0] >= b[0] && a[1] <= b[1]) || (a[0] <= b[0] && a[1] >= b[1]);
+        }
+
+        /**
+         * 向上取高高（极值为更高的高点），向下取低低（极值为更低的低点）
+         */
+        private static void merge(double[] last, double[] element, boolean up) {
+            if (up) {
+                if (element[0] > last[0]) {
+                    last[0] = element[0];
+                    last[2] = element[2];
+                }
+                last[1] = Math.max(last[1], element[1]);
+            } else {
+                if (element[1] < last[1]) {
+                    last[1] = element[1];
+                    last[2] = element[2];
+                }
+                last[0] = Math.min(last[0], element[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.chanlun.analysis;
+
+/**
+ * 笔：相邻的一顶一底分型相连
+ *
+ * @param direction 方向（底 -> 顶为向上）
+ * @param start 起点分型
+ * @param end 终点分型
+ *
+ * @author Chanlun Team
+ */
+public record Stroke(Direction direction, Fractal start, Fractal end) {
+
+    public long startTime() {
+        return start.time();
+    }
+
+    public long endTime() {
+        return end.time();
+    }
+
+    public double startPrice() {
+        return start.price();
+    }
+
+    public double endPrice() {
+        return end.price();
+    }
+
+    public double high() {
+        return Math.max(startPrice(), endPrice());
+    }
+
+    public double low() {
+        return Math.min(startPrice(), endPrice());
+    }
+}
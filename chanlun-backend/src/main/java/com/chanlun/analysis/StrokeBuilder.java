@@ -0,0 +1,114 @@
+package com.chanlun.analysis;
+
+/**
+ * 笔的增量构建
+ *
+ * 按确认顺序输入分型（顶底交替），每个分型 O(1) 处理：
+ * - 与当前终点同类型且更极端（更高的顶 / 更低的底）时，延伸最后一笔（尚无笔时移动起点）
+ * - 与当前终点类型相反且成笔时，最后一笔确认，以当前终点为起点生成新的一笔
+ * - 其余分型忽略
+ *
+ * 成笔条件：
+ * - 两个分型的中间 K 线在包含处理后的序列中相隔至少 {@link #MIN_BAR_DISTANCE} 根（顶底之间至少一根独立 K 线）
+ * - 向上笔终点顶分型的高点、低点均高于起点底分型；向下笔反之
+ *
+ * 只有最后一笔可能变化（未确认），之前的笔均已确认
+ *
+ * @author Chanlun Team
+ */
+public class StrokeBuilder {
+
+    /**
+     * 成笔的最小 K 线间隔（包含处理后）
+     */
+    public static final int MIN_BAR_DISTANCE = 4;
+
+    /**
+     * 尚无笔时的起点候选
+     */
+    private Fractal anchor;
+
+    /**
+     * 最后一笔（未确认）
+     */
+    private Stroke last;
+
+    public StrokeBuilder() {
+    }
+
+    /**
+     * 从检查点恢复
+     */
+    public StrokeBuilder(Fractal anchor, Stroke last) {
+        this.anchor = anchor;
+        this.last = last;
+    }
+
+    /**
+     * 输入一个新确认的分型
+     *
+     * @param fractal 分型
+     * @return 因此确认的笔，没有时返回 null
+     */
+    public Stroke onFractal(Fractal fractal) {
+        if (last == null) {
+            if (anchor == null || (fractal.type() == anchor.type() && moreExtreme(fractal, anchor))) {
+                anchor = fractal;
+            } else if (fractal.type() != anchor.type() && isStroke(anchor, fractal)) {
+                last = stroke(anchor, fractal);
+                anchor = null;
+            }
+            return null;
+        }
+        Fractal end = last.end();
+        if (fractal.type() == end.type()) {
+            if (moreExtreme(fractal, end)) {
+                last = new Stroke(last.direction(), last.start(), fractal);
+            }
+            return null;
+        }
+        if (!isStroke(end, fractal)) {
+            return null;
+        }
+        Stroke confirmed = last;
+        last = stroke(end, fractal);
+        return confirmed;
+    }
+
+    /**
+     * 最后一笔（未确认），尚未成笔时返回 null
+     */
+    public Stroke getLast() {
+        return last;
+    }
+
+    /**
+     * 尚无笔时的起点候选
+     */
+    public Fractal getAnchor() {
+        return anchor;
+    }
+
+    /**
+     * 两个相反类型的分型能否成笔
+     */
+    static boolean isStroke(Fractal from, Fractal to) {
+        if (to.barIndex() - from.barIndex() < MIN_BAR_DISTANCE) {
+            return false;
+        }
+        if (from.type() == FractalType.BOTTOM) {
+            return to.high() > from.high() && to.low() > from.low();
+        }
+        return to.high() < from.high() && to.low() < from.low();
+    }
+
+    private static boolean moreExtreme(Fractal candidate, Fractal current) {
+        return candidate.type() == FractalType.TOP
+                ? candidate.high() > current.high()
+                : candidate.low() < current.low();
+    }
+
+    private static Stroke stroke(Fractal from, Fractal to) {
+        return new Stroke(from.type() == FractalType.BOTTOM ? Direction.UP : Direction.DOWN, from, to);
+    }
+}
@@ -0,0 +1,46 @@
+package com.chanlun.config;
+
+import com.chanlun.websocket.KlinePushWebSocketHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * WebSocket 配置
+ * 
+ * 注册实时 K 线推送端点（默认 /ws/klines）
+ * 
+ * @author Chanlun Team
+ */
+@Configuration
+@EnableWebSocket
+@ConditionalOnProperty(prefix = "app.realtime.push", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final KlinePushWebSocketHandler klinePushWebSocketHandler;
+
+    /**
+     * 推送端点路径
+     */
+    @Value("${app.realtime.push.path:/ws/klines}")
+    private String path = "/ws/klines";
+
+    /**
+     * 允许的来源
+     */
+    @Value("${app.realtime.push.allowed-origins:*}")
+    private String[] allowedOrigins = {"*"};
+
+    public WebSocketConfig(KlinePushWebSocketHandler klinePushWebSocketHandler) {
+        this.klinePushWebSocketHandler = klinePushWebSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(klinePushWebSocketHandler, path)
+                .setAllowedOriginPatterns(allowedOrigins);
+    }
+}
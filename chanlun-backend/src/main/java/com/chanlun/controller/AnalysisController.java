@@ -0,0 +1,244 @@
+package com.chanlun.controller;
+
+import com.chanlun.analysis.ChanStructureEngine;
+import com.chanlun.analysis.Fractal;
+import com.chanlun.analysis.FractalEngine;
+import com.chanlun.analysis.IndicatorEngine;
+import com.chanlun.analysis.MacdArea;
+import com.chanlun.analysis.Pivot;
+import com.chanlun.analysis.PivotEngine;
+import com.chanlun.dto.ApiResponse;
+import com.chanlun.dto.FractalDTO;
+import com.chanlun.dto.MacdAreaDTO;
+import com.chanlun.dto.PivotDTO;
+import com.chanlun.dto.SegmentDTO;
+import com.chanlun.dto.StrokeDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 缠论分析控制器
+ * 
+ * 提供分型、笔、线段、中枢等缠论结构及 MACD 面积查询 REST API
+ * 
+ * API 路径: /api/v1/analysis
+ * 
+ * @author Chanlun Team
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/analysis")
+@RequiredArgsConstructor
+public class AnalysisController {
+
+    private final FractalEngine fractalEngine;
+    private final ChanStructureEngine chanStructureEngine;
+    private final PivotEngine pivotEngine;
+    private final IndicatorEngine indicatorEngine;
+
+    /**
+     * 默认返回数量
+     */
+    private static final int DEFAULT_LIMIT = 200;
+
+    /**
+     * 最大返回数量
+     */
+    private static final int MAX_LIMIT = 2000;
+
+    /**
+     * 获取分型
+     * 
+     * GET /api/v1/analysis/fractals
+     * 
+     * 未指定时间范围时返回最近 limit 个分型
+     * 
+     * @param symbolId 交易对ID (必填)
+     * @param interval 时间周期 (必填)
+     * @param startTime 开始时间 (可选, ISO 8601 格式)
+     * @param endTime 结束时间 (可选, ISO 8601 格式)
+     * @param limit 返回数量 (默认200，最大2000)
+     * @return 分型列表（按时间升序）
+     */
+    @GetMapping("/fractals")
+    public ApiResponse<List<FractalDTO>> getFractals(
+            @RequestParam Long symbolId,
+            @RequestParam String interval,
+            @RequestParam(required = false) Instant startTime,
+            @RequestParam(required = false) Instant endTime,
+            @RequestParam(required = false) Integer limit) {
+        
+        int effectiveLimit = normalizeLimit(limit);
+        
+        List<Fractal> fractals;
+        if (startTime == null && endTime == null) {
+            fractals = fractalEngine.getLatestFractals(symbolId, interval, effectiveLimit);
+        } else {
+            fractals = fractalEngine.getFractals(symbolId, interval, startTime, endTime, effectiveLimit);
+        }
+        
+        List<FractalDTO> result = fractals.stream()
+                .map(FractalDTO::fromFractal)
+                .collect(Collectors.toList());
+        
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 获取笔
+     * 
+     * GET /api/v1/analysis/strokes
+     * 
+     * 未指定时间范围时返回最近 limit 笔；指定时返回与时间范围有重叠的笔
+     * 
+     * @param symbolId 交易对ID (必填)
+     * @param interval 时间周期 (必填)
+     * @param startTime 开始时间 (可选, ISO 8601 格式)
+     * @param endTime 结束时间 (可选, ISO 8601 格式)
+     * @param limit 返回数量 (默认200，最大2000)
+     * @return 笔列表（按起点时间升序，最后一笔可能未确认）
+     */
+    @GetMapping("/strokes")
+    public ApiResponse<List<StrokeDTO>> getStrokes(
+            @RequestParam Long symbolId,
+            @RequestParam String interval,
+            @RequestParam(required = false) Instant startTime,
+            @RequestParam(required = false) Instant endTime,
+            @RequestParam(required = false) Integer limit) {
+        
+        List<StrokeDTO> result = chanStructureEngine
+                .getStrokes(symbolId, interval, startTime, endTime, normalizeLimit(limit))
+                .stream()
+                .map(StrokeDTO::fromEntity)
+                .collect(Collectors.toList());
+        
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 获取线段
+     * 
+     * GET /api/v1/analysis/segments
+     * 
+     * 未指定时间范围时返回最近 limit 个线段；指定时返回与时间范围有重叠的线段
+     * 
+     * @param symbolId 交易对ID (必填)
+     * @param interval 时间周期 (必填)
+     * @param startTime 开始时间 (可选, ISO 8601 格式)
+     * @param endTime 结束时间 (可选, ISO 8601 格式)
+     * @param limit 返回数量 (默认200，最大2000)
+     * @return 线段列表（按起点时间升序，最后一段可能未确认）
+     */
+    @GetMapping("/segments")
+    public ApiResponse<List<SegmentDTO>> getSegments(
+            @RequestParam Long symbolId,
+            @RequestParam String interval,
+            @RequestParam(required = false) Instant startTime,
+            @RequestParam(required = false) Instant endTime,
+            @RequestParam(required = false) Integer limit) {
+        
+        List<SegmentDTO> result = chanStructureEngine
+                .getSegments(symbolId, interval, startTime, endTime, normalizeLimit(limit))
+                .stream()
+                .map(SegmentDTO::fromEntity)
+                .collect(Collectors.toList());
+        
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 获取中枢
+     * 
+     * GET /api/v1/analysis/pivots
+     * 
+     * 未指定时间范围时返回最近 limit 个中枢；指定时返回与时间范围有重叠的已结束和进行中的中枢
+     * 
+     * @param symbolId 交易对ID (必填)
+     * @param interval 时间周期 (必填)
+     * @param level 级别 (默认1：笔中枢；2：线段中枢；3 及以上：中枢扩张)
+     * @param startTime 开始时间 (可选, ISO 8601 格式)
+     * @param endTime 结束时间 (可选, ISO 8601 格式)
+     * @param limit 返回数量 (默认200，最大2000)
+     * @return 中枢列表（按时间升序）
+     */
+    @GetMapping("/pivots")
+    public ApiResponse<List<PivotDTO>> getPivots(
+            @RequestParam Long symbolId,
+            @RequestParam String interval,
+            @RequestParam(defaultValue = "1") Integer level,
+            @RequestParam(required = false) Instant startTime,
+            @RequestParam(required = false) Instant endTime,
+            @RequestParam(required = false) Integer limit) {
+        
+        int effectiveLimit = normalizeLimit(limit);
+        
+        List<Pivot> pivots;
+        if (startTime == null && endTime == null) {
+            pivots = pivotEngine.getLatestPivots(symbolId, interval, level, effectiveLimit);
+        } else {
+            pivots = pivotEngine.getPivots(symbolId, interval, level, startTime, endTime, effectiveLimit);
+        }
+        
+        List<PivotDTO> result = pivots.stream()
+                .map(PivotDTO::fromPivot)
+                .collect(Collectors.toList());
+        
+        return ApiResponse.success(result);
+    }
+
+    /**
+     * 计算 MACD 柱面积（比较相邻同向笔 / 线段的力度判断背驰）
+     * 
+     * GET /api/v1/analysis/macd-area
+     * 
+     * @param symbolId 交易对ID (必填)
+     * @param interval 时间周期 (必填)
+     * @param startTime 开始时间 (必填, ISO 8601 格式，包含)
+     * @param endTime 结束时间 (必填, ISO 8601 格式，包含)
+     * @return 面积，区间内没有已完结 K 线时为空
+     */
+    @GetMapping("/macd-area")
+    public ApiResponse<MacdAreaDTO> getMacdArea(
+            @RequestParam Long symbolId,
+            @RequestParam String interval,
+            @RequestParam Instant startTime,
+            @RequestParam Instant endTime) {
+        
+        MacdArea area = indicatorEngine.getMacdArea(symbolId, interval, startTime, endTime);
+        return ApiResponse.success(area != null ? MacdAreaDTO.fromArea(area) : null);
+    }
+
+    /**
+     * 后台全量重建笔和线段
+     * 
+     * POST /api/v1/analysis/structures/rebuild
+     * 
+     * @param symbolId 交易对ID (必填)
+     * @param interval 时间周期 (必填)
+     * @return 操作结果
+     */
+    @PostMapping("/structures/rebuild")
+    public ApiResponse<Void> rebuildStructures(
+            @RequestParam Long symbolId,
+            @RequestParam String interval) {
+        
+        log.info("Rebuilding chan structures: symbolId={}, interval={}", symbolId, interval);
+        chanStructureEngine.rebuild(symbolId, interval);
+        return ApiResponse.success("已提交重建", null);
+    }
+
+    /**
+     * 规范化 limit 参数
+     */
+    private int normalizeLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
@@ -118,7 +118,7 @@ public class GapController {
         // 批量检测模式
         if (Boolean.TRUE.equals(request.getDetectAll())) {
             log.info("Starting batch gap detection for all eligible symbols");
-            GapDetectResult result = dataGapService.detectAllGaps();
+            GapDetectResult result = dataGapService.detectAllGaps(Boolean.TRUE.equals(request.getFullScan()));
             return ApiResponse.success(result);
         }
         
@@ -135,7 +135,8 @@ public class GapController {
         
         GapDetectResult result = dataGapService.detectGaps(
                 request.getSymbolId(), 
-                request.getInterval());
+                request.getInterval(),
+                Boolean.TRUE.equals(request.getFullScan()));
         
         return ApiResponse.success(result);
     }
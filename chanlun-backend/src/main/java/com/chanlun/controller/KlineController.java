@@ -1,15 +1,26 @@
 package com.chanlun.controller;
 
+import com.chanlun.analysis.IndicatorEngine;
+import com.chanlun.analysis.IndicatorValue;
 import com.chanlun.dto.ApiResponse;
+import com.chanlun.dto.IndicatorDTO;
 import com.chanlun.dto.KlineDTO;
 import com.chanlun.dto.KlineDeleteRequest;
 import com.chanlun.dto.KlineDeleteResult;
 import com.chanlun.entity.Kline;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.service.KlineCacheService;
+import com.chanlun.service.KlineExportService;
+import com.chanlun.service.KlineRollupService;
 import com.chanlun.service.KlineService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.Instant;
 import java.util.List;
@@ -31,6 +42,10 @@ import java.util.stream.Collectors;
 public class KlineController {
 
     private final KlineService klineService;
+    private final KlineCacheService klineCacheService;
+    private final KlineExportService klineExportService;
+    private final KlineRollupService klineRollupService;
+    private final IndicatorEngine indicatorEngine;
 
     /**
      * 默认返回数量
@@ -52,6 +67,8 @@ public class KlineController {
      * @param startTime 开始时间 (可选, ISO 8601 格式)
      * @param endTime 结束时间 (可选, ISO 8601 格式)
      * @param limit 返回数量 (默认500，最大1000)
+     * @param before 向前翻页：返回开盘时间早于该时间的最近 limit 条 (可选, ISO 8601 格式，不能与时间范围同时使用)
+     * @param indicators 是否附带 EMA/MACD/BOLL 指标 (默认 false，未完结 K 线不附带)
      * @return K线数据列表
      */
     @GetMapping
@@ -60,14 +77,22 @@ public class KlineController {
             @RequestParam String interval,
             @RequestParam(required = false) Instant startTime,
             @RequestParam(required = false) Instant endTime,
-            @RequestParam(required = false) Integer limit) {
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Instant before,
+            @RequestParam(defaultValue = "false") boolean indicators) {
         
         // 处理 limit 参数
         int effectiveLimit = normalizeLimit(limit);
         
         List<Kline> klines;
         
-        if (startTime != null && endTime != null) {
+        if (before != null) {
+            if (startTime != null || endTime != null) {
+                throw new BusinessException("before 不能与 startTime/endTime 同时使用");
+            }
+            // 键集分页，查询 before 之前最近的 limit 条数据
+            klines = klineService.getLatestBefore(symbolId, interval, before, effectiveLimit);
+        } else if (startTime != null && endTime != null) {
             // 有时间范围，使用带时间范围和限制的查询
             klines = klineService.getBySymbolIdAndIntervalAndTimeRangeWithLimit(
                     symbolId, interval, startTime, endTime, effectiveLimit);
@@ -85,8 +110,8 @@ public class KlineController {
                 klines = List.of();
             }
         } else {
-            // 无时间范围，查询最新的 limit 条数据
-            klines = getLatestKlines(symbolId, interval, effectiveLimit);
+            // 无时间范围，查询最新的 limit 条数据（优先命中热窗口缓存）
+            klines = klineService.getLatest(symbolId, interval, effectiveLimit);
         }
         
         // 转换为 DTO
@@ -94,30 +119,14 @@ public class KlineController {
                 .map(KlineDTO::fromEntity)
                 .collect(Collectors.toList());
         
-        return ApiResponse.success(result);
-    }
-
-    /**
-     * 获取最新的 K 线数据
-     * 
-     * 当没有指定时间范围时，返回最新的 limit 条数据
-     */
-    private List<Kline> getLatestKlines(Long symbolId, String interval, int limit) {
-        // 获取最大开盘时间
-        Instant maxOpenTime = klineService.getMaxOpenTime(symbolId, interval);
-        if (maxOpenTime == null) {
-            return List.of();
-        }
-        
-        // 获取最小开盘时间
-        Instant minOpenTime = klineService.getMinOpenTime(symbolId, interval);
-        if (minOpenTime == null) {
-            return List.of();
+        if (indicators) {
+            List<IndicatorValue> values = indicatorEngine.getValues(symbolId, interval, klines);
+            for (int i = 0; i < result.size(); i++) {
+                result.get(i).setIndicators(IndicatorDTO.fromValue(values.get(i)));
+            }
         }
         
-        // 查询所有数据并限制数量（按时间升序）
-        return klineService.getBySymbolIdAndIntervalAndTimeRangeWithLimit(
-                symbolId, interval, minOpenTime, maxOpenTime, limit);
+        return ApiResponse.success(result);
     }
 
     /**
@@ -130,6 +139,59 @@ public class KlineController {
         return Math.min(limit, MAX_LIMIT);
     }
 
+    /**
+     * 流式导出K线数据
+     * 
+     * GET /api/v1/klines/export
+     * 
+     * 不受 limit 限制，按开盘时间每 1000 根一页、每页一条独立的自动提交查询读取并写出，适合拉取完整历史。
+     * 各页不在同一快照中，导出期间写入或回补的 K 线可能只体现在尚未读取的页。
+     * 同时进行的导出数量超过 app.kline.export.max-concurrent 时返回 429。
+     * 默认 gzip 压缩（Content-Encoding: gzip），客户端需支持解压（如 curl --compressed）
+     * 
+     * @param symbolId 交易对ID (必填)
+     * @param interval 时间周期 (必填)
+     * @param startTime 开始时间 (可选, ISO 8601 格式，默认最早)
+     * @param endTime 结束时间 (可选, ISO 8601 格式，默认当前时间)
+     * @param format 导出格式 ndjson/csv (默认 ndjson)
+     * @param gzip 是否 gzip 压缩 (默认 true)
+     * @return 流式响应
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportKlines(
+            @RequestParam Long symbolId,
+            @RequestParam String interval,
+            @RequestParam(required = false) Instant startTime,
+            @RequestParam(required = false) Instant endTime,
+            @RequestParam(required = false) String format,
+            @RequestParam(defaultValue = "true") boolean gzip) {
+        
+        KlineExportService.ExportFormat exportFormat = KlineExportService.ExportFormat.of(format);
+        klineExportService.validate(symbolId, interval, startTime, endTime);
+        
+        log.info("Exporting klines: symbolId={}, interval={}, timeRange=[{}, {}], format={}",
+                symbolId, interval, startTime, endTime, exportFormat);
+        
+        // 超过并发上限时在写出响应前返回 429
+        klineExportService.acquire();
+        StreamingResponseBody body = out -> {
+            try {
+                klineExportService.export(symbolId, interval, startTime, endTime, exportFormat, gzip, out);
+            } finally {
+                klineExportService.release();
+            }
+        };
+        
+        String filename = "klines_" + symbolId + "_" + interval + "." + exportFormat.getExtension();
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(body);
+    }
+
     /**
      * 删除指定交易对的历史K线数据（物理删除）
      * 
@@ -165,4 +227,50 @@ public class KlineController {
         
         return ApiResponse.success(result);
     }
+
+    /**
+     * 获取 K 线热窗口缓存统计
+     * 
+     * GET /api/v1/klines/cache/stats
+     * 
+     * @return 缓存命中率、条目数等统计
+     */
+    @GetMapping("/cache/stats")
+    public ApiResponse<KlineCacheService.CacheStats> getCacheStats() {
+        return ApiResponse.success(klineCacheService.getStats());
+    }
+
+    /**
+     * 由 1m K 线批量合成高周期 K 线（历史回补后补算）
+     * 
+     * POST /api/v1/klines/rollup
+     * 
+     * 交易对 sync_intervals 已包含的周期只与交易所数据做一致性校验，不写入
+     * 
+     * @param symbolId 交易对ID (必填)
+     * @param startTime 开始时间 (必填, ISO 8601 格式)
+     * @param endTime 结束时间 (必填, ISO 8601 格式)
+     * @return 合成结果
+     */
+    @PostMapping("/rollup")
+    public ApiResponse<KlineRollupService.RollupResult> rollupKlines(
+            @RequestParam Long symbolId,
+            @RequestParam Instant startTime,
+            @RequestParam Instant endTime) {
+        
+        log.info("Rolling up klines: symbolId={}, timeRange=[{}, {}]", symbolId, startTime, endTime);
+        return ApiResponse.success(klineRollupService.rollup(symbolId, startTime, endTime));
+    }
+
+    /**
+     * 获取 K 线周期合成统计
+     * 
+     * GET /api/v1/klines/rollup/stats
+     * 
+     * @return 合成数量、一致性校验结果等统计
+     */
+    @GetMapping("/rollup/stats")
+    public ApiResponse<KlineRollupService.RollupStats> getRollupStats() {
+        return ApiResponse.success(klineRollupService.getStats());
+    }
 }
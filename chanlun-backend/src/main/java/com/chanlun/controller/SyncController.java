@@ -6,6 +6,7 @@ import com.chanlun.entity.SyncStatus;
 import com.chanlun.entity.SyncTask;
 import com.chanlun.exception.BusinessException;
 import com.chanlun.service.HistorySyncService;
+import com.chanlun.service.KlineLatencyTracker;
 import com.chanlun.service.SyncService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -35,6 +36,7 @@ public class SyncController {
 
     private final SyncService syncService;
     private final HistorySyncService historySyncService;
+    private final KlineLatencyTracker klineLatencyTracker;
 
     /**
      * 默认每页数量
@@ -267,4 +269,34 @@ public class SyncController {
         SyncStatus status = syncService.getSyncStatusById(id);
         return ApiResponse.success(SyncStatusDTO.fromEntity(status));
     }
+
+    // ==================== 实时同步延迟 API ====================
+
+    /**
+     * 获取实时 K 线链路延迟分位统计
+     * 
+     * GET /api/v1/sync/realtime/latency
+     * 
+     * @param interval 时间周期（可选）
+     * @return 各周期、各阶段的 p50/p99/p999 延迟
+     */
+    @GetMapping("/realtime/latency")
+    public ApiResponse<List<KlineLatencyDTO>> getRealtimeLatency(
+            @RequestParam(required = false) String interval) {
+        return ApiResponse.success(klineLatencyTracker.getStats(interval));
+    }
+
+    /**
+     * 重置实时 K 线链路延迟统计
+     * 
+     * DELETE /api/v1/sync/realtime/latency
+     * 
+     * @return 操作结果
+     */
+    @DeleteMapping("/realtime/latency")
+    public ApiResponse<Void> resetRealtimeLatency() {
+        log.info("Resetting realtime kline latency histograms");
+        klineLatencyTracker.reset();
+        return ApiResponse.success();
+    }
 }
@@ -0,0 +1,66 @@
+package com.chanlun.dto;
+
+import com.chanlun.analysis.Fractal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 分型数据传输对象
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FractalDTO {
+
+    /**
+     * 分型类型 (TOP/BOTTOM)
+     */
+    private String type;
+
+    /**
+     * 极值所在 K 线的开盘时间 (UTC, ISO 8601)
+     */
+    private Instant time;
+
+    /**
+     * 分型价格（顶分型为最高价，底分型为最低价）
+     */
+    private BigDecimal price;
+
+    /**
+     * 中间 K 线（包含处理后）最高价
+     */
+    private BigDecimal high;
+
+    /**
+     * 中间 K 线（包含处理后）最低价
+     */
+    private BigDecimal low;
+
+    /**
+     * 中间 K 线在包含处理后序列中的序号
+     */
+    private Long barIndex;
+
+    /**
+     * 从分型转换
+     */
+    public static FractalDTO fromFractal(Fractal fractal) {
+        return FractalDTO.builder()
+                .type(fractal.type().name())
+                .time(Instant.ofEpochMilli(fractal.time()))
+                .price(BigDecimal.valueOf(fractal.price()))
+                .high(BigDecimal.valueOf(fractal.high()))
+                .low(BigDecimal.valueOf(fractal.low()))
+                .barIndex(fractal.barIndex())
+                .build();
+    }
+}
@@ -30,4 +30,9 @@ public class GapDetectRequest {
      * 是否批量检测所有符合条件的交易对
      */
     private Boolean detectAll;
+
+    /**
+     * 是否忽略水位线全量检测（默认增量检测）
+     */
+    private Boolean fullScan;
 }
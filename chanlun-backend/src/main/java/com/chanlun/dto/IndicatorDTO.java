@@ -0,0 +1,84 @@
+package com.chanlun.dto;
+
+import com.chanlun.analysis.IndicatorValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 技术指标数据传输对象（随 K 线返回）
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IndicatorDTO {
+
+    /**
+     * 快线 EMA
+     */
+    private BigDecimal emaFast;
+
+    /**
+     * 慢线 EMA
+     */
+    private BigDecimal emaSlow;
+
+    /**
+     * MACD DIF
+     */
+    private BigDecimal dif;
+
+    /**
+     * MACD DEA
+     */
+    private BigDecimal dea;
+
+    /**
+     * MACD 柱 = 2 × (DIF - DEA)
+     */
+    private BigDecimal macd;
+
+    /**
+     * BOLL 中轨（不足周期时为空）
+     */
+    private BigDecimal bollMid;
+
+    /**
+     * BOLL 上轨（不足周期时为空）
+     */
+    private BigDecimal bollUpper;
+
+    /**
+     * BOLL 下轨（不足周期时为空）
+     */
+    private BigDecimal bollLower;
+
+    /**
+     * 从指标值转换
+     */
+    public static IndicatorDTO fromValue(IndicatorValue value) {
+        if (value == null) {
+            return null;
+        }
+        return IndicatorDTO.builder()
+                .emaFast(decimal(value.emaFast()))
+                .emaSlow(decimal(value.emaSlow()))
+                .dif(decimal(value.dif()))
+                .dea(decimal(value.dea()))
+                .macd(decimal(value.macd()))
+                .bollMid(decimal(value.bollMid()))
+                .bollUpper(decimal(value.bollUpper()))
+                .bollLower(decimal(value.bollLower()))
+                .build();
+    }
+
+    private static BigDecimal decimal(double value) {
+        return Double.isFinite(value) ? BigDecimal.valueOf(value) : null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.chanlun.dto;
 
 import com.chanlun.entity.Kline;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -80,6 +81,12 @@ public class KlineDTO {
      */
     private Instant closeTime;
 
+    /**
+     * 技术指标（请求 indicators=true 时返回）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private IndicatorDTO indicators;
+
     /**
      * 从实体转换为 DTO
      */
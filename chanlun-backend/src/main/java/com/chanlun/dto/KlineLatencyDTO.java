@@ -0,0 +1,58 @@
+package com.chanlun.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 实时 K 线链路延迟统计
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class KlineLatencyDTO {
+
+    /**
+     * 时间周期
+     */
+    private String interval;
+
+    /**
+     * 链路阶段 (EXCHANGE_TO_RECEIVE/RECEIVE_TO_DECODE/DECODE_TO_PUSH/DECODE_TO_COMMIT/CLOSE_TO_COMMIT)
+     */
+    private String stage;
+
+    /**
+     * 样本数
+     */
+    private long count;
+
+    /**
+     * 中位数（毫秒）
+     */
+    private double p50Ms;
+
+    /**
+     * 99 分位（毫秒）
+     */
+    private double p99Ms;
+
+    /**
+     * 99.9 分位（毫秒）
+     */
+    private double p999Ms;
+
+    /**
+     * 最大值（毫秒）
+     */
+    private double maxMs;
+
+    /**
+     * 平均值（毫秒）
+     */
+    private double meanMs;
+}
@@ -0,0 +1,66 @@
+package com.chanlun.dto;
+
+import com.chanlun.analysis.MacdArea;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * MACD 柱面积数据传输对象
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MacdAreaDTO {
+
+    /**
+     * 区间内第一根 K 线开盘时间 (UTC, ISO 8601)
+     */
+    private Instant startTime;
+
+    /**
+     * 区间内最后一根 K 线开盘时间 (UTC, ISO 8601)
+     */
+    private Instant endTime;
+
+    /**
+     * K 线数量
+     */
+    private Integer bars;
+
+    /**
+     * 红柱面积
+     */
+    private BigDecimal positive;
+
+    /**
+     * 绿柱面积（绝对值）
+     */
+    private BigDecimal negative;
+
+    /**
+     * 净面积（红柱面积 - 绿柱面积）
+     */
+    private BigDecimal net;
+
+    /**
+     * 从面积转换
+     */
+    public static MacdAreaDTO fromArea(MacdArea area) {
+        return MacdAreaDTO.builder()
+                .startTime(Instant.ofEpochMilli(area.startTime()))
+                .endTime(Instant.ofEpochMilli(area.endTime()))
+                .bars(area.bars())
+                .positive(BigDecimal.valueOf(area.positive()))
+                .negative(BigDecimal.valueOf(area.negative()))
+                .net(BigDecimal.valueOf(area.net()))
+                .build();
+    }
+}
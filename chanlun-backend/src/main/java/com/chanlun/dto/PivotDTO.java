@@ -0,0 +1,84 @@
+package com.chanlun.dto;
+
+import com.chanlun.analysis.Pivot;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 中枢数据传输对象
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PivotDTO {
+
+    /**
+     * 级别（1 = 笔中枢，2 = 线段中枢，3 及以上 = 中枢扩张）
+     */
+    private Integer level;
+
+    /**
+     * 起点时间 (UTC, ISO 8601)
+     */
+    private Instant startTime;
+
+    /**
+     * 终点时间 (UTC, ISO 8601)
+     */
+    private Instant endTime;
+
+    /**
+     * 中枢上沿 ZG
+     */
+    private BigDecimal zg;
+
+    /**
+     * 中枢下沿 ZD
+     */
+    private BigDecimal zd;
+
+    /**
+     * 中枢内最高点 GG
+     */
+    private BigDecimal gg;
+
+    /**
+     * 中枢内最低点 DD
+     */
+    private BigDecimal dd;
+
+    /**
+     * 包含的走势数量
+     */
+    private Integer moveCount;
+
+    /**
+     * 是否已结束（false 表示进行中，仍可能延伸）
+     */
+    private Boolean closed;
+
+    /**
+     * 从中枢转换
+     */
+    public static PivotDTO fromPivot(Pivot pivot) {
+        return PivotDTO.builder()
+                .level(pivot.level())
+                .startTime(Instant.ofEpochMilli(pivot.startTime()))
+                .endTime(Instant.ofEpochMilli(pivot.endTime()))
+                .zg(BigDecimal.valueOf(pivot.zg()))
+                .zd(BigDecimal.valueOf(pivot.zd()))
+                .gg(BigDecimal.valueOf(pivot.gg()))
+                .dd(BigDecimal.valueOf(pivot.dd()))
+                .moveCount(pivot.moveCount())
+                .closed(pivot.closed())
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.chanlun.dto;
+
+import com.chanlun.entity.ChanSegment;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 线段数据传输对象
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SegmentDTO {
+
+    /**
+     * 方向 (UP/DOWN)
+     */
+    private String direction;
+
+    /**
+     * 起点时间 (UTC, ISO 8601)
+     */
+    private Instant startTime;
+
+    /**
+     * 终点时间 (UTC, ISO 8601)
+     */
+    private Instant endTime;
+
+    /**
+     * 起点价格
+     */
+    private BigDecimal startPrice;
+
+    /**
+     * 终点价格
+     */
+    private BigDecimal endPrice;
+
+    /**
+     * 包含的笔数
+     */
+    private Integer strokeCount;
+
+    /**
+     * 是否已确认（最后一段为 false，仍可能变化）
+     */
+    private Boolean confirmed;
+
+    /**
+     * 从实体转换
+     */
+    public static SegmentDTO fromEntity(ChanSegment segment) {
+        return SegmentDTO.builder()
+                .direction(segment.getDirection())
+                .startTime(segment.getStartTime())
+                .endTime(segment.getEndTime())
+                .startPrice(segment.getStartPrice())
+                .endPrice(segment.getEndPrice())
+                .strokeCount(segment.getStrokeCount())
+                .confirmed(segment.getConfirmed())
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.chanlun.dto;
+
+import com.chanlun.entity.ChanStroke;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 笔数据传输对象
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StrokeDTO {
+
+    /**
+     * 方向 (UP/DOWN)
+     */
+    private String direction;
+
+    /**
+     * 起点分型极值所在 K 线的开盘时间 (UTC, ISO 8601)
+     */
+    private Instant startTime;
+
+    /**
+     * 终点分型极值所在 K 线的开盘时间 (UTC, ISO 8601)
+     */
+    private Instant endTime;
+
+    /**
+     * 起点价格
+     */
+    private BigDecimal startPrice;
+
+    /**
+     * 终点价格
+     */
+    private BigDecimal endPrice;
+
+    /**
+     * 起点分型在包含处理后序列中的序号
+     */
+    private Long startBar;
+
+    /**
+     * 终点分型在包含处理后序列中的序号
+     */
+    private Long endBar;
+
+    /**
+     * 是否已确认（最后一笔为 false，仍可能延伸）
+     */
+    private Boolean confirmed;
+
+    /**
+     * 从实体转换
+     */
+    public static StrokeDTO fromEntity(ChanStroke stroke) {
+        return StrokeDTO.builder()
+                .direction(stroke.getDirection())
+                .startTime(stroke.getStartTime())
+                .endTime(stroke.getEndTime())
+                .startPrice(stroke.getStartPrice())
+                .endPrice(stroke.getEndPrice())
+                .startBar(stroke.getStartBar())
+                .endBar(stroke.getEndBar())
+                .confirmed(stroke.getConfirmed())
+                .build();
+    }
+}
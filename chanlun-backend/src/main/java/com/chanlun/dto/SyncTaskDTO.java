@@ -59,6 +59,11 @@ public class SyncTaskDTO {
      */
     private Integer syncedCount;
 
+    /**
+     * 断点：最后已提交 K 线的开盘时间 (UTC)
+     */
+    private Instant checkpointTime;
+
     /**
      * 重试次数
      */
@@ -99,6 +104,7 @@ public class SyncTaskDTO {
                 .status(task.getStatus())
                 .startTime(task.getStartTime())
                 .endTime(task.getEndTime())
+                .checkpointTime(task.getCheckpointTime())
                 .syncedCount(task.getSyncedCount())
                 .retryCount(task.getRetryCount())
                 .maxRetries(task.getMaxRetries())
@@ -0,0 +1,90 @@
+package com.chanlun.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 线段实体
+ * 
+ * 由笔的特征序列构建，最后一段未确认（confirmed = false）
+ * 唯一约束: (symbol_id, interval, start_time)
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("chan_segment")
+public class ChanSegment {
+
+    /**
+     * 主键
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 交易对ID (外键)
+     */
+    private Long symbolId;
+
+    /**
+     * 时间周期
+     */
+    @TableField("`interval`")
+    private String interval;
+
+    /**
+     * 方向 (UP/DOWN)
+     */
+    private String direction;
+
+    /**
+     * 起点时间 (UTC)
+     */
+    private Instant startTime;
+
+    /**
+     * 终点时间 (UTC)
+     */
+    private Instant endTime;
+
+    /**
+     * 起点价格
+     */
+    private BigDecimal startPrice;
+
+    /**
+     * 终点价格
+     */
+    private BigDecimal endPrice;
+
+    /**
+     * 包含的笔数
+     */
+    private Integer strokeCount;
+
+    /**
+     * 是否已确认
+     */
+    private Boolean confirmed;
+
+    /**
+     * 创建时间 (UTC)
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private Instant createdAt;
+
+    /**
+     * 更新时间 (UTC)
+     */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private Instant updatedAt;
+}
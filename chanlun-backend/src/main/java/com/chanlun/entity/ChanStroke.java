@@ -0,0 +1,95 @@
+package com.chanlun.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * 笔实体
+ * 
+ * 由相邻的顶底分型构建，最后一笔未确认（confirmed = false），随新分型延伸或确认
+ * 唯一约束: (symbol_id, interval, start_time)
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("chan_stroke")
+public class ChanStroke {
+
+    /**
+     * 主键
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 交易对ID (外键)
+     */
+    private Long symbolId;
+
+    /**
+     * 时间周期
+     */
+    @TableField("`interval`")
+    private String interval;
+
+    /**
+     * 方向 (UP/DOWN)
+     */
+    private String direction;
+
+    /**
+     * 起点分型极值所在K线开盘时间 (UTC)
+     */
+    private Instant startTime;
+
+    /**
+     * 终点分型极值所在K线开盘时间 (UTC)
+     */
+    private Instant endTime;
+
+    /**
+     * 起点价格
+     */
+    private BigDecimal startPrice;
+
+    /**
+     * 终点价格
+     */
+    private BigDecimal endPrice;
+
+    /**
+     * 起点分型在包含处理后序列中的序号
+     */
+    private Long startBar;
+
+    /**
+     * 终点分型在包含处理后序列中的序号
+     */
+    private Long endBar;
+
+    /**
+     * 是否已确认
+     */
+    private Boolean confirmed;
+
+    /**
+     * 创建时间 (UTC)
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private Instant createdAt;
+
+    /**
+     * 更新时间 (UTC)
+     */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private Instant updatedAt;
+}
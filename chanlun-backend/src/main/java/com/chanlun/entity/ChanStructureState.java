@@ -0,0 +1,64 @@
+package com.chanlun.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 笔和线段构建检查点实体
+ * 
+ * 与已写入的笔、线段在同一事务中保存，重启后从 lastOpenTime 之后的 K 线继续增量构建
+ * 唯一约束: (symbol_id, interval)
+ * 
+ * @author Chanlun Team
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("chan_structure_state")
+public class ChanStructureState {
+
+    /**
+     * 主键
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 交易对ID (外键)
+     */
+    private Long symbolId;
+
+    /**
+     * 时间周期
+     */
+    @TableField("`interval`")
+    private String interval;
+
+    /**
+     * 检查点对应的最新一根K线开盘时间 (UTC)
+     */
+    private Instant lastOpenTime;
+
+    /**
+     * 构建状态 (JSON)
+     */
+    private String state;
+
+    /**
+     * 创建时间 (UTC)
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private Instant createdAt;
+
+    /**
+     * 更新时间 (UTC)
+     */
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private Instant updatedAt;
+}
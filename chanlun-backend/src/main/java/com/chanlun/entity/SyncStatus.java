@@ -59,6 +59,16 @@ public class SyncStatus {
      */
     private Boolean autoGapFillEnabled;
 
+    /**
+     * 缺口检测水位线起点 (UTC)：上次检测时最早一根K线的开盘时间，为 NULL 时需全量检测
+     */
+    private Instant gapCheckedFrom;
+
+    /**
+     * 缺口检测水位线终点 (UTC)：上次检测时最新一根K线的开盘时间，此前的缺口均已记录
+     */
+    private Instant gapCheckedUntil;
+
     /**
      * 创建时间 (UTC)
      */
@@ -64,6 +64,11 @@ public class SyncTask {
      */
     private Integer syncedCount;
 
+    /**
+     * 断点：最后已提交 K 线的开盘时间 (UTC)
+     */
+    private Instant checkpointTime;
+
     /**
      * 重试次数
      */
@@ -0,0 +1,56 @@
+package com.chanlun.event;
+
+import com.chanlun.analysis.Segment;
+import com.chanlun.analysis.Stroke;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * 笔和线段变化事件
+ * 
+ * ChanStructureEngine 每次写入 chan_stroke / chan_segment 后发布，
+ * 用于驱动基于笔和线段的增量计算（中枢等）
+ * 
+ * @author Chanlun Team
+ */
+@Getter
+public class ChanStructureChangedEvent extends ApplicationEvent {
+
+    /**
+     * 交易对ID
+     */
+    private final Long symbolId;
+
+    /**
+     * 时间周期
+     */
+    private final String interval;
+
+    /**
+     * 新确认的笔（升序）
+     */
+    private final List<Stroke> confirmedStrokes;
+
+    /**
+     * 新确认的线段（升序）
+     */
+    private final List<Segment> confirmedSegments;
+
+    /**
+     * 是否为全量重建（已保存的笔和线段整体替换，下游需要重新加载）
+     */
+    private final boolean rebuilt;
+
+    public ChanStructureChangedEvent(Object source, Long symbolId, String interval,
+                                     List<Stroke> confirmedStrokes, List<Segment> confirmedSegments,
+                                     boolean rebuilt) {
+        super(source);
+        this.symbolId = symbolId;
+        this.interval = interval;
+        this.confirmedStrokes = confirmedStrokes;
+        this.confirmedSegments = confirmedSegments;
+        this.rebuilt = rebuilt;
+    }
+}
@@ -0,0 +1,31 @@
+package com.chanlun.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * K 线删除事件
+ * 
+ * KlineService 删除 K 线后发布，基于 K 线的增量计算状态需要失效
+ * 
+ * @author Chanlun Team
+ */
+@Getter
+public class KlineDeletedEvent extends ApplicationEvent {
+
+    /**
+     * 交易对 ID
+     */
+    private final Long symbolId;
+
+    /**
+     * 时间周期（为 null 表示该交易对的所有周期）
+     */
+    private final String interval;
+
+    public KlineDeletedEvent(Object source, Long symbolId, String interval) {
+        super(source);
+        this.symbolId = symbolId;
+        this.interval = interval;
+    }
+}
@@ -0,0 +1,29 @@
+package com.chanlun.event;
+
+import com.chanlun.entity.Kline;
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.List;
+
+/**
+ * K 线写入事件
+ * 
+ * KlineService 每次 upsert 后发布（含实时同步、历史同步和缺口回补），
+ * 用于驱动基于 K 线的增量计算（分型、指标等）
+ * 
+ * @author Chanlun Team
+ */
+@Getter
+public class KlineUpsertedEvent extends ApplicationEvent {
+
+    /**
+     * 本次写入的 K 线（可能包含多个交易对和周期）
+     */
+    private final List<Kline> klines;
+
+    public KlineUpsertedEvent(Object source, List<Kline> klines) {
+        super(source);
+        this.klines = klines;
+    }
+}
@@ -2,6 +2,7 @@ package com.chanlun.exchange;
 
 import com.chanlun.config.ProxyConfig;
 import com.chanlun.entity.DataSource;
+import com.chanlun.entity.Kline;
 import com.chanlun.enums.ProxyType;
 import com.chanlun.exchange.model.BinanceApiResponse;
 import com.chanlun.exchange.model.BinanceExchangeInfo;
@@ -11,7 +12,10 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 
@@ -23,13 +27,13 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 币安交易所客户端基础类
  * 
- * 支持代理配置、API 限流处理、连接测试
+ * 支持代理配置、API 限流处理（按基础 URL 进程内共享权重预算）、连接测试
  * 支持 Mock 模式用于本地开发和 E2E 测试
  * 
  * @author Chanlun Team
@@ -68,19 +72,14 @@ public class BinanceClient {
     private static final int DEFAULT_WRITE_TIMEOUT = 30;
 
     /**
-     * 每分钟最大请求权重（币安限制为 6000）
+     * K 线请求耗时指标名称
      */
-    private static final int MAX_WEIGHT_PER_MINUTE = 6000;
+    public static final String KLINES_REQUEST_METRIC = "binance.klines.requests";
 
     /**
-     * 权重重置间隔（毫秒）
+     * 请求未收到 HTTP 响应（网络错误）时的状态标签
      */
-    private static final long WEIGHT_RESET_INTERVAL_MS = 60_000;
-
-    /**
-     * 限流等待最大时间（毫秒）
-     */
-    private static final long MAX_RATE_LIMIT_WAIT_MS = 30_000;
+    private static final String STATUS_IO_ERROR = "IO_ERROR";
 
     @Getter
     private final String baseUrl;
@@ -95,10 +94,17 @@ public class BinanceClient {
     private final ObjectMapper objectMapper;
     private final boolean mockEnabled;
 
-    // 限流控制
-    private final AtomicInteger currentWeight = new AtomicInteger(0);
-    private final AtomicLong lastResetTime = new AtomicLong(System.currentTimeMillis());
-    private final Object rateLimitLock = new Object();
+    /**
+     * 共享限流器（同一 baseUrl 的所有客户端共用）
+     */
+    private final BinanceRateLimiter rateLimiter;
+
+    /**
+     * 请求优先级（由调用方按任务类型设置）
+     */
+    @Getter
+    @Setter
+    private volatile BinanceRateLimiter.Priority requestPriority = BinanceRateLimiter.Priority.NORMAL;
 
     /**
      * 构造函数
@@ -117,6 +123,7 @@ public class BinanceClient {
         this.mockEnabled = mockEnabled;
         this.objectMapper = new ObjectMapper();
         this.httpClient = createHttpClient(proxyConfig);
+        this.rateLimiter = BinanceRateLimiter.forBaseUrl(this.baseUrl);
         
         log.info("BinanceClient initialized: baseUrl={}, mockEnabled={}, proxyEnabled={}", 
                 this.baseUrl, mockEnabled, proxyConfig != null && proxyConfig.isEnabled());
@@ -217,6 +224,7 @@ public class BinanceClient {
                     .build();
 
             try (Response response = httpClient.newCall(request).execute()) {
+                recordRateLimitHeaders(response);
                 boolean success = response.isSuccessful();
                 log.debug("Ping result: success={}, code={}", success, response.code());
                 return success;
@@ -255,6 +263,7 @@ public class BinanceClient {
                     .build();
 
             try (Response response = httpClient.newCall(request).execute()) {
+                recordRateLimitHeaders(response);
                 if (!response.isSuccessful()) {
                     return handleErrorResponse(response);
                 }
@@ -333,6 +342,7 @@ public class BinanceClient {
                 .build();
 
         try (Response response = httpClient.newCall(request).execute()) {
+            recordRateLimitHeaders(response);
             if (!response.isSuccessful()) {
                 throw new IOException("Request failed: " + response.code() + " " + response.message());
             }
@@ -343,39 +353,41 @@ public class BinanceClient {
     /**
      * 获取请求权重（限流控制）
      * 
+     * 由按 baseUrl 共享的限流器统一控制，预算不足时阻塞等待
+     * 
      * @param weight 请求权重
+     * @throws RateLimitTimeoutException 预计等待时间过长（按请求失败处理，不设置中断标记）
      */
-    protected void acquireWeight(int weight) throws InterruptedException {
-        synchronized (rateLimitLock) {
-            long now = System.currentTimeMillis();
-            long elapsed = now - lastResetTime.get();
+    protected void acquireWeight(int weight) throws InterruptedException, RateLimitTimeoutException {
+        rateLimiter.acquire(weight, requestPriority);
+    }
 
-            // 检查是否需要重置权重
-            if (elapsed >= WEIGHT_RESET_INTERVAL_MS) {
-                currentWeight.set(0);
-                lastResetTime.set(now);
-                log.debug("Rate limit weight reset");
+    /**
+     * 根据响应头校准限流器
+     * 
+     * X-MBX-USED-WEIGHT-1M 为服务端统计的已用权重，429/418 时按 Retry-After 暂停
+     */
+    protected void recordRateLimitHeaders(Response response) {
+        String usedWeight = response.header(BinanceRateLimiter.USED_WEIGHT_HEADER);
+        if (usedWeight != null) {
+            try {
+                rateLimiter.updateUsedWeight(Integer.parseInt(usedWeight.trim()));
+            } catch (NumberFormatException e) {
+                log.debug("Invalid used weight header: {}", usedWeight);
             }
+        }
 
-            // 检查是否超过限制
-            int newWeight = currentWeight.get() + weight;
-            if (newWeight > MAX_WEIGHT_PER_MINUTE) {
-                // 计算需要等待的时间
-                long waitTime = WEIGHT_RESET_INTERVAL_MS - elapsed;
-                if (waitTime > MAX_RATE_LIMIT_WAIT_MS) {
-                    throw new InterruptedException("Rate limit exceeded, wait time too long: " + waitTime + "ms");
+        if (response.code() == 429 || response.code() == 418) {
+            Long retryAfter = null;
+            String header = response.header("Retry-After");
+            if (header != null) {
+                try {
+                    retryAfter = Long.parseLong(header.trim());
+                } catch (NumberFormatException e) {
+                    log.debug("Invalid Retry-After header: {}", header);
                 }
-                
-                log.warn("Rate limit reached, waiting {}ms", waitTime);
-                rateLimitLock.wait(waitTime);
-                
-                // 重置后重新获取
-                currentWeight.set(0);
-                lastResetTime.set(System.currentTimeMillis());
             }
-
-            currentWeight.addAndGet(weight);
-            log.trace("Acquired weight: {}, current total: {}", weight, currentWeight.get());
+            rateLimiter.onRateLimited(response.code(), retryAfter);
         }
     }
 
@@ -383,14 +395,14 @@ public class BinanceClient {
      * 获取当前已使用的权重
      */
     public int getCurrentWeight() {
-        return currentWeight.get();
+        return rateLimiter.getUsedWeight();
     }
 
     /**
      * 获取剩余可用权重
      */
     public int getRemainingWeight() {
-        return MAX_WEIGHT_PER_MINUTE - currentWeight.get();
+        return rateLimiter.getRemainingWeight();
     }
 
     /**
@@ -438,6 +450,7 @@ public class BinanceClient {
                     .build();
 
             try (Response response = httpClient.newCall(request).execute()) {
+                recordRateLimitHeaders(response);
                 if (!response.isSuccessful()) {
                     return handleErrorResponse(response);
                 }
@@ -492,6 +505,49 @@ public class BinanceClient {
      */
     public BinanceApiResponse<List<BinanceKline>> getKlines(String symbol, String interval,
                                                              Long startTime, Long endTime, Integer limit) {
+        return requestKlines(symbol, interval, startTime, endTime, limit,
+                () -> getMockKlines(symbol, interval, startTime, endTime, limit),
+                (body, expectedSize) -> parseKlinesResponse(body.string()));
+    }
+
+    /**
+     * 获取 K 线数据并直接解析为实体
+     * 
+     * 响应流逐 token 写入 Kline，不经过 Object[] 和 BinanceKline，用于同步和回补入库
+     * 
+     * @param symbolId 交易对 ID
+     * @param symbol 交易对代码 (如 BTCUSDT)
+     * @param interval 时间周期
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @param limit 返回数量 (默认 500，最大 1000)
+     * @return K 线实体列表（按开盘时间升序）
+     */
+    public BinanceApiResponse<List<Kline>> getKlineEntities(Long symbolId, String symbol, String interval,
+                                                             Instant startTime, Instant endTime, Integer limit) {
+        Long startMs = startTime != null ? startTime.toEpochMilli() : null;
+        Long endMs = endTime != null ? endTime.toEpochMilli() : null;
+        return requestKlines(symbol, interval, startMs, endMs, limit,
+                () -> toEntities(getMockKlines(symbol, interval, startMs, endMs, limit), symbolId, interval),
+                (body, expectedSize) -> BinanceKlineResponseParser.parse(
+                        body.byteStream(), symbolId, interval, expectedSize));
+    }
+
+    /**
+     * K 线响应体解析
+     */
+    @FunctionalInterface
+    private interface KlinesBodyParser<T> {
+        List<T> parse(ResponseBody body, int expectedSize) throws IOException;
+    }
+
+    /**
+     * 请求 K 线接口（参数校验、限流、错误处理），响应体由调用方解析
+     */
+    private <T> BinanceApiResponse<List<T>> requestKlines(String symbol, String interval,
+                                                          Long startTime, Long endTime, Integer limit,
+                                                          Supplier<BinanceApiResponse<List<T>>> mockSupplier,
+                                                          KlinesBodyParser<T> bodyParser) {
         // 校验参数
         if (symbol == null || symbol.isBlank()) {
             return BinanceApiResponse.error(-1, "Symbol is required");
@@ -505,12 +561,14 @@ public class BinanceClient {
 
         if (mockEnabled) {
             log.debug("Mock mode: returning mock klines for {} {}", symbol, interval);
-            return getMockKlines(symbol, interval, startTime, endTime, limit);
+            return mockSupplier.get();
         }
 
+        // 构建请求路径
+        String path = getKlinesPath();
+        long startNanos = 0;
+        String status = STATUS_IO_ERROR;
         try {
-            // 构建请求路径
-            String path = getKlinesPath();
             int weight = getKlinesWeight();
             
             // 规范化 limit
@@ -530,6 +588,8 @@ public class BinanceClient {
             }
             
             acquireWeight(weight);
+            // 限流等待不计入请求耗时
+            startNanos = System.nanoTime();
             
             String url = baseUrl + path + queryBuilder;
             Request request = new Request.Builder()
@@ -538,25 +598,49 @@ public class BinanceClient {
                     .build();
 
             try (Response response = httpClient.newCall(request).execute()) {
+                status = String.valueOf(response.code());
+                recordRateLimitHeaders(response);
                 if (!response.isSuccessful()) {
                     return handleErrorResponse(response);
                 }
 
-                String body = response.body() != null ? response.body().string() : "";
-                List<BinanceKline> klines = parseKlinesResponse(body);
+                List<T> klines = response.body() != null
+                        ? bodyParser.parse(response.body(), actualLimit)
+                        : new ArrayList<>();
                 
                 log.debug("Retrieved {} klines for {} {}", klines.size(), symbol, interval);
                 return BinanceApiResponse.success(klines);
             }
+        } catch (RateLimitTimeoutException e) {
+            log.warn("Get klines skipped: {}", e.getMessage());
+            return BinanceApiResponse.error(-1, "Rate limit wait timeout: " + e.getMessage());
         } catch (IOException e) {
             log.error("Get klines failed: {}", e.getMessage());
             return BinanceApiResponse.error(-1, "Network error: " + e.getMessage());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             return BinanceApiResponse.error(-1, "Request interrupted");
+        } finally {
+            if (startNanos != 0) {
+                recordKlinesRequest(path, status, System.nanoTime() - startNanos);
+            }
         }
     }
 
+    /**
+     * 记录 K 线请求耗时（含响应体解析），按接口路径和 HTTP 状态码区分
+     * 
+     * 客户端不是 Spring Bean，指标注册到全局注册表（Spring Boot 自动将 Prometheus 注册表加入其中）
+     */
+    private static void recordKlinesRequest(String path, String status, long nanos) {
+        Timer.builder(KLINES_REQUEST_METRIC)
+                .description("Binance klines REST request latency")
+                .tag("endpoint", path)
+                .tag("status", status)
+                .register(Metrics.globalRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
     /**
      * 获取 K 线数据（使用 Instant 时间）
      * 
@@ -612,7 +696,7 @@ public class BinanceClient {
     /**
      * 解析 K 线响应数据
      */
-    private List<BinanceKline> parseKlinesResponse(String body) throws IOException {
+    List<BinanceKline> parseKlinesResponse(String body) throws IOException {
         List<Object[]> rawData = objectMapper.readValue(body, new TypeReference<List<Object[]>>() {});
         List<BinanceKline> klines = new ArrayList<>(rawData.size());
         
@@ -627,6 +711,22 @@ public class BinanceClient {
         return klines;
     }
 
+    /**
+     * Mock K 线转换为实体
+     */
+    private static BinanceApiResponse<List<Kline>> toEntities(BinanceApiResponse<List<BinanceKline>> response,
+                                                              Long symbolId, String interval) {
+        if (!response.isSuccess()) {
+            return BinanceApiResponse.error(response.getCode(), response.getMessage());
+        }
+        List<BinanceKline> data = response.getData() != null ? response.getData() : List.of();
+        List<Kline> entities = new ArrayList<>(data.size());
+        for (BinanceKline bk : data) {
+            entities.add(bk.toKline(symbolId, interval));
+        }
+        return BinanceApiResponse.success(entities);
+    }
+
     /**
      * 获取 Mock K 线数据
      */
@@ -0,0 +1,558 @@
+package com.chanlun.exchange;
+
+import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Metrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 币安组合流 WebSocket 客户端
+ *
+ * 单个物理连接承载多个 K 线流，包括：
+ * - 连接时通过 /stream?streams=a/b/c 携带已有流
+ * - 连接建立后通过 SUBSCRIBE/UNSUBSCRIBE 帧动态增减流
+ * - 控制帧合并发送，每 CONTROL_FRAME_INTERVAL_MS 最多一帧（币安限制每连接每秒 5 条消息，含 PING/PONG）
+ * - 自动断线重连（重连时携带全部流），指数退避封顶后持续重试，不放弃连接上的流
+ *
+ * 组合流消息格式:
+ * {"stream":"btcusdt@kline_1m","data":{...K线事件...}}
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+public class BinanceCombinedStreamClient {
+
+    /**
+     * 单连接最大流数量（现货 1024，合约 200，取较小值）
+     */
+    public static final int MAX_STREAMS_PER_CONNECTION = 200;
+
+    /**
+     * 控制帧发送间隔（毫秒），每次只发送一帧，即每秒最多 2.5 帧，为 PONG 等消息留出余量
+     */
+    private static final long CONTROL_FRAME_INTERVAL_MS = 400;
+
+    /**
+     * 重连基础延迟（毫秒）
+     */
+    private static final long RECONNECT_BASE_DELAY_MS = 1000;
+
+    /**
+     * 重连最大延迟（毫秒）
+     */
+    private static final long RECONNECT_MAX_DELAY_MS = 60000;
+
+    /**
+     * 连接编号（用于日志）
+     */
+    @Getter
+    private final int connectionId;
+
+    /**
+     * 组合流基础 URL（如 wss://stream.binance.com:9443/stream）
+     */
+    @Getter
+    private final String streamUrl;
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+    private final BiConsumer<String, BinanceWsKlineEvent> klineHandler;
+    private final Predicate<String> openEventFilter;
+    private final Consumer<Throwable> errorHandler;
+    private final Consumer<Set<String>> disconnectHandler;
+    private final boolean mockEnabled;
+
+    /**
+     * 当前承载的流（包括待发送 SUBSCRIBE 的流）
+     */
+    private final Set<String> streams = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 待发送的 SUBSCRIBE / UNSUBSCRIBE 参数
+     */
+    private final Set<String> pendingSubscribe = new LinkedHashSet<>();
+    private final Set<String> pendingUnsubscribe = new LinkedHashSet<>();
+    private final Object pendingLock = new Object();
+    private boolean flushScheduled = false;
+
+    private volatile WebSocket webSocket;
+    private final AtomicBoolean connected = new AtomicBoolean(false);
+    private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicInteger reconnectAttempts = new AtomicInteger(0);
+    private final AtomicInteger requestId = new AtomicInteger(0);
+
+    @Getter
+    private volatile Instant lastMessageTime;
+
+    @Getter
+    private volatile Instant connectedTime;
+
+    @Getter
+    private volatile Instant disconnectedTime;
+
+    /**
+     * 构造函数
+     *
+     * @param connectionId 连接编号
+     * @param streamUrl 组合流基础 URL
+     * @param httpClient 共享的 OkHttpClient
+     * @param objectMapper 共享的 ObjectMapper
+     * @param scheduler 共享的调度器（控制帧合并与重连）
+     * @param klineHandler K线数据处理器 (streamName, event)
+     * @param errorHandler 错误处理器
+     * @param disconnectHandler 断开连接处理器（参数为受影响的流）
+     * @param mockEnabled 是否启用 Mock 模式
+     */
+    public BinanceCombinedStreamClient(int connectionId, String streamUrl,
+                                       OkHttpClient httpClient,
+                                       ObjectMapper objectMapper,
+                                       ScheduledExecutorService scheduler,
+                                       BiConsumer<String, BinanceWsKlineEvent> klineHandler,
+                                       Consumer<Throwable> errorHandler,
+                                       Consumer<Set<String>> disconnectHandler,
+                                       boolean mockEnabled) {
+        this(connectionId, streamUrl, httpClient, objectMapper, scheduler, klineHandler, stream -> true,
+                errorHandler, disconnectHandler, mockEnabled);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param connectionId 连接编号
+     * @param streamUrl 组合流基础 URL
+     * @param httpClient 共享的 OkHttpClient
+     * @param objectMapper 共享的 ObjectMapper（控制帧序列化）
+     * @param scheduler 共享的调度器（控制帧合并与重连）
+     * @param klineHandler K线数据处理器 (streamName, event)
+     * @param openEventFilter 流是否需要未完结 K 线事件 (streamName)，false 时只解码消息头即丢弃
+     * @param errorHandler 错误处理器
+     * @param disconnectHandler 断开连接处理器（参数为受影响的流）
+     * @param mockEnabled 是否启用 Mock 模式
+     */
+    public BinanceCombinedStreamClient(int connectionId, String streamUrl,
+                                       OkHttpClient httpClient,
+                                       ObjectMapper objectMapper,
+                                       ScheduledExecutorService scheduler,
+                                       BiConsumer<String, BinanceWsKlineEvent> klineHandler,
+                                       Predicate<String> openEventFilter,
+                                       Consumer<Throwable> errorHandler,
+                                       Consumer<Set<String>> disconnectHandler,
+                                       boolean mockEnabled) {
+        this.connectionId = connectionId;
+        this.streamUrl = streamUrl;
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+        this.klineHandler = klineHandler;
+        this.openEventFilter = openEventFilter;
+        this.errorHandler = errorHandler;
+        this.disconnectHandler = disconnectHandler;
+        this.mockEnabled = mockEnabled;
+    }
+
+    /**
+     * 根据普通 WebSocket URL 推导组合流 URL
+     *
+     * wss://stream.binance.com:9443/ws -> wss://stream.binance.com:9443/stream
+     *
+     * @param wsUrl 普通 WebSocket URL
+     * @return 组合流 URL
+     */
+    public static String toCombinedStreamUrl(String wsUrl) {
+        String url = wsUrl.endsWith("/") ? wsUrl.substring(0, wsUrl.length() - 1) : wsUrl;
+        if (url.endsWith("/stream")) {
+            return url;
+        }
+        if (url.endsWith("/ws")) {
+            return url.substring(0, url.length() - "/ws".length()) + "/stream";
+        }
+        return url + "/stream";
+    }
+
+    /**
+     * 添加流
+     *
+     * 已连接时合并发送 SUBSCRIBE 帧，未连接时在下次连接的 URL 中携带
+     *
+     * @param streamName 流名称（如 btcusdt@kline_1m）
+     * @return 是否添加成功（超出容量返回 false）
+     */
+    public boolean addStream(String streamName) {
+        synchronized (pendingLock) {
+            if (streams.contains(streamName)) {
+                return true;
+            }
+            if (streams.size() >= MAX_STREAMS_PER_CONNECTION) {
+                return false;
+            }
+            streams.add(streamName);
+            // 连接已发起（含握手中）时走控制帧，否则在下次连接的 URL 中携带
+            if (webSocket != null && !mockEnabled) {
+                pendingUnsubscribe.remove(streamName);
+                pendingSubscribe.add(streamName);
+                scheduleFlush();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 移除流
+     *
+     * @param streamName 流名称
+     * @return 是否移除成功
+     */
+    public boolean removeStream(String streamName) {
+        synchronized (pendingLock) {
+            if (!streams.remove(streamName)) {
+                return false;
+            }
+            if (webSocket != null && !mockEnabled) {
+                if (!pendingSubscribe.remove(streamName)) {
+                    pendingUnsubscribe.add(streamName);
+                    scheduleFlush();
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否还有容量
+     */
+    public boolean hasCapacity() {
+        return streams.size() < MAX_STREAMS_PER_CONNECTION;
+    }
+
+    /**
+     * 获取当前流数量
+     */
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    /**
+     * 获取当前流（快照）
+     */
+    public Set<String> getStreams() {
+        return new HashSet<>(streams);
+    }
+
+    /**
+     * 构建连接 URL（携带当前全部流）
+     */
+    public String buildConnectUrl() {
+        if (streams.isEmpty()) {
+            return streamUrl;
+        }
+        return streamUrl + "?streams=" + String.join("/", new TreeSet<>(streams));
+    }
+
+    /**
+     * 连接 WebSocket
+     */
+    public void connect() {
+        if (closed.get()) {
+            log.warn("Combined stream connection #{} is closed, cannot connect", connectionId);
+            return;
+        }
+
+        if (connected.get()) {
+            return;
+        }
+
+        if (mockEnabled) {
+            log.info("Mock mode: simulating combined stream connection #{} with {} streams",
+                    connectionId, streams.size());
+            connected.set(true);
+            connectedTime = Instant.now();
+            return;
+        }
+
+        synchronized (pendingLock) {
+            // 新连接的 URL 已携带全部流，无需再发送积压的控制帧
+            pendingSubscribe.clear();
+            pendingUnsubscribe.clear();
+
+            log.info("Connecting combined stream #{}: {} streams", connectionId, streams.size());
+
+            Request request = new Request.Builder()
+                    .url(buildConnectUrl())
+                    .build();
+
+            webSocket = httpClient.newWebSocket(request, new WebSocketListener() {
+                @Override
+                public void onOpen(WebSocket webSocket, Response response) {
+                    handleOpen(response);
+                }
+
+                @Override
+                public void onMessage(WebSocket webSocket, String text) {
+                    handleMessage(text);
+                }
+
+                @Override
+                public void onClosed(WebSocket webSocket, int code, String reason) {
+                    handleClosed(code, reason);
+                }
+
+                @Override
+                public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                    handleFailure(t, response);
+                }
+            });
+        }
+    }
+
+    /**
+     * 处理连接打开
+     */
+    private void handleOpen(Response response) {
+        connected.set(true);
+        reconnecting.set(false);
+        reconnectAttempts.set(0);
+        connectedTime = Instant.now();
+        disconnectedTime = null;
+
+        log.info("Combined stream #{} connected, response code: {}",
+                connectionId, response != null ? response.code() : "N/A");
+
+        // 连接期间新增/移除的流
+        synchronized (pendingLock) {
+            if (!pendingSubscribe.isEmpty() || !pendingUnsubscribe.isEmpty()) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    /**
+     * 处理收到消息
+     *
+     * 先 peek 流名称和完结标志，无人需要的未完结更新不做完整解码
+     */
+    void handleMessage(String text) {
+        long receivedNanos = System.nanoTime();
+        Instant receivedAt = Instant.now();
+        lastMessageTime = receivedAt;
+
+        try {
+            BinanceKlineEventDecoder.Peek peek = BinanceKlineEventDecoder.peek(text);
+
+            if (peek.stream() == null || !peek.hasData()) {
+                // SUBSCRIBE/UNSUBSCRIBE 响应: {"result":null,"id":1}
+                if (peek.error()) {
+                    log.warn("Combined stream #{} control frame error: {}", connectionId, text);
+                }
+                return;
+            }
+
+            if (!peek.isKlineEvent() || klineHandler == null) {
+                return;
+            }
+            if (!peek.closed() && !openEventFilter.test(peek.stream())) {
+                return;
+            }
+            klineHandler.accept(peek.stream(),
+                    BinanceKlineEventDecoder.decode(text, receivedAt.toEpochMilli(), receivedNanos));
+        } catch (Exception e) {
+            log.error("Failed to parse combined stream message: {}", e.getMessage());
+            if (errorHandler != null) {
+                errorHandler.accept(e);
+            }
+        }
+    }
+
+    /**
+     * 处理连接已关闭
+     */
+    private void handleClosed(int code, String reason) {
+        connected.set(false);
+        disconnectedTime = Instant.now();
+
+        log.info("Combined stream #{} closed, code={}, reason={}", connectionId, code, reason);
+        notifyDisconnect();
+
+        if (!closed.get()) {
+            scheduleReconnect();
+        }
+    }
+
+    /**
+     * 处理连接失败
+     */
+    private void handleFailure(Throwable t, Response response) {
+        connected.set(false);
+        disconnectedTime = Instant.now();
+
+        log.error("Combined stream #{} failure: error={}, response={}",
+                connectionId, t.getMessage(), response != null ? response.code() : "N/A");
+
+        if (errorHandler != null) {
+            errorHandler.accept(t);
+        }
+        notifyDisconnect();
+
+        if (!closed.get()) {
+            scheduleReconnect();
+        }
+    }
+
+    /**
+     * 通知连接上的所有流已断开
+     */
+    private void notifyDisconnect() {
+        if (disconnectHandler != null && !streams.isEmpty()) {
+            disconnectHandler.accept(getStreams());
+        }
+    }
+
+    /**
+     * 调度控制帧合并发送（调用方需持有 pendingLock）
+     */
+    private void scheduleFlush() {
+        if (flushScheduled || scheduler == null) {
+            return;
+        }
+        flushScheduled = true;
+        scheduler.schedule(this::flushControlFrames, CONTROL_FRAME_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 发送一帧合并后的控制帧（UNSUBSCRIBE 优先），仍有积压时在下一个间隔发送
+     */
+    void flushControlFrames() {
+        String method;
+        List<String> params;
+        synchronized (pendingLock) {
+            flushScheduled = false;
+            if (!connected.get() || webSocket == null) {
+                // 重连时 URL 会携带全部流
+                return;
+            }
+            if (!pendingUnsubscribe.isEmpty()) {
+                method = "UNSUBSCRIBE";
+                params = new ArrayList<>(pendingUnsubscribe);
+                pendingUnsubscribe.clear();
+            } else if (!pendingSubscribe.isEmpty()) {
+                method = "SUBSCRIBE";
+                params = new ArrayList<>(pendingSubscribe);
+                pendingSubscribe.clear();
+            } else {
+                return;
+            }
+            if (!pendingSubscribe.isEmpty() || !pendingUnsubscribe.isEmpty()) {
+                scheduleFlush();
+            }
+        }
+
+        try {
+            sendControlFrame(method, params);
+        } catch (Exception e) {
+            log.error("Failed to send control frame on combined stream #{}: {}", connectionId, e.getMessage());
+        }
+    }
+
+    /**
+     * 发送控制帧
+     */
+    private void sendControlFrame(String method, List<String> params) throws Exception {
+        Map<String, Object> frame = new LinkedHashMap<>();
+        frame.put("method", method);
+        frame.put("params", params);
+        frame.put("id", requestId.incrementAndGet());
+
+        String payload = objectMapper.writeValueAsString(frame);
+        boolean sent = webSocket.send(payload);
+        log.debug("Combined stream #{} {} {} streams, sent={}", connectionId, method, params.size(), sent);
+    }
+
+    /**
+     * 调度重连
+     *
+     * 不设重连次数上限：连接承载最多 MAX_STREAMS_PER_CONNECTION 个流，放弃会使这些流静默失效
+     */
+    private void scheduleReconnect() {
+        if (closed.get() || !reconnecting.compareAndSet(false, true)) {
+            return;
+        }
+
+        int attempts = reconnectAttempts.incrementAndGet();
+
+        // 指数退避延迟，封顶后按最大延迟持续重试
+        long delay = attempts > 16
+                ? RECONNECT_MAX_DELAY_MS
+                : Math.min(RECONNECT_BASE_DELAY_MS * (1L << (attempts - 1)), RECONNECT_MAX_DELAY_MS);
+
+        log.info("Scheduling reconnect for combined stream #{} in {}ms (attempt {})",
+                connectionId, delay, attempts);
+        Metrics.counter(BinanceWebSocketClient.RECONNECT_METRIC, "mode", "combined").increment();
+
+        scheduler.schedule(() -> {
+            reconnecting.set(false);
+            if (!closed.get()) {
+                connect();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 关闭连接（不再重连）
+     *
+     * 共享的 OkHttpClient 由连接池负责释放
+     */
+    public void close() {
+        closed.set(true);
+        if (webSocket != null) {
+            webSocket.close(1000, "Client disconnect");
+        }
+        connected.set(false);
+        disconnectedTime = Instant.now();
+        log.info("Combined stream #{} closed", connectionId);
+    }
+
+    /**
+     * 检查是否已连接
+     */
+    public boolean isConnected() {
+        return connected.get();
+    }
+
+    /**
+     * 检查是否已关闭
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * 获取重连次数
+     */
+    public int getReconnectAttempts() {
+        return reconnectAttempts.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BinanceCombinedStreamClient{" +
+                "id=" + connectionId +
+                ", streams=" + streams.size() +
+                ", connected=" + connected.get() +
+                ", closed=" + closed.get() +
+                '}';
+    }
+}
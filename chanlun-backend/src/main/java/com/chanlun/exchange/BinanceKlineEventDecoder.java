@@ -0,0 +1,295 @@
+package com.chanlun.exchange;
+
+import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * 币安 WebSocket K 线事件流式解码器
+ *
+ * 基于 JsonParser 逐 token 读取，分两步：
+ * - peek：只读取流名称、事件类型和 k.x（是否完结），字符串值不解码，拿到所需字段即停止
+ * - decode：需要时再完整解码为 BinanceWsKlineEvent，价格直接从解析缓冲区构造 BigDecimal，不生成中间字符串
+ *
+ * 未完结 K 线的更新占推送的绝大多数，没有客户端订阅时只做 peek 即丢弃。
+ * 同时支持单流消息 {"e":"kline",...} 和组合流消息 {"stream":"...","data":{...}}，忽略未知字段。
+ *
+ * 所有连接共享同一个 JsonFactory（线程安全），解析缓冲区和字段名符号表按线程复用。
+ *
+ * @author Chanlun Team
+ */
+public final class BinanceKlineEventDecoder {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private BinanceKlineEventDecoder() {
+    }
+
+    /**
+     * peek 结果
+     *
+     * @param stream 组合流名称（单流消息为 null）
+     * @param eventType 事件类型（e）
+     * @param closed K 线是否完结（k.x）
+     * @param hasData 是否包含事件数据（组合流控制帧响应为 false）
+     * @param error 是否为错误响应
+     */
+    public record Peek(String stream, String eventType, boolean closed, boolean hasData, boolean error) {
+
+        /**
+         * 是否为 K 线事件
+         */
+        public boolean isKlineEvent() {
+            return hasData && "kline".equals(eventType);
+        }
+    }
+
+    /**
+     * 读取消息头部信息，不解码价格字段
+     *
+     * @param text 消息文本
+     * @return peek 结果
+     * @throws IOException JSON 格式错误
+     */
+    public static Peek peek(String text) throws IOException {
+        PeekState state = new PeekState();
+        try (JsonParser parser = JSON_FACTORY.createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return state.toPeek();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                switch (name) {
+                    case "stream" -> state.stream = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                    case "data" -> {
+                        if (token == JsonToken.START_OBJECT) {
+                            state.combined = true;
+                            state.hasData = true;
+                            peekEvent(parser, state);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    case "error" -> {
+                        state.error = token != JsonToken.VALUE_NULL;
+                        parser.skipChildren();
+                    }
+                    default -> {
+                        if (!peekEventField(parser, name, token, state)) {
+                            parser.skipChildren();
+                        }
+                    }
+                }
+                if (state.isComplete()) {
+                    break;
+                }
+            }
+        }
+        return state.toPeek();
+    }
+
+    /**
+     * 完整解码事件
+     *
+     * @param text 消息文本（单流或组合流）
+     * @return K 线事件
+     * @throws IOException JSON 格式错误
+     */
+    public static BinanceWsKlineEvent decode(String text) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(text)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected kline message: " + text);
+            }
+            BinanceWsKlineEvent event = new BinanceWsKlineEvent();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("data".equals(name) && token == JsonToken.START_OBJECT) {
+                    return readEvent(parser, new BinanceWsKlineEvent());
+                }
+                readEventField(parser, name, token, event);
+            }
+            return event;
+        }
+    }
+
+    /**
+     * 完整解码事件并记录收到 / 解码完成时间（实时链路延迟埋点）
+     *
+     * @param text 消息文本（单流或组合流）
+     * @param receivedAt 收到消息的时间 (UTC 毫秒)
+     * @param receivedNanos 收到消息时的 System.nanoTime
+     * @return K 线事件
+     * @throws IOException JSON 格式错误
+     */
+    public static BinanceWsKlineEvent decode(String text, long receivedAt, long receivedNanos) throws IOException {
+        BinanceWsKlineEvent event = decode(text);
+        event.setReceivedAt(receivedAt);
+        event.setReceivedNanos(receivedNanos);
+        event.setDecodedNanos(System.nanoTime());
+        return event;
+    }
+
+    // ==================== peek ====================
+
+    private static void peekEvent(JsonParser parser, PeekState state) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (!peekEventField(parser, name, token, state)) {
+                parser.skipChildren();
+            }
+            if (state.isComplete()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return 是否已消费该字段
+     */
+    private static boolean peekEventField(JsonParser parser, String name, JsonToken token, PeekState state)
+            throws IOException {
+        if ("e".equals(name)) {
+            state.eventType = token == JsonToken.VALUE_STRING ? parser.getText() : null;
+            state.hasData = true;
+            return true;
+        }
+        if ("k".equals(name) && token == JsonToken.START_OBJECT) {
+            state.hasData = true;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("x".equals(field)) {
+                    state.closed = value == JsonToken.VALUE_TRUE;
+                    state.closedSeen = true;
+                    if (state.isComplete()) {
+                        return true;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * peek 过程中的可变状态
+     */
+    private static final class PeekState {
+        private String stream;
+        private String eventType;
+        private boolean closed;
+        private boolean closedSeen;
+        private boolean combined;
+        private boolean hasData;
+        private boolean error;
+
+        /**
+         * 所需字段已齐全，可提前结束
+         */
+        private boolean isComplete() {
+            return eventType != null && closedSeen && (!combined || stream != null);
+        }
+
+        private Peek toPeek() {
+            return new Peek(stream, eventType, closed, hasData, error);
+        }
+    }
+
+    // ==================== decode ====================
+
+    private static BinanceWsKlineEvent readEvent(JsonParser parser, BinanceWsKlineEvent event) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            readEventField(parser, name, parser.nextToken(), event);
+        }
+        return event;
+    }
+
+    private static void readEventField(JsonParser parser, String name, JsonToken token, BinanceWsKlineEvent event)
+            throws IOException {
+        switch (name) {
+            case "e" -> event.setEventType(readString(parser, token));
+            case "E" -> event.setEventTime(readLong(parser, token));
+            case "s" -> event.setSymbol(readString(parser, token));
+            case "k" -> {
+                if (token == JsonToken.START_OBJECT) {
+                    event.setKline(readKline(parser));
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            default -> parser.skipChildren();
+        }
+    }
+
+    private static BinanceWsKlineEvent.KlineData readKline(JsonParser parser) throws IOException {
+        BinanceWsKlineEvent.KlineData kline = new BinanceWsKlineEvent.KlineData();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "t" -> kline.setOpenTime(readLong(parser, token));
+                case "T" -> kline.setCloseTime(readLong(parser, token));
+                case "s" -> kline.setSymbol(readString(parser, token));
+                case "i" -> kline.setInterval(readString(parser, token));
+                case "f" -> kline.setFirstTradeId(readLong(parser, token));
+                case "L" -> kline.setLastTradeId(readLong(parser, token));
+                case "o" -> kline.setOpen(readDecimal(parser, token));
+                case "c" -> kline.setClose(readDecimal(parser, token));
+                case "h" -> kline.setHigh(readDecimal(parser, token));
+                case "l" -> kline.setLow(readDecimal(parser, token));
+                case "v" -> kline.setVolume(readDecimal(parser, token));
+                case "n" -> {
+                    Long trades = readLong(parser, token);
+                    kline.setTrades(trades != null ? trades.intValue() : null);
+                }
+                case "x" -> kline.setClosed(token == JsonToken.VALUE_NULL ? null : token == JsonToken.VALUE_TRUE);
+                case "q" -> kline.setQuoteVolume(readDecimal(parser, token));
+                case "V" -> kline.setTakerBuyBaseVolume(readDecimal(parser, token));
+                case "Q" -> kline.setTakerBuyQuoteVolume(readDecimal(parser, token));
+                default -> parser.skipChildren();
+            }
+        }
+        return kline;
+    }
+
+    private static String readString(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        parser.skipChildren();
+        return token.isScalarValue() ? parser.getText() : null;
+    }
+
+    private static Long readLong(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Long.parseLong(parser.getText());
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            // 币安价格为字符串，直接从解析缓冲区构造，避免中间 String
+            return new BigDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
@@ -0,0 +1,184 @@
+package com.chanlun.exchange;
+
+import com.chanlun.entity.Kline;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 币安 K 线 REST 响应流式解析器
+ *
+ * 直接从响应流逐 token 读取二维数组，写入 Kline 实体：
+ * - 不生成响应字符串、Object[] 和 BinanceKline 中间对象
+ * - 价格直接从解析缓冲区构造 BigDecimal，主动买入量等入库不需要的列不解码
+ * - 单行格式错误只跳过该行，与原 BinanceKline.fromArray 路径一致
+ *
+ * 响应格式：
+ * [[openTime, "open", "high", "low", "close", "volume", closeTime, "quoteVolume", trades,
+ *   "takerBuyBaseVolume", "takerBuyQuoteVolume", "ignore"], ...]
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+public final class BinanceKlineResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 每行最少列数
+     */
+    private static final int MIN_COLUMNS = 11;
+
+    private BinanceKlineResponseParser() {
+    }
+
+    /**
+     * 解析响应流
+     *
+     * @param in 响应流（不关闭）
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param expectedSize 预计行数（用于预分配）
+     * @return K 线实体列表
+     * @throws IOException JSON 格式错误或读取失败
+     */
+    public static List<Kline> parse(InputStream in, Long symbolId, String interval, int expectedSize)
+            throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+            return readRows(parser, symbolId, interval, expectedSize);
+        }
+    }
+
+    /**
+     * 解析响应文本
+     *
+     * @param body 响应文本
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return K 线实体列表
+     * @throws IOException JSON 格式错误
+     */
+    public static List<Kline> parse(String body, Long symbolId, String interval) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            return readRows(parser, symbolId, interval, 16);
+        }
+    }
+
+    private static List<Kline> readRows(JsonParser parser, Long symbolId, String interval, int expectedSize)
+            throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return new ArrayList<>();
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw new IOException("Unexpected klines response, expected array but got " + token);
+        }
+        List<Kline> klines = new ArrayList<>(Math.max(expectedSize, 0));
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new IOException("Unexpected end of klines response");
+            }
+            if (token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                log.warn("Failed to parse kline data: Invalid kline data array");
+                continue;
+            }
+            Kline kline = readRow(parser, symbolId, interval);
+            if (kline != null) {
+                klines.add(kline);
+            }
+        }
+        return klines;
+    }
+
+    /**
+     * 读取一行，格式错误时消费完该行并返回 null
+     */
+    private static Kline readRow(JsonParser parser, Long symbolId, String interval) throws IOException {
+        Kline kline = new Kline();
+        kline.setSymbolId(symbolId);
+        kline.setInterval(interval);
+        String error = null;
+        int index = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw new IOException("Unexpected end of klines response");
+            }
+            if (error != null) {
+                parser.skipChildren();
+                index++;
+                continue;
+            }
+            try {
+                switch (index) {
+                    case 0 -> kline.setOpenTime(readInstant(parser, token));
+                    case 1 -> kline.setOpen(readDecimal(parser, token));
+                    case 2 -> kline.setHigh(readDecimal(parser, token));
+                    case 3 -> kline.setLow(readDecimal(parser, token));
+                    case 4 -> kline.setClose(readDecimal(parser, token));
+                    case 5 -> kline.setVolume(readDecimal(parser, token));
+                    case 6 -> kline.setCloseTime(readInstant(parser, token));
+                    case 7 -> kline.setQuoteVolume(readDecimal(parser, token));
+                    case 8 -> {
+                        Long trades = readLong(parser, token);
+                        kline.setTrades(trades != null ? trades.intValue() : null);
+                    }
+                    default -> parser.skipChildren();
+                }
+            } catch (NumberFormatException e) {
+                error = e.getMessage();
+            }
+            index++;
+        }
+        if (error == null && index < MIN_COLUMNS) {
+            error = "Invalid kline data array";
+        }
+        if (error != null) {
+            log.warn("Failed to parse kline data: {}", error);
+            return null;
+        }
+        return kline;
+    }
+
+    private static Instant readInstant(JsonParser parser, JsonToken token) throws IOException {
+        Long millis = readLong(parser, token);
+        return millis != null ? Instant.ofEpochMilli(millis) : null;
+    }
+
+    private static Long readLong(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            return Long.parseLong(parser.getText());
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        parser.skipChildren();
+        throw new NumberFormatException("Unexpected token " + token);
+    }
+
+    private static BigDecimal readDecimal(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            return new BigDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        parser.skipChildren();
+        throw new NumberFormatException("Unexpected token " + token);
+    }
+}
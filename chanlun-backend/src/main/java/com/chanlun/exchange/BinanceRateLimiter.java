@@ -0,0 +1,314 @@
+package com.chanlun.exchange;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 币安 REST 请求权重限流器
+ *
+ * 按 API 基础 URL（现货 / U 本位 / 币本位）进程内共享，所有 BinanceClient 实例共用同一份权重预算：
+ * - 权重窗口与币安一致，按自然分钟重置
+ * - 每次响应后用 X-MBX-USED-WEIGHT-1M 头校准已用权重（覆盖其他进程或实例的消耗）
+ * - 收到 429/418 时按 Retry-After 暂停该基础 URL 的全部请求
+ * - 优先级：实时断线回补 > 普通请求 > 缺口回补 > 历史同步，低优先级只能使用部分预算，
+ *   且有更高优先级请求在等待时让行
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+public class BinanceRateLimiter {
+
+    /**
+     * 请求优先级（声明顺序即优先顺序）
+     */
+    public enum Priority {
+        /**
+         * 实时同步断线后的数据补充
+         */
+        REALTIME_FILL(1.0),
+        /**
+         * 普通请求（连接测试、交易对同步等）
+         */
+        NORMAL(0.9),
+        /**
+         * 缺口回补
+         */
+        GAP_FILL(0.8),
+        /**
+         * 历史数据同步
+         */
+        HISTORY(0.6);
+
+        /**
+         * 可使用的权重预算比例
+         */
+        @Getter
+        private final double budgetShare;
+
+        Priority(double budgetShare) {
+            this.budgetShare = budgetShare;
+        }
+    }
+
+    /**
+     * 现货每分钟权重上限
+     */
+    public static final int SPOT_WEIGHT_LIMIT = 6000;
+
+    /**
+     * 合约每分钟权重上限
+     */
+    public static final int FUTURES_WEIGHT_LIMIT = 2400;
+
+    /**
+     * 已用权重响应头
+     */
+    public static final String USED_WEIGHT_HEADER = "X-MBX-USED-WEIGHT-1M";
+
+    /**
+     * 权重窗口（毫秒）
+     */
+    private static final long WINDOW_MS = 60_000;
+
+    /**
+     * 429 未返回 Retry-After 时的默认暂停时间（毫秒）
+     */
+    private static final long DEFAULT_BACKOFF_MS = 60_000;
+
+    /**
+     * 单次获取的最大等待时间（毫秒），超过则放弃
+     */
+    private static final long MAX_WAIT_MS = 120_000;
+
+    /**
+     * 进程内共享实例 (key: 规范化的 baseUrl)
+     */
+    private static final Map<String, BinanceRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    @Getter
+    private final String baseUrl;
+
+    @Getter
+    private final int weightLimit;
+
+    private final LongSupplier clock;
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+
+    /**
+     * 各优先级等待中的请求数
+     */
+    private final int[] waiting = new int[Priority.values().length];
+
+    private long windowStart;
+    private int usedWeight;
+    private long pausedUntil;
+
+    BinanceRateLimiter(String baseUrl, int weightLimit, LongSupplier clock) {
+        this.baseUrl = baseUrl;
+        this.weightLimit = weightLimit;
+        this.clock = clock;
+        this.windowStart = windowOf(clock.getAsLong());
+    }
+
+    /**
+     * 获取基础 URL 对应的共享限流器
+     *
+     * @param baseUrl API 基础 URL
+     * @return 限流器
+     */
+    public static BinanceRateLimiter forBaseUrl(String baseUrl) {
+        String key = normalize(baseUrl);
+        return LIMITERS.computeIfAbsent(key, k -> {
+            BinanceRateLimiter limiter = new BinanceRateLimiter(k, resolveWeightLimit(k), System::currentTimeMillis);
+            limiter.bindMetrics(Metrics.globalRegistry);
+            return limiter;
+        });
+    }
+
+    /**
+     * 注册已用权重和权重上限指标（按基础 URL 区分）
+     *
+     * @param registry 指标注册表
+     */
+    void bindMetrics(MeterRegistry registry) {
+        Gauge.builder("binance.ratelimit.weight.used", this, BinanceRateLimiter::getUsedWeight)
+                .description("Request weight used in the current 1m window")
+                .tag("base_url", baseUrl)
+                .register(registry);
+        Gauge.builder("binance.ratelimit.weight.limit", this, limiter -> limiter.weightLimit)
+                .description("Request weight limit per 1m window")
+                .tag("base_url", baseUrl)
+                .register(registry);
+    }
+
+    /**
+     * 根据基础 URL 推断权重上限
+     */
+    static int resolveWeightLimit(String baseUrl) {
+        if (baseUrl.contains("fapi.") || baseUrl.contains("dapi.")) {
+            return FUTURES_WEIGHT_LIMIT;
+        }
+        return SPOT_WEIGHT_LIMIT;
+    }
+
+    private static String normalize(String baseUrl) {
+        String url = baseUrl != null ? baseUrl : BinanceClient.DEFAULT_SPOT_BASE_URL;
+        url = url.trim().toLowerCase(Locale.ROOT);
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static long windowOf(long millis) {
+        return millis - Math.floorMod(millis, WINDOW_MS);
+    }
+
+    /**
+     * 获取请求权重，预算不足时阻塞到下一个窗口
+     *
+     * @param weight 请求权重
+     * @param priority 请求优先级
+     * @throws InterruptedException 等待被中断
+     * @throws RateLimitTimeoutException 预计等待时间过长
+     */
+    public void acquire(int weight, Priority priority) throws InterruptedException, RateLimitTimeoutException {
+        Priority p = priority != null ? priority : Priority.NORMAL;
+        long ceiling = Math.max(1, (long) (weightLimit * p.getBudgetShare()));
+        long deadline = clock.getAsLong() + MAX_WAIT_MS;
+
+        lock.lockInterruptibly();
+        try {
+            waiting[p.ordinal()]++;
+            try {
+                while (true) {
+                    long now = clock.getAsLong();
+                    rollWindow(now);
+
+                    long waitMs;
+                    if (now < pausedUntil) {
+                        waitMs = pausedUntil - now;
+                    } else if (!hasHigherPriorityWaiting(p)
+                            && (usedWeight + weight <= ceiling || usedWeight == 0)) {
+                        usedWeight += weight;
+                        log.trace("Acquired weight: baseUrl={}, weight={}, used={}, priority={}",
+                                baseUrl, weight, usedWeight, p);
+                        return;
+                    } else if (hasHigherPriorityWaiting(p) && usedWeight + weight <= ceiling) {
+                        // 让行更高优先级请求，短暂等待后重试
+                        waitMs = 10;
+                    } else {
+                        waitMs = windowStart + WINDOW_MS - now;
+                    }
+
+                    if (now + waitMs > deadline) {
+                        throw new RateLimitTimeoutException("Rate limit wait too long: " + waitMs + "ms, baseUrl=" + baseUrl);
+                    }
+                    if (waitMs > 10) {
+                        log.debug("Rate limit wait: baseUrl={}, priority={}, used={}/{}, wait={}ms",
+                                baseUrl, p, usedWeight, ceiling, waitMs);
+                    }
+                    available.await(waitMs, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                waiting[p.ordinal()]--;
+                available.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 根据 X-MBX-USED-WEIGHT-1M 响应头校准已用权重
+     *
+     * @param serverUsedWeight 服务端返回的已用权重
+     */
+    public void updateUsedWeight(int serverUsedWeight) {
+        lock.lock();
+        try {
+            rollWindow(clock.getAsLong());
+            if (serverUsedWeight > usedWeight) {
+                log.debug("Resync used weight from header: baseUrl={}, local={}, server={}",
+                        baseUrl, usedWeight, serverUsedWeight);
+                usedWeight = serverUsedWeight;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 记录限流响应（429 / 418），暂停该基础 URL 的全部请求
+     *
+     * @param statusCode HTTP 状态码
+     * @param retryAfterSeconds Retry-After 秒数（可为 null）
+     */
+    public void onRateLimited(int statusCode, Long retryAfterSeconds) {
+        lock.lock();
+        try {
+            long now = clock.getAsLong();
+            long backoff = retryAfterSeconds != null && retryAfterSeconds > 0
+                    ? TimeUnit.SECONDS.toMillis(retryAfterSeconds) : DEFAULT_BACKOFF_MS;
+            pausedUntil = Math.max(pausedUntil, now + backoff);
+            usedWeight = Math.max(usedWeight, weightLimit);
+            log.warn("Binance rate limited: baseUrl={}, status={}, paused for {}ms", baseUrl, statusCode, backoff);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前窗口已用权重
+     */
+    public int getUsedWeight() {
+        lock.lock();
+        try {
+            rollWindow(clock.getAsLong());
+            return usedWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取当前窗口剩余权重
+     */
+    public int getRemainingWeight() {
+        return Math.max(0, weightLimit - getUsedWeight());
+    }
+
+    /**
+     * 是否处于限流暂停中
+     */
+    public boolean isPaused() {
+        return clock.getAsLong() < pausedUntil;
+    }
+
+    private void rollWindow(long now) {
+        long currentWindow = windowOf(now);
+        if (currentWindow != windowStart) {
+            windowStart = currentWindow;
+            usedWeight = 0;
+            available.signalAll();
+        }
+    }
+
+    private boolean hasHigherPriorityWaiting(Priority priority) {
+        for (int i = 0; i < priority.ordinal(); i++) {
+            if (waiting[i] > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
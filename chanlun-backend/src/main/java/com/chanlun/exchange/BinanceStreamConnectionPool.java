@@ -0,0 +1,239 @@
+package com.chanlun.exchange;
+
+import com.chanlun.config.ProxyConfig;
+import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 币安组合流连接池
+ *
+ * 按数据源将 K 线订阅打包进组合流连接，包括：
+ * - 每个连接最多承载 {@link BinanceCombinedStreamClient#MAX_STREAMS_PER_CONNECTION} 个流
+ * - 所有连接共享同一个 OkHttpClient（同一代理配置）
+ * - 流名称到订阅键的路由表，用于将事件分发回 symbolId
+ * - 连接上的流全部取消后自动关闭该连接
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+public class BinanceStreamConnectionPool {
+
+    /**
+     * 组合流基础 URL
+     */
+    @Getter
+    private final String streamUrl;
+
+    private final OkHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+    private final BiConsumer<String, BinanceWsKlineEvent> klineHandler;
+    private final Predicate<String> openEventFilter;
+    private final Consumer<String> disconnectHandler;
+    private final boolean mockEnabled;
+
+    /**
+     * 物理连接列表
+     */
+    private final List<BinanceCombinedStreamClient> connections = new CopyOnWriteArrayList<>();
+
+    /**
+     * 路由表 (key: streamName, value: subscriptionKey)
+     */
+    private final Map<String, String> routes = new ConcurrentHashMap<>();
+
+    /**
+     * 流所在连接 (key: streamName)
+     */
+    private final Map<String, BinanceCombinedStreamClient> streamConnections = new ConcurrentHashMap<>();
+
+    private final AtomicInteger connectionSequence = new AtomicInteger(0);
+
+    /**
+     * 构造函数
+     *
+     * @param wsUrl 数据源 WebSocket URL（/ws 结尾会转换为 /stream）
+     * @param proxyConfig 代理配置
+     * @param objectMapper 共享的 ObjectMapper
+     * @param scheduler 共享的调度器
+     * @param klineHandler K线数据处理器 (subscriptionKey, event)
+     * @param openEventFilter 订阅是否需要未完结 K 线事件 (subscriptionKey)
+     * @param disconnectHandler 断开连接处理器 (subscriptionKey)
+     * @param mockEnabled 是否启用 Mock 模式
+     */
+    public BinanceStreamConnectionPool(String wsUrl, ProxyConfig proxyConfig,
+                                       ObjectMapper objectMapper,
+                                       ScheduledExecutorService scheduler,
+                                       BiConsumer<String, BinanceWsKlineEvent> klineHandler,
+                                       Predicate<String> openEventFilter,
+                                       Consumer<String> disconnectHandler,
+                                       boolean mockEnabled) {
+        this.streamUrl = BinanceCombinedStreamClient.toCombinedStreamUrl(wsUrl);
+        this.httpClient = BinanceWebSocketClient.createHttpClient(proxyConfig);
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+        this.klineHandler = klineHandler;
+        this.openEventFilter = openEventFilter;
+        this.disconnectHandler = disconnectHandler;
+        this.mockEnabled = mockEnabled;
+    }
+
+    /**
+     * 订阅流
+     *
+     * 优先放入有剩余容量的连接，全部满载时新建连接
+     *
+     * @param streamName 流名称（如 btcusdt@kline_1m）
+     * @param subscriptionKey 订阅键
+     * @return 承载该流的连接
+     */
+    public synchronized BinanceCombinedStreamClient subscribe(String streamName, String subscriptionKey) {
+        BinanceCombinedStreamClient existing = streamConnections.get(streamName);
+        if (existing != null) {
+            routes.put(streamName, subscriptionKey);
+            return existing;
+        }
+
+        routes.put(streamName, subscriptionKey);
+
+        for (BinanceCombinedStreamClient connection : connections) {
+            if (!connection.isClosed() && connection.hasCapacity() && connection.addStream(streamName)) {
+                streamConnections.put(streamName, connection);
+                return connection;
+            }
+        }
+
+        BinanceCombinedStreamClient connection = new BinanceCombinedStreamClient(
+                connectionSequence.incrementAndGet(),
+                streamUrl,
+                httpClient,
+                objectMapper,
+                scheduler,
+                this::routeKlineEvent,
+                this::wantsOpenEvents,
+                error -> log.error("Combined stream error: {}", error.getMessage()),
+                this::routeDisconnect,
+                mockEnabled
+        );
+        connection.addStream(streamName);
+        connections.add(connection);
+        streamConnections.put(streamName, connection);
+        connection.connect();
+
+        log.info("Opened combined stream connection #{} for {}, total connections={}",
+                connection.getConnectionId(), streamUrl, connections.size());
+        return connection;
+    }
+
+    /**
+     * 取消订阅流
+     *
+     * @param streamName 流名称
+     * @return 是否取消成功
+     */
+    public synchronized boolean unsubscribe(String streamName) {
+        routes.remove(streamName);
+        BinanceCombinedStreamClient connection = streamConnections.remove(streamName);
+        if (connection == null) {
+            return false;
+        }
+
+        connection.removeStream(streamName);
+        if (connection.getStreamCount() == 0) {
+            connections.remove(connection);
+            connection.close();
+            log.info("Closed idle combined stream connection #{}, remaining connections={}",
+                    connection.getConnectionId(), connections.size());
+        }
+        return true;
+    }
+
+    /**
+     * 路由 K 线事件
+     */
+    private void routeKlineEvent(String streamName, BinanceWsKlineEvent event) {
+        String subscriptionKey = routes.get(streamName);
+        if (subscriptionKey == null) {
+            // 已取消订阅但 UNSUBSCRIBE 尚未生效
+            return;
+        }
+        klineHandler.accept(subscriptionKey, event);
+    }
+
+    /**
+     * 流是否需要未完结 K 线事件
+     */
+    private boolean wantsOpenEvents(String streamName) {
+        String subscriptionKey = routes.get(streamName);
+        return subscriptionKey != null && openEventFilter.test(subscriptionKey);
+    }
+
+    /**
+     * 路由断线通知
+     */
+    private void routeDisconnect(Set<String> streamNames) {
+        for (String streamName : streamNames) {
+            String subscriptionKey = routes.get(streamName);
+            if (subscriptionKey != null) {
+                disconnectHandler.accept(subscriptionKey);
+            }
+        }
+    }
+
+    /**
+     * 是否没有任何订阅
+     */
+    public boolean isEmpty() {
+        return routes.isEmpty();
+    }
+
+    /**
+     * 获取物理连接数量
+     */
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * 获取已连接的物理连接数量
+     */
+    public int getConnectedCount() {
+        return (int) connections.stream().filter(BinanceCombinedStreamClient::isConnected).count();
+    }
+
+    /**
+     * 获取承载的流数量
+     */
+    public int getStreamCount() {
+        return streamConnections.size();
+    }
+
+    /**
+     * 关闭连接池
+     */
+    public synchronized void shutdown() {
+        for (BinanceCombinedStreamClient connection : connections) {
+            connection.close();
+        }
+        connections.clear();
+        routes.clear();
+        streamConnections.clear();
+        httpClient.dispatcher().executorService().shutdown();
+        httpClient.connectionPool().evictAll();
+        log.info("Combined stream pool closed: {}", streamUrl);
+    }
+}
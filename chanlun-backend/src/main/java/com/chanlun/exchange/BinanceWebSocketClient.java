@@ -4,7 +4,7 @@ import com.chanlun.config.ProxyConfig;
 import com.chanlun.entity.DataSource;
 import com.chanlun.enums.ProxyType;
 import com.chanlun.exchange.model.BinanceWsKlineEvent;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Metrics;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
@@ -17,6 +17,7 @@ import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 /**
@@ -75,6 +76,11 @@ public class BinanceWebSocketClient {
      */
     private static final int MAX_RECONNECT_ATTEMPTS = 10;
 
+    /**
+     * 重连次数指标名称（mode: single / combined）
+     */
+    public static final String RECONNECT_METRIC = "binance.ws.reconnects";
+
     /**
      * 重连基础延迟（毫秒）
      */
@@ -95,8 +101,8 @@ public class BinanceWebSocketClient {
     private final String interval;
 
     private final OkHttpClient httpClient;
-    private final ObjectMapper objectMapper;
     private final Consumer<BinanceWsKlineEvent> klineHandler;
+    private final BooleanSupplier openEventFilter;
     private final Consumer<Throwable> errorHandler;
     private final Runnable disconnectHandler;
     private final boolean mockEnabled;
@@ -134,21 +140,45 @@ public class BinanceWebSocketClient {
                                    Consumer<Throwable> errorHandler,
                                    Runnable disconnectHandler,
                                    boolean mockEnabled) {
+        this(wsUrl, symbol, interval, proxyConfig, klineHandler, () -> true,
+                errorHandler, disconnectHandler, mockEnabled);
+    }
+
+    /**
+     * 构造函数
+     * 
+     * @param wsUrl WebSocket URL
+     * @param symbol 交易对代码（小写）
+     * @param interval 时间周期
+     * @param proxyConfig 代理配置
+     * @param klineHandler K线数据处理器
+     * @param openEventFilter 是否需要未完结 K 线事件（false 时只解码消息头即丢弃）
+     * @param errorHandler 错误处理器
+     * @param disconnectHandler 断开连接处理器
+     * @param mockEnabled 是否启用 Mock 模式
+     */
+    public BinanceWebSocketClient(String wsUrl, String symbol, String interval,
+                                   ProxyConfig proxyConfig,
+                                   Consumer<BinanceWsKlineEvent> klineHandler,
+                                   BooleanSupplier openEventFilter,
+                                   Consumer<Throwable> errorHandler,
+                                   Runnable disconnectHandler,
+                                   boolean mockEnabled) {
         this.wsUrl = wsUrl != null ? wsUrl : DEFAULT_SPOT_WS_URL;
         this.symbol = symbol.toLowerCase();
         this.interval = interval;
         this.klineHandler = klineHandler;
+        this.openEventFilter = openEventFilter;
         this.errorHandler = errorHandler;
         this.disconnectHandler = disconnectHandler;
         this.mockEnabled = mockEnabled;
-        this.objectMapper = new ObjectMapper();
         this.httpClient = createHttpClient(proxyConfig);
     }
 
     /**
-     * 创建 OkHttpClient
+     * 创建 OkHttpClient（组合流连接池复用同一配置）
      */
-    private OkHttpClient createHttpClient(ProxyConfig proxyConfig) {
+    static OkHttpClient createHttpClient(ProxyConfig proxyConfig) {
         OkHttpClient.Builder builder = new OkHttpClient.Builder()
                 .connectTimeout(Duration.ofSeconds(DEFAULT_CONNECT_TIMEOUT))
                 .readTimeout(Duration.ofSeconds(DEFAULT_READ_TIMEOUT))
@@ -165,7 +195,7 @@ public class BinanceWebSocketClient {
     /**
      * 配置代理
      */
-    private void configureProxy(OkHttpClient.Builder builder, ProxyConfig proxyConfig) {
+    private static void configureProxy(OkHttpClient.Builder builder, ProxyConfig proxyConfig) {
         Proxy.Type javaProxyType = proxyConfig.getType() == ProxyType.SOCKS5
                 ? Proxy.Type.SOCKS : Proxy.Type.HTTP;
 
@@ -279,16 +309,23 @@ public class BinanceWebSocketClient {
 
     /**
      * 处理收到消息
+     * 
+     * 先 peek 完结标志，无人需要的未完结更新不做完整解码
      */
-    private void handleMessage(String text) {
-        lastMessageTime = Instant.now();
+    void handleMessage(String text) {
+        long receivedNanos = System.nanoTime();
+        Instant receivedAt = Instant.now();
+        lastMessageTime = receivedAt;
 
         try {
-            BinanceWsKlineEvent event = objectMapper.readValue(text, BinanceWsKlineEvent.class);
-
-            if (event.isKlineEvent() && klineHandler != null) {
-                klineHandler.accept(event);
+            BinanceKlineEventDecoder.Peek peek = BinanceKlineEventDecoder.peek(text);
+            if (!peek.isKlineEvent() || klineHandler == null) {
+                return;
+            }
+            if (!peek.closed() && !openEventFilter.getAsBoolean()) {
+                return;
             }
+            klineHandler.accept(BinanceKlineEventDecoder.decode(text, receivedAt.toEpochMilli(), receivedNanos));
         } catch (Exception e) {
             log.error("Failed to parse WebSocket message: {}", e.getMessage());
             if (errorHandler != null) {
@@ -367,6 +404,7 @@ public class BinanceWebSocketClient {
 
         log.info("Scheduling reconnect for {} in {}ms (attempt {})", 
                 getStreamName(), delay, attempts);
+        Metrics.counter(RECONNECT_METRIC, "mode", "single").increment();
 
         // 使用新线程进行重连
         new Thread(() -> {
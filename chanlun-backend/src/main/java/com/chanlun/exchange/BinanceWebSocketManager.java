@@ -6,14 +6,19 @@ import com.chanlun.entity.Kline;
 import com.chanlun.entity.Symbol;
 import com.chanlun.enums.MarketType;
 import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
 
 /**
  * 币安 WebSocket 管理器
@@ -23,6 +28,7 @@ import java.util.function.BiConsumer;
  * - 按数据源分组管理
  * - 统一的 K 线数据回调
  * - 连接状态监控
+ * - 组合流模式：按数据源复用连接，每个连接承载多个流
  * 
  * @author Chanlun Team
  */
@@ -39,15 +45,23 @@ public class BinanceWebSocketManager {
         private final String symbolCode;
         private final String interval;
         private final BinanceWebSocketClient client;
+        private final BinanceCombinedStreamClient connection;
         private final Instant subscribedAt;
 
         public SubscriptionInfo(Long dataSourceId, Long symbolId, String symbolCode, 
                                 String interval, BinanceWebSocketClient client) {
+            this(dataSourceId, symbolId, symbolCode, interval, client, null);
+        }
+
+        public SubscriptionInfo(Long dataSourceId, Long symbolId, String symbolCode,
+                                String interval, BinanceWebSocketClient client,
+                                BinanceCombinedStreamClient connection) {
             this.dataSourceId = dataSourceId;
             this.symbolId = symbolId;
             this.symbolCode = symbolCode;
             this.interval = interval;
             this.client = client;
+            this.connection = connection;
             this.subscribedAt = Instant.now();
         }
 
@@ -55,8 +69,18 @@ public class BinanceWebSocketManager {
             return dataSourceId + "_" + symbolId + "_" + interval;
         }
 
+        /**
+         * 组合流中的流名称（如 btcusdt@kline_1m）
+         */
+        public String getStreamName() {
+            return symbolCode.toLowerCase() + "@kline_" + interval;
+        }
+
         public boolean isConnected() {
-            return client != null && client.isConnected();
+            if (client != null) {
+                return client.isConnected();
+            }
+            return connection != null && connection.isConnected();
         }
     }
 
@@ -80,6 +104,11 @@ public class BinanceWebSocketManager {
      */
     private BiConsumer<Long, BinanceWsKlineEvent> klineCallback;
 
+    /**
+     * 是否需要未完结 K 线事件 (symbolId, interval)，为空表示全部需要
+     */
+    private volatile BiPredicate<Long, String> openKlineFilter;
+
     /**
      * 断线回调 (subscriptionKey)
      */
@@ -90,6 +119,27 @@ public class BinanceWebSocketManager {
      */
     private final boolean mockEnabled;
 
+    /**
+     * 是否启用组合流模式
+     */
+    @Getter
+    private final boolean combinedStreamEnabled;
+
+    /**
+     * 组合流连接池 (key: dataSourceId)
+     */
+    private final Map<Long, BinanceStreamConnectionPool> connectionPools = new ConcurrentHashMap<>();
+
+    /**
+     * 组合流共享的 ObjectMapper
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 组合流共享调度器（控制帧发送与重连），仅组合流模式创建
+     */
+    private final ScheduledExecutorService streamScheduler;
+
     /**
      * 读写锁
      */
@@ -101,8 +151,29 @@ public class BinanceWebSocketManager {
      * @param mockEnabled 是否启用 Mock 模式
      */
     public BinanceWebSocketManager(boolean mockEnabled) {
+        this(mockEnabled, false);
+    }
+
+    /**
+     * 构造函数
+     * 
+     * @param mockEnabled 是否启用 Mock 模式
+     * @param combinedStreamEnabled 是否启用组合流模式（每个数据源复用少量连接）
+     */
+    public BinanceWebSocketManager(boolean mockEnabled, boolean combinedStreamEnabled) {
         this.mockEnabled = mockEnabled;
-        log.info("BinanceWebSocketManager initialized, mockEnabled={}", mockEnabled);
+        this.combinedStreamEnabled = combinedStreamEnabled;
+        this.streamScheduler = combinedStreamEnabled ? createStreamScheduler() : null;
+        log.info("BinanceWebSocketManager initialized, mockEnabled={}, combinedStreamEnabled={}",
+                mockEnabled, combinedStreamEnabled);
+    }
+
+    private static ScheduledExecutorService createStreamScheduler() {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-combined-stream");
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     /**
@@ -114,6 +185,17 @@ public class BinanceWebSocketManager {
         this.klineCallback = callback;
     }
 
+    /**
+     * 设置未完结 K 线事件过滤器
+     * 
+     * 返回 false 的 (交易对, 周期) 收到未完结更新时只解码消息头即丢弃，已完结事件始终回调
+     * 
+     * @param filter 过滤器 (symbolId, interval)
+     */
+    public void setOpenKlineFilter(BiPredicate<Long, String> filter) {
+        this.openKlineFilter = filter;
+    }
+
     /**
      * 设置断线回调
      * 
@@ -146,13 +228,18 @@ public class BinanceWebSocketManager {
             // 获取 WebSocket URL
             String wsUrl = getWsUrl(dataSource);
 
+            if (combinedStreamEnabled) {
+                return subscribeCombined(dataSource, symbol, interval, proxyConfig, wsUrl, subscriptionKey);
+            }
+
             // 创建 WebSocket 客户端
             BinanceWebSocketClient client = new BinanceWebSocketClient(
                     wsUrl,
                     symbol.getSymbol(),
                     interval,
                     proxyConfig,
-                    event -> handleKlineEvent(symbol.getId(), event),
+                    event -> handleKlineEvent(subscriptionKey, symbol.getId(), event),
+                    () -> wantsOpenEvents(symbol.getId(), interval),
                     error -> handleError(subscriptionKey, error),
                     () -> handleDisconnect(subscriptionKey),
                     mockEnabled
@@ -164,15 +251,7 @@ public class BinanceWebSocketManager {
             // 保存订阅信息
             SubscriptionInfo info = new SubscriptionInfo(
                     dataSource.getId(), symbol.getId(), symbol.getSymbol(), interval, client);
-            subscriptions.put(subscriptionKey, info);
-
-            // 更新索引
-            subscriptionsByDataSource
-                    .computeIfAbsent(dataSource.getId(), k -> ConcurrentHashMap.newKeySet())
-                    .add(subscriptionKey);
-            subscriptionsBySymbol
-                    .computeIfAbsent(symbol.getId(), k -> ConcurrentHashMap.newKeySet())
-                    .add(subscriptionKey);
+            registerSubscription(subscriptionKey, info);
 
             log.info("Subscribed to WebSocket: {}", subscriptionKey);
             return true;
@@ -185,6 +264,68 @@ public class BinanceWebSocketManager {
         }
     }
 
+    /**
+     * 组合流模式订阅（调用方持有写锁）
+     */
+    private boolean subscribeCombined(DataSource dataSource, Symbol symbol, String interval,
+                                      ProxyConfig proxyConfig, String wsUrl, String subscriptionKey) {
+        BinanceStreamConnectionPool pool = connectionPools.computeIfAbsent(dataSource.getId(),
+                id -> new BinanceStreamConnectionPool(
+                        wsUrl,
+                        proxyConfig,
+                        objectMapper,
+                        streamScheduler,
+                        this::routeKlineEvent,
+                        this::wantsOpenEvents,
+                        this::handleDisconnect,
+                        mockEnabled
+                ));
+
+        String streamName = symbol.getSymbol().toLowerCase() + "@kline_" + interval;
+        BinanceCombinedStreamClient connection = pool.subscribe(streamName, subscriptionKey);
+        SubscriptionInfo info = new SubscriptionInfo(
+                dataSource.getId(), symbol.getId(), symbol.getSymbol(), interval, null, connection);
+        registerSubscription(subscriptionKey, info);
+
+        log.info("Subscribed to combined stream: {} -> {} (connection #{})",
+                subscriptionKey, streamName, connection.getConnectionId());
+        return true;
+    }
+
+    /**
+     * 保存订阅信息并更新索引（调用方持有写锁）
+     */
+    private void registerSubscription(String subscriptionKey, SubscriptionInfo info) {
+        subscriptions.put(subscriptionKey, info);
+        subscriptionsByDataSource
+                .computeIfAbsent(info.getDataSourceId(), k -> ConcurrentHashMap.newKeySet())
+                .add(subscriptionKey);
+        subscriptionsBySymbol
+                .computeIfAbsent(info.getSymbolId(), k -> ConcurrentHashMap.newKeySet())
+                .add(subscriptionKey);
+    }
+
+    /**
+     * 释放订阅占用的连接（调用方持有写锁）
+     * 
+     * 独立连接直接关闭；组合流发送 UNSUBSCRIBE，数据源无订阅时关闭连接池
+     */
+    private void releaseSubscription(SubscriptionInfo info) {
+        if (info.getClient() != null) {
+            info.getClient().close();
+            return;
+        }
+
+        BinanceStreamConnectionPool pool = connectionPools.get(info.getDataSourceId());
+        if (pool != null) {
+            pool.unsubscribe(info.getStreamName());
+            if (pool.isEmpty()) {
+                connectionPools.remove(info.getDataSourceId());
+                pool.shutdown();
+            }
+        }
+    }
+
     /**
      * 取消订阅
      * 
@@ -205,9 +346,7 @@ public class BinanceWebSocketManager {
             }
 
             // 关闭 WebSocket 连接
-            if (info.getClient() != null) {
-                info.getClient().close();
-            }
+            releaseSubscription(info);
 
             // 更新索引
             Set<String> dsKeys = subscriptionsByDataSource.get(dataSourceId);
@@ -252,9 +391,7 @@ public class BinanceWebSocketManager {
             for (String key : new ArrayList<>(keys)) {
                 SubscriptionInfo info = subscriptions.remove(key);
                 if (info != null) {
-                    if (info.getClient() != null) {
-                        info.getClient().close();
-                    }
+                    releaseSubscription(info);
                     count++;
 
                     // 更新数据源索引
@@ -295,9 +432,7 @@ public class BinanceWebSocketManager {
             for (String key : new ArrayList<>(keys)) {
                 SubscriptionInfo info = subscriptions.remove(key);
                 if (info != null) {
-                    if (info.getClient() != null) {
-                        info.getClient().close();
-                    }
+                    releaseSubscription(info);
                     count++;
 
                     // 更新交易对索引
@@ -335,7 +470,11 @@ public class BinanceWebSocketManager {
                     info.getClient().close();
                 }
             }
+            for (BinanceStreamConnectionPool pool : connectionPools.values()) {
+                pool.shutdown();
+            }
 
+            connectionPools.clear();
             subscriptions.clear();
             subscriptionsByDataSource.clear();
             subscriptionsBySymbol.clear();
@@ -447,11 +586,51 @@ public class BinanceWebSocketManager {
                 .count();
     }
 
+    /**
+     * 获取物理连接数量
+     * 
+     * 组合流模式下为各连接池的连接总数，否则等于订阅数量
+     * 
+     * @return 物理连接数量
+     */
+    public int getPhysicalConnectionCount() {
+        if (!combinedStreamEnabled) {
+            return subscriptions.size();
+        }
+        return connectionPools.values().stream()
+                .mapToInt(BinanceStreamConnectionPool::getConnectionCount)
+                .sum();
+    }
+
+    /**
+     * 路由组合流 K 线事件 (subscriptionKey -> symbolId)
+     */
+    private void routeKlineEvent(String subscriptionKey, BinanceWsKlineEvent event) {
+        SubscriptionInfo info = subscriptions.get(subscriptionKey);
+        if (info != null) {
+            handleKlineEvent(subscriptionKey, info.getSymbolId(), event);
+        }
+    }
+
+    /**
+     * 订阅是否需要未完结 K 线事件 (subscriptionKey)
+     */
+    private boolean wantsOpenEvents(String subscriptionKey) {
+        SubscriptionInfo info = subscriptions.get(subscriptionKey);
+        return info != null && wantsOpenEvents(info.getSymbolId(), info.getInterval());
+    }
+
+    private boolean wantsOpenEvents(Long symbolId, String interval) {
+        BiPredicate<Long, String> filter = openKlineFilter;
+        return filter == null || filter.test(symbolId, interval);
+    }
+
     /**
      * 处理 K 线事件
      */
-    private void handleKlineEvent(Long symbolId, BinanceWsKlineEvent event) {
+    private void handleKlineEvent(String subscriptionKey, Long symbolId, BinanceWsKlineEvent event) {
         if (klineCallback != null) {
+            event.setSubscriptionKey(subscriptionKey);
             try {
                 klineCallback.accept(symbolId, event);
             } catch (Exception e) {
@@ -516,5 +695,13 @@ public class BinanceWebSocketManager {
     public void shutdown() {
         log.info("Shutting down WebSocket manager");
         unsubscribeAll();
+        if (streamScheduler != null) {
+            streamScheduler.shutdownNow();
+            try {
+                streamScheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 }
@@ -0,0 +1,18 @@
+package com.chanlun.exchange;
+
+import java.io.IOException;
+
+/**
+ * 限流等待超时异常
+ *
+ * 预计等待时间超过上限时由 {@link BinanceRateLimiter#acquire} 抛出，与线程中断区分：
+ * 调用方按普通请求失败处理，不设置中断标记
+ *
+ * @author Chanlun Team
+ */
+public class RateLimitTimeoutException extends IOException {
+
+    public RateLimitTimeoutException(String message) {
+        super(message);
+    }
+}
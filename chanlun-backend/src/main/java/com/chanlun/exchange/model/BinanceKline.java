@@ -1,5 +1,6 @@
 package com.chanlun.exchange.model;
 
+import com.chanlun.entity.Kline;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -90,6 +91,29 @@ public class BinanceKline {
         return closeTime != null ? Instant.ofEpochMilli(closeTime) : null;
     }
 
+    /**
+     * 转换为 K 线实体
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return K 线实体
+     */
+    public Kline toKline(Long symbolId, String interval) {
+        return Kline.builder()
+                .symbolId(symbolId)
+                .interval(interval)
+                .openTime(getOpenTimeInstant())
+                .open(open)
+                .high(high)
+                .low(low)
+                .close(close)
+                .volume(volume)
+                .quoteVolume(quoteVolume)
+                .trades(trades)
+                .closeTime(getCloseTimeInstant())
+                .build();
+    }
+
     /**
      * 从币安 API 返回的数组解析 K 线数据
      * 
@@ -1,5 +1,6 @@
 package com.chanlun.exchange.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -71,6 +72,30 @@ public class BinanceWsKlineEvent {
     @JsonProperty("k")
     private KlineData kline;
 
+    /**
+     * 本地收到消息的时间 (UTC 毫秒，本地埋点，不参与序列化)
+     */
+    @JsonIgnore
+    private long receivedAt;
+
+    /**
+     * 本地收到消息时的单调时钟 (System.nanoTime)
+     */
+    @JsonIgnore
+    private long receivedNanos;
+
+    /**
+     * 解码完成时的单调时钟 (System.nanoTime)
+     */
+    @JsonIgnore
+    private long decodedNanos;
+
+    /**
+     * 订阅键 (dataSourceId_symbolId_interval)，由 WebSocket 管理器在回调前填充
+     */
+    @JsonIgnore
+    private String subscriptionKey;
+
     /**
      * K线数据内部结构
      */
@@ -0,0 +1,121 @@
+package com.chanlun.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.chanlun.entity.ChanSegment;
+import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * 线段 Mapper 接口
+ * 
+ * @author Chanlun Team
+ */
+@Mapper
+public interface ChanSegmentMapper extends BaseMapper<ChanSegment> {
+
+    /**
+     * 查询与时间范围有重叠的线段（按起点时间升序）
+     * 
+     * 重叠条件：start_time <= endTime AND end_time >= startTime
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 开始时间 (包含)
+     * @param endTime 结束时间 (包含)
+     * @param limit 限制数量
+     * @return 线段列表
+     */
+    @Select("SELECT * FROM chan_segment WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} " +
+            "AND start_time <= #{endTime} AND end_time >= #{startTime} ORDER BY start_time ASC LIMIT #{limit}")
+    List<ChanSegment> selectBySymbolIdAndIntervalAndTimeRange(
+            @Param("symbolId") Long symbolId,
+            @Param("interval") String interval,
+            @Param("startTime") Instant startTime,
+            @Param("endTime") Instant endTime,
+            @Param("limit") int limit);
+
+    /**
+     * 查询最近的若干线段（按起点时间降序）
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param limit 限制数量
+     * @return 线段列表（按起点时间降序）
+     */
+    @Select("SELECT * FROM chan_segment WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} " +
+            "ORDER BY start_time DESC LIMIT #{limit}")
+    List<ChanSegment> selectRecentBySymbolIdAndInterval(
+            @Param("symbolId") Long symbolId,
+            @Param("interval") String interval,
+            @Param("limit") int limit);
+
+    /**
+     * 流式查询指定交易对和周期已确认的线段（按起点时间升序）
+     * 
+     * 使用服务端游标逐批读取，必须在事务内消费
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 线段游标
+     */
+    @Select("SELECT * FROM chan_segment WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} " +
+            "AND confirmed = TRUE ORDER BY start_time ASC")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<ChanSegment> streamConfirmedBySymbolIdAndInterval(
+            @Param("symbolId") Long symbolId,
+            @Param("interval") String interval);
+
+    /**
+     * 批量插入线段（使用 ON CONFLICT 实现 upsert，未确认的线段确认后原地更新）
+     * 
+     * @param segments 线段列表
+     * @return 插入的记录数
+     */
+    @Insert("<script>" +
+            "INSERT INTO chan_segment (symbol_id, \"interval\", direction, start_time, end_time, start_price, end_price, " +
+            "stroke_count, confirmed, created_at, updated_at) " +
+            "VALUES " +
+            "<foreach collection='segments' item='s' separator=','>" +
+            "(#{s.symbolId}, #{s.interval}, #{s.direction}, #{s.startTime}, #{s.endTime}, #{s.startPrice}, #{s.endPrice}, " +
+            "#{s.strokeCount}, #{s.confirmed}, NOW(), NOW())" +
+            "</foreach>" +
+            " ON CONFLICT (symbol_id, \"interval\", start_time) DO UPDATE SET " +
+            "direction = EXCLUDED.direction, end_time = EXCLUDED.end_time, start_price = EXCLUDED.start_price, " +
+            "end_price = EXCLUDED.end_price, stroke_count = EXCLUDED.stroke_count, " +
+            "confirmed = EXCLUDED.confirmed, updated_at = NOW()" +
+            "</script>")
+    int batchUpsert(@Param("segments") List<ChanSegment> segments);
+
+    /**
+     * 删除指定交易对和周期未确认的线段
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 删除的记录数
+     */
+    @Delete("DELETE FROM chan_segment WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} AND confirmed = FALSE")
+    int deleteUnconfirmed(@Param("symbolId") Long symbolId, @Param("interval") String interval);
+
+    /**
+     * 删除指定交易对和周期的所有线段
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 删除的记录数
+     */
+    @Delete("DELETE FROM chan_segment WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval}")
+    int deleteBySymbolIdAndInterval(@Param("symbolId") Long symbolId, @Param("interval") String interval);
+
+    /**
+     * 删除指定交易对的所有线段
+     * 
+     * @param symbolId 交易对ID
+     * @return 删除的记录数
+     */
+    @Delete("DELETE FROM chan_segment WHERE symbol_id = #{symbolId}")
+    int deleteBySymbolId(@Param("symbolId") Long symbolId);
+}
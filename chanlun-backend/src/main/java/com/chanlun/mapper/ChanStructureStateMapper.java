@@ -0,0 +1,55 @@
+package com.chanlun.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.chanlun.entity.ChanStructureState;
+import org.apache.ibatis.annotations.*;
+
+/**
+ * 笔和线段构建检查点 Mapper 接口
+ * 
+ * @author Chanlun Team
+ */
+@Mapper
+public interface ChanStructureStateMapper extends BaseMapper<ChanStructureState> {
+
+    /**
+     * 查询指定交易对和周期的检查点
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 检查点，不存在返回 null
+     */
+    @Select("SELECT * FROM chan_structure_state WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval}")
+    ChanStructureState selectBySymbolIdAndInterval(@Param("symbolId") Long symbolId, @Param("interval") String interval);
+
+    /**
+     * 保存检查点（使用 ON CONFLICT 实现 upsert）
+     * 
+     * @param state 检查点
+     * @return 影响的记录数
+     */
+    @Insert("INSERT INTO chan_structure_state (symbol_id, \"interval\", last_open_time, state, created_at, updated_at) " +
+            "VALUES (#{symbolId}, #{interval}, #{lastOpenTime}, #{state}, NOW(), NOW()) " +
+            "ON CONFLICT (symbol_id, \"interval\") DO UPDATE SET " +
+            "last_open_time = EXCLUDED.last_open_time, state = EXCLUDED.state, updated_at = NOW()")
+    int upsert(ChanStructureState state);
+
+    /**
+     * 删除指定交易对和周期的检查点
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 删除的记录数
+     */
+    @Delete("DELETE FROM chan_structure_state WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval}")
+    int deleteBySymbolIdAndInterval(@Param("symbolId") Long symbolId, @Param("interval") String interval);
+
+    /**
+     * 删除指定交易对的所有检查点
+     * 
+     * @param symbolId 交易对ID
+     * @return 删除的记录数
+     */
+    @Delete("DELETE FROM chan_structure_state WHERE symbol_id = #{symbolId}")
+    int deleteBySymbolId(@Param("symbolId") Long symbolId);
+}
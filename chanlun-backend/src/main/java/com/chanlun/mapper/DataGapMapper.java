@@ -141,6 +141,48 @@ public interface DataGapMapper extends BaseMapper<DataGap> {
             @Param("gapStart") Instant gapStart,
             @Param("gapEnd") Instant gapEnd);
 
+    /**
+     * 在数据库端检测指定交易对和周期的新缺口
+     * 
+     * 用 LEAD(open_time) 取相邻开盘时间，只返回间隔超出周期的边界，
+     * 并在同一语句内排除与已有 data_gap 记录重叠的缺口；仅扫描 (symbol_id, interval, open_time) 索引列，
+     * 不加载 K 线实体。
+     * 
+     * 缺口开始时间 = 前一根开盘时间 + 周期，缺口结束时间 = 后一根开盘时间 - 周期，
+     * 缺失数量 = (实际间隔 - 周期) / 周期（整除）
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param fromTime 扫描起点（包含），增量检测时为水位线，全量检测时为 Instant.EPOCH
+     * @param intervalMs 周期毫秒数
+     * @param toleranceMs 间隔容差毫秒数
+     * @return 新缺口列表（仅 gap_start / gap_end / missing_count，按时间升序）
+     */
+    @Select("SELECT b.open_time + #{intervalMs} * INTERVAL '1 millisecond' AS gap_start, " +
+            "b.next_open_time - #{intervalMs} * INTERVAL '1 millisecond' AS gap_end, " +
+            "b.missing_count " +
+            "FROM (" +
+            "SELECT g.open_time, g.next_open_time, " +
+            "(CAST(EXTRACT(EPOCH FROM g.next_open_time - g.open_time) * 1000 AS BIGINT) - #{intervalMs}) " +
+            "/ #{intervalMs} AS missing_count " +
+            "FROM (SELECT open_time, LEAD(open_time) OVER (ORDER BY open_time) AS next_open_time " +
+            "FROM kline WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} " +
+            "AND open_time >= #{fromTime}) g " +
+            "WHERE g.next_open_time > g.open_time + (#{intervalMs} + #{toleranceMs}) * INTERVAL '1 millisecond'" +
+            ") b " +
+            "WHERE b.missing_count > 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM data_gap d " +
+            "WHERE d.symbol_id = #{symbolId} AND d.\"interval\" = #{interval} " +
+            "AND d.gap_start <= b.next_open_time - #{intervalMs} * INTERVAL '1 millisecond' " +
+            "AND d.gap_end >= b.open_time + #{intervalMs} * INTERVAL '1 millisecond') " +
+            "ORDER BY b.open_time")
+    List<DataGap> selectNewGapBoundaries(
+            @Param("symbolId") Long symbolId,
+            @Param("interval") String interval,
+            @Param("fromTime") Instant fromTime,
+            @Param("intervalMs") long intervalMs,
+            @Param("toleranceMs") long toleranceMs);
+
     /**
      * 更新缺口状态
      * 
@@ -151,6 +193,21 @@ public interface DataGapMapper extends BaseMapper<DataGap> {
     @Update("UPDATE data_gap SET status = #{status}, updated_at = NOW() WHERE id = #{id}")
     int updateStatus(@Param("id") Long id, @Param("status") String status);
 
+    /**
+     * 将回补窗口覆盖的缺口一次性标记为已回补
+     * 
+     * 仅更新仍为 PENDING / FILLING 的记录，单条语句保证同一窗口的缺口同时完成
+     * 
+     * @param ids 缺口ID列表
+     * @return 更新的记录数
+     */
+    @Update("<script>" +
+            "UPDATE data_gap SET status = 'FILLED', updated_at = NOW() " +
+            "WHERE status IN ('PENDING', 'FILLING') AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markFilled(@Param("ids") List<Long> ids);
+
     /**
      * 更新缺口状态和错误信息
      * 
@@ -203,4 +260,91 @@ public interface DataGapMapper extends BaseMapper<DataGap> {
      */
     @Select("SELECT * FROM data_gap WHERE status = 'PENDING' ORDER BY created_at ASC LIMIT #{limit}")
     List<DataGap> selectPendingWithLimit(@Param("limit") int limit);
+
+    /**
+     * 领取待回补缺口：状态改为 FILLING 并返回领取到的记录
+     * 
+     * 先按 (交易对, 周期) 分组、按最早创建时间排序选出候选交易对周期（跳过已有 FILLING 缺口的），
+     * 再为每个交易对周期取最早一条缺口并以 FOR UPDATE SKIP LOCKED 加锁，多实例并发领取互不阻塞，
+     * 每个交易对周期最多领取一条，积压集中在少数交易对时也不会饿死其他交易对。
+     * 两个实例同时领取同一交易对周期的不同缺口时，由唯一索引 uk_data_gap_filling_pair 拒绝后到者
+     * （抛出 DuplicateKeyException，调用方视为本轮未领取到）。
+     * 
+     * @param limit 最多领取数量
+     * @param scanLimit 候选交易对周期数量（大于 limit，留出被其他实例锁定的余量）
+     * @param autoOnly 是否只领取开启周期级自动回补的缺口
+     * @param ids 限定的缺口ID（为空表示不限定）
+     * @param excludeSymbolIds 本轮排除的交易对ID（数据源或市场不可用，为空表示不排除）
+     * @return 领取到的缺口（状态已为 FILLING）
+     */
+    @Select("<script>" +
+            "UPDATE data_gap SET status = 'FILLING', updated_at = NOW() " +
+            "WHERE id IN (" +
+            "SELECT c.id FROM (" +
+            "SELECT d.symbol_id, d.\"interval\", MIN(d.created_at) AS first_created FROM data_gap d " +
+            "WHERE d.status = 'PENDING' " +
+            "<if test='ids != null and ids.size() > 0'>" +
+            "AND d.id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "</if>" +
+            "<if test='excludeSymbolIds != null and excludeSymbolIds.size() > 0'>" +
+            "AND d.symbol_id NOT IN <foreach collection='excludeSymbolIds' item='sid' open='(' separator=',' close=')'>#{sid}</foreach> " +
+            "</if>" +
+            "<if test='autoOnly'>" +
+            "AND EXISTS (SELECT 1 FROM sync_status s WHERE s.symbol_id = d.symbol_id " +
+            "AND s.\"interval\" = d.\"interval\" AND s.auto_gap_fill_enabled = TRUE) " +
+            "</if>" +
+            "AND NOT EXISTS (SELECT 1 FROM data_gap f WHERE f.symbol_id = d.symbol_id " +
+            "AND f.\"interval\" = d.\"interval\" AND f.status = 'FILLING') " +
+            "GROUP BY d.symbol_id, d.\"interval\" ORDER BY first_created LIMIT #{scanLimit}" +
+            ") p CROSS JOIN LATERAL (" +
+            "SELECT g.id FROM data_gap g WHERE g.symbol_id = p.symbol_id AND g.\"interval\" = p.\"interval\" " +
+            "AND g.status = 'PENDING' " +
+            "<if test='ids != null and ids.size() > 0'>" +
+            "AND g.id IN <foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "</if>" +
+            "ORDER BY g.created_at, g.id LIMIT 1 FOR UPDATE SKIP LOCKED" +
+            ") c ORDER BY p.first_created LIMIT #{limit}) " +
+            "RETURNING *" +
+            "</script>")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    List<DataGap> claimPending(
+            @Param("limit") int limit,
+            @Param("scanLimit") int scanLimit,
+            @Param("autoOnly") boolean autoOnly,
+            @Param("ids") List<Long> ids,
+            @Param("excludeSymbolIds") List<Long> excludeSymbolIds);
+
+    /**
+     * 领取指定缺口（手动回补）
+     * 
+     * 仅当缺口为 PENDING 且同一交易对周期没有 FILLING 缺口时成功
+     * 
+     * @param id 缺口ID
+     * @return 更新的记录数（0 表示未领取到）
+     */
+    @Update("UPDATE data_gap d SET status = 'FILLING', updated_at = NOW() " +
+            "WHERE d.id = #{id} AND d.status = 'PENDING' " +
+            "AND NOT EXISTS (SELECT 1 FROM data_gap f WHERE f.symbol_id = d.symbol_id " +
+            "AND f.\"interval\" = d.\"interval\" AND f.status = 'FILLING')")
+    int claimById(@Param("id") Long id);
+
+    /**
+     * 回补心跳：刷新 FILLING 缺口的更新时间，避免被当作超时释放
+     * 
+     * @param id 缺口ID
+     * @return 更新的记录数
+     */
+    @Update("UPDATE data_gap SET updated_at = NOW() WHERE id = #{id} AND status = 'FILLING'")
+    int touchFilling(@Param("id") Long id);
+
+    /**
+     * 释放超时的 FILLING 缺口（实例崩溃或重启遗留），退回 PENDING
+     * 
+     * @param before 更新时间早于该时间视为超时
+     * @param errorMessage 错误信息
+     * @return 释放的记录数
+     */
+    @Update("UPDATE data_gap SET status = 'PENDING', error_message = #{errorMessage}, updated_at = NOW() " +
+            "WHERE status = 'FILLING' AND updated_at < #{before}")
+    int releaseStaleFilling(@Param("before") Instant before, @Param("errorMessage") String errorMessage);
 }
@@ -3,6 +3,8 @@ package com.chanlun.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.chanlun.entity.Kline;
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 import java.time.Instant;
 import java.util.List;
@@ -61,6 +63,62 @@ public interface KlineMapper extends BaseMapper<Kline> {
             @Param("endTime") Instant endTime,
             @Param("limit") int limit);
 
+    /**
+     * 游标方式逐行读取时间范围内的K线（按开盘时间升序）
+     * 
+     * PostgreSQL 驱动仅在事务内（autocommit 关闭）按 fetchSize 分批拉取，调用方须在事务内遍历并关闭游标
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 开始时间 (包含)
+     * @param endTime 结束时间 (包含)
+     * @return K线游标
+     */
+    @Select("SELECT * FROM kline WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} " +
+            "AND open_time >= #{startTime} AND open_time <= #{endTime} ORDER BY open_time ASC")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<Kline> streamBySymbolIdAndIntervalAndTimeRange(
+            @Param("symbolId") Long symbolId,
+            @Param("interval") String interval,
+            @Param("startTime") Instant startTime,
+            @Param("endTime") Instant endTime);
+
+    /**
+     * 查询指定交易对和周期最近的若干根K线（按开盘时间降序）
+     * 
+     * 沿唯一索引 (symbol_id, interval, open_time) 倒序扫描，只读取 limit 行
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param limit 限制数量
+     * @return K线列表（按开盘时间降序）
+     */
+    @Select("SELECT * FROM kline WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} " +
+            "ORDER BY open_time DESC LIMIT #{limit}")
+    List<Kline> selectRecentBySymbolIdAndInterval(
+            @Param("symbolId") Long symbolId,
+            @Param("interval") String interval,
+            @Param("limit") int limit);
+
+    /**
+     * 查询指定开盘时间之前最近的若干根K线（按开盘时间降序）
+     * 
+     * 键集分页：从 before 处沿唯一索引倒序扫描，扫描行数只与 limit 有关，与历史深度无关
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param before 开盘时间上界（不含）
+     * @param limit 限制数量
+     * @return K线列表（按开盘时间降序）
+     */
+    @Select("SELECT * FROM kline WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} " +
+            "AND open_time < #{before} ORDER BY open_time DESC LIMIT #{limit}")
+    List<Kline> selectRecentBeforeBySymbolIdAndInterval(
+            @Param("symbolId") Long symbolId,
+            @Param("interval") String interval,
+            @Param("before") Instant before,
+            @Param("limit") int limit);
+
     /**
      * 查询指定交易对和周期的最新一根K线
      * 
@@ -0,0 +1,56 @@
+package com.chanlun.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * K线分区维护 Mapper 接口
+ * 
+ * 调用 V11 迁移中定义的分区维护函数
+ * 
+ * @author Chanlun Team
+ */
+@Mapper
+public interface KlinePartitionMapper {
+
+    /**
+     * 确保指定月份的分区存在（兜底分区中的同月数据会移入新分区）
+     * 
+     * @param month 月份内任意日期
+     * @return 分区名
+     */
+    @Select("SELECT ensure_kline_partition(#{month}::date)")
+    String ensurePartition(@Param("month") LocalDate month);
+
+    /**
+     * 分离或删除上界不晚于指定时间的月分区
+     * 
+     * @param before 截止时间
+     * @param drop true 删除分区表，false 仅分离（保留为独立表）
+     * @return 处理的分区名列表
+     */
+    @Select("SELECT retire_kline_partitions(#{before}, #{drop})")
+    List<String> retirePartitions(@Param("before") Instant before, @Param("drop") boolean drop);
+
+    /**
+     * 查询当前挂载的分区名（按名称排序）
+     * 
+     * @return 分区名列表
+     */
+    @Select("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'kline'::regclass ORDER BY c.relname")
+    List<String> selectPartitionNames();
+
+    /**
+     * 查询兜底分区中的记录数（非零说明有月份未预建分区）
+     * 
+     * @return 记录数
+     */
+    @Select("SELECT COUNT(*) FROM kline_default")
+    long countDefaultPartitionRows();
+}
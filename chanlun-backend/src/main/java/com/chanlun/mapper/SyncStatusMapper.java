@@ -76,6 +76,63 @@ public interface SyncStatusMapper extends BaseMapper<SyncStatus> {
                                   @Param("interval") String interval, 
                                   @Param("enabled") Boolean enabled);
 
+    /**
+     * 记录缺口检测水位线（不存在时插入）
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param gapCheckedFrom 已检测区间起点（最早K线开盘时间）
+     * @param gapCheckedUntil 已检测区间终点（最新K线开盘时间）
+     * @return 影响的记录数
+     */
+    @Insert("INSERT INTO sync_status (symbol_id, \"interval\", gap_checked_from, gap_checked_until, created_at, updated_at) " +
+            "VALUES (#{symbolId}, #{interval}, #{gapCheckedFrom}, #{gapCheckedUntil}, NOW(), NOW()) " +
+            "ON CONFLICT (symbol_id, \"interval\") DO UPDATE SET " +
+            "gap_checked_from = EXCLUDED.gap_checked_from, " +
+            "gap_checked_until = EXCLUDED.gap_checked_until, " +
+            "updated_at = NOW()")
+    int upsertGapWatermark(@Param("symbolId") Long symbolId,
+                           @Param("interval") String interval,
+                           @Param("gapCheckedFrom") Instant gapCheckedFrom,
+                           @Param("gapCheckedUntil") Instant gapCheckedUntil);
+
+    /**
+     * 清除缺口检测水位线（下次全量检测）
+     * 
+     * 仅当删除起点不晚于水位线终点（触及已检测区间）时清除
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 删除起点
+     * @return 更新的记录数
+     */
+    @Update("UPDATE sync_status SET gap_checked_from = NULL, gap_checked_until = NULL, updated_at = NOW() " +
+            "WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval} AND gap_checked_until >= #{startTime}")
+    int resetGapWatermarkFrom(@Param("symbolId") Long symbolId,
+                              @Param("interval") String interval,
+                              @Param("startTime") Instant startTime);
+
+    /**
+     * 清除指定交易对和周期的缺口检测水位线
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @return 更新的记录数
+     */
+    @Update("UPDATE sync_status SET gap_checked_from = NULL, gap_checked_until = NULL, updated_at = NOW() " +
+            "WHERE symbol_id = #{symbolId} AND \"interval\" = #{interval}")
+    int resetGapWatermark(@Param("symbolId") Long symbolId, @Param("interval") String interval);
+
+    /**
+     * 清除指定交易对所有周期的缺口检测水位线
+     * 
+     * @param symbolId 交易对ID
+     * @return 更新的记录数
+     */
+    @Update("UPDATE sync_status SET gap_checked_from = NULL, gap_checked_until = NULL, updated_at = NOW() " +
+            "WHERE symbol_id = #{symbolId}")
+    int resetGapWatermarkBySymbolId(@Param("symbolId") Long symbolId);
+
     /**
      * 插入或更新同步状态（upsert）
      * 
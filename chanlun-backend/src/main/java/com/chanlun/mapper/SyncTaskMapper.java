@@ -124,6 +124,20 @@ public interface SyncTaskMapper extends BaseMapper<SyncTask> {
     @Update("UPDATE sync_task SET synced_count = #{syncedCount}, updated_at = NOW() WHERE id = #{id}")
     int updateSyncedCount(@Param("id") Long id, @Param("syncedCount") Integer syncedCount);
 
+    /**
+     * 更新已同步数量和断点
+     * 
+     * @param id 任务ID
+     * @param syncedCount 已同步数量
+     * @param checkpointTime 最后已提交 K 线的开盘时间
+     * @return 更新的记录数
+     */
+    @Update("UPDATE sync_task SET synced_count = #{syncedCount}, checkpoint_time = #{checkpointTime}, " +
+            "updated_at = NOW() WHERE id = #{id}")
+    int updateSyncedCountAndCheckpoint(@Param("id") Long id, 
+                                       @Param("syncedCount") Integer syncedCount,
+                                       @Param("checkpointTime") Instant checkpointTime);
+
     /**
      * 增加重试次数
      * 
@@ -160,6 +174,42 @@ public interface SyncTaskMapper extends BaseMapper<SyncTask> {
             "ORDER BY created_at ASC LIMIT #{limit}")
     List<SyncTask> selectRetryableTasks(@Param("limit") int limit);
 
+    /**
+     * 查询可恢复的历史同步任务
+     * 
+     * 包括：失败且未达最大重试次数的任务，以及长时间未更新断点的运行中任务（进程中断遗留）
+     * 
+     * @param staleBefore 运行中任务的断点更新时间阈值
+     * @param limit 限制数量
+     * @return 可恢复任务列表
+     */
+    @Select("SELECT * FROM sync_task WHERE task_type = 'HISTORY' " +
+            "AND ((status = 'FAILED' AND retry_count < max_retries) " +
+            "OR (status = 'RUNNING' AND updated_at < #{staleBefore})) " +
+            "ORDER BY created_at ASC LIMIT #{limit}")
+    List<SyncTask> selectResumableHistoryTasks(@Param("staleBefore") Instant staleBefore, @Param("limit") int limit);
+
+    /**
+     * 领取可恢复的历史同步任务
+     * 
+     * 仅当任务仍处于查询时的状态且仍满足恢复条件时置为 RUNNING（失败任务同时增加重试次数），
+     * 多个实例同时恢复同一任务时只有一个能领取成功
+     * 
+     * @param id 任务ID
+     * @param status 查询时的任务状态（FAILED / RUNNING）
+     * @param staleBefore 运行中任务的断点更新时间阈值
+     * @return 领取到的任务（未领取到返回 null）
+     */
+    @Select("UPDATE sync_task SET status = 'RUNNING', updated_at = NOW(), " +
+            "retry_count = CASE WHEN status = 'FAILED' THEN retry_count + 1 ELSE retry_count END " +
+            "WHERE id = #{id} AND task_type = 'HISTORY' AND status = #{status} " +
+            "AND ((status = 'FAILED' AND retry_count < max_retries) " +
+            "OR (status = 'RUNNING' AND updated_at < #{staleBefore})) " +
+            "RETURNING *")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE)
+    SyncTask claimResumableHistoryTask(@Param("id") Long id, @Param("status") String status,
+                                       @Param("staleBefore") Instant staleBefore);
+
     /**
      * 删除指定交易对的所有同步任务
      * 
@@ -0,0 +1,70 @@
+package com.chanlun.metrics;
+
+import com.chanlun.mapper.KlineMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * KlineMapper.batchUpsert 耗时与行数统计
+ *
+ * 以 MyBatis 插件拦截 Executor.update，覆盖所有调用方（历史同步、回补、实时写入、单条 upsert），
+ * 其他语句直接放行
+ *
+ * @author Chanlun Team
+ */
+@Component
+@Intercepts(@Signature(type = Executor.class, method = "update",
+        args = {MappedStatement.class, Object.class}))
+public class KlineUpsertMetricsInterceptor implements Interceptor {
+
+    /**
+     * 被统计的语句 ID
+     */
+    static final String STATEMENT_ID = KlineMapper.class.getName() + ".batchUpsert";
+
+    private final MeterRegistry meterRegistry;
+
+    public KlineUpsertMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        if (!STATEMENT_ID.equals(statement.getId())) {
+            return invocation.proceed();
+        }
+
+        int rows = countRows(invocation.getArgs()[1]);
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = invocation.proceed();
+            success = true;
+            return result;
+        } finally {
+            KlineWriteMetrics.record(meterRegistry, KlineWriteMetrics.METHOD_BATCH, rows,
+                    System.nanoTime() - start, success);
+        }
+    }
+
+    /**
+     * 参数为 @Param("klines") 列表（ParamMap 取不存在的键会抛异常，先判断）
+     */
+    private static int countRows(Object parameter) {
+        if (parameter instanceof Map<?, ?> params && params.containsKey("klines")
+                && params.get("klines") instanceof Collection<?> klines) {
+            return klines.size();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.chanlun.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * K 线写库指标
+ *
+ * 按写入方式区分（method: batch = KlineMapper.batchUpsert，copy = KlineBulkLoader COPY 合并）：
+ * - kline.upsert: 单次写入耗时，outcome 区分成功 / 失败
+ * - kline.upsert.rows: 单次写入行数
+ *
+ * @author Chanlun Team
+ */
+public final class KlineWriteMetrics {
+
+    public static final String UPSERT_METRIC = "kline.upsert";
+
+    public static final String UPSERT_ROWS_METRIC = "kline.upsert.rows";
+
+    public static final String METHOD_BATCH = "batch";
+
+    public static final String METHOD_COPY = "copy";
+
+    private KlineWriteMetrics() {
+    }
+
+    /**
+     * 记录一次写入
+     *
+     * @param registry 指标注册表
+     * @param method 写入方式
+     * @param rows 写入行数
+     * @param nanos 耗时（纳秒）
+     * @param success 是否成功
+     */
+    public static void record(MeterRegistry registry, String method, int rows, long nanos, boolean success) {
+        Timer.builder(UPSERT_METRIC)
+                .description("Kline upsert latency")
+                .tag("method", method)
+                .tag("outcome", success ? "success" : "error")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(UPSERT_ROWS_METRIC)
+                .description("Rows per kline upsert")
+                .baseUnit("rows")
+                .tag("method", method)
+                .register(registry)
+                .record(rows);
+    }
+}
@@ -0,0 +1,119 @@
+package com.chanlun.metrics;
+
+import com.chanlun.mapper.DataGapMapper;
+import com.chanlun.service.DataGapService;
+import com.chanlun.service.KlineWriteBehindService;
+import com.chanlun.service.RealtimeSyncService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 同步链路状态指标
+ *
+ * - binance.ws.subscriptions: WebSocket 订阅数（state: all / connected）
+ * - binance.ws.connections: WebSocket 物理连接数（组合流模式下远小于订阅数）
+ * - gap.backlog: 未完成缺口数量（status: PENDING / FILLING / FAILED），
+ *   按 refreshMs 间隔查询数据库，抓取频繁时复用上次结果
+ * - scheduler.queue.depth: 各任务队列积压（queue: task-scheduler / kline-write-behind / realtime-gap-fill）
+ *
+ * REST 请求耗时、限流权重和重连次数由 exchange 层直接注册（见 BinanceClient、BinanceRateLimiter）
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SyncMetricsBinder implements MeterBinder {
+
+    /**
+     * 计入积压的缺口状态
+     */
+    static final List<String> BACKLOG_STATUSES = List.of(
+            DataGapService.STATUS_PENDING,
+            DataGapService.STATUS_FILLING,
+            DataGapService.STATUS_FAILED
+    );
+
+    private final RealtimeSyncService realtimeSyncService;
+    private final KlineWriteBehindService klineWriteBehindService;
+    private final DataGapMapper dataGapMapper;
+    private final TaskScheduler taskScheduler;
+
+    /**
+     * 缺口积压查询最短间隔（毫秒）
+     */
+    @Value("${app.metrics.gap-backlog-refresh-ms:30000}")
+    private long gapBacklogRefreshMs = 30000;
+
+    private Map<String, Long> gapBacklog = Map.of();
+    private long gapBacklogRefreshedAt;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("binance.ws.subscriptions", realtimeSyncService, RealtimeSyncService::getSubscriptionCount)
+                .description("WebSocket kline subscriptions")
+                .tag("state", "all")
+                .register(registry);
+        Gauge.builder("binance.ws.subscriptions", realtimeSyncService, RealtimeSyncService::getConnectedCount)
+                .description("WebSocket kline subscriptions")
+                .tag("state", "connected")
+                .register(registry);
+        Gauge.builder("binance.ws.connections", realtimeSyncService, RealtimeSyncService::getPhysicalConnectionCount)
+                .description("Physical WebSocket connections")
+                .register(registry);
+
+        for (String status : BACKLOG_STATUSES) {
+            Gauge.builder("gap.backlog", this, binder -> binder.getGapBacklog(status))
+                    .description("Data gaps not yet filled")
+                    .tag("status", status)
+                    .register(registry);
+        }
+
+        if (taskScheduler instanceof ThreadPoolTaskScheduler scheduler) {
+            Gauge.builder("scheduler.queue.depth", scheduler,
+                            s -> s.getScheduledThreadPoolExecutor().getQueue().size())
+                    .description("Pending tasks")
+                    .tag("queue", "task-scheduler")
+                    .register(registry);
+        }
+        Gauge.builder("scheduler.queue.depth", klineWriteBehindService, KlineWriteBehindService::getQueueDepth)
+                .description("Pending tasks")
+                .tag("queue", "kline-write-behind")
+                .register(registry);
+        Gauge.builder("scheduler.queue.depth", realtimeSyncService, RealtimeSyncService::getGapFillQueueSize)
+                .description("Pending tasks")
+                .tag("queue", "realtime-gap-fill")
+                .register(registry);
+    }
+
+    /**
+     * 获取指定状态的缺口数量（超过刷新间隔时重新查询全部状态）
+     */
+    synchronized long getGapBacklog(String status) {
+        long now = System.currentTimeMillis();
+        if (gapBacklogRefreshedAt == 0 || now - gapBacklogRefreshedAt >= gapBacklogRefreshMs) {
+            try {
+                Map<String, Long> counts = new HashMap<>();
+                for (String s : BACKLOG_STATUSES) {
+                    counts.put(s, dataGapMapper.countByStatus(s));
+                }
+                gapBacklog = counts;
+            } catch (Exception e) {
+                log.warn("Failed to refresh gap backlog metrics: {}", e.getMessage());
+            }
+            gapBacklogRefreshedAt = now;
+        }
+        return gapBacklog.getOrDefault(status, 0L);
+    }
+}
@@ -22,6 +22,8 @@ import org.springframework.stereotype.Component;
  * - 交易对 history_sync_enabled = true
  * - 交易对配置了 sync_intervals
  * 
+ * 默认增量检测：每个交易对周期只扫描缺口检测水位线之后的新数据
+ * 
  * @author Chanlun Team
  */
 @Slf4j
@@ -99,9 +101,9 @@ public class GapDetectScheduler {
      * 
      * 执行逻辑：
      * 1. 检查全局自动回补开关
-     * 2. 获取待回补的缺口（按批量大小限制）
-     * 3. 检查每个缺口的周期级自动回补开关
-     * 4. 执行回补并更新状态
+     * 2. 领取开启周期级自动回补的待回补缺口（按批量大小限制，多实例不重复领取）
+     * 3. 工作线程池并发回补，同一交易对周期串行
+     * 4. 更新回补状态
      */
     @Scheduled(cron = "${app.sync.gap-fill.cron:0 5 * * * ?}", zone = "UTC")
     public void executeAutoGapFill() {
@@ -38,8 +38,9 @@ public class HistorySyncScheduler {
      * 
      * 同步逻辑：
      * 1. 检查 sync.history.auto 开关
-     * 2. 获取所有符合条件的交易对（使用 SyncFilterService）
-     * 3. 对每个交易对的每个配置周期执行增量同步
+     * 2. 从断点恢复中断或失败的历史同步任务
+     * 3. 获取所有符合条件的交易对（使用 SyncFilterService）
+     * 4. 对每个交易对的每个配置周期执行增量同步
      */
     @Scheduled(cron = "${app.sync.history.cron:0 30 3 * * ?}", zone = "UTC")
     public void executeHistorySync() {
@@ -51,6 +52,15 @@ public class HistorySyncScheduler {
             return;
         }
         
+        try {
+            int resumed = historySyncService.resumeInterruptedTasks();
+            if (resumed > 0) {
+                log.info("Resumed {} interrupted history sync tasks", resumed);
+            }
+        } catch (Exception e) {
+            log.error("Failed to resume interrupted history sync tasks: {}", e.getMessage(), e);
+        }
+        
         try {
             log.info("Starting scheduled history incremental sync");
             HistorySyncService.IncrementalSyncSummary summary = historySyncService.syncAllIncremental();
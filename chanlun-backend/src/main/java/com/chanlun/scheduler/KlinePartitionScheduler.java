@@ -0,0 +1,63 @@
+package com.chanlun.scheduler;
+
+import com.chanlun.service.KlinePartitionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * K线分区维护定时任务
+ * 
+ * 启动时及每天执行一次：预建未来月份分区，按保留策略分离/删除过期分区
+ * 所有定时任务按 UTC 时区执行
+ * 
+ * @author Chanlun Team
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KlinePartitionScheduler {
+
+    private final KlinePartitionService klinePartitionService;
+
+    /**
+     * 分区维护开关（非 PostgreSQL 环境需关闭）
+     */
+    @Value("${app.kline.partition.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 应用启动后立即维护一次，保证当月分区存在
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executePartitionMaintenance();
+    }
+
+    /**
+     * 分区维护定时任务
+     * 
+     * 默认每天 00:10 UTC 执行
+     */
+    @Scheduled(cron = "${app.kline.partition.cron:0 10 0 * * ?}", zone = "UTC")
+    public void executePartitionMaintenance() {
+        if (!enabled) {
+            log.debug("Kline partition maintenance is disabled, skipping");
+            return;
+        }
+        
+        try {
+            KlinePartitionService.MaintenanceResult result = klinePartitionService.maintain();
+            log.info("Kline partition maintenance completed: ensured={}, retired={}, defaultRows={}",
+                    result.getEnsuredPartitions().size(),
+                    result.getRetiredPartitions().size(),
+                    result.getDefaultPartitionRows());
+        } catch (Exception e) {
+            log.error("Kline partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -8,7 +8,6 @@ import com.chanlun.dto.GapDetectResult;
 import com.chanlun.dto.SymbolDTO;
 import com.chanlun.entity.DataGap;
 import com.chanlun.entity.DataSource;
-import com.chanlun.entity.Kline;
 import com.chanlun.entity.Market;
 import com.chanlun.entity.Symbol;
 import com.chanlun.entity.SyncStatus;
@@ -23,10 +22,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
-import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -63,6 +62,11 @@ public class DataGapService {
     public static final String STATUS_FILLED = "FILLED";
     public static final String STATUS_FAILED = "FAILED";
 
+    /**
+     * 相邻 K 线间隔容差（毫秒）
+     */
+    private static final long GAP_TOLERANCE_MS = 1000;
+
     /**
      * 支持的 K 线周期
      */
@@ -117,17 +121,31 @@ public class DataGapService {
     /**
      * 检测单个交易对单个周期的数据缺口
      * 
-     * 基于时间连续性检测算法：
-     * 1. 获取该交易对该周期的所有 K 线数据（按时间排序）
-     * 2. 遍历相邻 K 线，检查时间间隔是否符合周期
-     * 3. 如果间隔大于预期，则记录为缺口
+     * 基于时间连续性检测算法（在数据库中执行）：
+     * 1. 按开盘时间用 LEAD() 取每根 K 线的下一根开盘时间
+     * 2. 检查相邻间隔是否符合周期
+     * 3. 如果间隔大于预期且不与已有缺口重叠，则记录为新缺口
+     * 
+     * 默认增量检测，只扫描水位线之后的数据
      * 
      * @param symbolId 交易对ID
      * @param interval 时间周期
      * @return 检测结果
      */
-    @Transactional
     public GapDetectResult detectGaps(Long symbolId, String interval) {
+        return detectGaps(symbolId, interval, false);
+    }
+
+    /**
+     * 检测单个交易对单个周期的数据缺口
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param fullScan 是否忽略水位线全量检测
+     * @return 检测结果
+     */
+    @Transactional
+    public GapDetectResult detectGaps(Long symbolId, String interval, boolean fullScan) {
         // 校验参数
         validateSymbolId(symbolId);
         validateInterval(interval);
@@ -140,14 +158,8 @@ public class DataGapService {
             return GapDetectResult.failure("交易对不符合缺口检测条件");
         }
         
-        // 执行检测
-        List<DataGap> newGaps = detectGapsForSymbolInterval(symbolId, interval);
-        
-        // 保存新检测到的缺口
-        int newGapCount = 0;
-        if (!newGaps.isEmpty()) {
-            newGapCount = saveNewGaps(newGaps);
-        }
+        // 执行检测并保存新检测到的缺口
+        int newGapCount = detectAndSaveGaps(symbolId, interval, fullScan).size();
         
         // 查询该交易对该周期的所有缺口
         List<DataGap> allGaps = dataGapMapper.selectBySymbolIdAndInterval(symbolId, interval);
@@ -175,10 +187,22 @@ public class DataGapService {
      * - 交易对 history_sync_enabled = true
      * - 交易对配置了 sync_intervals
      * 
+     * 默认增量检测，每个交易对周期只扫描水位线之后的数据
+     * 
      * @return 检测结果
      */
-    @Transactional
     public GapDetectResult detectAllGaps() {
+        return detectAllGaps(false);
+    }
+
+    /**
+     * 批量检测所有符合条件的交易对的数据缺口
+     * 
+     * @param fullScan 是否忽略水位线全量检测
+     * @return 检测结果
+     */
+    @Transactional
+    public GapDetectResult detectAllGaps(boolean fullScan) {
         // 获取符合条件的交易对
         List<SymbolDTO> targets = syncFilterService.getGapDetectTargets();
         
@@ -196,16 +220,12 @@ public class DataGapService {
             
             for (String interval : intervals) {
                 try {
-                    List<DataGap> newGaps = detectGapsForSymbolInterval(symbolDTO.getId(), interval);
+                    List<DataGap> newGaps = detectAndSaveGaps(symbolDTO.getId(), interval, fullScan);
+                    totalNewGaps += newGaps.size();
                     
-                    if (!newGaps.isEmpty()) {
-                        int saved = saveNewGaps(newGaps);
-                        totalNewGaps += saved;
-                        
-                        // 转换为 DTO
-                        for (DataGap gap : newGaps) {
-                            allNewGaps.add(toDTO(gap, symbolDTO));
-                        }
+                    // 转换为 DTO
+                    for (DataGap gap : newGaps) {
+                        allNewGaps.add(toDTO(gap, symbolDTO));
                     }
                     
                     totalIntervals++;
@@ -223,8 +243,8 @@ public class DataGapService {
                             dataGapMapper.countByStatus(STATUS_FILLING) +
                             dataGapMapper.countByStatus(STATUS_FAILED);
         
-        log.info("Batch gap detection completed: symbols={}, intervals={}, newGaps={}, totalGaps={}",
-                totalSymbols, totalIntervals, totalNewGaps, totalGapCount);
+        log.info("Batch gap detection completed: symbols={}, intervals={}, newGaps={}, totalGaps={}, fullScan={}",
+                totalSymbols, totalIntervals, totalNewGaps, totalGapCount, fullScan);
         
         return GapDetectResult.success(
                 "批量缺口检测完成",
@@ -236,70 +256,72 @@ public class DataGapService {
         );
     }
 
+    /**
+     * 检测并保存单个交易对单个周期的新缺口，然后推进水位线
+     * 
+     * 水位线 [gap_checked_from, gap_checked_until] 为上次检测时的最早/最新开盘时间，区间内的缺口均已记录：
+     * - 增量检测从 gap_checked_until 开始扫描（包含该根，以发现它与新数据之间的缺口）
+     * - 水位线缺失（首次检测、删除了已检测区间的数据）或出现早于 gap_checked_from 的数据（向前补历史）时全量扫描
+     * - 最早/最新开盘时间在扫描前读取，扫描期间新写入的数据在下次检测中覆盖
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param fullScan 是否强制全量扫描
+     * @return 新缺口列表
+     */
+    private List<DataGap> detectAndSaveGaps(Long symbolId, String interval, boolean fullScan) {
+        Instant earliest = klineMapper.selectMinOpenTimeBySymbolIdAndInterval(symbolId, interval);
+        if (earliest == null) {
+            return Collections.emptyList();
+        }
+        Instant latest = klineMapper.selectMaxOpenTimeBySymbolIdAndInterval(symbolId, interval);
+        
+        Instant scanFrom = fullScan ? Instant.EPOCH : resolveScanFrom(symbolId, interval, earliest);
+        List<DataGap> gaps = detectGapsForSymbolInterval(symbolId, interval, scanFrom);
+        saveNewGaps(gaps);
+        
+        syncStatusMapper.upsertGapWatermark(symbolId, interval, earliest, latest);
+        log.debug("Gap detection scanned: symbolId={}, interval={}, from={}, watermark={}, newGaps={}",
+                symbolId, interval, scanFrom, latest, gaps.size());
+        return gaps;
+    }
+
+    /**
+     * 根据水位线确定扫描起点，需要全量扫描时返回 Instant.EPOCH
+     */
+    private Instant resolveScanFrom(Long symbolId, String interval, Instant earliest) {
+        SyncStatus status = syncStatusMapper.selectBySymbolIdAndInterval(symbolId, interval);
+        if (status == null || status.getGapCheckedFrom() == null || status.getGapCheckedUntil() == null) {
+            return Instant.EPOCH;
+        }
+        if (earliest.isBefore(status.getGapCheckedFrom())) {
+            return Instant.EPOCH;
+        }
+        return status.getGapCheckedUntil();
+    }
+
     /**
      * 检测单个交易对单个周期的缺口（内部方法）
      * 
+     * 相邻 K 线比较和已有缺口去重均在数据库中完成，只返回新缺口的边界
+     * 
      * @param symbolId 交易对ID
      * @param interval 时间周期
+     * @param scanFrom 扫描起点（包含）
      * @return 检测到的新缺口列表
      */
-    private List<DataGap> detectGapsForSymbolInterval(Long symbolId, String interval) {
+    List<DataGap> detectGapsForSymbolInterval(Long symbolId, String interval, Instant scanFrom) {
         // 获取该周期的时间间隔（毫秒）
         long intervalMs = getIntervalMillis(interval);
         
-        // 获取所有 K 线数据（按时间排序）
-        List<Kline> klines = klineMapper.selectBySymbolIdAndInterval(symbolId, interval);
+        List<DataGap> gaps = dataGapMapper.selectNewGapBoundaries(
+                symbolId, interval, scanFrom, intervalMs, GAP_TOLERANCE_MS);
         
-        if (klines.size() < 2) {
-            // 数据不足，无法检测缺口
-            return Collections.emptyList();
-        }
-        
-        List<DataGap> gaps = new ArrayList<>();
-        
-        // 遍历相邻 K 线，检测缺口
-        for (int i = 0; i < klines.size() - 1; i++) {
-            Kline current = klines.get(i);
-            Kline next = klines.get(i + 1);
-            
-            // 计算实际时间间隔
-            long actualGap = Duration.between(current.getOpenTime(), next.getOpenTime()).toMillis();
-            
-            // 允许一定的误差（1秒）
-            long tolerance = 1000;
-            
-            // 如果实际间隔大于预期间隔（加上容差），则存在缺口
-            if (actualGap > intervalMs + tolerance) {
-                // 计算缺失的 K 线数量
-                int missingCount = (int) ((actualGap - intervalMs) / intervalMs);
-                
-                if (missingCount > 0) {
-                    // 缺口开始时间 = 当前 K 线的下一个周期开始时间
-                    Instant gapStart = current.getOpenTime().plusMillis(intervalMs);
-                    // 缺口结束时间 = 下一根 K 线的前一个周期开始时间
-                    Instant gapEnd = next.getOpenTime().minusMillis(intervalMs);
-                    
-                    // 确保 gapEnd >= gapStart
-                    if (!gapEnd.isBefore(gapStart)) {
-                        // 检查是否已存在重叠的缺口
-                        List<DataGap> existing = dataGapMapper.selectOverlapping(
-                                symbolId, interval, gapStart, gapEnd);
-                        
-                        if (existing.isEmpty()) {
-                            DataGap gap = DataGap.builder()
-                                    .symbolId(symbolId)
-                                    .interval(interval)
-                                    .gapStart(gapStart)
-                                    .gapEnd(gapEnd)
-                                    .missingCount(missingCount)
-                                    .status(STATUS_PENDING)
-                                    .retryCount(0)
-                                    .build();
-                            gaps.add(gap);
-                        }
-                    }
-                }
-            }
+        for (DataGap gap : gaps) {
+            gap.setSymbolId(symbolId);
+            gap.setInterval(interval);
+            gap.setStatus(STATUS_PENDING);
+            gap.setRetryCount(0);
         }
         
         return gaps;
@@ -320,6 +342,61 @@ public class DataGapService {
         return dataGapMapper.batchInsert(gaps);
     }
 
+    /**
+     * 记录已确认未落库的 K 线为待回补缺口（写库最终失败时调用，无需等待下次检测）
+     * 
+     * 连续的开盘时间合并为一个缺口；与未完成（非 FILLED）缺口重叠的部分已在回补队列中，跳过
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param openTimes 未落库的开盘时间
+     * @return 新增的缺口数量
+     */
+    @Transactional
+    public int recordMissing(Long symbolId, String interval, Collection<Instant> openTimes) {
+        if (openTimes.isEmpty()) {
+            return 0;
+        }
+        long intervalMs = getIntervalMillis(interval);
+        List<Instant> sorted = openTimes.stream().distinct().sorted().toList();
+        List<DataGap> gaps = new ArrayList<>();
+        Instant runStart = sorted.get(0);
+        Instant runEnd = runStart;
+        int runCount = 1;
+        for (int i = 1; i <= sorted.size(); i++) {
+            Instant next = i < sorted.size() ? sorted.get(i) : null;
+            if (next != null && next.toEpochMilli() - runEnd.toEpochMilli() <= intervalMs + GAP_TOLERANCE_MS) {
+                runEnd = next;
+                runCount++;
+                continue;
+            }
+            boolean queued = dataGapMapper.selectOverlapping(symbolId, interval, runStart, runEnd).stream()
+                    .anyMatch(gap -> !STATUS_FILLED.equals(gap.getStatus()));
+            if (!queued) {
+                gaps.add(DataGap.builder()
+                        .symbolId(symbolId)
+                        .interval(interval)
+                        .gapStart(runStart)
+                        .gapEnd(runEnd)
+                        .missingCount(runCount)
+                        .status(STATUS_PENDING)
+                        .retryCount(0)
+                        .build());
+            }
+            if (next != null) {
+                runStart = next;
+                runEnd = next;
+                runCount = 1;
+            }
+        }
+        int saved = saveNewGaps(gaps);
+        if (saved > 0) {
+            log.info("Recorded gaps for unwritten klines: symbolId={}, interval={}, klines={}, gaps={}",
+                    symbolId, interval, sorted.size(), saved);
+        }
+        return saved;
+    }
+
     /**
      * 获取周期对应的毫秒数
      * 
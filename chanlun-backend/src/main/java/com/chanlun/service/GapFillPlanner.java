@@ -0,0 +1,133 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.DataGap;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 缺口回补计划
+ *
+ * 把同一 (交易对, 周期) 的缺口合并为尽量少的拉取窗口：
+ * - 重叠或相邻的缺口总是合并
+ * - 相隔不远的缺口，若合并后的分页请求数不多于分别拉取，则连同中间已有数据一起拉取（重复数据由 upsert 覆盖）
+ *
+ * 窗口内的请求数 = ceil(K 线根数 / 单次请求上限)
+ *
+ * @author Chanlun Team
+ */
+public final class GapFillPlanner {
+
+    private GapFillPlanner() {
+    }
+
+    /**
+     * 拉取窗口
+     *
+     * @param start 第一根开盘时间（包含）
+     * @param end 最后一根开盘时间（包含）
+     * @param gapIds 窗口覆盖的缺口ID
+     */
+    public record FillWindow(Instant start, Instant end, List<Long> gapIds) {
+
+        /**
+         * 窗口内 K 线根数
+         */
+        public long candles(long intervalMs) {
+            return countCandles(start, end, intervalMs);
+        }
+
+        /**
+         * 拉取窗口所需请求数
+         */
+        public long requests(long intervalMs, int maxPerRequest) {
+            return countRequests(candles(intervalMs), maxPerRequest);
+        }
+
+        private static long countCandles(Instant start, Instant end, long intervalMs) {
+            return Math.max(0, end.toEpochMilli() - start.toEpochMilli()) / intervalMs + 1;
+        }
+
+        private static long countRequests(long candles, int maxPerRequest) {
+            return (candles + maxPerRequest - 1) / maxPerRequest;
+        }
+    }
+
+    /**
+     * 生成回补计划
+     *
+     * @param gaps 同一交易对周期的缺口
+     * @param intervalMs 周期毫秒数
+     * @param maxPerRequest 单次请求最多返回的 K 线数量
+     * @return 按开始时间升序的拉取窗口
+     */
+    public static List<FillWindow> plan(List<DataGap> gaps, long intervalMs, int maxPerRequest) {
+        List<DataGap> sorted = new ArrayList<>(gaps);
+        sorted.sort(Comparator.comparing(DataGap::getGapStart).thenComparing(DataGap::getGapEnd));
+
+        List<FillWindow> windows = new ArrayList<>();
+        Instant start = null;
+        Instant end = null;
+        List<Long> ids = new ArrayList<>();
+
+        for (DataGap gap : sorted) {
+            if (start != null && shouldMerge(start, end, gap, intervalMs, maxPerRequest)) {
+                if (gap.getGapEnd().isAfter(end)) {
+                    end = gap.getGapEnd();
+                }
+                ids.add(gap.getId());
+                continue;
+            }
+            if (start != null) {
+                windows.add(new FillWindow(start, end, List.copyOf(ids)));
+            }
+            start = gap.getGapStart();
+            end = gap.getGapEnd();
+            ids = new ArrayList<>();
+            ids.add(gap.getId());
+        }
+        if (start != null) {
+            windows.add(new FillWindow(start, end, List.copyOf(ids)));
+        }
+        return windows;
+    }
+
+    /**
+     * 生成回补计划并返回包含指定缺口的窗口
+     *
+     * @param primary 已领取的缺口
+     * @param pending 同一交易对周期的其他待回补缺口
+     * @param intervalMs 周期毫秒数
+     * @param maxPerRequest 单次请求最多返回的 K 线数量
+     * @return 包含 primary 的窗口
+     */
+    public static FillWindow windowFor(DataGap primary, List<DataGap> pending, long intervalMs, int maxPerRequest) {
+        List<DataGap> gaps = new ArrayList<>(pending.size() + 1);
+        gaps.add(primary);
+        for (DataGap gap : pending) {
+            if (!gap.getId().equals(primary.getId())) {
+                gaps.add(gap);
+            }
+        }
+        for (FillWindow window : plan(gaps, intervalMs, maxPerRequest)) {
+            if (window.gapIds().contains(primary.getId())) {
+                return window;
+            }
+        }
+        return new FillWindow(primary.getGapStart(), primary.getGapEnd(), List.of(primary.getId()));
+    }
+
+    private static boolean shouldMerge(Instant start, Instant end, DataGap gap, long intervalMs, int maxPerRequest) {
+        // 重叠或相邻
+        if (!gap.getGapStart().isAfter(end.plusMillis(intervalMs))) {
+            return true;
+        }
+        Instant mergedEnd = gap.getGapEnd().isAfter(end) ? gap.getGapEnd() : end;
+        long separate = FillWindow.countRequests(FillWindow.countCandles(start, end, intervalMs), maxPerRequest)
+                + FillWindow.countRequests(FillWindow.countCandles(gap.getGapStart(), gap.getGapEnd(), intervalMs), maxPerRequest);
+        long merged = FillWindow.countRequests(FillWindow.countCandles(start, mergedEnd, intervalMs), maxPerRequest);
+        return merged <= separate;
+    }
+}
@@ -5,25 +5,46 @@ import com.chanlun.entity.*;
 import com.chanlun.exception.BusinessException;
 import com.chanlun.exchange.BinanceClient;
 import com.chanlun.exchange.BinanceClientFactory;
+import com.chanlun.exchange.BinanceRateLimiter;
 import com.chanlun.exchange.model.BinanceApiResponse;
-import com.chanlun.exchange.model.BinanceKline;
 import com.chanlun.mapper.DataGapMapper;
+import com.chanlun.service.GapFillPlanner.FillWindow;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
 
 /**
  * 缺口回补服务
  * 
  * 提供数据缺口的回补功能：
  * - 单个缺口回补
- * - 批量缺口回补（带限流）
+ * - 批量缺口回补（工作线程池并发，同一交易对周期串行）
  * - 自动缺口回补（检查全局和周期级开关）
+ * - 缺口领取（FOR UPDATE SKIP LOCKED，多实例安全）
+ * - 相邻缺口合并回补（按单次请求上限规划拉取窗口）
  * - 回补状态流转
  * - 回补重试机制
  * 
@@ -50,26 +71,36 @@ public class GapFillService {
     private static final int MAX_KLINES_PER_REQUEST = 1000;
 
     /**
-     * API 请求间隔（毫秒），防止限流
+     * 领取时候选交易对周期数量相对领取数量的倍数
      */
-    private static final long REQUEST_INTERVAL_MS = 200;
+    private static final int CLAIM_SCAN_FACTOR = 4;
+
+    /**
+     * FILLING 缺口超过该时长未刷新心跳视为实例中断，退回 PENDING
+     */
+    private static final Duration STALE_FILLING_THRESHOLD = Duration.ofMinutes(30);
+
+    /**
+     * 并发回补工作线程数（实际吞吐由共享限流器约束）
+     */
+    @Value("${app.sync.gap-fill.workers:4}")
+    private int workers = 4;
 
     /**
      * 回补单个缺口
      * 
      * 流程：
      * 1. 校验缺口状态（只有 PENDING 状态可以回补）
-     * 2. 更新状态为 FILLING
-     * 3. 创建 sync_task 记录（task_type=GAP_FILL）
-     * 4. 从交易所拉取缺口时间范围内的 K 线数据
-     * 5. 保存 K 线数据
-     * 6. 更新缺口状态为 FILLED
+     * 2. 领取缺口，状态更新为 FILLING（同一交易对周期已有缺口在回补时拒绝）
+     * 3. 与同一交易对周期相邻的待回补缺口合并为拉取窗口
+     * 4. 创建 sync_task 记录（task_type=GAP_FILL）
+     * 5. 从交易所拉取窗口时间范围内的 K 线数据，保存 K 线数据（每页独立提交）
+     * 6. 窗口覆盖的缺口一次性更新为 FILLED
      * 7. 更新 sync_status
      * 
      * @param gapId 缺口ID
      * @return 回补结果
      */
-    @Transactional
     public GapFillResult fillGap(Long gapId) {
         // 获取缺口信息
         DataGap gap = dataGapService.findById(gapId);
@@ -85,63 +116,18 @@ public class GapFillService {
         // 校验数据源和市场状态
         validateDataSourceAndMarket(dataSource, market);
         
-        // 更新缺口状态为 FILLING
-        dataGapService.updateStatus(gapId, DataGapService.STATUS_FILLING);
-        
-        // 创建 sync_task 记录
-        SyncTask task = syncService.createGapFillTask(
-                gap.getSymbolId(), 
-                gap.getInterval(), 
-                gap.getGapStart(), 
-                gap.getGapEnd());
-        
-        try {
-            // 开始任务
-            syncService.startTask(task.getId());
-            
-            // 创建币安客户端
-            BinanceClient client = binanceClientFactory.createClient(dataSource);
-            
-            try {
-                // 拉取缺口时间范围内的 K 线数据
-                int syncedCount = fetchAndSaveKlines(client, symbol.getSymbol(), 
-                        gap.getSymbolId(), gap.getInterval(), gap.getGapStart(), gap.getGapEnd());
-                
-                // 完成任务
-                syncService.completeTask(task.getId(), syncedCount);
-                
-                // 更新缺口状态为 FILLED
-                dataGapService.updateStatus(gapId, DataGapService.STATUS_FILLED);
-                
-                // 更新 sync_status
-                updateSyncStatusAfterFill(gap.getSymbolId(), gap.getInterval(), syncedCount);
-                
-                log.info("Gap fill completed: gapId={}, symbolId={}, interval={}, synced={}", 
-                        gapId, gap.getSymbolId(), gap.getInterval(), syncedCount);
-                
-                return GapFillResult.success(gapId, syncedCount, "缺口回补成功");
-                
-            } finally {
-                client.close();
-            }
-            
-        } catch (Exception e) {
-            // 任务失败
-            syncService.failTask(task.getId(), e.getMessage());
-            
-            // 处理回补失败
-            handleFillFailure(gap, e.getMessage());
-            
-            log.error("Gap fill failed: gapId={}, error={}", gapId, e.getMessage());
-            return GapFillResult.failure(gapId, "缺口回补失败: " + e.getMessage());
+        // 领取缺口（状态更新为 FILLING）
+        if (!claimById(gapId)) {
+            throw new BusinessException("该交易对周期已有缺口正在回补，请稍后再试");
         }
+        
+        return fillClaimedGap(gap, symbol, dataSource);
     }
 
-
     /**
-     * 批量回补缺口（带限流）
+     * 批量回补缺口
      * 
-     * 按照配置的批量大小和间隔时间进行回补，防止 API 限流
+     * 校验后由工作线程池并发回补，同一交易对周期串行，请求节奏由共享权重限流器控制
      * 
      * @param gapIds 缺口ID列表
      * @return 批量回补结果
@@ -151,27 +137,28 @@ public class GapFillService {
             return BatchGapFillResult.empty();
         }
         
-        // 获取配置
-        long intervalMs = systemConfigService.getGapFillIntervalMs();
-        
-        BatchGapFillResult result = new BatchGapFillResult();
-        
-        for (Long gapId : gapIds) {
+        BatchGapFillResult invalid = new BatchGapFillResult();
+        List<Long> candidates = new ArrayList<>();
+        for (Long gapId : new LinkedHashSet<>(gapIds)) {
             try {
-                GapFillResult fillResult = fillGap(gapId);
-                
-                if (fillResult.isSuccess()) {
-                    result.addSuccess(fillResult);
-                } else {
-                    result.addFailure(fillResult);
-                }
-                
-                // 防止限流，等待指定间隔
-                sleepBetweenRequests(intervalMs);
-                
+                validateGapForFill(dataGapService.findById(gapId));
+                candidates.add(gapId);
             } catch (Exception e) {
                 log.error("Batch fill gap failed: gapId={}, error={}", gapId, e.getMessage());
-                result.addFailure(GapFillResult.failure(gapId, e.getMessage()));
+                invalid.addFailure(GapFillResult.failure(gapId, e.getMessage()));
+            }
+        }
+        
+        BatchGapFillResult result = candidates.isEmpty()
+                ? new BatchGapFillResult()
+                : runWorkers((limit, excluded) -> claimPending(limit, false, candidates, excluded), candidates.size());
+        result.merge(invalid);
+        
+        // 未领取到的缺口（被其他实例领取或状态已变化）
+        Set<Long> processed = result.processedGapIds();
+        for (Long gapId : candidates) {
+            if (!processed.contains(gapId)) {
+                result.addFailure(GapFillResult.failure(gapId, "缺口正在回补中，请稍后再试"));
             }
         }
         
@@ -184,7 +171,7 @@ public class GapFillService {
     /**
      * 自动回补缺口
      * 
-     * 检查全局开关和周期级开关，只回补符合条件的缺口
+     * 检查全局开关，只领取开启周期级自动回补的缺口，单次最多回补 batchSize 个
      * 
      * @return 自动回补结果
      */
@@ -195,60 +182,219 @@ public class GapFillService {
             return BatchGapFillResult.disabled("全局自动回补开关已关闭");
         }
         
-        // 获取配置
-        int batchSize = systemConfigService.getGapFillBatchSize();
-        long intervalMs = systemConfigService.getGapFillIntervalMs();
+        // 释放崩溃实例遗留的 FILLING 缺口
+        releaseStaleFilling();
         
-        // 获取待回补的缺口
-        List<DataGap> pendingGaps = dataGapMapper.selectPendingWithLimit(batchSize);
+        int batchSize = systemConfigService.getGapFillBatchSize();
+        BatchGapFillResult result = runWorkers((limit, excluded) -> claimPending(limit, true, null, excluded), batchSize);
         
-        if (pendingGaps.isEmpty()) {
+        if (result.getTotalCount() == 0) {
             log.debug("No pending gaps to fill");
             return BatchGapFillResult.empty();
         }
         
+        log.info("Auto gap fill completed: total={}, success={}, failed={}, skipped={}", 
+                result.getTotalCount(), result.getSuccessCount(), result.getFailureCount(), result.getSkippedCount());
+        
+        return result;
+    }
+
+    /**
+     * 并发回补：工作线程有空位时领取缺口，直到领取不到或达到上限
+     * 
+     * 领取由数据库完成（每个交易对周期同时最多一个 FILLING），
+     * 同一交易对周期的下一条缺口在前一条完成后才能被领取。
+     * 数据源或市场不可用而退回 PENDING 的交易对在本轮剩余时间内不再领取，避免反复领取同一缺口耗尽 maxGaps
+     * 
+     * @param claimer 领取函数，参数为本次最多领取数量和本轮排除的交易对ID
+     * @param maxGaps 本次最多回补数量
+     */
+    private BatchGapFillResult runWorkers(BiFunction<Integer, List<Long>, List<DataGap>> claimer, int maxGaps) {
         BatchGapFillResult result = new BatchGapFillResult();
+        int threads = Math.max(1, Math.min(workers, maxGaps));
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "gap-fill-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<GapFillResult> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<GapFillResult>, Long> inFlight = new HashMap<>();
+        Set<Long> unavailableSymbols = ConcurrentHashMap.newKeySet();
+        int claimed = 0;
         
-        for (DataGap gap : pendingGaps) {
-            try {
-                // 检查周期级自动回补开关
-                if (!isAutoGapFillEnabledForInterval(gap.getSymbolId(), gap.getInterval())) {
-                    log.debug("Auto gap fill disabled for symbolId={}, interval={}", 
-                            gap.getSymbolId(), gap.getInterval());
-                    result.addSkipped(gap.getId(), "周期级自动回补开关已关闭");
-                    continue;
+        try {
+            while (true) {
+                List<DataGap> gaps = Collections.emptyList();
+                if (inFlight.size() < threads && claimed < maxGaps) {
+                    gaps = claimer.apply(Math.min(threads - inFlight.size(), maxGaps - claimed),
+                            List.copyOf(unavailableSymbols));
+                    for (DataGap gap : gaps) {
+                        inFlight.put(completion.submit(() -> fillClaimedGap(gap, unavailableSymbols)), gap.getId());
+                        claimed++;
+                    }
                 }
-                
-                // 执行回补
-                GapFillResult fillResult = fillGap(gap.getId());
-                
-                if (fillResult.isSuccess()) {
-                    result.addSuccess(fillResult);
-                } else {
-                    result.addFailure(fillResult);
+                if (inFlight.isEmpty()) {
+                    break;
                 }
-                
-                // 防止限流
-                sleepBetweenRequests(intervalMs);
-                
-            } catch (Exception e) {
-                log.error("Auto fill gap failed: gapId={}, error={}", gap.getId(), e.getMessage());
-                result.addFailure(GapFillResult.failure(gap.getId(), e.getMessage()));
+                // 仍有空位且刚领取到缺口时继续领取，否则等待一个缺口完成
+                if (!gaps.isEmpty() && inFlight.size() < threads && claimed < maxGaps) {
+                    continue;
+                }
+                Future<GapFillResult> done = completion.take();
+                collect(result, done, inFlight.remove(done));
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("回补被中断");
+        } finally {
+            executor.shutdownNow();
         }
-        
-        log.info("Auto gap fill completed: total={}, success={}, failed={}, skipped={}", 
-                result.getTotalCount(), result.getSuccessCount(), result.getFailureCount(), result.getSkippedCount());
-        
         return result;
     }
 
     /**
-     * 检查指定交易对和周期的自动回补开关是否启用
+     * 汇总单个缺口的回补结果
      */
-    private boolean isAutoGapFillEnabledForInterval(Long symbolId, String interval) {
-        SyncStatus status = syncService.getSyncStatus(symbolId, interval);
-        return status != null && Boolean.TRUE.equals(status.getAutoGapFillEnabled());
+    private void collect(BatchGapFillResult result, Future<GapFillResult> future, Long gapId) {
+        try {
+            GapFillResult fillResult = future.get();
+            if (fillResult.isSuccess()) {
+                result.addSuccess(fillResult);
+            } else {
+                result.addFailure(fillResult);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("回补被中断");
+        } catch (ExecutionException e) {
+            String message = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            log.error("Fill gap failed: gapId={}, error={}", gapId, message);
+            result.addFailure(GapFillResult.failure(gapId, message));
+        }
+    }
+
+    /**
+     * 领取待回补缺口
+     * 
+     * 与其他实例同时领取同一交易对周期时被唯一索引拒绝，视为本轮未领取到
+     */
+    private List<DataGap> claimPending(int limit, boolean autoOnly, List<Long> ids, List<Long> excludeSymbolIds) {
+        try {
+            return dataGapMapper.claimPending(limit, limit * CLAIM_SCAN_FACTOR, autoOnly, ids, excludeSymbolIds);
+        } catch (DuplicateKeyException e) {
+            log.debug("Gap claim conflicted with another instance: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 领取指定缺口
+     */
+    private boolean claimById(Long gapId) {
+        try {
+            return dataGapMapper.claimById(gapId) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 释放超时未更新的 FILLING 缺口
+     */
+    private void releaseStaleFilling() {
+        int released = dataGapMapper.releaseStaleFilling(
+                Instant.now().minus(STALE_FILLING_THRESHOLD), "回补超时未完成，已退回待回补");
+        if (released > 0) {
+            log.warn("Released {} stale FILLING gaps", released);
+        }
+    }
+
+    /**
+     * 回补已领取的缺口（工作线程）
+     * 
+     * 数据源或市场不可用时退回 PENDING，不计入重试次数，并把交易对加入本轮排除集合
+     */
+    private GapFillResult fillClaimedGap(DataGap gap, Set<Long> unavailableSymbols) {
+        Symbol symbol;
+        DataSource dataSource;
+        try {
+            symbol = symbolService.findById(gap.getSymbolId());
+            Market market = marketService.findById(symbol.getMarketId());
+            dataSource = dataSourceService.findById(market.getDataSourceId());
+            validateDataSourceAndMarket(dataSource, market);
+        } catch (Exception e) {
+            unavailableSymbols.add(gap.getSymbolId());
+            dataGapService.updateStatusAndError(gap.getId(), DataGapService.STATUS_PENDING, e.getMessage());
+            log.warn("Gap fill skipped: gapId={}, error={}", gap.getId(), e.getMessage());
+            return GapFillResult.failure(gap.getId(), e.getMessage());
+        }
+        return fillClaimedGap(gap, symbol, dataSource);
+    }
+
+    /**
+     * 回补已领取（FILLING）的缺口
+     * 
+     * 不开启外层事务，每页 K 线由 batchUpsert 独立提交，并刷新缺口心跳
+     */
+    private GapFillResult fillClaimedGap(DataGap gap, Symbol symbol, DataSource dataSource) {
+        Long gapId = gap.getId();
+        SyncTask task = null;
+        
+        try {
+            // 合并同一交易对周期的相邻缺口
+            FillWindow window = planWindow(gap);
+            
+            // 创建并开始 sync_task
+            task = syncService.createGapFillTask(
+                    gap.getSymbolId(), 
+                    gap.getInterval(), 
+                    window.start(), 
+                    window.end());
+            syncService.startTask(task.getId());
+            
+            // 创建币安客户端
+            BinanceClient client = binanceClientFactory.createClient(dataSource);
+            client.setRequestPriority(BinanceRateLimiter.Priority.GAP_FILL);
+            
+            try {
+                // 拉取窗口时间范围内的 K 线数据
+                int syncedCount = fetchAndSaveKlines(client, gapId, symbol.getSymbol(), 
+                        gap.getSymbolId(), gap.getInterval(), window.start(), window.end());
+                
+                // 完成任务
+                syncService.completeTask(task.getId(), syncedCount);
+                
+                // 窗口覆盖的缺口一次性更新为 FILLED
+                dataGapMapper.markFilled(window.gapIds());
+                
+                // 更新 sync_status
+                updateSyncStatusAfterFill(gap.getSymbolId(), gap.getInterval(), syncedCount);
+                
+                log.info("Gap fill completed: gapId={}, symbolId={}, interval={}, coveredGaps={}, synced={}", 
+                        gapId, gap.getSymbolId(), gap.getInterval(), window.gapIds().size(), syncedCount);
+                
+                String message = window.gapIds().size() > 1
+                        ? "缺口回补成功（合并回补 " + window.gapIds().size() + " 个缺口）"
+                        : "缺口回补成功";
+                return GapFillResult.success(gapId, syncedCount, window.gapIds(), message);
+                
+            } finally {
+                client.close();
+            }
+            
+        } catch (Exception e) {
+            // 任务失败
+            if (task != null) {
+                syncService.failTask(task.getId(), e.getMessage());
+            }
+            
+            // 处理回补失败
+            handleFillFailure(gap, e.getMessage());
+            
+            log.error("Gap fill failed: gapId={}, error={}", gapId, e.getMessage());
+            return GapFillResult.failure(gapId, "缺口回补失败: " + e.getMessage());
+        }
     }
 
     /**
@@ -291,75 +437,61 @@ public class GapFillService {
     }
 
 
+    /**
+     * 计算已领取缺口的回补窗口
+     * 
+     * 同一交易对周期的其他 PENDING 缺口不会被其他工作线程或实例领取（该交易对周期已有 FILLING），
+     * 可与已领取缺口合并拉取，完成时一并标记为 FILLED
+     */
+    private FillWindow planWindow(DataGap gap) {
+        List<DataGap> pending = dataGapMapper.selectBySymbolIdAndIntervalAndStatus(
+                gap.getSymbolId(), gap.getInterval(), DataGapService.STATUS_PENDING);
+        long intervalMs = DataGapService.getIntervalMillis(gap.getInterval());
+        return GapFillPlanner.windowFor(gap, pending, intervalMs, MAX_KLINES_PER_REQUEST);
+    }
+
     /**
      * 拉取并保存 K 线数据
      */
-    private int fetchAndSaveKlines(BinanceClient client, String symbolCode, Long symbolId,
+    private int fetchAndSaveKlines(BinanceClient client, Long gapId, String symbolCode, Long symbolId,
                                     String interval, Instant startTime, Instant endTime) {
         int totalSynced = 0;
         Instant currentStart = startTime;
         
         while (currentStart.isBefore(endTime) || currentStart.equals(endTime)) {
             // 调用 API 获取 K 线数据
-            BinanceApiResponse<List<BinanceKline>> response = client.getKlines(
-                    symbolCode, interval, currentStart, endTime, MAX_KLINES_PER_REQUEST);
+            BinanceApiResponse<List<Kline>> response = client.getKlineEntities(
+                    symbolId, symbolCode, interval, currentStart, endTime, MAX_KLINES_PER_REQUEST);
             
             if (!response.isSuccess()) {
                 throw new BusinessException("获取 K 线数据失败: " + response.getMessage());
             }
             
-            List<BinanceKline> klines = response.getData();
+            List<Kline> klines = response.getData();
             if (klines == null || klines.isEmpty()) {
                 break;
             }
             
-            // 转换并保存 K 线数据
-            List<Kline> entities = convertToEntities(klines, symbolId, interval);
-            int saved = klineService.batchUpsert(entities);
+            // 保存 K 线数据（响应已直接解析为实体）
+            int saved = klineService.batchUpsert(klines);
             totalSynced += saved;
             
+            // 回补心跳
+            dataGapMapper.touchFilling(gapId);
+            
             // 如果返回数量小于请求数量，说明已经没有更多数据
             if (klines.size() < MAX_KLINES_PER_REQUEST) {
                 break;
             }
             
             // 更新下一次请求的开始时间（最后一根 K 线的开盘时间 + 1ms）
-            BinanceKline lastKline = klines.get(klines.size() - 1);
-            currentStart = Instant.ofEpochMilli(lastKline.getOpenTime() + 1);
-            
-            // 防止限流
-            sleepBetweenRequests(REQUEST_INTERVAL_MS);
+            Kline lastKline = klines.get(klines.size() - 1);
+            currentStart = lastKline.getOpenTime().plusMillis(1);
         }
         
         return totalSynced;
     }
 
-    /**
-     * 将币安 K 线数据转换为实体
-     */
-    private List<Kline> convertToEntities(List<BinanceKline> binanceKlines, Long symbolId, String interval) {
-        List<Kline> entities = new ArrayList<>(binanceKlines.size());
-        
-        for (BinanceKline bk : binanceKlines) {
-            Kline kline = Kline.builder()
-                    .symbolId(symbolId)
-                    .interval(interval)
-                    .openTime(bk.getOpenTimeInstant())
-                    .open(bk.getOpen())
-                    .high(bk.getHigh())
-                    .low(bk.getLow())
-                    .close(bk.getClose())
-                    .volume(bk.getVolume())
-                    .quoteVolume(bk.getQuoteVolume())
-                    .trades(bk.getTrades())
-                    .closeTime(bk.getCloseTimeInstant())
-                    .build();
-            entities.add(kline);
-        }
-        
-        return entities;
-    }
-
     /**
      * 回补成功后更新 sync_status
      */
@@ -421,19 +553,6 @@ public class GapFillService {
         return dataGapService.getById(gapId);
     }
 
-    /**
-     * 请求间隔休眠
-     */
-    private void sleepBetweenRequests(long intervalMs) {
-        try {
-            Thread.sleep(intervalMs);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new BusinessException("回补被中断");
-        }
-    }
-
-
     // ==================== 结果类 ====================
 
     /**
@@ -448,11 +567,21 @@ public class GapFillService {
         private int syncedCount;
         private String message;
 
+        /**
+         * 本次回补覆盖的缺口ID（含合并回补的相邻缺口）
+         */
+        private List<Long> coveredGapIds;
+
         public static GapFillResult success(Long gapId, int syncedCount, String message) {
+            return success(gapId, syncedCount, List.of(gapId), message);
+        }
+
+        public static GapFillResult success(Long gapId, int syncedCount, List<Long> coveredGapIds, String message) {
             return GapFillResult.builder()
                     .gapId(gapId)
                     .success(true)
                     .syncedCount(syncedCount)
+                    .coveredGapIds(coveredGapIds)
                     .message(message)
                     .build();
         }
@@ -502,6 +631,31 @@ public class GapFillService {
             skippedGaps.add(new SkippedGap(gapId, reason));
         }
 
+        /**
+         * 合并另一批结果
+         */
+        public void merge(BatchGapFillResult other) {
+            other.getSuccessResults().forEach(this::addSuccess);
+            other.getFailureResults().forEach(this::addFailure);
+            other.getSkippedGaps().forEach(g -> addSkipped(g.getGapId(), g.getReason()));
+        }
+
+        /**
+         * 已处理（成功、失败或跳过）的缺口ID
+         */
+        public Set<Long> processedGapIds() {
+            Set<Long> ids = new HashSet<>();
+            successResults.forEach(r -> {
+                ids.add(r.getGapId());
+                if (r.getCoveredGapIds() != null) {
+                    ids.addAll(r.getCoveredGapIds());
+                }
+            });
+            failureResults.forEach(r -> ids.add(r.getGapId()));
+            skippedGaps.forEach(g -> ids.add(g.getGapId()));
+            return ids;
+        }
+
         public static BatchGapFillResult empty() {
             BatchGapFillResult result = new BatchGapFillResult();
             result.setMessage("没有待回补的缺口");
@@ -5,12 +5,12 @@ import com.chanlun.entity.*;
 import com.chanlun.exception.BusinessException;
 import com.chanlun.exchange.BinanceClient;
 import com.chanlun.exchange.BinanceClientFactory;
+import com.chanlun.exchange.BinanceRateLimiter;
 import com.chanlun.exchange.model.BinanceApiResponse;
-import com.chanlun.exchange.model.BinanceKline;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Duration;
@@ -20,6 +20,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 历史数据同步服务
@@ -27,6 +32,8 @@ import java.util.Set;
  * 提供历史 K 线数据的批量拉取功能：
  * - 分段处理，单次跨度不超过 30 天
  * - 支持手动触发和定时增量同步
+ * - 批量增量同步按 (交易对, 周期, 时间片) 并发执行，共享交易所权重预算
+ * - 每页 K 线独立提交并在 sync_task 上记录断点，失败或重启后从断点续传
  * - 首次启用仅补前一日数据
  * - 同步成功后更新 sync_status
  * 
@@ -54,11 +61,6 @@ public class HistorySyncService {
      */
     private static final int MAX_KLINES_PER_REQUEST = 1000;
 
-    /**
-     * API 请求间隔（毫秒），防止限流
-     */
-    private static final long REQUEST_INTERVAL_MS = 200;
-
     /**
      * 支持的 K 线周期列表
      */
@@ -68,10 +70,27 @@ public class HistorySyncService {
             "1d", "3d", "1w", "1M"
     );
 
+    /**
+     * 批量增量同步并发度（实际吞吐由共享限流器约束）
+     */
+    @Value("${app.sync.history.parallelism:4}")
+    private int parallelism = 4;
+
+    /**
+     * 运行中任务断点超过该时长未更新视为中断
+     */
+    private static final Duration STALE_TASK_THRESHOLD = Duration.ofMinutes(10);
+
+    /**
+     * 单次最多恢复的任务数量
+     */
+    private static final int MAX_RESUME_TASKS = 50;
+
     /**
      * 执行历史数据同步
      * 
-     * 分段拉取指定时间范围的 K 线数据，单次跨度不超过 30 天
+     * 分段拉取指定时间范围的 K 线数据，单次跨度不超过 30 天。
+     * 每页数据由 batchUpsert 独立提交，不在外层开启长事务。
      * 
      * @param symbolId 交易对 ID
      * @param interval 时间周期
@@ -79,8 +98,17 @@ public class HistorySyncService {
      * @param endTime 结束时间
      * @return 同步的 K 线数量
      */
-    @Transactional
     public int syncHistory(Long symbolId, String interval, Instant startTime, Instant endTime) {
+        return executeHistorySync(symbolId, interval, startTime, endTime, true);
+    }
+
+    /**
+     * 执行历史数据同步任务
+     * 
+     * @param updateStatus 是否在完成后更新 sync_status（并发时间片由调用方汇总后统一更新）
+     */
+    private int executeHistorySync(Long symbolId, String interval, Instant startTime, Instant endTime,
+                                   boolean updateStatus) {
         // 校验参数
         validateSyncParams(symbolId, interval, startTime, endTime);
         
@@ -95,23 +123,131 @@ public class HistorySyncService {
         // 创建同步任务
         SyncTask task = syncService.createHistoryTask(symbolId, interval, startTime, endTime);
         
+        return runTask(task.getId(), symbol, dataSource, interval, startTime, endTime, 0, updateStatus);
+    }
+
+    /**
+     * 从断点恢复历史同步任务
+     * 
+     * 从 checkpoint_time 的下一根 K 线继续拉取，已提交的页不会重做。
+     * 失败任务恢复时计入重试次数，达到最大重试次数后不再恢复。
+     * 
+     * @param taskId 任务 ID
+     * @return 本次恢复新同步的 K 线数量
+     */
+    public int resumeTask(Long taskId) {
+        SyncTask task = syncService.getTaskById(taskId);
+        if (task == null) {
+            throw new BusinessException("同步任务不存在: " + taskId);
+        }
+        if (!SyncTask.TaskType.HISTORY.equals(task.getTaskType())) {
+            throw new BusinessException("仅支持恢复历史同步任务");
+        }
+        if (SyncTask.Status.SUCCESS.equals(task.getStatus())) {
+            log.debug("Task already completed: id={}", taskId);
+            return 0;
+        }
+        if (SyncTask.Status.FAILED.equals(task.getStatus()) && !syncService.retryTask(taskId)) {
+            throw new BusinessException("任务已达到最大重试次数: " + taskId);
+        }
+        return resume(task);
+    }
+
+    /**
+     * 从断点继续执行任务
+     * 
+     * @return 本次恢复新同步的 K 线数量
+     */
+    private int resume(SyncTask task) {
+        Long taskId = task.getId();
+        Instant resumeFrom = task.getCheckpointTime() != null
+                ? task.getCheckpointTime().plusMillis(1)
+                : task.getStartTime();
+        int alreadySynced = task.getSyncedCount() != null ? task.getSyncedCount() : 0;
+        
+        Symbol symbol;
+        DataSource dataSource;
+        try {
+            symbol = symbolService.findById(task.getSymbolId());
+            Market market = marketService.findById(symbol.getMarketId());
+            dataSource = dataSourceService.findById(market.getDataSourceId());
+            validateDataSourceAndMarket(dataSource, market);
+        } catch (BusinessException e) {
+            // 已领取的任务不能停留在 RUNNING，否则要等超过中断阈值才会再次恢复
+            syncService.failTask(taskId, e.getMessage());
+            throw e;
+        }
+        
+        log.info("Resuming history sync task: id={}, symbolId={}, interval={}, from {} to {}, alreadySynced={}", 
+                taskId, task.getSymbolId(), task.getInterval(), resumeFrom, task.getEndTime(), alreadySynced);
+        
+        int total = runTask(taskId, symbol, dataSource, task.getInterval(), resumeFrom, task.getEndTime(),
+                alreadySynced, true);
+        return total - alreadySynced;
+    }
+
+    /**
+     * 恢复中断或失败的历史同步任务
+     * 
+     * 运行中但断点超过 {@link #STALE_TASK_THRESHOLD} 未更新的任务视为进程中断遗留。
+     * 每个任务先按查询时的状态原子领取（UPDATE ... RETURNING），多实例同时调度时只有一个实例执行
+     * 
+     * @return 成功恢复的任务数量
+     */
+    public int resumeInterruptedTasks() {
+        Instant staleBefore = Instant.now().minus(STALE_TASK_THRESHOLD);
+        List<SyncTask> tasks = syncService.getResumableHistoryTasks(staleBefore, MAX_RESUME_TASKS);
+        if (tasks == null || tasks.isEmpty()) {
+            return 0;
+        }
+        
+        int resumed = 0;
+        for (SyncTask task : tasks) {
+            try {
+                SyncTask claimed = syncService.claimResumableHistoryTask(task, staleBefore);
+                if (claimed == null) {
+                    log.debug("History sync task already claimed: id={}", task.getId());
+                    continue;
+                }
+                resume(claimed);
+                resumed++;
+            } catch (Exception e) {
+                log.error("Failed to resume history sync task: id={}, error={}", task.getId(), e.getMessage());
+            }
+        }
+        log.info("Resumed {}/{} interrupted history sync tasks", resumed, tasks.size());
+        return resumed;
+    }
+
+    /**
+     * 执行任务主体
+     * 
+     * @param alreadySynced 断点前已同步数量
+     * @return 任务累计同步数量
+     */
+    private int runTask(Long taskId, Symbol symbol, DataSource dataSource, String interval,
+                        Instant fromTime, Instant endTime, int alreadySynced, boolean updateStatus) {
+        Long symbolId = symbol.getId();
         try {
             // 开始任务
-            syncService.startTask(task.getId());
+            syncService.startTask(taskId);
             
             // 创建币安客户端
             BinanceClient client = binanceClientFactory.createClient(dataSource);
+            client.setRequestPriority(BinanceRateLimiter.Priority.HISTORY);
             
             try {
-                // 分段同步
+                // 分段同步，每页提交后记录断点
                 int totalSynced = syncInSegments(client, symbol.getSymbol(), symbolId, 
-                        interval, startTime, endTime, task.getId());
+                        interval, fromTime, endTime, taskId, alreadySynced);
                 
                 // 完成任务
-                syncService.completeTask(task.getId(), totalSynced);
+                syncService.completeTask(taskId, totalSynced);
                 
                 // 更新同步状态
-                updateSyncStatusAfterSync(symbolId, interval, totalSynced);
+                if (updateStatus) {
+                    updateSyncStatusAfterSync(symbolId, interval, totalSynced - alreadySynced);
+                }
                 
                 log.info("History sync completed: symbolId={}, interval={}, synced={}", 
                         symbolId, interval, totalSynced);
@@ -123,8 +259,8 @@ public class HistorySyncService {
             }
             
         } catch (Exception e) {
-            // 任务失败
-            syncService.failTask(task.getId(), e.getMessage());
+            // 任务失败（已提交的页保留，断点停留在最后一页）
+            syncService.failTask(taskId, e.getMessage());
             log.error("History sync failed: symbolId={}, interval={}, error={}", 
                     symbolId, interval, e.getMessage());
             throw new BusinessException("历史数据同步失败: " + e.getMessage());
@@ -141,11 +277,13 @@ public class HistorySyncService {
      * @param startTime 开始时间
      * @param endTime 结束时间
      * @param taskId 任务 ID
-     * @return 同步的 K 线数量
+     * @param alreadySynced 断点前已同步数量
+     * @return 累计同步的 K 线数量
      */
     private int syncInSegments(BinanceClient client, String symbolCode, Long symbolId,
-                                String interval, Instant startTime, Instant endTime, Long taskId) {
-        int totalSynced = 0;
+                                String interval, Instant startTime, Instant endTime, Long taskId,
+                                int alreadySynced) {
+        int totalSynced = alreadySynced;
         Instant segmentStart = startTime;
         
         while (segmentStart.isBefore(endTime)) {
@@ -158,18 +296,11 @@ public class HistorySyncService {
             log.debug("Syncing segment: {} to {}", segmentStart, segmentEnd);
             
             // 同步当前分段
-            int segmentSynced = syncSegment(client, symbolCode, symbolId, interval, 
-                    segmentStart, segmentEnd);
-            totalSynced += segmentSynced;
-            
-            // 更新任务进度
-            syncService.updateSyncedCount(taskId, totalSynced);
+            totalSynced += syncSegment(client, symbolCode, symbolId, interval, 
+                    segmentStart, segmentEnd, taskId, totalSynced);
             
             // 移动到下一个分段
             segmentStart = segmentEnd;
-            
-            // 防止限流
-            sleepBetweenRequests();
         }
         
         return totalSynced;
@@ -178,92 +309,89 @@ public class HistorySyncService {
     /**
      * 同步单个分段的 K 线数据
      * 
+     * 每页 upsert 独立提交后立即写入断点（synced_count + checkpoint_time）
+     * 
      * @param client 币安客户端
      * @param symbolCode 交易对代码
      * @param symbolId 交易对 ID
      * @param interval 时间周期
      * @param startTime 分段开始时间
      * @param endTime 分段结束时间
-     * @return 同步的 K 线数量
+     * @param taskId 任务 ID
+     * @param syncedBefore 本分段之前的累计同步数量
+     * @return 本分段同步的 K 线数量
      */
     private int syncSegment(BinanceClient client, String symbolCode, Long symbolId,
-                            String interval, Instant startTime, Instant endTime) {
+                            String interval, Instant startTime, Instant endTime,
+                            Long taskId, int syncedBefore) {
         int segmentSynced = 0;
         Instant currentStart = startTime;
         
         while (currentStart.isBefore(endTime)) {
             // 调用 API 获取 K 线数据
-            BinanceApiResponse<List<BinanceKline>> response = client.getKlines(
-                    symbolCode, interval, currentStart, endTime, MAX_KLINES_PER_REQUEST);
+            BinanceApiResponse<List<Kline>> response = client.getKlineEntities(
+                    symbolId, symbolCode, interval, currentStart, endTime, MAX_KLINES_PER_REQUEST);
             
             if (!response.isSuccess()) {
                 throw new BusinessException("获取 K 线数据失败: " + response.getMessage());
             }
             
-            List<BinanceKline> klines = response.getData();
+            List<Kline> klines = response.getData();
             if (klines == null || klines.isEmpty()) {
                 break;
             }
             
-            // 转换并保存 K 线数据
-            List<Kline> entities = convertToEntities(klines, symbolId, interval);
-            int saved = klineService.batchUpsert(entities);
+            // 保存 K 线数据（响应已直接解析为实体）
+            int saved = klineService.batchUpsert(klines);
             segmentSynced += saved;
             
+            // 记录断点
+            Kline lastKline = klines.get(klines.size() - 1);
+            syncService.updateSyncedCount(taskId, syncedBefore + segmentSynced, lastKline.getOpenTime());
+            
             // 如果返回数量小于请求数量，说明已经没有更多数据
             if (klines.size() < MAX_KLINES_PER_REQUEST) {
                 break;
             }
             
             // 更新下一次请求的开始时间（最后一根 K 线的开盘时间 + 1ms）
-            BinanceKline lastKline = klines.get(klines.size() - 1);
-            currentStart = Instant.ofEpochMilli(lastKline.getOpenTime() + 1);
-            
-            // 防止限流
-            sleepBetweenRequests();
+            currentStart = lastKline.getOpenTime().plusMillis(1);
         }
         
         return segmentSynced;
     }
 
     /**
-     * 将币安 K 线数据转换为实体
+     * 同步成功后更新 sync_status
      */
-    private List<Kline> convertToEntities(List<BinanceKline> binanceKlines, Long symbolId, String interval) {
-        List<Kline> entities = new ArrayList<>(binanceKlines.size());
-        
-        for (BinanceKline bk : binanceKlines) {
-            Kline kline = Kline.builder()
-                    .symbolId(symbolId)
-                    .interval(interval)
-                    .openTime(bk.getOpenTimeInstant())
-                    .open(bk.getOpen())
-                    .high(bk.getHigh())
-                    .low(bk.getLow())
-                    .close(bk.getClose())
-                    .volume(bk.getVolume())
-                    .quoteVolume(bk.getQuoteVolume())
-                    .trades(bk.getTrades())
-                    .closeTime(bk.getCloseTimeInstant())
-                    .build();
-            entities.add(kline);
+    private void updateSyncStatusAfterSync(Long symbolId, String interval, int syncedCount) {
+        if (syncedCount <= 0) {
+            return;
         }
         
-        return entities;
+        // 获取最新的 K 线时间
+        Instant lastKlineTime = klineService.getMaxOpenTime(symbolId, interval);
+        
+        // 更新同步状态
+        syncService.updateSyncStatus(symbolId, interval, lastKlineTime, syncedCount);
     }
 
     /**
-     * 同步成功后更新 sync_status
+     * 部分时间片失败后更新 sync_status：只推进到连续成功时间片的末尾
+     *
+     * 失败时间片之后即使有成功写入的 K 线，也不能越过空洞推进 last_kline_time，
+     * 否则下次增量同步会从空洞之后开始
+     *
+     * @param syncedUntil 连续成功时间片的结束时间（包含）
      */
-    private void updateSyncStatusAfterSync(Long symbolId, String interval, int syncedCount) {
+    private void updateSyncStatusAfterSync(Long symbolId, String interval, int syncedCount, Instant syncedUntil) {
         if (syncedCount <= 0) {
             return;
         }
         
-        // 获取最新的 K 线时间
-        Instant lastKlineTime = klineService.getMaxOpenTime(symbolId, interval);
+        List<Kline> last = klineService.getLatestBefore(symbolId, interval, syncedUntil.plusMillis(1), 1);
+        Instant lastKlineTime = last.isEmpty() ? null : last.get(0).getOpenTime();
         
-        // 更新同步状态
         syncService.updateSyncStatus(symbolId, interval, lastKlineTime, syncedCount);
     }
 
@@ -309,18 +437,6 @@ public class HistorySyncService {
         }
     }
 
-    /**
-     * 请求间隔休眠
-     */
-    private void sleepBetweenRequests() {
-        try {
-            Thread.sleep(REQUEST_INTERVAL_MS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new BusinessException("同步被中断");
-        }
-    }
-
     /**
      * 获取周期对应的毫秒数
      */
@@ -356,8 +472,22 @@ public class HistorySyncService {
      * @param interval 时间周期
      * @return 同步的 K 线数量
      */
-    @Transactional
     public int syncIncremental(Long symbolId, String interval) {
+        Instant[] range = resolveIncrementalRange(symbolId, interval);
+        if (range == null) {
+            return 0;
+        }
+        
+        // 执行同步
+        return syncHistory(symbolId, interval, range[0], range[1]);
+    }
+
+    /**
+     * 计算增量同步时间范围
+     * 
+     * @return [startTime, endTime]，已是最新时返回 null
+     */
+    private Instant[] resolveIncrementalRange(Long symbolId, String interval) {
         // 获取同步状态
         SyncStatus status = syncService.getSyncStatus(symbolId, interval);
         
@@ -376,15 +506,14 @@ public class HistorySyncService {
             // 如果已经是最新的，不需要同步
             if (!startTime.isBefore(endTime)) {
                 log.debug("Already up to date: symbolId={}, interval={}", symbolId, interval);
-                return 0;
+                return null;
             }
             
             log.info("Incremental sync for symbolId={}, interval={}, from {} to {}", 
                     symbolId, interval, startTime, endTime);
         }
         
-        // 执行同步
-        return syncHistory(symbolId, interval, startTime, endTime);
+        return new Instant[]{startTime, endTime};
     }
 
     /**
@@ -396,48 +525,190 @@ public class HistorySyncService {
      * - 启用历史同步的交易对
      * - 交易对配置的同步周期
      * 
+     * 每个 (交易对, 周期) 的追赶范围按 30 天切成时间片，全部时间片提交到有界线程池并发执行，
+     * 请求节奏由共享限流器（HISTORY 优先级）控制。同一 (交易对, 周期) 的时间片全部结束后
+     * 统一更新一次 sync_status；有时间片失败时只推进到第一个失败时间片之前，下次增量同步从空洞处继续。
+     * 
      * @return 同步结果摘要
      */
     public IncrementalSyncSummary syncAllIncremental() {
         log.info("Starting incremental sync for all enabled symbols");
+        long runStart = System.currentTimeMillis();
         
         IncrementalSyncSummary summary = new IncrementalSyncSummary();
         
+        // 规划工作单元
+        List<PairPlan> plans = new ArrayList<>();
+        int unitCount = 0;
+        
         // 获取所有启用历史同步的交易对
         List<SymbolDTO> symbols = symbolService.getHistorySyncEnabled();
         
         for (SymbolDTO symbolDTO : symbols) {
-            try {
-                // 获取交易对配置的同步周期
-                List<String> intervals = symbolDTO.getSyncIntervals();
-                if (intervals == null || intervals.isEmpty()) {
-                    log.debug("No sync intervals configured for symbol: {}", symbolDTO.getSymbol());
-                    continue;
-                }
-                
-                // 对每个周期执行增量同步
-                for (String interval : intervals) {
-                    try {
-                        int synced = syncIncremental(symbolDTO.getId(), interval);
-                        summary.addSuccess(symbolDTO.getId(), interval, synced);
-                    } catch (Exception e) {
-                        log.error("Incremental sync failed for symbol={}, interval={}: {}", 
-                                symbolDTO.getSymbol(), interval, e.getMessage());
-                        summary.addFailure(symbolDTO.getId(), interval, e.getMessage());
+            // 获取交易对配置的同步周期
+            List<String> intervals = symbolDTO.getSyncIntervals();
+            if (intervals == null || intervals.isEmpty()) {
+                log.debug("No sync intervals configured for symbol: {}", symbolDTO.getSymbol());
+                continue;
+            }
+            
+            for (String interval : intervals) {
+                try {
+                    Instant[] range = resolveIncrementalRange(symbolDTO.getId(), interval);
+                    if (range == null) {
+                        summary.addSuccess(symbolDTO.getId(), interval, 0);
+                        continue;
                     }
+                    List<Instant[]> slices = splitIntoSlices(range[0], range[1]);
+                    plans.add(new PairPlan(symbolDTO.getId(), symbolDTO.getSymbol(), interval, slices));
+                    unitCount += slices.size();
+                } catch (Exception e) {
+                    log.error("Incremental sync planning failed for symbol={}, interval={}: {}", 
+                            symbolDTO.getSymbol(), interval, e.getMessage());
+                    summary.addFailure(symbolDTO.getId(), interval, e.getMessage());
                 }
-                
-            } catch (Exception e) {
-                log.error("Failed to process symbol {}: {}", symbolDTO.getSymbol(), e.getMessage());
             }
         }
         
-        log.info("Incremental sync completed: {} symbols processed, {} succeeded, {} failed, {} klines synced",
-                summary.getTotalSymbols(), summary.getSuccessCount(), summary.getFailureCount(), summary.getTotalKlines());
+        if (unitCount > 0) {
+            runPlans(plans, unitCount, summary);
+        }
+        
+        summary.setElapsedMs(System.currentTimeMillis() - runStart);
+        log.info("Incremental sync completed: {} symbols processed, {} succeeded, {} failed, {} klines synced, " +
+                        "{} units in {}ms ({} klines/s)",
+                summary.getTotalSymbols(), summary.getSuccessCount(), summary.getFailureCount(), 
+                summary.getTotalKlines(), summary.getUnitResults().size(), summary.getElapsedMs(),
+                String.format("%.1f", summary.getThroughput()));
         
         return summary;
     }
 
+    /**
+     * 并发执行工作单元并按 (交易对, 周期) 汇总
+     */
+    private void runPlans(List<PairPlan> plans, int unitCount, IncrementalSyncSummary summary) {
+        int threads = Math.max(1, Math.min(parallelism, unitCount));
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "history-backfill-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        
+        try {
+            List<List<Future<IncrementalSyncSummary.UnitResult>>> futuresByPlan = new ArrayList<>();
+            for (PairPlan plan : plans) {
+                List<Future<IncrementalSyncSummary.UnitResult>> futures = new ArrayList<>();
+                for (Instant[] slice : plan.slices()) {
+                    futures.add(executor.submit(() -> runUnit(plan, slice[0], slice[1])));
+                }
+                futuresByPlan.add(futures);
+            }
+            
+            for (int i = 0; i < plans.size(); i++) {
+                PairPlan plan = plans.get(i);
+                int synced = 0;
+                long durationMs = 0;
+                String error = null;
+                // 第一个失败时间片之前连续成功的部分
+                int prefixSynced = 0;
+                Instant prefixEnd = null;
+                
+                List<Future<IncrementalSyncSummary.UnitResult>> futures = futuresByPlan.get(i);
+                for (int j = 0; j < futures.size(); j++) {
+                    IncrementalSyncSummary.UnitResult unit = awaitUnit(futures.get(j), plan);
+                    summary.addUnitResult(unit);
+                    synced += unit.klines();
+                    durationMs += unit.durationMs();
+                    if (!unit.success() && error == null) {
+                        error = unit.error();
+                    }
+                    if (error == null) {
+                        prefixSynced += unit.klines();
+                        prefixEnd = plan.slices().get(j)[1];
+                    }
+                }
+                
+                // 每个 (交易对, 周期) 只更新一次 sync_status，失败时不越过第一个失败时间片
+                try {
+                    if (error == null) {
+                        updateSyncStatusAfterSync(plan.symbolId(), plan.interval(), synced);
+                    } else if (prefixEnd != null) {
+                        updateSyncStatusAfterSync(plan.symbolId(), plan.interval(), prefixSynced, prefixEnd);
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to update sync status: symbolId={}, interval={}, error={}", 
+                            plan.symbolId(), plan.interval(), e.getMessage());
+                }
+                
+                if (error == null) {
+                    summary.addSuccess(plan.symbolId(), plan.interval(), synced, durationMs);
+                } else {
+                    log.error("Incremental sync failed for symbol={}, interval={}: {}", 
+                            plan.symbolCode(), plan.interval(), error);
+                    summary.addFailure(plan.symbolId(), plan.interval(), error);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 执行单个时间片
+     */
+    private IncrementalSyncSummary.UnitResult runUnit(PairPlan plan, Instant startTime, Instant endTime) {
+        long start = System.currentTimeMillis();
+        try {
+            int synced = executeHistorySync(plan.symbolId(), plan.interval(), startTime, endTime, false);
+            return new IncrementalSyncSummary.UnitResult(plan.symbolId(), plan.interval(), startTime, endTime,
+                    true, synced, System.currentTimeMillis() - start, null);
+        } catch (Exception e) {
+            return new IncrementalSyncSummary.UnitResult(plan.symbolId(), plan.interval(), startTime, endTime,
+                    false, 0, System.currentTimeMillis() - start, e.getMessage());
+        }
+    }
+
+    /**
+     * 等待时间片结果
+     */
+    private IncrementalSyncSummary.UnitResult awaitUnit(Future<IncrementalSyncSummary.UnitResult> future,
+                                                        PairPlan plan) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("同步被中断");
+        } catch (ExecutionException e) {
+            String message = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            return new IncrementalSyncSummary.UnitResult(plan.symbolId(), plan.interval(), null, null,
+                    false, 0, 0, message);
+        }
+    }
+
+    /**
+     * 按最大跨度切分时间片
+     */
+    private List<Instant[]> splitIntoSlices(Instant startTime, Instant endTime) {
+        List<Instant[]> slices = new ArrayList<>();
+        Instant sliceStart = startTime;
+        while (sliceStart.isBefore(endTime)) {
+            Instant sliceEnd = sliceStart.plus(MAX_SYNC_DURATION);
+            if (sliceEnd.isAfter(endTime)) {
+                sliceEnd = endTime;
+            }
+            slices.add(new Instant[]{sliceStart, sliceEnd});
+            sliceStart = sliceEnd;
+        }
+        return slices;
+    }
+
+    /**
+     * 单个 (交易对, 周期) 的同步计划
+     */
+    private record PairPlan(Long symbolId, String symbolCode, String interval, List<Instant[]> slices) {}
+
     /**
      * 增量同步结果摘要
      */
@@ -446,27 +717,73 @@ public class HistorySyncService {
         private int successCount = 0;
         private int failureCount = 0;
         private int totalKlines = 0;
+        private long elapsedMs = 0;
         private final List<SyncResult> results = new ArrayList<>();
+        private final List<UnitResult> unitResults = new ArrayList<>();
 
         public void addSuccess(Long symbolId, String interval, int klines) {
+            addSuccess(symbolId, interval, klines, 0);
+        }
+
+        public void addSuccess(Long symbolId, String interval, int klines, long durationMs) {
             totalSymbols++;
             successCount++;
             totalKlines += klines;
-            results.add(new SyncResult(symbolId, interval, true, klines, null));
+            results.add(new SyncResult(symbolId, interval, true, klines, null, durationMs));
         }
 
         public void addFailure(Long symbolId, String interval, String error) {
             totalSymbols++;
             failureCount++;
-            results.add(new SyncResult(symbolId, interval, false, 0, error));
+            results.add(new SyncResult(symbolId, interval, false, 0, error, 0));
+        }
+
+        public void addUnitResult(UnitResult unitResult) {
+            unitResults.add(unitResult);
         }
 
+        public void setElapsedMs(long elapsedMs) { this.elapsedMs = elapsedMs; }
+
         public int getTotalSymbols() { return totalSymbols; }
         public int getSuccessCount() { return successCount; }
         public int getFailureCount() { return failureCount; }
         public int getTotalKlines() { return totalKlines; }
+        public long getElapsedMs() { return elapsedMs; }
         public List<SyncResult> getResults() { return results; }
+        public List<UnitResult> getUnitResults() { return unitResults; }
+
+        /**
+         * 整体吞吐（K 线/秒）
+         */
+        public double getThroughput() {
+            return elapsedMs > 0 ? totalKlines * 1000.0 / elapsedMs : 0;
+        }
+
+        /**
+         * 时间片平均耗时（毫秒）
+         */
+        public double getAvgUnitLatencyMs() {
+            return unitResults.stream().mapToLong(UnitResult::durationMs).average().orElse(0);
+        }
 
-        public record SyncResult(Long symbolId, String interval, boolean success, int klines, String error) {}
+        /**
+         * 时间片最大耗时（毫秒）
+         */
+        public long getMaxUnitLatencyMs() {
+            return unitResults.stream().mapToLong(UnitResult::durationMs).max().orElse(0);
+        }
+
+        public record SyncResult(Long symbolId, String interval, boolean success, int klines, String error,
+                                 long durationMs) {}
+
+        public record UnitResult(Long symbolId, String interval, Instant startTime, Instant endTime,
+                                 boolean success, int klines, long durationMs, String error) {
+            /**
+             * 单元吞吐（K 线/秒）
+             */
+            public double klinesPerSecond() {
+                return durationMs > 0 ? klines * 1000.0 / durationMs : 0;
+            }
+        }
     }
 }
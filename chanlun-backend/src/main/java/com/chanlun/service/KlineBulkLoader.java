@@ -0,0 +1,337 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.metrics.KlineWriteMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * K 线批量 COPY 写入器
+ *
+ * 大批量写入（初始回填数年 1m 数据）时替代 multi-VALUES INSERT：
+ * 1. 以 COPY ... FROM STDIN (FORMAT binary) 流式写入会话级临时表 kline_staging
+ * 2. 一条 INSERT ... SELECT ... ON CONFLICT 合并到 kline
+ *
+ * 加入调用方的 Spring 事务；无事务时自行开启并提交。
+ * 非 PostgreSQL 连接（如测试使用的 H2）不支持 COPY，由调用方回退到 MyBatis 路径。
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KlineBulkLoader {
+
+    /**
+     * 临时表（ON COMMIT DELETE ROWS，连接归还前清空）
+     */
+    private static final String CREATE_STAGING_SQL =
+            "CREATE TEMP TABLE IF NOT EXISTS kline_staging (" +
+            "seq BIGSERIAL, symbol_id BIGINT, \"interval\" VARCHAR(10), open_time TIMESTAMPTZ, " +
+            "\"open\" DECIMAL(24,8), high DECIMAL(24,8), low DECIMAL(24,8), \"close\" DECIMAL(24,8), " +
+            "volume DECIMAL(24,8), quote_volume DECIMAL(24,8), trades INTEGER, close_time TIMESTAMPTZ" +
+            ") ON COMMIT DELETE ROWS";
+
+    private static final String TRUNCATE_STAGING_SQL = "TRUNCATE kline_staging";
+
+    private static final String COPY_SQL =
+            "COPY kline_staging (symbol_id, \"interval\", open_time, \"open\", high, low, \"close\", " +
+            "volume, quote_volume, trades, close_time) FROM STDIN (FORMAT binary)";
+
+    /**
+     * 合并到 kline，同一批次内重复的 K 线保留最后写入的一条
+     */
+    private static final String MERGE_SQL =
+            "INSERT INTO kline (symbol_id, \"interval\", open_time, \"open\", high, low, \"close\", " +
+            "volume, quote_volume, trades, close_time, created_at) " +
+            "SELECT DISTINCT ON (symbol_id, \"interval\", open_time) symbol_id, \"interval\", open_time, " +
+            "\"open\", high, low, \"close\", volume, quote_volume, trades, close_time, NOW() " +
+            "FROM kline_staging ORDER BY symbol_id, \"interval\", open_time, seq DESC " +
+            "ON CONFLICT (symbol_id, \"interval\", open_time) DO UPDATE SET " +
+            "\"open\" = EXCLUDED.\"open\", high = EXCLUDED.high, low = EXCLUDED.low, \"close\" = EXCLUDED.\"close\", " +
+            "volume = EXCLUDED.volume, quote_volume = EXCLUDED.quote_volume, trades = EXCLUDED.trades, " +
+            "close_time = EXCLUDED.close_time";
+
+    /**
+     * 二进制 COPY 文件头签名
+     */
+    private static final byte[] COPY_SIGNATURE = {
+            'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0
+    };
+
+    /**
+     * 每行字段数
+     */
+    private static final short FIELD_COUNT = 11;
+
+    /**
+     * PostgreSQL 时间戳纪元（2000-01-01T00:00:00Z）相对 Unix 纪元的微秒数
+     */
+    private static final long PG_EPOCH_OFFSET_MICROS = 946_684_800_000_000L;
+
+    private static final short NUMERIC_POS = 0x0000;
+    private static final short NUMERIC_NEG = 0x4000;
+    private static final BigInteger NBASE = BigInteger.valueOf(10000);
+
+    /**
+     * COPY 流缓冲区大小
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final DataSource dataSource;
+
+    private volatile Boolean copySupported;
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 当前数据源是否支持 COPY（首次调用时探测并缓存）
+     */
+    public boolean isCopySupported() {
+        Boolean supported = copySupported;
+        if (supported == null) {
+            Connection con = DataSourceUtils.getConnection(dataSource);
+            try {
+                supported = con.isWrapperFor(PGConnection.class);
+            } catch (SQLException e) {
+                supported = false;
+            } finally {
+                DataSourceUtils.releaseConnection(con, dataSource);
+            }
+            copySupported = supported;
+            log.info("Kline COPY bulk load {}", supported ? "enabled" : "not supported by datasource");
+        }
+        return supported;
+    }
+
+    /**
+     * 通过 COPY + 合并批量插入或更新 K 线
+     *
+     * @param klines K 线列表（调用方已校验）
+     * @return 合并影响的记录数
+     */
+    public int copyUpsert(List<Kline> klines) {
+        if (klines == null || klines.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        boolean ownTransaction = false;
+        try {
+            if (con.getAutoCommit()) {
+                con.setAutoCommit(false);
+                ownTransaction = true;
+            }
+
+            try (Statement st = con.createStatement()) {
+                st.execute(CREATE_STAGING_SQL);
+                st.execute(TRUNCATE_STAGING_SQL);
+            }
+
+            PGConnection pgConnection = con.unwrap(PGConnection.class);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new PGCopyOutputStream(pgConnection, COPY_SQL), COPY_BUFFER_SIZE))) {
+                writeHeader(out);
+                for (Kline kline : klines) {
+                    writeRow(out, kline);
+                }
+                writeTrailer(out);
+            }
+
+            int merged;
+            try (Statement st = con.createStatement()) {
+                merged = st.executeUpdate(MERGE_SQL);
+            }
+
+            if (ownTransaction) {
+                con.commit();
+            }
+
+            success = true;
+            log.debug("COPY upserted {} klines (merged={}) in {}ms",
+                    klines.size(), merged, System.currentTimeMillis() - start);
+            return merged;
+
+        } catch (SQLException | IOException e) {
+            if (ownTransaction) {
+                rollbackQuietly(con);
+            }
+            log.error("COPY bulk load failed: size={}, error={}", klines.size(), e.getMessage());
+            throw new BusinessException("批量 COPY 写入 K 线失败: " + e.getMessage());
+        } finally {
+            KlineWriteMetrics.record(meterRegistry, KlineWriteMetrics.METHOD_COPY, klines.size(),
+                    System.nanoTime() - startNanos, success);
+            if (ownTransaction) {
+                try {
+                    con.setAutoCommit(true);
+                } catch (SQLException e) {
+                    log.warn("Failed to restore auto-commit: {}", e.getMessage());
+                }
+            }
+            DataSourceUtils.releaseConnection(con, dataSource);
+        }
+    }
+
+    private void rollbackQuietly(Connection con) {
+        try {
+            con.rollback();
+        } catch (SQLException e) {
+            log.warn("Rollback failed: {}", e.getMessage());
+        }
+    }
+
+    // ==================== 二进制 COPY 编码 ====================
+
+    /**
+     * 写入文件头：签名 + flags + 扩展区长度
+     */
+    static void writeHeader(DataOutputStream out) throws IOException {
+        out.write(COPY_SIGNATURE);
+        out.writeInt(0);
+        out.writeInt(0);
+    }
+
+    /**
+     * 写入文件尾
+     */
+    static void writeTrailer(DataOutputStream out) throws IOException {
+        out.writeShort(-1);
+    }
+
+    /**
+     * 写入一行，字段顺序与 COPY_SQL 列顺序一致
+     */
+    static void writeRow(DataOutputStream out, Kline kline) throws IOException {
+        out.writeShort(FIELD_COUNT);
+        writeInt8(out, kline.getSymbolId());
+        writeText(out, kline.getInterval());
+        writeTimestamp(out, kline.getOpenTime());
+        writeNumeric(out, kline.getOpen());
+        writeNumeric(out, kline.getHigh());
+        writeNumeric(out, kline.getLow());
+        writeNumeric(out, kline.getClose());
+        writeNumeric(out, kline.getVolume());
+        writeNumeric(out, kline.getQuoteVolume());
+        writeInt4(out, kline.getTrades());
+        writeTimestamp(out, kline.getCloseTime());
+    }
+
+    private static void writeNull(DataOutputStream out) throws IOException {
+        out.writeInt(-1);
+    }
+
+    private static void writeInt8(DataOutputStream out, Long value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    private static void writeInt4(DataOutputStream out, Integer value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        out.writeInt(4);
+        out.writeInt(value);
+    }
+
+    private static void writeText(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * TIMESTAMPTZ：自 2000-01-01 UTC 起的微秒数
+     */
+    static void writeTimestamp(DataOutputStream out, Instant value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+        out.writeInt(8);
+        out.writeLong(toPgMicros(value));
+    }
+
+    static long toPgMicros(Instant value) {
+        return Math.addExact(Math.multiplyExact(value.getEpochSecond(), 1_000_000L), value.getNano() / 1000)
+                - PG_EPOCH_OFFSET_MICROS;
+    }
+
+    /**
+     * NUMERIC：ndigits、weight、sign、dscale 各 int16，后接以 10000 为基的 int16 数字（高位在前）
+     */
+    static void writeNumeric(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            writeNull(out);
+            return;
+        }
+
+        int dscale = Math.max(value.scale(), 0);
+        // 小数部分补齐到 4 位一组
+        int fracGroups = (dscale + 3) / 4;
+        BigInteger unscaled = value.abs().setScale(fracGroups * 4).unscaledValue();
+
+        Deque<Short> digits = new ArrayDeque<>();
+        while (unscaled.signum() > 0) {
+            BigInteger[] qr = unscaled.divideAndRemainder(NBASE);
+            digits.addFirst(qr[1].shortValue());
+            unscaled = qr[0];
+        }
+
+        // 低位全零组不需要存储（weight 由高位决定）
+        int weight = digits.size() - 1 - fracGroups;
+        while (!digits.isEmpty() && digits.peekLast() == 0) {
+            digits.removeLast();
+        }
+
+        if (digits.isEmpty()) {
+            out.writeInt(8);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(NUMERIC_POS);
+            out.writeShort(dscale);
+            return;
+        }
+
+        out.writeInt(8 + 2 * digits.size());
+        out.writeShort(digits.size());
+        out.writeShort(weight);
+        out.writeShort(value.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS);
+        out.writeShort(dscale);
+        for (short digit : digits) {
+            out.writeShort(digit);
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.entity.Symbol;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.mapper.KlineMapper;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * K 线热窗口缓存服务
+ *
+ * 为每个 (symbolId, interval) 维护一个 {@link KlineRingBuffer}，缓存最近 capacity 根 K 线：
+ * - 启动时为开启实时同步的交易对预热，其余在首次查询时按需加载
+ * - 实时同步收到已完结 K 线时直接追加；其他写库路径在事务提交后（{@link KlineUpsertedEvent}）写入，
+ *   回滚的数据不会进入缓存
+ * - 删除 K 线时失效（事务提交后再失效一次，避免提交前重新加载到旧数据），
+ *   窗口内插入（缺口回补）时失效后按需重新加载
+ * - 最新 N 根和窗口内的时间范围查询直接由缓存返回
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+public class KlineCacheService {
+
+    private final KlineMapper klineMapper;
+    private final SymbolService symbolService;
+
+    /**
+     * 是否启用缓存
+     */
+    @Value("${app.kline.cache.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 每个 (交易对, 周期) 缓存的 K 线数量
+     */
+    @Value("${app.kline.cache.capacity:1000}")
+    private int capacity = 1000;
+
+    /**
+     * 最多缓存的 (交易对, 周期) 数量，超过后不再按需加载
+     */
+    @Value("${app.kline.cache.max-entries:2000}")
+    private int maxEntries = 2000;
+
+    /**
+     * 是否启动时预热
+     */
+    @Value("${app.kline.cache.warm-on-startup:true}")
+    private boolean warmOnStartup = true;
+
+    private final Map<String, KlineRingBuffer> buffers = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private final AtomicLong loadCount = new AtomicLong(0);
+    private final AtomicLong invalidationCount = new AtomicLong(0);
+
+    public KlineCacheService(KlineMapper klineMapper, SymbolService symbolService) {
+        this.klineMapper = klineMapper;
+        this.symbolService = symbolService;
+    }
+
+    /**
+     * 缓存统计
+     */
+    @Data
+    @Builder
+    public static class CacheStats {
+        private boolean enabled;
+        private int entries;
+        private int capacityPerEntry;
+        private long hits;
+        private long misses;
+        private double hitRate;
+        private long loads;
+        private long invalidations;
+    }
+
+    /**
+     * 启动预热：加载所有开启实时同步的交易对周期
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled || !warmOnStartup) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int warmed = 0;
+        try {
+            for (Symbol symbol : symbolService.getRealtimeSyncEnabledSymbols()) {
+                if (symbol.getSyncIntervals() == null || symbol.getSyncIntervals().isBlank()) {
+                    continue;
+                }
+                for (String interval : symbol.getSyncIntervals().split(",")) {
+                    if (load(symbol.getId(), interval.trim()) != null) {
+                        warmed++;
+                    }
+                }
+            }
+            log.info("Kline cache warmed: {} entries in {}ms", warmed, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Kline cache warm-up failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 获取最新的 limit 根 K 线（升序）
+     *
+     * @return 缓存无法满足时返回空，由调用方查库
+     */
+    public Optional<List<Kline>> getLatest(Long symbolId, String interval, int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        KlineRingBuffer buffer = limit <= capacity ? getOrLoad(symbolId, interval) : null;
+        return record(buffer != null ? buffer.latest(limit) : null);
+    }
+
+    /**
+     * 获取时间范围内的 K 线（升序，最多 limit 根）
+     *
+     * 只在已缓存的 (交易对, 周期) 上命中，不会为历史范围查询触发加载
+     *
+     * @return 缓存无法满足时返回空，由调用方查库
+     */
+    public Optional<List<Kline>> getRange(Long symbolId, String interval, Instant startTime, Instant endTime,
+                                          int limit) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        KlineRingBuffer buffer = buffers.get(key(symbolId, interval));
+        return record(buffer != null ? buffer.range(startTime, endTime, limit) : null);
+    }
+
+    /**
+     * 追加一根实时 K 线（仅更新已缓存的交易对周期）
+     */
+    public void append(Kline kline) {
+        if (!enabled || kline == null) {
+            return;
+        }
+        String key = key(kline.getSymbolId(), kline.getInterval());
+        KlineRingBuffer buffer = buffers.get(key);
+        if (buffer != null && !buffer.upsert(kline)) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * 同步已写库的 K 线
+     */
+    public void apply(Collection<Kline> klines) {
+        if (!enabled || klines == null || buffers.isEmpty()) {
+            return;
+        }
+        for (Kline kline : klines) {
+            append(kline);
+        }
+    }
+
+    /**
+     * K 线写库事务提交后同步到缓存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineUpserted(KlineUpsertedEvent event) {
+        apply(event.getKlines());
+    }
+
+    /**
+     * K 线删除事务提交后失效缓存
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineDeleted(KlineDeletedEvent event) {
+        if (event.getInterval() != null) {
+            invalidate(event.getSymbolId(), event.getInterval());
+        } else {
+            invalidateSymbol(event.getSymbolId());
+        }
+    }
+
+    /**
+     * 失效指定交易对周期的缓存
+     */
+    public void invalidate(Long symbolId, String interval) {
+        invalidate(key(symbolId, interval));
+    }
+
+    /**
+     * 失效指定交易对所有周期的缓存
+     */
+    public void invalidateSymbol(Long symbolId) {
+        String prefix = symbolId + "_";
+        buffers.keySet().removeIf(k -> {
+            if (k.startsWith(prefix)) {
+                invalidationCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void invalidate(String key) {
+        if (buffers.remove(key) != null) {
+            invalidationCount.incrementAndGet();
+            log.debug("Kline cache invalidated: {}", key);
+        }
+    }
+
+    private KlineRingBuffer getOrLoad(Long symbolId, String interval) {
+        KlineRingBuffer buffer = buffers.get(key(symbolId, interval));
+        if (buffer != null && buffer.isReady()) {
+            return buffer;
+        }
+        if (buffer == null && buffers.size() >= maxEntries) {
+            return null;
+        }
+        return load(symbolId, interval);
+    }
+
+    /**
+     * 从数据库加载最近 capacity 根 K 线
+     *
+     * 先登记空缓冲区接收加载期间的实时追加，再合并数据库快照
+     */
+    private KlineRingBuffer load(Long symbolId, String interval) {
+        String key = key(symbolId, interval);
+        KlineRingBuffer buffer = buffers.computeIfAbsent(key, k -> new KlineRingBuffer(symbolId, interval, capacity));
+        try {
+            List<Kline> recent = new ArrayList<>(klineMapper.selectRecentBySymbolIdAndInterval(symbolId, interval, capacity));
+            Collections.reverse(recent);
+            buffer.load(recent, capacity);
+            loadCount.incrementAndGet();
+            if (!buffer.isReady()) {
+                invalidate(key);
+                return null;
+            }
+            return buffer;
+        } catch (Exception e) {
+            buffers.remove(key, buffer);
+            log.warn("Kline cache load failed: key={}, error={}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private Optional<List<Kline>> record(List<Kline> result) {
+        if (result != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return Optional.ofNullable(result);
+    }
+
+    private static String key(Long symbolId, String interval) {
+        return symbolId + "_" + interval;
+    }
+
+    /**
+     * 获取缓存统计
+     */
+    public CacheStats getStats() {
+        long hits = hitCount.get();
+        long misses = missCount.get();
+        long total = hits + misses;
+        return CacheStats.builder()
+                .enabled(enabled)
+                .entries(buffers.size())
+                .capacityPerEntry(capacity)
+                .hits(hits)
+                .misses(misses)
+                .hitRate(total == 0 ? 0.0 : (double) hits / total)
+                .loads(loadCount.get())
+                .invalidations(invalidationCount.get())
+                .build();
+    }
+}
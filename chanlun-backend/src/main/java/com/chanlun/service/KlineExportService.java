@@ -0,0 +1,279 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.mapper.KlineMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * K 线流式导出服务
+ *
+ * 按开盘时间键集分页（每页一条独立的短查询）读取，边读边写入 gzip 压缩的 NDJSON / CSV，
+ * 内存占用与导出范围无关，用于研究任务拉取完整历史：
+ * - 不在下载期间持有事务或游标，慢客户端不会长时间占用数据库连接、阻碍 VACUUM
+ * - 同时进行的导出数量受 max-concurrent 限制，超过时直接拒绝
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KlineExportService {
+
+    private final KlineMapper klineMapper;
+
+    /**
+     * 输出缓冲大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 每页读取的 K 线数量
+     */
+    static final int PAGE_SIZE = 1000;
+
+    /**
+     * 同时进行的导出数量上限
+     */
+    @Value("${app.kline.export.max-concurrent:2}")
+    private int maxConcurrent = 2;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(1, maxConcurrent));
+    }
+
+    /**
+     * 支持的时间周期
+     */
+    private static final Set<String> VALID_INTERVALS = Set.of(
+            "1m", "3m", "5m", "15m", "30m",
+            "1h", "2h", "4h", "6h", "8h", "12h",
+            "1d", "3d", "1w", "1M"
+    );
+
+    static final String CSV_HEADER =
+            "symbolId,interval,openTime,open,high,low,close,volume,quoteVolume,trades,closeTime";
+
+    /**
+     * 导出格式
+     */
+    public enum ExportFormat {
+
+        /**
+         * 每行一个 JSON 对象，字段与 KlineDTO 一致
+         */
+        NDJSON("application/x-ndjson", "ndjson"),
+
+        /**
+         * 带表头的 CSV
+         */
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        ExportFormat(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * 解析导出格式（忽略大小写，默认 NDJSON）
+         */
+        public static ExportFormat of(String value) {
+            if (value == null || value.isBlank()) {
+                return NDJSON;
+            }
+            for (ExportFormat format : values()) {
+                if (format.name().equalsIgnoreCase(value.trim())) {
+                    return format;
+                }
+            }
+            throw new BusinessException("不支持的导出格式: " + value + "。支持的格式: ndjson, csv");
+        }
+    }
+
+    /**
+     * 校验导出参数
+     *
+     * 流式响应开始写出后无法再返回错误码，参数须在开始前校验
+     */
+    public void validate(Long symbolId, String interval, Instant startTime, Instant endTime) {
+        if (symbolId == null) {
+            throw new BusinessException("交易对ID不能为空");
+        }
+        if (interval == null || interval.isEmpty()) {
+            throw new BusinessException("时间周期不能为空");
+        }
+        if (!VALID_INTERVALS.contains(interval)) {
+            throw new BusinessException("不支持的时间周期: " + interval +
+                    "。支持的周期: " + String.join(", ", VALID_INTERVALS));
+        }
+        if (startTime != null && endTime != null && startTime.isAfter(endTime)) {
+            throw new BusinessException("开始时间不能晚于结束时间");
+        }
+    }
+
+    /**
+     * 占用一个导出名额
+     *
+     * 须在开始写出响应前调用（超过上限时返回 429），导出结束后调用 {@link #release()}
+     */
+    public void acquire() {
+        if (!permits.tryAcquire()) {
+            throw new BusinessException(429, "导出任务过多，请稍后再试");
+        }
+    }
+
+    /**
+     * 释放导出名额
+     */
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 导出时间范围内的 K 线
+     *
+     * 按 (symbol_id, interval, open_time) 索引键集分页，每页一条自动提交的查询，不持有事务
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 开始时间（包含，为空表示最早）
+     * @param endTime 结束时间（包含，为空表示当前时间）
+     * @param format 导出格式
+     * @param gzip 是否 gzip 压缩
+     * @param out 输出流（不关闭）
+     * @return 导出行数
+     */
+    public long export(Long symbolId, String interval, Instant startTime, Instant endTime,
+                       ExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        validate(symbolId, interval, startTime, endTime);
+        Instant from = startTime != null ? startTime : Instant.EPOCH;
+        Instant to = endTime != null ? endTime : Instant.now();
+
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzipOut != null ? gzipOut : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        StringBuilder line = new StringBuilder(256);
+
+        if (format == ExportFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        Instant pageStart = from;
+        while (!pageStart.isAfter(to)) {
+            List<Kline> page = klineMapper.selectBySymbolIdAndIntervalAndTimeRangeWithLimit(
+                    symbolId, interval, pageStart, to, PAGE_SIZE);
+            for (Kline kline : page) {
+                line.setLength(0);
+                if (format == ExportFormat.CSV) {
+                    appendCsv(line, kline);
+                } else {
+                    appendJson(line, kline);
+                }
+                writer.append(line);
+                rows++;
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+            pageStart = page.get(page.size() - 1).getOpenTime().plusMillis(1);
+        }
+        writer.flush();
+        if (gzipOut != null) {
+            gzipOut.finish();
+        }
+        out.flush();
+
+        log.info("Kline export completed: symbolId={}, interval={}, format={}, rows={}, elapsed={}ms",
+                symbolId, interval, format, rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    static void appendJson(StringBuilder sb, Kline kline) {
+        sb.append("{\"symbolId\":").append(kline.getSymbolId())
+                .append(",\"interval\":\"").append(kline.getInterval()).append('"')
+                .append(",\"openTime\":");
+        appendJsonTime(sb, kline.getOpenTime());
+        sb.append(",\"open\":");
+        appendDecimal(sb, kline.getOpen(), "null");
+        sb.append(",\"high\":");
+        appendDecimal(sb, kline.getHigh(), "null");
+        sb.append(",\"low\":");
+        appendDecimal(sb, kline.getLow(), "null");
+        sb.append(",\"close\":");
+        appendDecimal(sb, kline.getClose(), "null");
+        sb.append(",\"volume\":");
+        appendDecimal(sb, kline.getVolume(), "null");
+        sb.append(",\"quoteVolume\":");
+        appendDecimal(sb, kline.getQuoteVolume(), "null");
+        sb.append(",\"trades\":").append(kline.getTrades())
+                .append(",\"closeTime\":");
+        appendJsonTime(sb, kline.getCloseTime());
+        sb.append("}\n");
+    }
+
+    static void appendCsv(StringBuilder sb, Kline kline) {
+        sb.append(kline.getSymbolId()).append(',')
+                .append(kline.getInterval()).append(',')
+                .append(kline.getOpenTime() != null ? kline.getOpenTime().toString() : "").append(',');
+        appendDecimal(sb, kline.getOpen(), "");
+        sb.append(',');
+        appendDecimal(sb, kline.getHigh(), "");
+        sb.append(',');
+        appendDecimal(sb, kline.getLow(), "");
+        sb.append(',');
+        appendDecimal(sb, kline.getClose(), "");
+        sb.append(',');
+        appendDecimal(sb, kline.getVolume(), "");
+        sb.append(',');
+        appendDecimal(sb, kline.getQuoteVolume(), "");
+        sb.append(',')
+                .append(kline.getTrades() != null ? kline.getTrades().toString() : "").append(',')
+                .append(kline.getCloseTime() != null ? kline.getCloseTime().toString() : "")
+                .append('\n');
+    }
+
+    private static void appendJsonTime(StringBuilder sb, Instant time) {
+        if (time == null) {
+            sb.append("null");
+        } else {
+            sb.append('"').append(time).append('"');
+        }
+    }
+
+    private static void appendDecimal(StringBuilder sb, BigDecimal value, String nullValue) {
+        sb.append(value != null ? value.toPlainString() : nullValue);
+    }
+}
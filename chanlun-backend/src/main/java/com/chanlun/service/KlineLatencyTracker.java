@@ -0,0 +1,274 @@
+package com.chanlun.service;
+
+import com.chanlun.dto.KlineLatencyDTO;
+import com.chanlun.entity.Kline;
+import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实时 K 线链路延迟追踪
+ *
+ * 按周期和阶段记录每个 WebSocket 事件的延迟（HdrHistogram，微秒精度）：
+ * - EXCHANGE_TO_RECEIVE: 币安事件时间 E -> 本地收到消息（含网络传输和时钟偏差）
+ * - RECEIVE_TO_DECODE: 收到消息 -> 解码完成
+ * - DECODE_TO_PUSH: 解码完成 -> 推送给订阅客户端（推送先于落库，未完结 K 线同样记录）
+ * - DECODE_TO_COMMIT: 解码完成 -> 写线程提交事务（含写入队列等待）
+ * - CLOSE_TO_COMMIT: K 线收盘 (closeTime + 1ms) -> 提交事务，即落库数据的陈旧度
+ *
+ * 已完结 K 线收盘到落库超过 slowThresholdMs 时输出各阶段明细和订阅键
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+public class KlineLatencyTracker {
+
+    /**
+     * 链路阶段
+     */
+    public enum Stage {
+        EXCHANGE_TO_RECEIVE,
+        RECEIVE_TO_DECODE,
+        DECODE_TO_PUSH,
+        DECODE_TO_COMMIT,
+        CLOSE_TO_COMMIT
+    }
+
+    /**
+     * 直方图上限（1 小时，微秒），超出按上限记录
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    /**
+     * 直方图有效数字位数
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * 等待落库的 K 线最长保留时间，超时视为写入失败丢弃
+     */
+    private static final long PENDING_TTL_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.realtime.latency.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 慢链路阈值（毫秒，收盘到落库）
+     */
+    @Value("${app.realtime.latency.slow-threshold-ms:3000}")
+    private long slowThresholdMs = 3000;
+
+    /**
+     * 周期 -> 各阶段直方图
+     */
+    private final Map<String, Map<Stage, StageHistogram>> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * 等待落库的已完结 K 线 (symbolId_interval_openTime -> 埋点)
+     */
+    private final Map<String, PendingCommit> pendingCommits = new ConcurrentHashMap<>();
+
+    /**
+     * 已完结 K 线在落库前的埋点
+     */
+    private record PendingCommit(String subscriptionKey, long eventTime, long receivedAt,
+                                 long receivedNanos, long decodedNanos, long pushedNanos) {
+    }
+
+    /**
+     * 单个阶段的直方图：Recorder 无锁写入，读取时合并到累计直方图
+     */
+    private static final class StageHistogram {
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram accumulated = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        void record(long micros) {
+            recorder.recordValue(Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_MICROS));
+        }
+
+        synchronized Histogram snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            accumulated.add(interval);
+            return accumulated.copy();
+        }
+
+        synchronized void reset() {
+            interval = recorder.getIntervalHistogram(interval);
+            accumulated.reset();
+        }
+    }
+
+    /**
+     * 记录收到、解码和推送阶段
+     *
+     * @param interval 时间周期
+     * @param event WebSocket 事件（含本地收到 / 解码时间）
+     * @param pushedNanos 推送完成时的 System.nanoTime
+     */
+    public void recordDispatch(String interval, BinanceWsKlineEvent event, long pushedNanos) {
+        if (!enabled || interval == null || event.getReceivedNanos() == 0) {
+            return;
+        }
+        if (event.getEventTime() != null) {
+            record(interval, Stage.EXCHANGE_TO_RECEIVE,
+                    TimeUnit.MILLISECONDS.toMicros(event.getReceivedAt() - event.getEventTime()));
+        }
+        record(interval, Stage.RECEIVE_TO_DECODE,
+                TimeUnit.NANOSECONDS.toMicros(event.getDecodedNanos() - event.getReceivedNanos()));
+        record(interval, Stage.DECODE_TO_PUSH,
+                TimeUnit.NANOSECONDS.toMicros(pushedNanos - event.getDecodedNanos()));
+    }
+
+    /**
+     * 登记等待落库的已完结 K 线
+     *
+     * @param kline 已提交写入队列的 K 线
+     * @param event 对应的 WebSocket 事件
+     * @param pushedNanos 推送完成时的 System.nanoTime
+     */
+    public void expectCommit(Kline kline, BinanceWsKlineEvent event, long pushedNanos) {
+        if (!enabled || event.getReceivedNanos() == 0) {
+            return;
+        }
+        pendingCommits.put(key(kline), new PendingCommit(event.getSubscriptionKey(),
+                event.getEventTime() != null ? event.getEventTime() : 0L,
+                event.getReceivedAt(), event.getReceivedNanos(), event.getDecodedNanos(), pushedNanos));
+    }
+
+    /**
+     * 取消登记（写入队列拒绝）
+     *
+     * @param kline K 线
+     */
+    public void discard(Kline kline) {
+        pendingCommits.remove(key(kline));
+    }
+
+    /**
+     * 写线程提交事务后回调：记录落库阶段并输出慢链路
+     *
+     * @param klines 本次提交的 K 线
+     * @param committedAt 提交时间
+     */
+    public void onCommitted(List<Kline> klines, Instant committedAt) {
+        if (!enabled) {
+            return;
+        }
+        long committedNanos = System.nanoTime();
+        long committedMillis = committedAt.toEpochMilli();
+        for (Kline kline : klines) {
+            PendingCommit pending = pendingCommits.remove(key(kline));
+            if (pending == null) {
+                continue;
+            }
+            long closeToCommitMs = kline.getCloseTime() != null
+                    ? committedMillis - kline.getCloseTime().toEpochMilli() - 1 : -1;
+            if (closeToCommitMs >= 0) {
+                record(kline.getInterval(), Stage.CLOSE_TO_COMMIT, TimeUnit.MILLISECONDS.toMicros(closeToCommitMs));
+            }
+            long decodeToCommitNanos = committedNanos - pending.decodedNanos();
+            record(kline.getInterval(), Stage.DECODE_TO_COMMIT, TimeUnit.NANOSECONDS.toMicros(decodeToCommitNanos));
+
+            if (closeToCommitMs > slowThresholdMs) {
+                log.warn("Slow realtime kline: subscription={}, openTime={}, closeToCommit={}ms, "
+                                + "exchangeToReceive={}ms, receiveToDecode={}us, decodeToPush={}us, decodeToCommit={}ms",
+                        pending.subscriptionKey(), kline.getOpenTime(), closeToCommitMs,
+                        pending.eventTime() > 0 ? pending.receivedAt() - pending.eventTime() : null,
+                        TimeUnit.NANOSECONDS.toMicros(pending.decodedNanos() - pending.receivedNanos()),
+                        TimeUnit.NANOSECONDS.toMicros(pending.pushedNanos() - pending.decodedNanos()),
+                        TimeUnit.NANOSECONDS.toMillis(decodeToCommitNanos));
+            }
+        }
+        evictExpired(committedNanos);
+    }
+
+    /**
+     * 获取延迟分位统计（自启动或上次重置以来）
+     *
+     * @param interval 时间周期（为空时返回全部周期）
+     * @return 按周期、阶段排序的统计
+     */
+    public List<KlineLatencyDTO> getStats(String interval) {
+        List<KlineLatencyDTO> result = new ArrayList<>();
+        for (Map.Entry<String, Map<Stage, StageHistogram>> entry : new TreeMap<>(histograms).entrySet()) {
+            if (interval != null && !interval.equals(entry.getKey())) {
+                continue;
+            }
+            for (Stage stage : Stage.values()) {
+                StageHistogram histogram = entry.getValue().get(stage);
+                if (histogram != null) {
+                    result.add(toDTO(entry.getKey(), stage, histogram.snapshot()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 清空所有直方图
+     */
+    public void reset() {
+        histograms.values().forEach(stages -> stages.values().forEach(StageHistogram::reset));
+    }
+
+    /**
+     * 等待落库的 K 线数量
+     */
+    public int getPendingCount() {
+        return pendingCommits.size();
+    }
+
+    private void record(String interval, Stage stage, long micros) {
+        histograms.computeIfAbsent(interval, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(stage, k -> new StageHistogram())
+                .record(micros);
+    }
+
+    private void evictExpired(long nowNanos) {
+        Iterator<PendingCommit> it = pendingCommits.values().iterator();
+        while (it.hasNext()) {
+            if (nowNanos - it.next().decodedNanos() > PENDING_TTL_NANOS) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String key(Kline kline) {
+        return kline.getSymbolId() + "_" + kline.getInterval() + "_" + kline.getOpenTime().toEpochMilli();
+    }
+
+    private static KlineLatencyDTO toDTO(String interval, Stage stage, Histogram histogram) {
+        return KlineLatencyDTO.builder()
+                .interval(interval)
+                .stage(stage.name())
+                .count(histogram.getTotalCount())
+                .p50Ms(toMillis(histogram.getValueAtPercentile(50)))
+                .p99Ms(toMillis(histogram.getValueAtPercentile(99)))
+                .p999Ms(toMillis(histogram.getValueAtPercentile(99.9)))
+                .maxMs(toMillis(histogram.getMaxValue()))
+                .meanMs(histogram.getTotalCount() > 0 ? histogram.getMean() / 1000.0 : 0)
+                .build();
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,132 @@
+package com.chanlun.service;
+
+import com.chanlun.mapper.KlinePartitionMapper;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * K线分区维护服务
+ * 
+ * kline 按 open_time 的 UTC 自然月分区（V11），本服务负责：
+ * - 预建当前月及未来 premakeMonths 个月的分区，避免数据落入兜底分区
+ * - 按 retentionMonths 分离（默认）或删除过期分区，代替大范围 DELETE
+ * 
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KlinePartitionService {
+
+    private final KlinePartitionMapper klinePartitionMapper;
+
+    /**
+     * 预建未来分区的月数
+     */
+    @Value("${app.kline.partition.premake-months:3}")
+    private int premakeMonths = 3;
+
+    /**
+     * 保留月数（0 表示不清理）
+     */
+    @Value("${app.kline.partition.retention-months:0}")
+    private int retentionMonths = 0;
+
+    /**
+     * 过期分区是否直接删除（false 仅分离，保留为独立表便于归档）
+     */
+    @Value("${app.kline.partition.retention-drop:false}")
+    private boolean retentionDrop = false;
+
+    /**
+     * 分区维护结果
+     */
+    @Data
+    @Builder
+    public static class MaintenanceResult {
+        private List<String> ensuredPartitions;
+        private List<String> retiredPartitions;
+        private boolean dropped;
+        private long defaultPartitionRows;
+    }
+
+    /**
+     * 执行一次分区维护
+     * 
+     * @return 维护结果
+     */
+    public MaintenanceResult maintain() {
+        return maintain(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    MaintenanceResult maintain(YearMonth currentMonth) {
+        List<String> ensured = ensureFuturePartitions(currentMonth);
+        List<String> retired = retireExpiredPartitions(currentMonth);
+        long defaultRows = klinePartitionMapper.countDefaultPartitionRows();
+        if (defaultRows > 0) {
+            log.warn("Kline default partition holds {} rows, consider increasing premake-months", defaultRows);
+        }
+        return MaintenanceResult.builder()
+                .ensuredPartitions(ensured)
+                .retiredPartitions(retired)
+                .dropped(retentionDrop)
+                .defaultPartitionRows(defaultRows)
+                .build();
+    }
+
+    /**
+     * 预建当前月至未来 premakeMonths 个月的分区
+     * 
+     * @param currentMonth 当前月份 (UTC)
+     * @return 分区名列表
+     */
+    public List<String> ensureFuturePartitions(YearMonth currentMonth) {
+        List<String> partitions = new ArrayList<>();
+        for (int i = 0; i <= Math.max(premakeMonths, 0); i++) {
+            partitions.add(klinePartitionMapper.ensurePartition(currentMonth.plusMonths(i).atDay(1)));
+        }
+        log.debug("Ensured kline partitions: {}", partitions);
+        return partitions;
+    }
+
+    /**
+     * 分离或删除超出保留期的分区
+     * 
+     * 保留当前月及之前 retentionMonths 个完整月，更早的分区整体分离/删除
+     * 
+     * @param currentMonth 当前月份 (UTC)
+     * @return 处理的分区名列表
+     */
+    public List<String> retireExpiredPartitions(YearMonth currentMonth) {
+        if (retentionMonths <= 0) {
+            return Collections.emptyList();
+        }
+        Instant cutoff = currentMonth.minusMonths(retentionMonths).atDay(1)
+                .atStartOfDay(ZoneOffset.UTC).toInstant();
+        List<String> retired = klinePartitionMapper.retirePartitions(cutoff, retentionDrop);
+        if (!retired.isEmpty()) {
+            log.info("{} kline partitions before {}: {}", retentionDrop ? "Dropped" : "Detached", cutoff, retired);
+        }
+        return retired;
+    }
+
+    /**
+     * 查询当前挂载的分区
+     * 
+     * @return 分区名列表
+     */
+    public List<String> getPartitions() {
+        return klinePartitionMapper.selectPartitionNames();
+    }
+}
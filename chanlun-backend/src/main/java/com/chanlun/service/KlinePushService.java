@@ -0,0 +1,514 @@
+package com.chanlun.service;
+
+import com.chanlun.dto.KlineDTO;
+import com.chanlun.entity.Kline;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 实时 K 线推送服务
+ *
+ * 把交易所 WebSocket 收到的 K 线事件（含未完结 K 线的更新）按 (交易对, 周期) 主题推送给订阅的客户端：
+ * - 每个事件只序列化一次，同一个 TextMessage 分发给该主题的所有订阅者
+ * - 每个订阅者一个待发送表，按 (主题, 开盘时间) 合并：发送跟不上时同一根 K 线只保留最新状态，
+ *   已完结事件会覆盖同一根 K 线的未完结更新，不会被后续 K 线挤掉
+ * - 同一订阅者同时只有一条消息在发送；原生会话走异步发送，完成回调后再发下一条，发送线程不会被慢客户端阻塞，
+ *   慢客户端只会积压自己的待发送表（超过上限或单条发送超时即断开）
+ * - 订阅时下发该主题最近一次事件作为快照，不查询数据库（无订阅者期间未完结更新不会被解码，快照可能是上一根完结 K 线）
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+public class KlinePushService {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 是否启用推送
+     */
+    @Value("${app.realtime.push.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 发送线程数（只执行非阻塞的发送调度，非原生会话退回阻塞发送）
+     */
+    @Value("${app.realtime.push.sender-threads:4}")
+    private int senderThreads = 4;
+
+    /**
+     * 单个连接最多订阅的主题数
+     */
+    @Value("${app.realtime.push.max-topics-per-session:200}")
+    private int maxTopicsPerSession = 200;
+
+    /**
+     * 单个连接最多积压的待发送消息数（合并后），超过视为客户端失联并断开
+     */
+    @Value("${app.realtime.push.max-pending-per-session:1000}")
+    private int maxPendingPerSession = 1000;
+
+    /**
+     * 单条消息异步发送超时，超时后连接被视为失联
+     */
+    @Value("${app.realtime.push.send-timeout-ms:5000}")
+    private long sendTimeoutMs = 5000;
+
+    /**
+     * 主题 -> 订阅者
+     */
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+
+    /**
+     * 连接ID -> 订阅者
+     */
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * 主题 -> 最近一次事件（订阅快照）
+     */
+    private final Map<String, PushEvent> lastEvents = new ConcurrentHashMap<>();
+
+    private final AtomicLong publishedCount = new AtomicLong(0);
+    private final AtomicLong deliveredCount = new AtomicLong(0);
+    private final AtomicLong sentCount = new AtomicLong(0);
+    private final AtomicLong conflatedCount = new AtomicLong(0);
+    private final AtomicLong droppedSessionCount = new AtomicLong(0);
+
+    private ExecutorService ownedExecutor;
+    private Executor sender;
+
+    public KlinePushService(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 推送事件
+     *
+     * @param type 事件类型（kline）
+     * @param closed K 线是否已完结
+     * @param kline K 线数据
+     */
+    public record PushEvent(String type, boolean closed, KlineDTO kline) {
+    }
+
+    /**
+     * 推送统计
+     */
+    @Data
+    @Builder
+    public static class PushStats {
+        private boolean enabled;
+        private int sessions;
+        private int topics;
+        private long published;
+        private long delivered;
+        private long sent;
+        private long conflated;
+        private long droppedSessions;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (sender != null) {
+            return;
+        }
+        AtomicInteger threadIndex = new AtomicInteger(0);
+        ownedExecutor = Executors.newFixedThreadPool(Math.max(1, senderThreads), r -> {
+            Thread t = new Thread(r, "kline-push-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        sender = ownedExecutor;
+        log.info("KlinePushService started: enabled={}, senderThreads={}", enabled, senderThreads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 指定发送执行器（测试用）
+     */
+    void setSender(Executor sender) {
+        this.sender = sender;
+    }
+
+    // ==================== 连接与订阅 ====================
+
+    /**
+     * 注册连接
+     */
+    public void register(WebSocketSession session) {
+        subscribers.computeIfAbsent(session.getId(), id -> new Subscriber(session, asyncRemote(session)));
+    }
+
+    /**
+     * 注销连接并移除其全部订阅
+     */
+    public void unregister(WebSocketSession session) {
+        Subscriber subscriber = subscribers.remove(session.getId());
+        if (subscriber == null) {
+            return;
+        }
+        for (String topic : subscriber.topics) {
+            removeFromTopic(topic, subscriber);
+        }
+        subscriber.topics.clear();
+    }
+
+    /**
+     * 订阅主题
+     *
+     * @return false 表示超过单连接订阅上限，或连接未注册（已断开）
+     */
+    public boolean subscribe(WebSocketSession session, Long symbolId, String interval) {
+        Subscriber subscriber = subscribers.get(session.getId());
+        if (subscriber == null) {
+            return false;
+        }
+        String topic = topic(symbolId, interval);
+        if (!subscriber.topics.contains(topic) && subscriber.topics.size() >= maxTopicsPerSession) {
+            return false;
+        }
+        if (subscriber.topics.add(topic)) {
+            topics.compute(topic, (t, set) -> {
+                Set<Subscriber> target = set != null ? set : ConcurrentHashMap.newKeySet();
+                target.add(subscriber);
+                return target;
+            });
+        }
+        return true;
+    }
+
+    /**
+     * 向连接下发主题最近一次事件（内存快照，不查库）
+     */
+    public void sendSnapshot(WebSocketSession session, Long symbolId, String interval) {
+        Subscriber subscriber = subscribers.get(session.getId());
+        String topic = topic(symbolId, interval);
+        PushEvent last = lastEvents.get(topic);
+        if (subscriber == null || last == null) {
+            return;
+        }
+        TextMessage snapshot = serialize(last);
+        if (snapshot != null) {
+            enqueue(subscriber, eventKey(topic, last), snapshot);
+        }
+    }
+
+    /**
+     * 取消订阅主题
+     */
+    public void unsubscribe(WebSocketSession session, Long symbolId, String interval) {
+        Subscriber subscriber = subscribers.get(session.getId());
+        if (subscriber == null) {
+            return;
+        }
+        String topic = topic(symbolId, interval);
+        if (subscriber.topics.remove(topic)) {
+            removeFromTopic(topic, subscriber);
+        }
+    }
+
+    /**
+     * 向单个连接发送控制消息（订阅确认、错误、心跳），与推送共用发送队列，保证同一连接单线程发送
+     *
+     * 连接未注册（已断开或因积压被丢弃）时忽略
+     */
+    public void reply(WebSocketSession session, String payload) {
+        Subscriber subscriber = subscribers.get(session.getId());
+        if (subscriber == null) {
+            return;
+        }
+        enqueue(subscriber, "#" + subscriber.controlSeq.incrementAndGet(), new TextMessage(payload));
+    }
+
+    /**
+     * 主题是否有订阅者
+     */
+    public boolean hasSubscribers(Long symbolId, String interval) {
+        return enabled && topics.containsKey(topic(symbolId, interval));
+    }
+
+    private void removeFromTopic(String topic, Subscriber subscriber) {
+        topics.computeIfPresent(topic, (t, set) -> {
+            set.remove(subscriber);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    // ==================== 发布 ====================
+
+    /**
+     * 发布 K 线事件
+     *
+     * @param kline K 线
+     * @param closed 是否已完结
+     */
+    public void publish(Kline kline, boolean closed) {
+        if (!enabled || kline == null || kline.getSymbolId() == null || kline.getOpenTime() == null) {
+            return;
+        }
+        String topic = topic(kline.getSymbolId(), kline.getInterval());
+        PushEvent event = new PushEvent("kline", closed, KlineDTO.fromEntity(kline));
+        lastEvents.put(topic, event);
+        publishedCount.incrementAndGet();
+
+        Set<Subscriber> targets = topics.get(topic);
+        if (targets == null || targets.isEmpty()) {
+            return;
+        }
+        // 只序列化一次，所有订阅者共享同一个消息对象
+        TextMessage message = serialize(event);
+        if (message == null) {
+            return;
+        }
+        String key = eventKey(topic, event);
+        for (Subscriber subscriber : targets) {
+            enqueue(subscriber, key, message);
+        }
+    }
+
+    private TextMessage serialize(PushEvent event) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize push event: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // ==================== 发送 ====================
+
+    private void enqueue(Subscriber subscriber, String key, TextMessage message) {
+        int pending = subscriber.offer(key, message);
+        deliveredCount.incrementAndGet();
+        if (pending < 0) {
+            conflatedCount.incrementAndGet();
+        } else if (pending > maxPendingPerSession) {
+            drop(subscriber, "pending messages exceeded " + maxPendingPerSession);
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> sendNext(subscriber));
+            } catch (Exception e) {
+                subscriber.draining.set(false);
+                log.warn("Push sender rejected task: session={}, error={}", subscriber.session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 发送订阅者积压的下一条消息（调用方持有 draining），发送完成后继续，直到清空
+     */
+    private void sendNext(Subscriber subscriber) {
+        TextMessage message = subscriber.next();
+        while (message == null) {
+            subscriber.draining.set(false);
+            // 释放后再检查一次，避免与并发 offer 之间丢失唤醒
+            if (!subscriber.hasPending() || !subscriber.draining.compareAndSet(false, true)) {
+                return;
+            }
+            message = subscriber.next();
+        }
+
+        WebSocketSession session = subscriber.session;
+        if (!session.isOpen()) {
+            subscriber.draining.set(false);
+            unregister(session);
+            return;
+        }
+        if (subscriber.async == null) {
+            // 非原生会话退回阻塞发送
+            try {
+                session.sendMessage(message);
+            } catch (IOException | RuntimeException e) {
+                fail(subscriber, e.getMessage());
+                return;
+            }
+            sent(subscriber);
+            return;
+        }
+        try {
+            subscriber.async.sendText(message.getPayload(), result -> {
+                if (result.isOK()) {
+                    sent(subscriber);
+                } else {
+                    Throwable error = result.getException();
+                    fail(subscriber, error != null ? error.getMessage() : "async send failed");
+                }
+            });
+        } catch (RuntimeException e) {
+            fail(subscriber, e.getMessage());
+        }
+    }
+
+    /**
+     * 一条消息发送完成，交给发送线程继续（异步回调可能在容器 IO 线程上执行）
+     */
+    private void sent(Subscriber subscriber) {
+        sentCount.incrementAndGet();
+        try {
+            sender.execute(() -> sendNext(subscriber));
+        } catch (Exception e) {
+            subscriber.draining.set(false);
+            log.warn("Push sender rejected task: session={}, error={}", subscriber.session.getId(), e.getMessage());
+        }
+    }
+
+    private void fail(Subscriber subscriber, String reason) {
+        subscriber.draining.set(false);
+        drop(subscriber, reason);
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        if (subscribers.remove(subscriber.session.getId()) == null) {
+            return;
+        }
+        for (String topic : subscriber.topics) {
+            removeFromTopic(topic, subscriber);
+        }
+        subscriber.clear();
+        droppedSessionCount.incrementAndGet();
+        log.warn("Dropped push session: id={}, reason={}", subscriber.session.getId(), reason);
+        try {
+            subscriber.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Failed to close push session {}: {}", subscriber.session.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 获取原生会话的异步发送端并设置发送超时，非原生会话返回 null
+     */
+    private RemoteEndpoint.Async asyncRemote(WebSocketSession session) {
+        if (session instanceof NativeWebSocketSession nativeWebSocketSession) {
+            Session nativeSession = nativeWebSocketSession.getNativeSession(Session.class);
+            if (nativeSession != null) {
+                RemoteEndpoint.Async remote = nativeSession.getAsyncRemote();
+                remote.setSendTimeout(sendTimeoutMs);
+                return remote;
+            }
+        }
+        return null;
+    }
+
+    static String topic(Long symbolId, String interval) {
+        return symbolId + "_" + interval;
+    }
+
+    private static String eventKey(String topic, PushEvent event) {
+        return topic + "@" + event.kline().getOpenTime().toEpochMilli();
+    }
+
+    /**
+     * 获取推送统计
+     */
+    public PushStats getStats() {
+        return PushStats.builder()
+                .enabled(enabled)
+                .sessions(subscribers.size())
+                .topics(topics.size())
+                .published(publishedCount.get())
+                .delivered(deliveredCount.get())
+                .sent(sentCount.get())
+                .conflated(conflatedCount.get())
+                .droppedSessions(droppedSessionCount.get())
+                .build();
+    }
+
+    /**
+     * 单个连接的订阅状态和待发送表
+     */
+    private static final class Subscriber {
+
+        private final WebSocketSession session;
+
+        /**
+         * 原生会话的异步发送端，null 表示只能阻塞发送
+         */
+        private final RemoteEndpoint.Async async;
+        private final Set<String> topics = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean draining = new AtomicBoolean(false);
+        private final AtomicLong controlSeq = new AtomicLong(0);
+
+        /**
+         * (主题@开盘时间 | 控制消息序号) -> 最新消息，保持首次加入的顺序
+         */
+        private final LinkedHashMap<String, TextMessage> pending = new LinkedHashMap<>();
+
+        private Subscriber(WebSocketSession session, RemoteEndpoint.Async async) {
+            this.session = session;
+            this.async = async;
+        }
+
+        /**
+         * 加入待发送表
+         *
+         * @return 合并已有消息时返回 -1，否则返回加入后的积压数量
+         */
+        private int offer(String key, TextMessage message) {
+            synchronized (pending) {
+                return pending.put(key, message) != null ? -1 : pending.size();
+            }
+        }
+
+        /**
+         * 取出最早加入的一条，未发送的消息留在表中继续参与合并
+         */
+        private TextMessage next() {
+            synchronized (pending) {
+                Iterator<TextMessage> iterator = pending.values().iterator();
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                TextMessage message = iterator.next();
+                iterator.remove();
+                return message;
+            }
+        }
+
+        private boolean hasPending() {
+            synchronized (pending) {
+                return !pending.isEmpty();
+            }
+        }
+
+        private void clear() {
+            synchronized (pending) {
+                pending.clear();
+            }
+        }
+    }
+}
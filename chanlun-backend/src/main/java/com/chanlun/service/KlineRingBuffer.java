@@ -0,0 +1,360 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 单个 (交易对, 周期) 的 K 线环形缓冲区
+ *
+ * 按开盘时间升序保存最近 capacity 根 K 线，字段存放在原始类型数组中：
+ * - 时间为 epoch 毫秒
+ * - 价格和成交量按数据库精度（8 位小数）缩放为 long，超出 long 范围的值单独保存
+ *
+ * 缓冲区只保证 [最早一根, 最新一根] 区间内与数据库一致：
+ * - 新 K 线追加到尾部，满时覆盖最早一根
+ * - 已存在的开盘时间原地更新
+ * - 早于窗口的 K 线不缓存
+ * - 窗口内插入缺失的 K 线（缺口回补）无法原地完成，缓冲区标记为失效，由调用方重新加载
+ *
+ * @author Chanlun Team
+ */
+public class KlineRingBuffer {
+
+    /**
+     * 与 kline 表 DECIMAL(24,8) 一致
+     */
+    static final int SCALE = 8;
+
+    private final Long symbolId;
+    private final String interval;
+    private final int capacity;
+
+    private final long[] openTimes;
+    private final long[] closeTimes;
+    private final ScaledColumn open;
+    private final ScaledColumn high;
+    private final ScaledColumn low;
+    private final ScaledColumn close;
+    private final ScaledColumn volume;
+    private final ScaledColumn quoteVolume;
+    private final int[] trades;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 最早一根的物理下标
+     */
+    private int head;
+    private int size;
+
+    /**
+     * 是否已从数据库加载
+     */
+    private boolean ready;
+
+    /**
+     * 是否包含该周期的全部历史（加载时数据库记录数小于容量）
+     */
+    private boolean complete;
+
+    /**
+     * 是否已失效（需要重新加载）
+     */
+    private boolean stale;
+
+    public KlineRingBuffer(Long symbolId, String interval, int capacity) {
+        this.symbolId = symbolId;
+        this.interval = interval;
+        this.capacity = capacity;
+        this.openTimes = new long[capacity];
+        this.closeTimes = new long[capacity];
+        this.open = new ScaledColumn(capacity);
+        this.high = new ScaledColumn(capacity);
+        this.low = new ScaledColumn(capacity);
+        this.close = new ScaledColumn(capacity);
+        this.volume = new ScaledColumn(capacity);
+        this.quoteVolume = new ScaledColumn(capacity);
+        this.trades = new int[capacity];
+    }
+
+    /**
+     * 用数据库快照初始化缓冲区
+     *
+     * 加载期间追加的 K 线（更新）优先保留
+     *
+     * @param snapshot 数据库中最近的 K 线（升序）
+     * @param requested 加载时请求的数量，快照不足该数量说明已包含全部历史
+     */
+    public void load(List<Kline> snapshot, int requested) {
+        lock.writeLock().lock();
+        try {
+            List<Kline> pending = snapshotLocked(0, size);
+            head = 0;
+            size = 0;
+            stale = false;
+            for (Kline kline : snapshot) {
+                appendLocked(kline);
+            }
+            complete = snapshot.size() < requested;
+            for (Kline kline : pending) {
+                upsertLocked(kline);
+            }
+            ready = !stale;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 写入一根 K 线
+     *
+     * @param kline K 线
+     * @return false 表示无法原地写入，缓冲区已失效
+     */
+    public boolean upsert(Kline kline) {
+        lock.writeLock().lock();
+        try {
+            upsertLocked(kline);
+            return !stale;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void upsertLocked(Kline kline) {
+        if (kline == null || kline.getOpenTime() == null) {
+            return;
+        }
+        long openTime = kline.getOpenTime().toEpochMilli();
+        if (size == 0 || openTime > openTimes[physical(size - 1)]) {
+            appendLocked(kline);
+            return;
+        }
+        if (openTime < openTimes[head]) {
+            // 早于窗口：窗口内数据不受影响，但不再包含全部历史
+            complete = false;
+            return;
+        }
+        int idx = indexOf(openTime);
+        if (idx >= 0) {
+            writeLocked(physical(idx), kline);
+        } else {
+            // 窗口内插入（缺口回补）
+            stale = true;
+            ready = false;
+        }
+    }
+
+    private void appendLocked(Kline kline) {
+        int slot;
+        if (size < capacity) {
+            slot = physical(size);
+            size++;
+        } else {
+            slot = head;
+            head = (head + 1) % capacity;
+            complete = false;
+        }
+        writeLocked(slot, kline);
+    }
+
+    private void writeLocked(int slot, Kline kline) {
+        openTimes[slot] = kline.getOpenTime().toEpochMilli();
+        closeTimes[slot] = kline.getCloseTime() != null ? kline.getCloseTime().toEpochMilli() : Long.MIN_VALUE;
+        open.set(slot, kline.getOpen());
+        high.set(slot, kline.getHigh());
+        low.set(slot, kline.getLow());
+        close.set(slot, kline.getClose());
+        volume.set(slot, kline.getVolume());
+        quoteVolume.set(slot, kline.getQuoteVolume());
+        trades[slot] = kline.getTrades() != null ? kline.getTrades() : Integer.MIN_VALUE;
+    }
+
+    /**
+     * 获取最新的 limit 根 K 线（升序）
+     *
+     * @return 缓冲区无法完整覆盖时返回 null
+     */
+    public List<Kline> latest(int limit) {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return null;
+            }
+            if (limit > size && !complete) {
+                return null;
+            }
+            int count = Math.min(limit, size);
+            return snapshotLocked(size - count, size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取时间范围内的 K 线（升序，最多 limit 根）
+     *
+     * @return 缓冲区无法完整覆盖起始时间时返回 null
+     */
+    public List<Kline> range(Instant startTime, Instant endTime, int limit) {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return null;
+            }
+            long start = startTime.toEpochMilli();
+            long end = endTime.toEpochMilli();
+            if (size == 0) {
+                return complete ? Collections.emptyList() : null;
+            }
+            if (start < openTimes[head] && !complete) {
+                return null;
+            }
+            int from = lowerBound(start);
+            int to = from;
+            while (to < size && to - from < limit && openTimes[physical(to)] <= end) {
+                to++;
+            }
+            return snapshotLocked(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 缓冲区是否可用
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private List<Kline> snapshotLocked(int from, int to) {
+        List<Kline> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add(toKline(physical(i)));
+        }
+        return result;
+    }
+
+    private Kline toKline(int slot) {
+        return Kline.builder()
+                .symbolId(symbolId)
+                .interval(interval)
+                .openTime(Instant.ofEpochMilli(openTimes[slot]))
+                .closeTime(closeTimes[slot] == Long.MIN_VALUE ? null : Instant.ofEpochMilli(closeTimes[slot]))
+                .open(open.get(slot))
+                .high(high.get(slot))
+                .low(low.get(slot))
+                .close(close.get(slot))
+                .volume(volume.get(slot))
+                .quoteVolume(quoteVolume.get(slot))
+                .trades(trades[slot] == Integer.MIN_VALUE ? null : trades[slot])
+                .build();
+    }
+
+    private int physical(int logical) {
+        return (head + logical) % capacity;
+    }
+
+    /**
+     * 二分查找开盘时间对应的逻辑下标，不存在返回 -1
+     */
+    private int indexOf(long openTime) {
+        int idx = lowerBound(openTime);
+        return idx < size && openTimes[physical(idx)] == openTime ? idx : -1;
+    }
+
+    /**
+     * 第一个开盘时间 >= openTime 的逻辑下标
+     */
+    private int lowerBound(long openTime) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (openTimes[physical(mid)] < openTime) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * 按 10^8 缩放存储的十进制列
+     */
+    private static final class ScaledColumn {
+
+        private static final long NULL_OR_OVERFLOW = Long.MIN_VALUE;
+
+        private final long[] values;
+
+        /**
+         * 超出 long 范围的值（按需分配）
+         */
+        private BigDecimal[] overflow;
+
+        ScaledColumn(int capacity) {
+            this.values = new long[capacity];
+        }
+
+        void set(int slot, BigDecimal value) {
+            if (value != null) {
+                BigDecimal scaled = value.setScale(SCALE, RoundingMode.HALF_UP);
+                try {
+                    long unscaled = scaled.unscaledValue().longValueExact();
+                    if (unscaled != NULL_OR_OVERFLOW) {
+                        values[slot] = unscaled;
+                        if (overflow != null) {
+                            overflow[slot] = null;
+                        }
+                        return;
+                    }
+                } catch (ArithmeticException ignored) {
+                    // 超出 long 范围
+                }
+                if (overflow == null) {
+                    overflow = new BigDecimal[values.length];
+                }
+                overflow[slot] = scaled;
+            } else if (overflow != null) {
+                overflow[slot] = null;
+            }
+            values[slot] = NULL_OR_OVERFLOW;
+        }
+
+        BigDecimal get(int slot) {
+            long value = values[slot];
+            if (value == NULL_OR_OVERFLOW) {
+                return overflow != null ? overflow[slot] : null;
+            }
+            return BigDecimal.valueOf(value, SCALE);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 由 1m K 线合成高周期 K 线
+ *
+ * 周期对齐与币安一致（UTC）：
+ * - 3m ~ 1d、3d 按自 1970-01-01 起的固定时长对齐
+ * - 1w 从周一 00:00 开始
+ * - 1M 从每月 1 日 00:00 开始
+ *
+ * 单个交易对的合成状态：1m K 线按开盘时间升序逐根输入，每个目标周期只保留当前未完结的一根，
+ * 输入到周期最后一分钟时输出；跳过周期末尾直接进入下一周期时，上一根也会输出并标记为不连续
+ *
+ * 非线程安全，由调用方串行访问
+ *
+ * @author Chanlun Team
+ */
+public final class KlineRollup {
+
+    /**
+     * 合成的基础周期
+     */
+    public static final String BASE_INTERVAL = "1m";
+
+    /**
+     * 基础周期毫秒数
+     */
+    public static final long BASE_MILLIS = 60_000L;
+
+    /**
+     * 1970-01-01 为周四，之后第一个周一为 01-05
+     */
+    private static final long WEEK_OFFSET_MILLIS = 4 * 24 * 60 * 60_000L;
+
+    private static final long WEEK_MILLIS = 7 * 24 * 60 * 60_000L;
+
+    /**
+     * 合成完成的一根 K 线
+     *
+     * @param kline 高周期 K 线
+     * @param bars 参与合成的 1m K 线数量
+     * @param contiguous 是否从周期第一分钟连续输入到最后一分钟（否则可能缺少部分 1m K 线）
+     */
+    public record Completed(Kline kline, int bars, boolean contiguous) {
+    }
+
+    /**
+     * 当前未完结的一根
+     */
+    private static final class Bucket {
+        final String interval;
+        final long start;
+        final long end;
+        BigDecimal open;
+        BigDecimal high;
+        BigDecimal low;
+        BigDecimal close;
+        BigDecimal volume = BigDecimal.ZERO;
+        BigDecimal quoteVolume = BigDecimal.ZERO;
+        int trades;
+        int bars;
+        long lastOpenTime;
+        boolean contiguous;
+
+        Bucket(String interval, long start, long end) {
+            this.interval = interval;
+            this.start = start;
+            this.end = end;
+        }
+
+        void add(Kline kline, long openTime) {
+            if (bars == 0) {
+                open = kline.getOpen();
+                high = kline.getHigh();
+                low = kline.getLow();
+                contiguous = openTime == start;
+            } else {
+                high = high.max(kline.getHigh());
+                low = low.min(kline.getLow());
+                contiguous &= openTime == lastOpenTime + BASE_MILLIS;
+            }
+            close = kline.getClose();
+            if (kline.getVolume() != null) {
+                volume = volume.add(kline.getVolume());
+            }
+            if (kline.getQuoteVolume() != null) {
+                quoteVolume = quoteVolume.add(kline.getQuoteVolume());
+            }
+            if (kline.getTrades() != null) {
+                trades += kline.getTrades();
+            }
+            bars++;
+            lastOpenTime = openTime;
+        }
+
+        boolean reachedEnd() {
+            return lastOpenTime + BASE_MILLIS >= end;
+        }
+
+        Completed complete(Long symbolId) {
+            Kline kline = Kline.builder()
+                    .symbolId(symbolId)
+                    .interval(interval)
+                    .openTime(Instant.ofEpochMilli(start))
+                    .open(open)
+                    .high(high)
+                    .low(low)
+                    .close(close)
+                    .volume(volume)
+                    .quoteVolume(quoteVolume)
+                    .trades(trades)
+                    .closeTime(Instant.ofEpochMilli(end - 1))
+                    .build();
+            return new Completed(kline, bars, contiguous && reachedEnd());
+        }
+    }
+
+    private final Long symbolId;
+    private final List<String> intervals;
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>();
+    private long lastOpenTime = Long.MIN_VALUE;
+
+    /**
+     * @param symbolId 交易对ID
+     * @param intervals 目标周期（不含 1m）
+     */
+    public KlineRollup(Long symbolId, List<String> intervals) {
+        for (String interval : intervals) {
+            if (!isSupported(interval)) {
+                throw new IllegalArgumentException("Unsupported rollup interval: " + interval);
+            }
+        }
+        this.symbolId = symbolId;
+        this.intervals = List.copyOf(intervals);
+    }
+
+    /**
+     * 输入一根 1m K 线
+     *
+     * @param kline 1m K 线
+     * @param out 收集合成完成的 K 线
+     * @return false 表示开盘时间不晚于上一根（乱序或重复），未输入
+     */
+    public boolean add(Kline kline, List<Completed> out) {
+        long openTime = kline.getOpenTime().toEpochMilli();
+        if (openTime <= lastOpenTime) {
+            return false;
+        }
+        lastOpenTime = openTime;
+        for (String interval : intervals) {
+            long start = bucketStart(openTime, interval);
+            Bucket bucket = buckets.get(interval);
+            if (bucket != null && bucket.start != start) {
+                out.add(bucket.complete(symbolId));
+                bucket = null;
+            }
+            if (bucket == null) {
+                bucket = new Bucket(interval, start, bucketEnd(start, interval));
+                buckets.put(interval, bucket);
+            }
+            bucket.add(kline, openTime);
+            if (bucket.reachedEnd()) {
+                out.add(bucket.complete(symbolId));
+                buckets.remove(interval);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 输出周期结束时间不晚于 until 的未完结 K 线（末尾缺少 1m K 线）
+     *
+     * @param until 时间边界（epoch 毫秒）
+     * @param out 收集合成完成的 K 线
+     */
+    public void flush(long until, List<Completed> out) {
+        Iterator<Bucket> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            Bucket bucket = it.next();
+            if (bucket.end <= until) {
+                out.add(bucket.complete(symbolId));
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 最新一根已输入 1m K 线的开盘时间（epoch 毫秒），尚未输入时返回 Long.MIN_VALUE
+     */
+    public long getLastOpenTime() {
+        return lastOpenTime;
+    }
+
+    public List<String> getIntervals() {
+        return intervals;
+    }
+
+    /**
+     * 是否支持由 1m 合成
+     */
+    public static boolean isSupported(String interval) {
+        if (interval == null || BASE_INTERVAL.equals(interval)) {
+            return false;
+        }
+        if ("1w".equals(interval) || "1M".equals(interval)) {
+            return true;
+        }
+        try {
+            return DataGapService.getIntervalMillis(interval) % BASE_MILLIS == 0;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 所属周期的开盘时间
+     *
+     * @param time 时间（epoch 毫秒）
+     * @param interval 目标周期
+     * @return 周期开盘时间（epoch 毫秒）
+     */
+    public static long bucketStart(long time, String interval) {
+        return switch (interval) {
+            case "1w" -> Math.floorDiv(time - WEEK_OFFSET_MILLIS, WEEK_MILLIS) * WEEK_MILLIS + WEEK_OFFSET_MILLIS;
+            case "1M" -> {
+                LocalDate date = Instant.ofEpochMilli(time).atZone(ZoneOffset.UTC).toLocalDate();
+                yield date.withDayOfMonth(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            }
+            default -> {
+                long millis = DataGapService.getIntervalMillis(interval);
+                yield Math.floorDiv(time, millis) * millis;
+            }
+        };
+    }
+
+    /**
+     * 周期结束时间（下一周期开盘时间）
+     *
+     * @param start 周期开盘时间（epoch 毫秒）
+     * @param interval 目标周期
+     * @return 下一周期开盘时间（epoch 毫秒）
+     */
+    public static long bucketEnd(long start, String interval) {
+        return switch (interval) {
+            case "1w" -> start + WEEK_MILLIS;
+            case "1M" -> ZonedDateTime.ofInstant(Instant.ofEpochMilli(start), ZoneOffset.UTC)
+                    .plusMonths(1).toInstant().toEpochMilli();
+            default -> start + DataGapService.getIntervalMillis(interval);
+        };
+    }
+}
@@ -0,0 +1,710 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.entity.Symbol;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * K 线周期合成服务
+ *
+ * 由已落库的 1m K 线合成 3m ~ 1d、1w、1M 等高周期 K 线（{@link KlineRollup}），减少按周期分别向交易所拉取：
+ * - 增量：1m K 线写库事务提交后（{@link KlineUpsertedEvent}）逐根输入，周期最后一分钟到达时输出；
+ *   重启后首个周期或中间缺少 1m K 线时，从数据库按该周期重新合成
+ * - 迟到：早于已处理位置的 1m 写入（历史回补、缺口回补）只标记各周期被触及的那一根，
+ *   该根在 {@code late-settle-ms} 内不再被触及后才从数据库重新合成，合成结果与已存 K 线相同的不再写入
+ * - 批量：{@link #rollup} 游标按天读取 1m K 线合成（历史回补后补算）
+ *
+ * 交易对 sync_intervals 已包含的周期由交易所直接提供，合成结果只用于一致性校验（开高低收和成交量），
+ * 不覆盖交易所数据；其余周期的合成结果通过 {@link KlineService#batchUpsert} 写入，与交易所数据同样参与缓存和下游计算。
+ * 从 sync_intervals 移除某个周期即改由合成提供
+ *
+ * 所有增量处理在单个后台线程上串行执行
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KlineRollupService {
+
+    /**
+     * 默认合成周期
+     */
+    private static final List<String> DEFAULT_INTERVALS = List.of(
+            "3m", "5m", "15m", "30m", "1h", "2h", "4h", "6h", "8h", "12h", "1d", "1w", "1M");
+
+    /**
+     * 批量合成每次游标读取的时间跨度（1440 根 1m）
+     */
+    private static final long BULK_WINDOW_MILLIS = 24 * 60 * 60_000L;
+
+    /**
+     * 等待交易所 K 线到达后再校验的合成结果上限
+     */
+    private static final int MAX_PENDING_CHECKS = 1000;
+
+    public static final String MISMATCH_METRIC = "kline.rollup.mismatch";
+
+    private final KlineService klineService;
+    private final SymbolService symbolService;
+    private final SyncFilterService syncFilterService;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 是否启用
+     */
+    @Value("${app.kline.rollup.enabled:true}")
+    private boolean enabled = true;
+
+    /**
+     * 合成的目标周期
+     */
+    @Value("${app.kline.rollup.intervals:3m,5m,15m,30m,1h,2h,4h,6h,8h,12h,1d,1w,1M}")
+    private List<String> intervals = DEFAULT_INTERVALS;
+
+    /**
+     * 迟到 1m K 线所在周期多久未再被触及后重新合成（毫秒），回补连续写入同一周期时只合成一次
+     */
+    @Value("${app.kline.rollup.late-settle-ms:5000}")
+    private long lateSettleMillis = 5000;
+
+    /**
+     * 每个交易对的增量合成状态（仅后台线程写入）
+     */
+    private final Map<Long, KlineRollup> series = new ConcurrentHashMap<>();
+
+    /**
+     * 交易所 K 线尚未落库、等待校验的合成结果（仅后台线程访问）
+     */
+    private final Map<String, Kline> pendingChecks = new LinkedHashMap<>();
+
+    /**
+     * 被迟到 1m K 线触及、等待重新合成的周期：交易对 → 周期 → 开盘时间 → 最近触及时间（仅后台线程访问）
+     */
+    private final Map<Long, Map<String, TreeMap<Long, Long>>> lateBuckets = new HashMap<>();
+
+    private final AtomicLong baseKlines = new AtomicLong(0);
+    private final AtomicLong derivedKlines = new AtomicLong(0);
+    private final AtomicLong storeReaggregations = new AtomicLong(0);
+    private final AtomicLong unchangedKlines = new AtomicLong(0);
+    private final AtomicLong verifiedKlines = new AtomicLong(0);
+    private final AtomicLong mismatchedKlines = new AtomicLong(0);
+    private final AtomicLong failureCount = new AtomicLong(0);
+
+    private ScheduledExecutorService ownedExecutor;
+    private Executor worker;
+
+    /**
+     * 合成统计
+     */
+    @Data
+    @Builder
+    public static class RollupStats {
+        private boolean enabled;
+        private List<String> intervals;
+        private int series;
+        private long baseKlines;
+        private long derivedKlines;
+        private long storeReaggregations;
+        /**
+         * 重新合成结果与已存 K 线相同、未重复写入的数量
+         */
+        private long unchangedKlines;
+        private long verifiedKlines;
+        private long mismatchedKlines;
+        private long failures;
+    }
+
+    /**
+     * 批量合成结果
+     */
+    @Data
+    @Builder
+    public static class RollupResult {
+        private Long symbolId;
+        private Instant startTime;
+        private Instant endTime;
+        /**
+         * 读取的 1m K 线数量
+         */
+        private long baseKlines;
+        /**
+         * 写入的合成 K 线数量
+         */
+        private int derivedKlines;
+        /**
+         * 与交易所 K 线一致的数量
+         */
+        private int verifiedKlines;
+        /**
+         * 与交易所 K 线不一致的数量
+         */
+        private int mismatchedKlines;
+    }
+
+    /**
+     * 被迟到 1m K 线触及的一根高周期 K 线
+     *
+     * @param start 周期开盘时间（epoch 毫秒）
+     * @param end 下一周期开盘时间（epoch 毫秒）
+     */
+    private record LateBucket(String interval, long start, long end) {
+    }
+
+    /**
+     * 单次处理的合成计数
+     */
+    private static final class Tally {
+        int derived;
+        int verified;
+        int mismatched;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (String interval : intervals) {
+            if (!KlineRollup.isSupported(interval)) {
+                throw new IllegalStateException("Unsupported rollup interval: " + interval);
+            }
+        }
+        ownedExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "kline-rollup");
+            t.setDaemon(true);
+            return t;
+        });
+        worker = ownedExecutor;
+        if (lateSettleMillis > 0) {
+            // 回补结束后不再有写入事件，定时合成已稳定的迟到周期
+            ownedExecutor.scheduleWithFixedDelay(() -> settleLate(System.currentTimeMillis()),
+                    lateSettleMillis, lateSettleMillis, TimeUnit.MILLISECONDS);
+        }
+        log.info("KlineRollupService started: enabled={}, intervals={}, lateSettleMs={}",
+                enabled, intervals, lateSettleMillis);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 指定后台执行器（测试用）
+     */
+    void setWorker(Executor worker) {
+        this.worker = worker;
+    }
+
+    /**
+     * 指定合成周期（测试用）
+     */
+    void setIntervals(List<String> intervals) {
+        this.intervals = List.copyOf(intervals);
+    }
+
+    /**
+     * 指定迟到周期的稳定时间（测试用）
+     */
+    void setLateSettleMillis(long lateSettleMillis) {
+        this.lateSettleMillis = lateSettleMillis;
+    }
+
+    // ==================== 批量 ====================
+
+    /**
+     * 批量合成时间范围内的高周期 K 线
+     *
+     * 范围按最大周期的边界向外对齐，只输出已读到周期最后一分钟或之后已有 1m K 线的周期
+     *
+     * @param symbolId 交易对ID
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（包含）
+     * @return 合成结果
+     */
+    public RollupResult rollup(Long symbolId, Instant startTime, Instant endTime) {
+        if (!enabled) {
+            throw new BusinessException("K线周期合成未启用");
+        }
+        if (symbolId == null) {
+            throw new BusinessException("交易对ID不能为空");
+        }
+        if (startTime == null || endTime == null) {
+            throw new BusinessException("开始时间和结束时间不能为空");
+        }
+        if (startTime.isAfter(endTime)) {
+            throw new BusinessException("开始时间不能晚于结束时间");
+        }
+
+        List<String> targets = intervals;
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        for (String interval : targets) {
+            from = Math.min(from, KlineRollup.bucketStart(startTime.toEpochMilli(), interval));
+            long last = KlineRollup.bucketStart(endTime.toEpochMilli(), interval);
+            to = Math.max(to, KlineRollup.bucketEnd(last, interval) - 1);
+        }
+        to = Math.min(to, System.currentTimeMillis());
+
+        Set<String> exchangeIntervals = exchangeIntervals(symbolId);
+        KlineRollup rollup = new KlineRollup(symbolId, targets);
+        List<KlineRollup.Completed> completed = new ArrayList<>();
+        Tally tally = new Tally();
+        long bars = 0;
+        for (long windowStart = from; windowStart <= to; windowStart += BULK_WINDOW_MILLIS) {
+            long windowEnd = Math.min(windowStart + BULK_WINDOW_MILLIS - 1, to);
+            bars += klineService.forEachInTimeRange(symbolId, KlineRollup.BASE_INTERVAL,
+                    Instant.ofEpochMilli(windowStart), Instant.ofEpochMilli(windowEnd),
+                    kline -> rollup.add(kline, completed));
+            if (!completed.isEmpty()) {
+                emit(symbolId, toKlines(completed), exchangeIntervals, false, tally);
+                completed.clear();
+            }
+        }
+        baseKlines.addAndGet(bars);
+
+        log.info("Kline rollup completed: symbolId={}, range=[{}, {}], baseKlines={}, derived={}, verified={}, mismatched={}",
+                symbolId, startTime, endTime, bars, tally.derived, tally.verified, tally.mismatched);
+        return RollupResult.builder()
+                .symbolId(symbolId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .baseKlines(bars)
+                .derivedKlines(tally.derived)
+                .verifiedKlines(tally.verified)
+                .mismatchedKlines(tally.mismatched)
+                .build();
+    }
+
+    // ==================== 事件 ====================
+
+    /**
+     * K 线写库事务提交后增量合成
+     *
+     * 合成结果需要写库，交给后台线程执行，不在提交回调中开启新事务
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineUpserted(KlineUpsertedEvent event) {
+        if (!enabled || event.getKlines() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Kline> base = new ArrayList<>();
+        List<Kline> higher = new ArrayList<>();
+        for (Kline kline : event.getKlines()) {
+            if (kline.getSymbolId() == null || kline.getInterval() == null || kline.getOpenTime() == null
+                    || !isClosed(kline, now)) {
+                continue;
+            }
+            if (KlineRollup.BASE_INTERVAL.equals(kline.getInterval())) {
+                base.add(kline);
+            } else if (intervals.contains(kline.getInterval())) {
+                higher.add(kline);
+            }
+        }
+        if (base.isEmpty() && higher.isEmpty()) {
+            return;
+        }
+        worker.execute(() -> process(base, higher));
+    }
+
+    /**
+     * 删除 1m K 线后丢弃该交易对的增量状态（已合成的 K 线保留）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKlineDeleted(KlineDeletedEvent event) {
+        if (event.getInterval() != null && !KlineRollup.BASE_INTERVAL.equals(event.getInterval())) {
+            return;
+        }
+        Long symbolId = event.getSymbolId();
+        worker.execute(() -> {
+            series.remove(symbolId);
+            lateBuckets.remove(symbolId);
+            pendingChecks.keySet().removeIf(key -> key.startsWith(symbolId + "_"));
+        });
+    }
+
+    private void process(List<Kline> base, List<Kline> higher) {
+        try {
+            if (!base.isEmpty()) {
+                applyBase(base);
+            }
+            for (Kline kline : higher) {
+                Kline derived = pendingChecks.remove(checkKey(kline));
+                if (derived != null) {
+                    verify(derived, kline);
+                }
+            }
+        } catch (Exception e) {
+            failureCount.incrementAndGet();
+            log.warn("Kline rollup failed: error={}", e.getMessage(), e);
+        }
+        settleLate(System.currentTimeMillis());
+    }
+
+    private void applyBase(List<Kline> base) {
+        Map<Long, List<Kline>> grouped = new LinkedHashMap<>();
+        for (Kline kline : base) {
+            grouped.computeIfAbsent(kline.getSymbolId(), k -> new ArrayList<>()).add(kline);
+        }
+        for (Map.Entry<Long, List<Kline>> entry : grouped.entrySet()) {
+            Long symbolId = entry.getKey();
+            List<Kline> klines = entry.getValue();
+            klines.sort(Comparator.comparing(Kline::getOpenTime));
+
+            KlineRollup rollup = series.computeIfAbsent(symbolId, id -> new KlineRollup(id, intervals));
+            List<KlineRollup.Completed> completed = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            for (Kline kline : klines) {
+                if (!rollup.add(kline, completed)) {
+                    // 早于已处理位置的 1m K 线（历史回补、缺口回补、重写），记录所在周期稍后重新合成
+                    markLate(symbolId, kline.getOpenTime().toEpochMilli(), now);
+                }
+            }
+            baseKlines.addAndGet(klines.size());
+
+            if (!completed.isEmpty()) {
+                List<Kline> derived = new ArrayList<>(completed.size());
+                for (KlineRollup.Completed c : completed) {
+                    derived.add(c.contiguous() ? c.kline() : reaggregate(c.kline()));
+                }
+                emit(symbolId, derived, exchangeIntervals(symbolId), true, new Tally());
+            }
+        }
+    }
+
+    private void markLate(Long symbolId, long openTime, long now) {
+        Map<String, TreeMap<Long, Long>> buckets = lateBuckets.computeIfAbsent(symbolId, k -> new HashMap<>());
+        for (String interval : intervals) {
+            buckets.computeIfAbsent(interval, k -> new TreeMap<>())
+                    .put(KlineRollup.bucketStart(openTime, interval), now);
+        }
+    }
+
+    /**
+     * 重新合成已超过稳定时间未被触及的迟到周期
+     *
+     * 周期结束晚于增量已处理位置的不在此合成，由增量状态在周期结束时输出（缺少 1m K 线时会从数据库重新合成）
+     *
+     * @param now 当前时间（epoch 毫秒）
+     */
+    void settleLate(long now) {
+        Iterator<Map.Entry<Long, Map<String, TreeMap<Long, Long>>>> it = lateBuckets.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Map<String, TreeMap<Long, Long>>> entry = it.next();
+            Long symbolId = entry.getKey();
+            KlineRollup state = series.get(symbolId);
+            long position = state == null ? Long.MIN_VALUE : state.getLastOpenTime() + KlineRollup.BASE_MILLIS;
+
+            List<LateBucket> settled = new ArrayList<>();
+            Iterator<Map.Entry<String, TreeMap<Long, Long>>> byInterval = entry.getValue().entrySet().iterator();
+            while (byInterval.hasNext()) {
+                Map.Entry<String, TreeMap<Long, Long>> perInterval = byInterval.next();
+                String interval = perInterval.getKey();
+                Iterator<Map.Entry<Long, Long>> byStart = perInterval.getValue().entrySet().iterator();
+                while (byStart.hasNext()) {
+                    Map.Entry<Long, Long> bucket = byStart.next();
+                    if (now - bucket.getValue() < lateSettleMillis) {
+                        continue;
+                    }
+                    byStart.remove();
+                    long end = KlineRollup.bucketEnd(bucket.getKey(), interval);
+                    if (end <= position) {
+                        settled.add(new LateBucket(interval, bucket.getKey(), end));
+                    }
+                }
+                if (perInterval.getValue().isEmpty()) {
+                    byInterval.remove();
+                }
+            }
+            if (entry.getValue().isEmpty()) {
+                it.remove();
+            }
+            if (settled.isEmpty()) {
+                continue;
+            }
+            try {
+                reaggregateLate(symbolId, settled);
+            } catch (Exception e) {
+                failureCount.incrementAndGet();
+                log.warn("Late kline rollup failed: symbolId={}, buckets={}, error={}",
+                        symbolId, settled.size(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 从数据库重新合成迟到周期
+     *
+     * 各周期被触及的那一根按开盘时间合并为相邻区间，每个区间只读取一次 1m K 线，
+     * 只输出被触及的周期，与已存 K 线相同的不写入
+     */
+    private void reaggregateLate(Long symbolId, List<LateBucket> buckets) {
+        buckets.sort(Comparator.comparingLong(LateBucket::start));
+        Set<String> wanted = new HashSet<>();
+        List<Kline> derived = new ArrayList<>();
+        int i = 0;
+        while (i < buckets.size()) {
+            long from = buckets.get(i).start();
+            long to = buckets.get(i).end();
+            Set<String> rangeIntervals = new LinkedHashSet<>();
+            while (i < buckets.size() && buckets.get(i).start() <= to) {
+                LateBucket bucket = buckets.get(i++);
+                to = Math.max(to, bucket.end());
+                rangeIntervals.add(bucket.interval());
+                wanted.add(bucket.interval() + "_" + bucket.start());
+            }
+
+            KlineRollup rollup = new KlineRollup(symbolId, new ArrayList<>(rangeIntervals));
+            List<KlineRollup.Completed> completed = new ArrayList<>();
+            baseKlines.addAndGet(klineService.forEachInTimeRange(symbolId, KlineRollup.BASE_INTERVAL,
+                    Instant.ofEpochMilli(from), Instant.ofEpochMilli(to - 1), kline -> rollup.add(kline, completed)));
+            rollup.flush(Long.MAX_VALUE, completed);
+            for (KlineRollup.Completed c : completed) {
+                if (wanted.contains(c.kline().getInterval() + "_" + c.kline().getOpenTime().toEpochMilli())) {
+                    derived.add(c.kline());
+                }
+            }
+        }
+        storeReaggregations.addAndGet(derived.size());
+
+        Set<String> exchangeIntervals = exchangeIntervals(symbolId);
+        List<Kline> changed = dropUnchanged(symbolId, derived, exchangeIntervals);
+        if (!changed.isEmpty()) {
+            emit(symbolId, changed, exchangeIntervals, false, new Tally());
+        }
+        log.debug("Late kline rollup: symbolId={}, buckets={}, changed={}", symbolId, buckets.size(), changed.size());
+    }
+
+    /**
+     * 去掉与已存 K 线相同的合成结果，避免重复写入和下游乱序事件（交易所周期仍全部参与校验）
+     */
+    private List<Kline> dropUnchanged(Long symbolId, List<Kline> derived, Set<String> exchangeIntervals) {
+        Map<String, List<Kline>> byInterval = new LinkedHashMap<>();
+        List<Kline> changed = new ArrayList<>();
+        for (Kline kline : derived) {
+            if (exchangeIntervals.contains(kline.getInterval())) {
+                changed.add(kline);
+            } else {
+                byInterval.computeIfAbsent(kline.getInterval(), k -> new ArrayList<>()).add(kline);
+            }
+        }
+        for (Map.Entry<String, List<Kline>> entry : byInterval.entrySet()) {
+            List<Kline> klines = entry.getValue();
+            klines.sort(Comparator.comparing(Kline::getOpenTime));
+            Map<Instant, Kline> stored = new HashMap<>();
+            for (Kline kline : klineService.getBySymbolIdAndIntervalAndTimeRange(symbolId, entry.getKey(),
+                    klines.get(0).getOpenTime(), klines.get(klines.size() - 1).getOpenTime())) {
+                stored.put(kline.getOpenTime(), kline);
+            }
+            for (Kline kline : klines) {
+                Kline existing = stored.get(kline.getOpenTime());
+                if (existing != null && sameBar(kline, existing)) {
+                    unchangedKlines.incrementAndGet();
+                } else {
+                    changed.add(kline);
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 从数据库按整个周期重新合成（增量状态缺少周期开头或中间的 1m K 线）
+     */
+    private Kline reaggregate(Kline partial) {
+        String interval = partial.getInterval();
+        long start = partial.getOpenTime().toEpochMilli();
+        KlineRollup rollup = new KlineRollup(partial.getSymbolId(), List.of(interval));
+        List<KlineRollup.Completed> completed = new ArrayList<>();
+        klineService.forEachInTimeRange(partial.getSymbolId(), KlineRollup.BASE_INTERVAL,
+                Instant.ofEpochMilli(start), Instant.ofEpochMilli(KlineRollup.bucketEnd(start, interval) - 1),
+                kline -> rollup.add(kline, completed));
+        rollup.flush(Long.MAX_VALUE, completed);
+        storeReaggregations.incrementAndGet();
+        return completed.isEmpty() ? partial : completed.get(0).kline();
+    }
+
+    /**
+     * 写入或校验合成结果
+     *
+     * @param exchangeIntervals 交易所直接提供的周期（只校验不写入）
+     * @param defer 交易所 K 线尚未落库时是否等待其到达后校验
+     */
+    private void emit(Long symbolId, List<Kline> derived, Set<String> exchangeIntervals, boolean defer,
+                      Tally tally) {
+        List<Kline> writes = new ArrayList<>();
+        Map<String, List<Kline>> checks = new LinkedHashMap<>();
+        for (Kline kline : derived) {
+            if (exchangeIntervals.contains(kline.getInterval())) {
+                checks.computeIfAbsent(kline.getInterval(), k -> new ArrayList<>()).add(kline);
+            } else {
+                writes.add(kline);
+            }
+        }
+        if (!writes.isEmpty()) {
+            klineService.batchUpsert(writes);
+            derivedKlines.addAndGet(writes.size());
+            tally.derived += writes.size();
+        }
+        for (Map.Entry<String, List<Kline>> entry : checks.entrySet()) {
+            verifyAgainstStore(symbolId, entry.getKey(), entry.getValue(), defer, tally);
+        }
+    }
+
+    private void verifyAgainstStore(Long symbolId, String interval, List<Kline> derived, boolean defer,
+                                    Tally tally) {
+        Map<Instant, Kline> stored = new HashMap<>();
+        if (derived.size() == 1) {
+            Kline kline = klineService.getByOpenTime(symbolId, interval, derived.get(0).getOpenTime());
+            if (kline != null) {
+                stored.put(kline.getOpenTime(), kline);
+            }
+        } else {
+            for (Kline kline : klineService.getBySymbolIdAndIntervalAndTimeRange(symbolId, interval,
+                    derived.get(0).getOpenTime(), derived.get(derived.size() - 1).getOpenTime())) {
+                stored.put(kline.getOpenTime(), kline);
+            }
+        }
+        for (Kline kline : derived) {
+            Kline exchange = stored.get(kline.getOpenTime());
+            if (exchange == null) {
+                if (defer) {
+                    deferCheck(kline);
+                }
+            } else if (verify(kline, exchange)) {
+                tally.verified++;
+            } else {
+                tally.mismatched++;
+            }
+        }
+    }
+
+    private void deferCheck(Kline derived) {
+        pendingChecks.put(checkKey(derived), derived);
+        if (pendingChecks.size() > MAX_PENDING_CHECKS) {
+            pendingChecks.remove(pendingChecks.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * 比较合成结果与交易所 K 线的开高低收和成交量
+     *
+     * @return 是否一致
+     */
+    private boolean verify(Kline derived, Kline exchange) {
+        boolean matched = sameValue(derived.getOpen(), exchange.getOpen())
+                && sameValue(derived.getHigh(), exchange.getHigh())
+                && sameValue(derived.getLow(), exchange.getLow())
+                && sameValue(derived.getClose(), exchange.getClose())
+                && sameValue(derived.getVolume(), exchange.getVolume());
+        if (matched) {
+            verifiedKlines.incrementAndGet();
+            return true;
+        }
+        mismatchedKlines.incrementAndGet();
+        Counter.builder(MISMATCH_METRIC)
+                .description("Derived klines that differ from exchange-provided klines")
+                .tag("interval", derived.getInterval())
+                .register(meterRegistry)
+                .increment();
+        log.warn("Derived kline differs from exchange: symbolId={}, interval={}, openTime={}, " +
+                        "derived=[{}, {}, {}, {}, {}], exchange=[{}, {}, {}, {}, {}]",
+                derived.getSymbolId(), derived.getInterval(), derived.getOpenTime(),
+                derived.getOpen(), derived.getHigh(), derived.getLow(), derived.getClose(), derived.getVolume(),
+                exchange.getOpen(), exchange.getHigh(), exchange.getLow(), exchange.getClose(), exchange.getVolume());
+        return false;
+    }
+
+    private static boolean sameBar(Kline derived, Kline stored) {
+        return sameValue(derived.getOpen(), stored.getOpen())
+                && sameValue(derived.getHigh(), stored.getHigh())
+                && sameValue(derived.getLow(), stored.getLow())
+                && sameValue(derived.getClose(), stored.getClose())
+                && sameValue(derived.getVolume(), stored.getVolume())
+                && sameValue(derived.getQuoteVolume(), stored.getQuoteVolume())
+                && Objects.equals(derived.getTrades(), stored.getTrades());
+    }
+
+    private static boolean sameValue(BigDecimal a, BigDecimal b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.compareTo(b) == 0;
+    }
+
+    /**
+     * 交易所直接提供的周期（交易对 sync_intervals）
+     */
+    private Set<String> exchangeIntervals(Long symbolId) {
+        Symbol symbol = symbolService.findById(symbolId);
+        return new HashSet<>(syncFilterService.getValidSyncIntervals(symbol));
+    }
+
+    // ==================== 统计 ====================
+
+    public RollupStats getStats() {
+        return RollupStats.builder()
+                .enabled(enabled)
+                .intervals(intervals)
+                .series(series.size())
+                .baseKlines(baseKlines.get())
+                .derivedKlines(derivedKlines.get())
+                .storeReaggregations(storeReaggregations.get())
+                .unchangedKlines(unchangedKlines.get())
+                .verifiedKlines(verifiedKlines.get())
+                .mismatchedKlines(mismatchedKlines.get())
+                .failures(failureCount.get())
+                .build();
+    }
+
+    private static List<Kline> toKlines(List<KlineRollup.Completed> completed) {
+        List<Kline> klines = new ArrayList<>(completed.size());
+        for (KlineRollup.Completed c : completed) {
+            klines.add(c.kline());
+        }
+        return klines;
+    }
+
+    private static boolean isClosed(Kline kline, long now) {
+        return kline.getCloseTime() == null || kline.getCloseTime().toEpochMilli() < now;
+    }
+
+    private static String checkKey(Kline kline) {
+        return kline.getSymbolId() + "_" + kline.getInterval() + "_" + kline.getOpenTime().toEpochMilli();
+    }
+}
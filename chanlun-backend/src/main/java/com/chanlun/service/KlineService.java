@@ -5,6 +5,8 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.chanlun.entity.Kline;
 import com.chanlun.entity.Symbol;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
 import com.chanlun.exception.BusinessException;
 import com.chanlun.exception.ResourceNotFoundException;
 import com.chanlun.mapper.DataGapMapper;
@@ -12,14 +14,20 @@ import com.chanlun.mapper.KlineMapper;
 import com.chanlun.mapper.SyncStatusMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * K线数据服务
@@ -30,6 +38,10 @@ import java.util.Set;
  * - 删除 K 线数据
  * - 统计 K 线数量
  * 
+ * 最新 N 根和近期时间范围查询优先由 {@link KlineCacheService} 热窗口缓存返回，
+ * 所有写入和删除发布 {@link KlineUpsertedEvent} / {@link KlineDeletedEvent}，缓存在事务提交后据此更新或失效
+ * （删除时另在事务内提前失效），回滚的写入不会进入缓存
+ * 
  * 正确性属性 P3: K线数据唯一性
  * - 同一交易对、同一周期、同一开盘时间的K线数据只能有一条
  * - 重复数据应更新而非插入
@@ -45,6 +57,9 @@ public class KlineService {
     private final DataGapMapper dataGapMapper;
     private final SyncStatusMapper syncStatusMapper;
     private final SymbolService symbolService;
+    private final KlineBulkLoader klineBulkLoader;
+    private final KlineCacheService klineCacheService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 支持的 K 线周期列表（不支持 1s）
@@ -60,6 +75,18 @@ public class KlineService {
      */
     private static final int DEFAULT_BATCH_SIZE = 500;
 
+    /**
+     * 是否启用 COPY 批量写入
+     */
+    @Value("${app.kline.bulk-load.enabled:true}")
+    private boolean bulkLoadEnabled = true;
+
+    /**
+     * 超过该数量时改用 COPY 批量写入
+     */
+    @Value("${app.kline.bulk-load.copy-threshold:1000}")
+    private int copyThreshold = 1000;
+
 
     /**
      * 批量插入或更新 K 线数据
@@ -68,6 +95,9 @@ public class KlineService {
      * - 如果 (symbol_id, interval, open_time) 不存在，则插入
      * - 如果已存在，则更新 OHLCV 等字段
      * 
+     * 数量达到 copyThreshold 且数据源为 PostgreSQL 时，改用 COPY 写入临时表后合并，
+     * 避免每批 500 行 × 11 个绑定参数的超长语句
+     * 
      * 符合正确性属性 P3: K线数据唯一性
      * 
      * @param klines K 线数据列表
@@ -82,6 +112,12 @@ public class KlineService {
         // 校验数据
         validateKlines(klines);
 
+        if (shouldUseCopy(klines.size())) {
+            int merged = klineBulkLoader.copyUpsert(klines);
+            eventPublisher.publishEvent(new KlineUpsertedEvent(this, klines));
+            return merged;
+        }
+
         // 分批处理，避免单次 SQL 过大
         int totalProcessed = 0;
         List<List<Kline>> batches = partition(klines, DEFAULT_BATCH_SIZE);
@@ -90,6 +126,7 @@ public class KlineService {
             int processed = klineMapper.batchUpsert(batch);
             totalProcessed += processed;
         }
+        eventPublisher.publishEvent(new KlineUpsertedEvent(this, klines));
 
         log.debug("Batch upserted {} klines in {} batches", totalProcessed, batches.size());
         return totalProcessed;
@@ -123,12 +160,21 @@ public class KlineService {
             int processed = klineMapper.batchUpsert(batch);
             totalProcessed += processed;
         }
+        eventPublisher.publishEvent(new KlineUpsertedEvent(this, klines));
 
         log.debug("Batch upserted {} klines in {} batches (batchSize={})", 
                 totalProcessed, batches.size(), batchSize);
         return totalProcessed;
     }
 
+    /**
+     * 是否使用 COPY 批量写入
+     */
+    private boolean shouldUseCopy(int size) {
+        return bulkLoadEnabled && size >= copyThreshold
+                && klineBulkLoader != null && klineBulkLoader.isCopySupported();
+    }
+
     /**
      * 插入或更新单条 K 线数据
      * 
@@ -144,6 +190,7 @@ public class KlineService {
         validateKline(kline);
         
         int result = klineMapper.batchUpsert(Collections.singletonList(kline));
+        eventPublisher.publishEvent(new KlineUpsertedEvent(this, Collections.singletonList(kline)));
         return result > 0;
     }
 
@@ -201,10 +248,103 @@ public class KlineService {
             limit = 1000;
         }
         
+        Optional<List<Kline>> cached = klineCacheService.getRange(symbolId, interval, startTime, endTime, limit);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        
         return klineMapper.selectBySymbolIdAndIntervalAndTimeRangeWithLimit(
                 symbolId, interval, startTime, endTime, limit);
     }
 
+    /**
+     * 获取最新的 limit 根 K 线
+     * 
+     * 优先由热窗口缓存返回；未命中时倒序扫描唯一索引取 limit 行后反转
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param limit 返回数量限制（最大 1000）
+     * @return K 线列表（按开盘时间升序）
+     */
+    public List<Kline> getLatest(Long symbolId, String interval, int limit) {
+        validateSymbolId(symbolId);
+        validateInterval(interval);
+        
+        if (limit <= 0 || limit > 1000) {
+            limit = 1000;
+        }
+        
+        Optional<List<Kline>> cached = klineCacheService.getLatest(symbolId, interval, limit);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        
+        List<Kline> klines = new ArrayList<>(klineMapper.selectRecentBySymbolIdAndInterval(symbolId, interval, limit));
+        Collections.reverse(klines);
+        return klines;
+    }
+
+    /**
+     * 获取指定开盘时间之前最近的 limit 根 K 线（向前翻页）
+     * 
+     * 以上一页最早一根的开盘时间作为 before 继续请求即可逐页回溯，每页只扫描 limit 行
+     * 
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param before 开盘时间上界（不含）
+     * @param limit 返回数量限制（最大 1000）
+     * @return K 线列表（按开盘时间升序）
+     */
+    public List<Kline> getLatestBefore(Long symbolId, String interval, Instant before, int limit) {
+        validateSymbolId(symbolId);
+        validateInterval(interval);
+        if (before == null) {
+            throw new BusinessException("分页时间不能为空");
+        }
+        
+        if (limit <= 0 || limit > 1000) {
+            limit = 1000;
+        }
+        
+        List<Kline> klines = new ArrayList<>(
+                klineMapper.selectRecentBeforeBySymbolIdAndInterval(symbolId, interval, before, limit));
+        Collections.reverse(klines);
+        return klines;
+    }
+
+    /**
+     * 按开盘时间升序逐根读取时间范围内的 K 线（服务端游标，内存占用与数据量无关）
+     *
+     * 游标只能在事务内读取，consumer 在同一事务中依次被调用
+     *
+     * @param symbolId 交易对ID
+     * @param interval 时间周期
+     * @param startTime 开始时间（包含）
+     * @param endTime 结束时间（包含）
+     * @param consumer K 线处理函数
+     * @return 读取的 K 线数量
+     */
+    @Transactional(readOnly = true)
+    public long forEachInTimeRange(Long symbolId, String interval, Instant startTime, Instant endTime,
+                                   Consumer<Kline> consumer) {
+        validateSymbolId(symbolId);
+        validateInterval(interval);
+        validateTimeRange(startTime, endTime);
+
+        long rows = 0;
+        try (Cursor<Kline> cursor = klineMapper.streamBySymbolIdAndIntervalAndTimeRange(
+                symbolId, interval, startTime, endTime)) {
+            for (Kline kline : cursor) {
+                consumer.accept(kline);
+                rows++;
+            }
+        } catch (IOException e) {
+            throw new BusinessException("K线游标关闭失败: " + e.getMessage());
+        }
+        return rows;
+    }
+
     /**
      * 查询指定交易对和周期的最新一根 K 线
      * 
@@ -332,15 +472,19 @@ public class KlineService {
         
         // 删除 K 线数据
         int deleted = klineMapper.deleteBySymbolIdAndIntervalAndTimeRange(symbolId, interval, startTime, endTime);
+        klineCacheService.invalidate(symbolId, interval);
+        eventPublisher.publishEvent(new KlineDeletedEvent(this, symbolId, interval));
         
         // 同步删除与该时间范围重叠的缺口记录
         int gapsDeleted = dataGapMapper.deleteBySymbolIdAndIntervalAndTimeRange(symbolId, interval, startTime, endTime);
         
         // 重新计算 sync_status.last_kline_time 和 total_klines，并关闭自动回补
+        // 删除触及已检测区间时清除缺口检测水位线，下次全量检测
         if (deleted > 0) {
             recalculateLastKlineTime(symbolId, interval);
             recalculateTotalKlines(symbolId, interval);
             disableAutoGapFill(symbolId, interval);
+            syncStatusMapper.resetGapWatermarkFrom(symbolId, interval, startTime);
         }
         
         if (deleted > 0 || gapsDeleted > 0) {
@@ -366,6 +510,8 @@ public class KlineService {
         
         // 删除 K 线数据
         int deleted = klineMapper.deleteBySymbolId(symbolId);
+        klineCacheService.invalidateSymbol(symbolId);
+        eventPublisher.publishEvent(new KlineDeletedEvent(this, symbolId, null));
         
         // 同步删除该交易对的所有缺口记录
         int gapsDeleted = dataGapMapper.deleteBySymbolId(symbolId);
@@ -377,6 +523,7 @@ public class KlineService {
                 recalculateTotalKlines(symbolId, interval);
                 disableAutoGapFill(symbolId, interval);
             }
+            syncStatusMapper.resetGapWatermarkBySymbolId(symbolId);
         }
         
         if (deleted > 0 || gapsDeleted > 0) {
@@ -403,6 +550,8 @@ public class KlineService {
         
         // 删除 K 线数据
         int deleted = klineMapper.deleteBySymbolIdAndInterval(symbolId, interval);
+        klineCacheService.invalidate(symbolId, interval);
+        eventPublisher.publishEvent(new KlineDeletedEvent(this, symbolId, interval));
         
         // 同步删除该交易对该周期的所有缺口记录
         int gapsDeleted = dataGapMapper.deleteBySymbolIdAndInterval(symbolId, interval);
@@ -412,6 +561,7 @@ public class KlineService {
             recalculateLastKlineTime(symbolId, interval);
             recalculateTotalKlines(symbolId, interval);
             disableAutoGapFill(symbolId, interval);
+            syncStatusMapper.resetGapWatermark(symbolId, interval);
         }
         
         if (deleted > 0 || gapsDeleted > 0) {
@@ -0,0 +1,465 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * K 线异步批量写入服务（write-behind）
+ *
+ * 实时同步收到的已完结 K 线先进入有界队列，由独立写线程合并写库：
+ * - 按数量（batchSize）或时间（flushIntervalMs）触发一次批量 upsert
+ * - 同一批次内相同 (symbolId, interval, openTime) 只保留最新一条
+ * - 每次 flush 对每个 (symbolId, interval) 只更新一次 sync_status
+ * - 队列满时入队方最多等待 offerTimeoutMs，超时丢弃并计数（后续由缺口检测回补）
+ * - 入队成功即追加到热窗口缓存，查询无需等待落库
+ * - 写库失败时整批按退避重试，仍失败则按 (symbolId, interval) 拆分逐组写入；
+ *   最终未落库的组失效其热窗口缓存并直接登记为待回补缺口
+ * - 落库后按周期记录收盘到提交的端到端延迟（kline.close.commit.latency）
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KlineWriteBehindService {
+
+    private final KlineService klineService;
+    private final SyncService syncService;
+    private final KlineCacheService klineCacheService;
+    private final DataGapService dataGapService;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * K 线收盘到落库的端到端延迟指标名称
+     */
+    public static final String COMMIT_LATENCY_METRIC = "kline.close.commit.latency";
+
+    /**
+     * 队列容量
+     */
+    @Value("${app.realtime.write-behind.capacity:10000}")
+    private int capacity = 10000;
+
+    /**
+     * 单次 flush 最大条数
+     */
+    @Value("${app.realtime.write-behind.batch-size:500}")
+    private int batchSize = 500;
+
+    /**
+     * 最大 flush 间隔（毫秒）
+     */
+    @Value("${app.realtime.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs = 200;
+
+    /**
+     * 队列满时入队最大等待时间（毫秒）
+     */
+    @Value("${app.realtime.write-behind.offer-timeout-ms:50}")
+    private long offerTimeoutMs = 50;
+
+    /**
+     * 整批写库最大尝试次数（含首次）
+     */
+    @Value("${app.realtime.write-behind.retry-attempts:3}")
+    private int retryAttempts = 3;
+
+    /**
+     * 写库重试初始退避（毫秒），每次翻倍
+     */
+    @Value("${app.realtime.write-behind.retry-backoff-ms:200}")
+    private long retryBackoffMs = 200;
+
+    /**
+     * 提交成功回调 (本批 K 线, 提交时间)，在写线程上执行
+     */
+    private volatile BiConsumer<List<Kline>, Instant> commitListener;
+
+    private BlockingQueue<Kline> queue;
+    private Thread writerThread;
+    private volatile boolean running = false;
+
+    private final AtomicLong enqueuedCount = new AtomicLong(0);
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+    private final AtomicLong backpressureCount = new AtomicLong(0);
+    private final AtomicLong flushedKlines = new AtomicLong(0);
+    private final AtomicLong flushCount = new AtomicLong(0);
+    private final AtomicLong failedFlushCount = new AtomicLong(0);
+    private final AtomicLong retryCount = new AtomicLong(0);
+    private final AtomicLong lostKlines = new AtomicLong(0);
+    private final AtomicLong recordedGaps = new AtomicLong(0);
+    private final AtomicLong syncStatusUpdates = new AtomicLong(0);
+    private volatile long lastFlushMillis = 0;
+    private volatile int lastFlushSize = 0;
+    private volatile Instant lastFlushTime;
+
+    /**
+     * 写入统计
+     */
+    @Data
+    @Builder
+    public static class WriteBehindStats {
+        private int queueDepth;
+        private int queueCapacity;
+        private long enqueued;
+        private long rejected;
+        private long backpressureWaits;
+        private long flushedKlines;
+        private long flushes;
+        private long failedFlushes;
+        private long retries;
+        private long lostKlines;
+        private long recordedGaps;
+        private long syncStatusUpdates;
+        private int lastFlushSize;
+        private long lastFlushMillis;
+        private Instant lastFlushTime;
+    }
+
+    /**
+     * 同步状态聚合
+     */
+    private static final class StatusAggregate {
+        private Instant lastKlineTime;
+        private int count;
+    }
+
+    /**
+     * 启动写线程
+     */
+    @PostConstruct
+    public void start() {
+        if (running) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        writerThread = new Thread(this::runWriter, "kline-write-behind");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("KlineWriteBehindService started: capacity={}, batchSize={}, flushIntervalMs={}",
+                capacity, batchSize, flushIntervalMs);
+    }
+
+    /**
+     * 停止写线程并写出剩余数据
+     *
+     * 不中断写线程：中断标记会使正在进行的 flush 获取数据库连接立即失败，
+     * 写线程最多等待 flushIntervalMs 即可发现停止标记，写出剩余数据后退出
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            // 写线程仍在写库，退出前会写完队列，不在此并发写出
+            log.warn("KlineWriteBehindService writer still flushing on stop: queueDepth={}", getQueueDepth());
+        } else {
+            // 写线程退出后兜底写出残余数据
+            List<Kline> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            if (!remaining.isEmpty()) {
+                flush(remaining);
+            }
+        }
+        log.info("KlineWriteBehindService stopped: flushedKlines={}, rejected={}",
+                flushedKlines.get(), rejectedCount.get());
+    }
+
+    /**
+     * 提交一条已完结 K 线
+     *
+     * 队列满时阻塞至多 offerTimeoutMs 向上游施加背压，仍无空间则丢弃
+     *
+     * @param kline K 线
+     * @return 是否入队成功
+     */
+    public boolean submit(Kline kline) {
+        if (kline == null || !running) {
+            return false;
+        }
+        if (queue.offer(kline)) {
+            enqueuedCount.incrementAndGet();
+            klineCacheService.append(kline);
+            return true;
+        }
+
+        backpressureCount.incrementAndGet();
+        try {
+            if (queue.offer(kline, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                enqueuedCount.incrementAndGet();
+                klineCacheService.append(kline);
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        long rejected = rejectedCount.incrementAndGet();
+        log.warn("Write-behind queue full, dropped kline: symbolId={}, interval={}, openTime={}, totalRejected={}",
+                kline.getSymbolId(), kline.getInterval(), kline.getOpenTime(), rejected);
+        return false;
+    }
+
+    /**
+     * 写线程主循环
+     */
+    private void runWriter() {
+        List<Kline> buffer = new ArrayList<>(batchSize);
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+
+        while (running || !queue.isEmpty()) {
+            try {
+                long wait = Math.max(1, deadline - System.currentTimeMillis());
+                Kline first = queue.poll(wait, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    buffer.add(first);
+                    queue.drainTo(buffer, batchSize - buffer.size());
+                }
+            } catch (InterruptedException e) {
+                if (!running) {
+                    queue.drainTo(buffer);
+                }
+            }
+
+            boolean timeUp = System.currentTimeMillis() >= deadline;
+            if (buffer.size() >= batchSize || (timeUp && !buffer.isEmpty()) || (!running && !buffer.isEmpty())) {
+                flush(buffer);
+                buffer = new ArrayList<>(batchSize);
+            }
+            if (timeUp || buffer.isEmpty()) {
+                deadline = System.currentTimeMillis() + flushIntervalMs;
+            }
+        }
+    }
+
+    /**
+     * 批量写入并聚合更新 sync_status
+     */
+    void flush(List<Kline> batch) {
+        long start = System.currentTimeMillis();
+
+        // 同一批次去重，保留最后到达的一条
+        Map<String, Kline> deduped = new LinkedHashMap<>();
+        for (Kline kline : batch) {
+            deduped.put(kline.getSymbolId() + "_" + kline.getInterval() + "_" + kline.getOpenTime(), kline);
+        }
+        List<Kline> klines = write(new ArrayList<>(deduped.values()));
+        if (klines.isEmpty()) {
+            return;
+        }
+
+        Instant committedAt = Instant.now();
+        recordCommitLatency(klines, committedAt);
+        notifyCommitted(klines, committedAt);
+
+        Map<String, StatusAggregate> aggregates = new LinkedHashMap<>();
+        Map<String, Kline> samples = new LinkedHashMap<>();
+        for (Kline kline : klines) {
+            String key = kline.getSymbolId() + "_" + kline.getInterval();
+            StatusAggregate agg = aggregates.computeIfAbsent(key, k -> new StatusAggregate());
+            agg.count++;
+            if (agg.lastKlineTime == null || kline.getOpenTime().isAfter(agg.lastKlineTime)) {
+                agg.lastKlineTime = kline.getOpenTime();
+            }
+            samples.putIfAbsent(key, kline);
+        }
+
+        for (Map.Entry<String, StatusAggregate> entry : aggregates.entrySet()) {
+            Kline sample = samples.get(entry.getKey());
+            StatusAggregate agg = entry.getValue();
+            try {
+                syncService.updateSyncStatus(sample.getSymbolId(), sample.getInterval(),
+                        agg.lastKlineTime, agg.count);
+                syncStatusUpdates.incrementAndGet();
+            } catch (Exception e) {
+                log.error("Failed to update sync status: symbolId={}, interval={}, error={}",
+                        sample.getSymbolId(), sample.getInterval(), e.getMessage());
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        flushCount.incrementAndGet();
+        flushedKlines.addAndGet(klines.size());
+        lastFlushMillis = elapsed;
+        lastFlushSize = klines.size();
+        lastFlushTime = Instant.now();
+        log.debug("Write-behind flushed {} klines ({} pairs) in {}ms, queueDepth={}",
+                klines.size(), aggregates.size(), elapsed, getQueueDepth());
+    }
+
+    /**
+     * 写库：整批按退避重试，仍失败时按交易对周期拆分逐组写入，单组失败不影响其他组
+     *
+     * @param klines 去重后的 K 线
+     * @return 已落库的 K 线
+     */
+    private List<Kline> write(List<Kline> klines) {
+        if (upsertWithRetry(klines)) {
+            return klines;
+        }
+        failedFlushCount.incrementAndGet();
+
+        Map<String, List<Kline>> byPair = new LinkedHashMap<>();
+        for (Kline kline : klines) {
+            byPair.computeIfAbsent(kline.getSymbolId() + "_" + kline.getInterval(), k -> new ArrayList<>()).add(kline);
+        }
+        List<Kline> committed = new ArrayList<>(klines.size());
+        for (List<Kline> pair : byPair.values()) {
+            if (byPair.size() > 1 && upsert(pair)) {
+                committed.addAll(pair);
+            } else {
+                discard(pair);
+            }
+        }
+        return committed;
+    }
+
+    private boolean upsertWithRetry(List<Kline> klines) {
+        long backoff = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            if (upsert(klines)) {
+                return true;
+            }
+            if (attempt >= retryAttempts) {
+                return false;
+            }
+            retryCount.incrementAndGet();
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                // 停止中：不再等待，交由拆分写入和缺口登记处理
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoff *= 2;
+        }
+    }
+
+    private boolean upsert(List<Kline> klines) {
+        try {
+            klineService.batchUpsert(klines);
+            return true;
+        } catch (Exception e) {
+            Kline first = klines.get(0);
+            log.error("Write-behind upsert failed: size={}, firstSymbolId={}, firstInterval={}, error={}",
+                    klines.size(), first.getSymbolId(), first.getInterval(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 单个交易对周期最终未落库：失效热窗口缓存（避免继续返回库中不存在的 K 线）并登记缺口
+     */
+    private void discard(List<Kline> klines) {
+        Kline sample = klines.get(0);
+        lostKlines.addAndGet(klines.size());
+        klineCacheService.invalidate(sample.getSymbolId(), sample.getInterval());
+        try {
+            int gaps = dataGapService.recordMissing(sample.getSymbolId(), sample.getInterval(),
+                    klines.stream().map(Kline::getOpenTime).toList());
+            recordedGaps.addAndGet(gaps);
+        } catch (Exception e) {
+            // 数据库不可用时由下次缺口检测发现
+            log.error("Failed to record gap for unwritten klines: symbolId={}, interval={}, size={}, error={}",
+                    sample.getSymbolId(), sample.getInterval(), klines.size(), e.getMessage());
+        }
+        log.warn("Write-behind dropped klines after retries: symbolId={}, interval={}, size={}",
+                sample.getSymbolId(), sample.getInterval(), klines.size());
+    }
+
+    /**
+     * 设置提交成功回调（链路延迟追踪）
+     *
+     * @param listener 回调 (本批 K 线, 提交时间)
+     */
+    public void setCommitListener(BiConsumer<List<Kline>, Instant> listener) {
+        this.commitListener = listener;
+    }
+
+    private void notifyCommitted(List<Kline> klines, Instant committedAt) {
+        BiConsumer<List<Kline>, Instant> listener = commitListener;
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.accept(klines, committedAt);
+        } catch (Exception e) {
+            log.warn("Write-behind commit listener failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录收盘到落库延迟（收盘时刻 = closeTime + 1ms），按周期区分
+     */
+    private void recordCommitLatency(List<Kline> klines, Instant committedAt) {
+        for (Kline kline : klines) {
+            if (kline.getCloseTime() == null) {
+                continue;
+            }
+            long latencyMs = committedAt.toEpochMilli() - kline.getCloseTime().toEpochMilli() - 1;
+            Timer.builder(COMMIT_LATENCY_METRIC)
+                    .description("Latency from candle close to database commit")
+                    .tag("interval", kline.getInterval())
+                    .register(meterRegistry)
+                    .record(Math.max(0, latencyMs), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 获取当前队列深度
+     */
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * 获取写入统计
+     */
+    public WriteBehindStats getStats() {
+        return WriteBehindStats.builder()
+                .queueDepth(getQueueDepth())
+                .queueCapacity(capacity)
+                .enqueued(enqueuedCount.get())
+                .rejected(rejectedCount.get())
+                .backpressureWaits(backpressureCount.get())
+                .flushedKlines(flushedKlines.get())
+                .flushes(flushCount.get())
+                .failedFlushes(failedFlushCount.get())
+                .retries(retryCount.get())
+                .lostKlines(lostKlines.get())
+                .recordedGaps(recordedGaps.get())
+                .syncStatusUpdates(syncStatusUpdates.get())
+                .lastFlushSize(lastFlushSize)
+                .lastFlushMillis(lastFlushMillis)
+                .lastFlushTime(lastFlushTime)
+                .build();
+    }
+}
@@ -5,9 +5,9 @@ import com.chanlun.entity.*;
 import com.chanlun.event.RealtimeSyncConfigChangedEvent;
 import com.chanlun.exchange.BinanceClient;
 import com.chanlun.exchange.BinanceClientFactory;
+import com.chanlun.exchange.BinanceRateLimiter;
 import com.chanlun.exchange.BinanceWebSocketManager;
 import com.chanlun.exchange.model.BinanceApiResponse;
-import com.chanlun.exchange.model.BinanceKline;
 import com.chanlun.exchange.model.BinanceWsKlineEvent;
 import com.chanlun.util.EncryptUtil;
 import jakarta.annotation.PostConstruct;
@@ -30,6 +30,7 @@ import java.util.concurrent.*;
  * 提供 WebSocket 实时 K 线数据同步功能：
  * - 管理 WebSocket 连接
  * - 处理 K 线数据写入
+ * - 推送实时 K 线（含未完结更新）给订阅客户端
  * - 断线期间数据补充
  * - 更新 sync_status
  * - 响应全局开关变化
@@ -49,10 +50,19 @@ public class RealtimeSyncService {
     private final SystemConfigService systemConfigService;
     private final BinanceClientFactory binanceClientFactory;
     private final EncryptUtil encryptUtil;
+    private final KlineWriteBehindService klineWriteBehindService;
+    private final KlinePushService klinePushService;
+    private final KlineLatencyTracker klineLatencyTracker;
 
     @Value("${app.exchange.api-mock:false}")
     private boolean mockEnabled;
 
+    /**
+     * 是否使用组合流（按数据源复用 WebSocket 连接）
+     */
+    @Value("${app.exchange.ws-combined-stream:true}")
+    private boolean combinedStreamEnabled;
+
     /**
      * WebSocket 管理器
      */
@@ -93,9 +103,12 @@ public class RealtimeSyncService {
      */
     @PostConstruct
     public void init() {
-        webSocketManager = new BinanceWebSocketManager(mockEnabled);
+        webSocketManager = new BinanceWebSocketManager(mockEnabled, combinedStreamEnabled);
         webSocketManager.setKlineCallback(this::handleKlineEvent);
+        // 未完结 K 线只用于推送，没有客户端订阅时不做完整解码
+        webSocketManager.setOpenKlineFilter(klinePushService::hasSubscribers);
         webSocketManager.setDisconnectCallback(this::handleDisconnect);
+        klineWriteBehindService.setCommitListener(klineLatencyTracker::onCommitted);
 
         // 启动数据补充处理线程
         gapFillExecutor = Executors.newSingleThreadScheduledExecutor(
@@ -253,26 +266,34 @@ public class RealtimeSyncService {
         }
 
         BinanceWsKlineEvent.KlineData klineData = event.getKline();
-
-        // 只处理已完结的 K 线
-        if (!Boolean.TRUE.equals(klineData.getClosed())) {
-            return;
-        }
+        boolean closed = Boolean.TRUE.equals(klineData.getClosed());
 
         try {
             // 转换为 Kline 实体
             Kline kline = convertToKline(symbolId, klineData);
 
-            // 保存 K 线数据
-            boolean saved = klineService.upsert(kline);
+            // 推送给订阅客户端（含未完结 K 线的更新）
+            try {
+                klinePushService.publish(kline, closed);
+            } catch (Exception e) {
+                log.warn("Failed to push kline event: symbolId={}, error={}", symbolId, e.getMessage());
+            }
+            long pushedNanos = System.nanoTime();
+            klineLatencyTracker.recordDispatch(klineData.getInterval(), event, pushedNanos);
 
-            if (saved) {
-                // 更新 sync_status
-                updateSyncStatusAfterRealtimeSync(symbolId, klineData.getInterval(), 
-                        kline.getOpenTime(), 1);
+            // 只落库已完结的 K 线
+            if (!closed) {
+                return;
+            }
 
-                log.debug("Saved realtime kline: symbolId={}, interval={}, openTime={}",
+            // 交给写线程批量落库，sync_status 在 flush 时按 (symbolId, interval) 聚合更新
+            // 先登记再入队，避免写线程提交早于登记
+            klineLatencyTracker.expectCommit(kline, event, pushedNanos);
+            if (klineWriteBehindService.submit(kline)) {
+                log.debug("Queued realtime kline: symbolId={}, interval={}, openTime={}",
                         symbolId, klineData.getInterval(), kline.getOpenTime());
+            } else {
+                klineLatencyTracker.discard(kline);
             }
 
         } catch (Exception e) {
@@ -353,11 +374,12 @@ public class RealtimeSyncService {
 
             // 创建币安客户端
             BinanceClient client = binanceClientFactory.createClient(dataSource);
+            client.setRequestPriority(BinanceRateLimiter.Priority.REALTIME_FILL);
 
             try {
                 // 调用 REST API 获取缺失的 K 线数据
-                BinanceApiResponse<List<BinanceKline>> response = client.getKlines(
-                        task.symbolCode(), task.interval(), 
+                BinanceApiResponse<List<Kline>> response = client.getKlineEntities(
+                        task.symbolId(), task.symbolCode(), task.interval(), 
                         task.startTime(), task.endTime(), 1000);
 
                 if (!response.isSuccess()) {
@@ -365,23 +387,17 @@ public class RealtimeSyncService {
                     return;
                 }
 
-                List<BinanceKline> klines = response.getData();
+                List<Kline> klines = response.getData();
                 if (klines == null || klines.isEmpty()) {
                     log.debug("No klines to fill for gap");
                     return;
                 }
 
-                // 转换并保存
-                List<Kline> entities = new ArrayList<>(klines.size());
-                for (BinanceKline bk : klines) {
-                    entities.add(convertBinanceKlineToEntity(task.symbolId(), task.interval(), bk));
-                }
-
-                int saved = klineService.batchUpsert(entities);
+                int saved = klineService.batchUpsert(klines);
 
                 // 更新 sync_status
                 if (saved > 0) {
-                    Instant lastKlineTime = klines.get(klines.size() - 1).getOpenTimeInstant();
+                    Instant lastKlineTime = klines.get(klines.size() - 1).getOpenTime();
                     updateSyncStatusAfterRealtimeSync(task.symbolId(), task.interval(), 
                             lastKlineTime, saved);
                 }
@@ -417,25 +433,6 @@ public class RealtimeSyncService {
                 .build();
     }
 
-    /**
-     * 转换币安 K 线为实体
-     */
-    private Kline convertBinanceKlineToEntity(Long symbolId, String interval, BinanceKline bk) {
-        return Kline.builder()
-                .symbolId(symbolId)
-                .interval(interval)
-                .openTime(bk.getOpenTimeInstant())
-                .open(bk.getOpen())
-                .high(bk.getHigh())
-                .low(bk.getLow())
-                .close(bk.getClose())
-                .volume(bk.getVolume())
-                .quoteVolume(bk.getQuoteVolume())
-                .trades(bk.getTrades())
-                .closeTime(bk.getCloseTimeInstant())
-                .build();
-    }
-
     /**
      * 实时同步后更新 sync_status
      */
@@ -497,6 +494,27 @@ public class RealtimeSyncService {
         return webSocketManager.getConnectedCount();
     }
 
+    /**
+     * 获取 WebSocket 物理连接数量
+     */
+    public int getPhysicalConnectionCount() {
+        return webSocketManager.getPhysicalConnectionCount();
+    }
+
+    /**
+     * 获取待执行的断线回补任务数量
+     */
+    public int getGapFillQueueSize() {
+        return gapFillQueue.size();
+    }
+
+    /**
+     * 获取实时 K 线写入队列统计
+     */
+    public KlineWriteBehindService.WriteBehindStats getWriteBehindStats() {
+        return klineWriteBehindService.getStats();
+    }
+
     /**
      * 获取所有订阅信息
      */
@@ -223,6 +223,43 @@ public class SyncService {
         return syncTaskMapper.updateSyncedCount(taskId, syncedCount) > 0;
     }
 
+    /**
+     * 更新已同步数量并记录断点
+     * 
+     * 每页 K 线提交后调用，任务中断后从断点的下一根 K 线继续
+     * 
+     * @param taskId 任务ID
+     * @param syncedCount 已同步数量
+     * @param checkpointTime 最后已提交 K 线的开盘时间
+     * @return 是否更新成功
+     */
+    @Transactional
+    public boolean updateSyncedCount(Long taskId, int syncedCount, Instant checkpointTime) {
+        return syncTaskMapper.updateSyncedCountAndCheckpoint(taskId, syncedCount, checkpointTime) > 0;
+    }
+
+    /**
+     * 获取可恢复的历史同步任务
+     * 
+     * @param staleBefore 运行中任务视为中断的更新时间阈值
+     * @param limit 限制数量
+     * @return 可恢复任务列表
+     */
+    public List<SyncTask> getResumableHistoryTasks(Instant staleBefore, int limit) {
+        return syncTaskMapper.selectResumableHistoryTasks(staleBefore, limit);
+    }
+
+    /**
+     * 领取可恢复的历史同步任务（原子地置为 RUNNING，失败任务计入重试次数）
+     * 
+     * @param task 查询到的可恢复任务
+     * @param staleBefore 运行中任务视为中断的更新时间阈值
+     * @return 领取到的任务，已被其他实例领取或状态已变化时返回 null
+     */
+    public SyncTask claimResumableHistoryTask(SyncTask task, Instant staleBefore) {
+        return syncTaskMapper.claimResumableHistoryTask(task.getId(), task.getStatus(), staleBefore);
+    }
+
     /**
      * 根据ID获取同步任务
      * 
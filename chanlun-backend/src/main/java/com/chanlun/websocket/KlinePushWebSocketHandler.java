@@ -0,0 +1,141 @@
+package com.chanlun.websocket;
+
+import com.chanlun.service.KlinePushService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.util.Set;
+
+/**
+ * 实时 K 线推送 WebSocket 处理器
+ *
+ * 客户端协议（文本 JSON）：
+ * - {"action":"subscribe","symbolId":1,"interval":"1m"} 订阅，返回 {"type":"subscribed",...}，随后推送该主题最近一次事件
+ * - {"action":"unsubscribe","symbolId":1,"interval":"1m"} 取消订阅
+ * - {"action":"ping"} 心跳，返回 {"type":"pong"}
+ *
+ * 推送消息：{"type":"kline","closed":false,"kline":{...KlineDTO}}
+ *
+ * @author Chanlun Team
+ */
+@Slf4j
+@Component
+public class KlinePushWebSocketHandler extends TextWebSocketHandler {
+
+    /**
+     * 支持的时间周期
+     */
+    private static final Set<String> VALID_INTERVALS = Set.of(
+            "1m", "3m", "5m", "15m", "30m",
+            "1h", "2h", "4h", "6h", "8h", "12h",
+            "1d", "3d", "1w", "1M"
+    );
+
+    private final KlinePushService klinePushService;
+    private final ObjectMapper objectMapper;
+
+    public KlinePushWebSocketHandler(KlinePushService klinePushService, ObjectMapper objectMapper) {
+        this.klinePushService = klinePushService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        klinePushService.register(session);
+        log.debug("Push session connected: id={}, remote={}", session.getId(), session.getRemoteAddress());
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        JsonNode command;
+        try {
+            command = objectMapper.readTree(message.getPayload());
+        } catch (Exception e) {
+            replyError(session, "消息格式错误");
+            return;
+        }
+        String action = command.path("action").asText("");
+        switch (action) {
+            case "subscribe" -> handleSubscribe(session, command);
+            case "unsubscribe" -> handleUnsubscribe(session, command);
+            case "ping" -> klinePushService.reply(session, "{\"type\":\"pong\"}");
+            default -> replyError(session, "不支持的操作: " + action);
+        }
+    }
+
+    private void handleSubscribe(WebSocketSession session, JsonNode command) {
+        Long symbolId = symbolId(command);
+        String interval = command.path("interval").asText(null);
+        if (!validate(session, symbolId, interval)) {
+            return;
+        }
+        if (!klinePushService.subscribe(session, symbolId, interval)) {
+            replyError(session, "订阅数量超过上限");
+            return;
+        }
+        // 先确认再下发快照，与推送共用发送队列，客户端按此顺序收到
+        klinePushService.reply(session, ack("subscribed", symbolId, interval));
+        klinePushService.sendSnapshot(session, symbolId, interval);
+    }
+
+    private void handleUnsubscribe(WebSocketSession session, JsonNode command) {
+        Long symbolId = symbolId(command);
+        String interval = command.path("interval").asText(null);
+        if (!validate(session, symbolId, interval)) {
+            return;
+        }
+        klinePushService.unsubscribe(session, symbolId, interval);
+        klinePushService.reply(session, ack("unsubscribed", symbolId, interval));
+    }
+
+    private boolean validate(WebSocketSession session, Long symbolId, String interval) {
+        if (symbolId == null) {
+            replyError(session, "交易对ID不能为空");
+            return false;
+        }
+        if (interval == null || !VALID_INTERVALS.contains(interval)) {
+            replyError(session, "不支持的时间周期: " + interval);
+            return false;
+        }
+        return true;
+    }
+
+    private static Long symbolId(JsonNode command) {
+        JsonNode node = command.get("symbolId");
+        return node != null && node.canConvertToLong() ? node.asLong() : null;
+    }
+
+    private String ack(String type, Long symbolId, String interval) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("type", type);
+        node.put("symbolId", symbolId);
+        node.put("interval", interval);
+        return node.toString();
+    }
+
+    private void replyError(WebSocketSession session, String message) {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("type", "error");
+        node.put("message", message);
+        klinePushService.reply(session, node.toString());
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("Push session transport error: id={}, error={}", session.getId(), exception.getMessage());
+        klinePushService.unregister(session);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        klinePushService.unregister(session);
+        log.debug("Push session closed: id={}, status={}", session.getId(), status);
+    }
+}
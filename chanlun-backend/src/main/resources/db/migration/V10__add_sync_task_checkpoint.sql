@@ -0,0 +1,19 @@
+-- =====================================================
+-- Flyway 迁移脚本
+-- 版本: V10
+-- 描述: 同步任务表 (sync_task) 增加断点字段，支持历史同步断点续传
+-- 时区: 所有 TIMESTAMPTZ 字段存储 UTC 时间
+-- =====================================================
+
+-- 设置时区为 UTC
+SET TIME ZONE 'UTC';
+
+-- 增加断点字段：最后一次已提交页的最后一根 K 线 open_time
+ALTER TABLE sync_task ADD COLUMN IF NOT EXISTS checkpoint_time TIMESTAMPTZ;
+
+-- 创建可恢复任务查询索引
+CREATE INDEX IF NOT EXISTS idx_sync_task_resumable ON sync_task(task_type, status, updated_at)
+    WHERE status IN ('RUNNING', 'FAILED');
+
+-- 添加字段注释
+COMMENT ON COLUMN sync_task.checkpoint_time IS '断点：最后已提交K线的开盘时间 (UTC)，恢复时从其下一根开始';
@@ -0,0 +1,145 @@
+-- =====================================================
+-- Flyway 迁移脚本
+-- 版本: V11
+-- 描述: K线数据表 (kline) 改为按 open_time 月份声明式分区
+-- 时区: 所有 TIMESTAMPTZ 字段存储 UTC 时间，分区边界按 UTC 自然月
+-- =====================================================
+
+-- 设置时区为 UTC
+SET TIME ZONE 'UTC';
+
+-- 1. 原表改名保留，迁移完成后删除
+ALTER TABLE kline RENAME TO kline_legacy;
+
+-- 2. 创建分区父表
+--    主键改为业务唯一键 (symbol_id, interval, open_time)，包含分区键；
+--    原 idx_kline_symbol_id / idx_kline_interval / idx_kline_open_time 均可由主键前缀或分区裁剪覆盖，不再创建。
+--    id 继续由原序列生成，仅作行标识，不建索引。
+CREATE TABLE kline (
+    id BIGINT NOT NULL DEFAULT nextval('kline_id_seq'),
+    symbol_id BIGINT NOT NULL,
+    interval VARCHAR(10) NOT NULL,
+    open_time TIMESTAMPTZ NOT NULL,
+    open DECIMAL(24,8) NOT NULL,
+    high DECIMAL(24,8) NOT NULL,
+    low DECIMAL(24,8) NOT NULL,
+    close DECIMAL(24,8) NOT NULL,
+    volume DECIMAL(24,8) NOT NULL DEFAULT 0,
+    quote_volume DECIMAL(24,8) NOT NULL DEFAULT 0,
+    trades INTEGER NOT NULL DEFAULT 0,
+    close_time TIMESTAMPTZ NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT pk_kline PRIMARY KEY (symbol_id, interval, open_time),
+    CONSTRAINT fk_kline_symbol FOREIGN KEY (symbol_id)
+        REFERENCES symbol(id) ON DELETE CASCADE
+) PARTITION BY RANGE (open_time);
+
+ALTER SEQUENCE kline_id_seq OWNED BY kline.id;
+
+-- 兜底分区：接收尚未预建月份的数据，避免写入失败
+CREATE TABLE kline_default PARTITION OF kline DEFAULT;
+
+-- 3. 分区维护函数
+
+-- 确保指定月份的分区存在，返回分区名
+-- 若兜底分区中已有该月数据，先移出再建分区
+CREATE OR REPLACE FUNCTION ensure_kline_partition(p_month DATE)
+RETURNS TEXT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    v_from TIMESTAMPTZ := date_trunc('month', p_month::TIMESTAMP) AT TIME ZONE 'UTC';
+    v_to TIMESTAMPTZ := (date_trunc('month', p_month::TIMESTAMP) + INTERVAL '1 month') AT TIME ZONE 'UTC';
+    v_name TEXT := 'kline_' || to_char(p_month, '"y"YYYY"m"MM');
+BEGIN
+    IF to_regclass(v_name) IS NOT NULL THEN
+        RETURN v_name;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE kline INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_name);
+
+    -- 新表挂载前是独立表，可直接接收兜底分区中的同月数据
+    EXECUTE format('INSERT INTO %I SELECT * FROM kline_default WHERE open_time >= $1 AND open_time < $2', v_name)
+        USING v_from, v_to;
+    DELETE FROM kline_default WHERE open_time >= v_from AND open_time < v_to;
+
+    EXECUTE format('ALTER TABLE kline ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   v_name, v_from, v_to);
+    RETURN v_name;
+END;
+$$;
+
+-- 分离（p_drop = FALSE）或删除（p_drop = TRUE）上界不晚于 p_before 的月分区，返回处理的分区名
+CREATE OR REPLACE FUNCTION retire_kline_partitions(p_before TIMESTAMPTZ, p_drop BOOLEAN)
+RETURNS SETOF TEXT
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    r RECORD;
+BEGIN
+    FOR r IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'kline'::regclass
+          AND c.relname ~ '^kline_y[0-9]{4}m[0-9]{2}$'
+          AND (to_date(substr(c.relname, 8, 4) || substr(c.relname, 13, 2), 'YYYYMM')::TIMESTAMP
+               + INTERVAL '1 month') AT TIME ZONE 'UTC' <= p_before
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE kline DETACH PARTITION %I', r.relname);
+        IF p_drop THEN
+            EXECUTE format('DROP TABLE %I', r.relname);
+        END IF;
+        RETURN NEXT r.relname;
+    END LOOP;
+END;
+$$;
+
+-- 4. 为已有数据和未来 3 个月预建分区
+DO $$
+DECLARE
+    v_start DATE;
+    v_end DATE := (date_trunc('month', NOW() AT TIME ZONE 'UTC') + INTERVAL '3 month')::DATE;
+    v_month DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(open_time) AT TIME ZONE 'UTC')::DATE,
+                    date_trunc('month', NOW() AT TIME ZONE 'UTC')::DATE)
+    INTO v_start
+    FROM kline_legacy;
+
+    v_month := v_start;
+    WHILE v_month <= v_end LOOP
+        PERFORM ensure_kline_partition(v_month);
+        v_month := (v_month + INTERVAL '1 month')::DATE;
+    END LOOP;
+END;
+$$;
+
+-- 5. 迁移数据并删除原表
+INSERT INTO kline (id, symbol_id, interval, open_time, open, high, low, close,
+                   volume, quote_volume, trades, close_time, created_at)
+SELECT id, symbol_id, interval, open_time, open, high, low, close,
+       volume, quote_volume, trades, close_time, created_at
+FROM kline_legacy;
+
+DROP TABLE kline_legacy;
+
+-- 添加注释
+COMMENT ON TABLE kline IS 'K线数据表（按 open_time UTC 自然月分区），存储各交易对各周期的OHLCV数据';
+COMMENT ON COLUMN kline.id IS '行标识 (序列生成，非主键)';
+COMMENT ON COLUMN kline.symbol_id IS '交易对ID (外键)';
+COMMENT ON COLUMN kline.interval IS '时间周期 (1m/3m/5m/15m/30m/1h/2h/4h/6h/8h/12h/1d/3d/1w/1M)';
+COMMENT ON COLUMN kline.open_time IS '开盘时间 (UTC，分区键)';
+COMMENT ON COLUMN kline.open IS '开盘价';
+COMMENT ON COLUMN kline.high IS '最高价';
+COMMENT ON COLUMN kline.low IS '最低价';
+COMMENT ON COLUMN kline.close IS '收盘价';
+COMMENT ON COLUMN kline.volume IS '成交量';
+COMMENT ON COLUMN kline.quote_volume IS '成交额';
+COMMENT ON COLUMN kline.trades IS '成交笔数';
+COMMENT ON COLUMN kline.close_time IS '收盘时间 (UTC)';
+COMMENT ON COLUMN kline.created_at IS '创建时间 (UTC)';
+COMMENT ON TABLE kline_default IS 'K线兜底分区，接收尚未预建月份的数据，预建分区时自动移出';
+COMMENT ON FUNCTION ensure_kline_partition(DATE) IS '确保指定月份的 kline 分区存在';
+COMMENT ON FUNCTION retire_kline_partitions(TIMESTAMPTZ, BOOLEAN) IS '分离或删除早于指定时间的 kline 月分区';
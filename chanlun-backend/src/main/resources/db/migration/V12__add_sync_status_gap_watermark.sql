@@ -0,0 +1,17 @@
+-- =====================================================
+-- Flyway 迁移脚本
+-- 版本: V12
+-- 描述: 同步状态表 (sync_status) 增加缺口检测水位线，支持增量缺口检测
+-- 时区: 所有 TIMESTAMPTZ 字段存储 UTC 时间
+-- =====================================================
+
+-- 设置时区为 UTC
+SET TIME ZONE 'UTC';
+
+-- 增加水位线字段：[gap_checked_from, gap_checked_until] 内的缺口均已记录到 data_gap
+ALTER TABLE sync_status ADD COLUMN IF NOT EXISTS gap_checked_from TIMESTAMPTZ;
+ALTER TABLE sync_status ADD COLUMN IF NOT EXISTS gap_checked_until TIMESTAMPTZ;
+
+-- 添加字段注释
+COMMENT ON COLUMN sync_status.gap_checked_from IS '缺口检测水位线起点：上次检测时最早一根K线的开盘时间 (UTC)，NULL 表示需全量检测';
+COMMENT ON COLUMN sync_status.gap_checked_until IS '缺口检测水位线终点：上次检测时最新一根K线的开盘时间 (UTC)，下次从此处增量检测';
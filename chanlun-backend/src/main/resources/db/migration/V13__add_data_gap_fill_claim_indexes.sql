@@ -0,0 +1,31 @@
+-- =====================================================
+-- Flyway 迁移脚本
+-- 版本: V13
+-- 描述: 数据缺口表 (data_gap) 增加并发回补所需索引
+--       同一 (交易对, 周期) 同时最多一条 FILLING，多实例下由数据库保证串行
+-- 时区: 所有 TIMESTAMPTZ 字段存储 UTC 时间
+-- =====================================================
+
+-- 设置时区为 UTC
+SET TIME ZONE 'UTC';
+
+-- 1. 同一 (交易对, 周期) 已有多条 FILLING 时，只保留最早更新的一条，其余退回 PENDING
+UPDATE data_gap d
+SET status = 'PENDING', updated_at = NOW()
+WHERE d.status = 'FILLING'
+  AND EXISTS (SELECT 1 FROM data_gap f
+              WHERE f.symbol_id = d.symbol_id AND f.interval = d.interval
+                AND f.status = 'FILLING'
+                AND (f.updated_at, f.id) < (d.updated_at, d.id));
+
+-- 2. 每个 (交易对, 周期) 最多一条回补中的缺口
+CREATE UNIQUE INDEX IF NOT EXISTS uk_data_gap_filling_pair
+    ON data_gap(symbol_id, interval) WHERE status = 'FILLING';
+
+-- 3. 领取时按 (交易对, 周期) 分组取最早的待回补缺口
+CREATE INDEX IF NOT EXISTS idx_data_gap_pending_pair
+    ON data_gap(symbol_id, interval, created_at, id) WHERE status = 'PENDING';
+
+-- 添加索引注释
+COMMENT ON INDEX uk_data_gap_filling_pair IS '同一交易对周期同时最多一个回补中的缺口 (多实例回补串行化)';
+COMMENT ON INDEX idx_data_gap_pending_pair IS '按交易对周期领取最早的待回补缺口';
@@ -0,0 +1,107 @@
+-- =====================================================
+-- Flyway 迁移脚本
+-- 版本: V14
+-- 描述: 创建笔 (chan_stroke)、线段 (chan_segment) 和构建检查点 (chan_structure_state) 表
+-- 时区: 所有 TIMESTAMPTZ 字段存储 UTC 时间
+-- =====================================================
+
+-- 设置时区为 UTC
+SET TIME ZONE 'UTC';
+
+-- 创建笔表
+CREATE TABLE IF NOT EXISTS chan_stroke (
+    id BIGSERIAL PRIMARY KEY,
+    symbol_id BIGINT NOT NULL,
+    interval VARCHAR(10) NOT NULL,
+    direction VARCHAR(4) NOT NULL,
+    start_time TIMESTAMPTZ NOT NULL,
+    end_time TIMESTAMPTZ NOT NULL,
+    start_price DECIMAL(24, 8) NOT NULL,
+    end_price DECIMAL(24, 8) NOT NULL,
+    start_bar BIGINT NOT NULL,
+    end_bar BIGINT NOT NULL,
+    confirmed BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT fk_chan_stroke_symbol FOREIGN KEY (symbol_id)
+        REFERENCES symbol(id) ON DELETE CASCADE,
+    CONSTRAINT uk_chan_stroke_symbol_interval_start UNIQUE (symbol_id, interval, start_time),
+    CONSTRAINT chk_chan_stroke_direction CHECK (direction IN ('UP', 'DOWN'))
+);
+
+CREATE INDEX idx_chan_stroke_symbol_interval_end ON chan_stroke(symbol_id, interval, end_time);
+
+-- 创建线段表
+CREATE TABLE IF NOT EXISTS chan_segment (
+    id BIGSERIAL PRIMARY KEY,
+    symbol_id BIGINT NOT NULL,
+    interval VARCHAR(10) NOT NULL,
+    direction VARCHAR(4) NOT NULL,
+    start_time TIMESTAMPTZ NOT NULL,
+    end_time TIMESTAMPTZ NOT NULL,
+    start_price DECIMAL(24, 8) NOT NULL,
+    end_price DECIMAL(24, 8) NOT NULL,
+    stroke_count INTEGER NOT NULL,
+    confirmed BOOLEAN NOT NULL DEFAULT FALSE,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT fk_chan_segment_symbol FOREIGN KEY (symbol_id)
+        REFERENCES symbol(id) ON DELETE CASCADE,
+    CONSTRAINT uk_chan_segment_symbol_interval_start UNIQUE (symbol_id, interval, start_time),
+    CONSTRAINT chk_chan_segment_direction CHECK (direction IN ('UP', 'DOWN'))
+);
+
+CREATE INDEX idx_chan_segment_symbol_interval_end ON chan_segment(symbol_id, interval, end_time);
+
+-- 创建构建检查点表
+CREATE TABLE IF NOT EXISTS chan_structure_state (
+    id BIGSERIAL PRIMARY KEY,
+    symbol_id BIGINT NOT NULL,
+    interval VARCHAR(10) NOT NULL,
+    last_open_time TIMESTAMPTZ NOT NULL,
+    state TEXT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    CONSTRAINT fk_chan_structure_state_symbol FOREIGN KEY (symbol_id)
+        REFERENCES symbol(id) ON DELETE CASCADE,
+    CONSTRAINT uk_chan_structure_state_symbol_interval UNIQUE (symbol_id, interval)
+);
+
+-- 添加表注释
+COMMENT ON TABLE chan_stroke IS '笔表，保存由分型构建的笔，最后一笔未确认';
+COMMENT ON COLUMN chan_stroke.id IS '主键';
+COMMENT ON COLUMN chan_stroke.symbol_id IS '交易对ID (外键)';
+COMMENT ON COLUMN chan_stroke.interval IS '时间周期';
+COMMENT ON COLUMN chan_stroke.direction IS '方向 (UP/DOWN)';
+COMMENT ON COLUMN chan_stroke.start_time IS '起点分型极值所在K线开盘时间 (UTC)';
+COMMENT ON COLUMN chan_stroke.end_time IS '终点分型极值所在K线开盘时间 (UTC)';
+COMMENT ON COLUMN chan_stroke.start_price IS '起点价格';
+COMMENT ON COLUMN chan_stroke.end_price IS '终点价格';
+COMMENT ON COLUMN chan_stroke.start_bar IS '起点分型在包含处理后序列中的序号';
+COMMENT ON COLUMN chan_stroke.end_bar IS '终点分型在包含处理后序列中的序号';
+COMMENT ON COLUMN chan_stroke.confirmed IS '是否已确认 (false 表示最后一笔，仍可能延伸)';
+COMMENT ON COLUMN chan_stroke.created_at IS '创建时间 (UTC)';
+COMMENT ON COLUMN chan_stroke.updated_at IS '更新时间 (UTC)';
+
+COMMENT ON TABLE chan_segment IS '线段表，保存由笔构建的线段，最后一段未确认';
+COMMENT ON COLUMN chan_segment.id IS '主键';
+COMMENT ON COLUMN chan_segment.symbol_id IS '交易对ID (外键)';
+COMMENT ON COLUMN chan_segment.interval IS '时间周期';
+COMMENT ON COLUMN chan_segment.direction IS '方向 (UP/DOWN)';
+COMMENT ON COLUMN chan_segment.start_time IS '起点时间 (UTC)';
+COMMENT ON COLUMN chan_segment.end_time IS '终点时间 (UTC)';
+COMMENT ON COLUMN chan_segment.start_price IS '起点价格';
+COMMENT ON COLUMN chan_segment.end_price IS '终点价格';
+COMMENT ON COLUMN chan_segment.stroke_count IS '包含的笔数';
+COMMENT ON COLUMN chan_segment.confirmed IS '是否已确认 (false 表示最后一段，仍可能变化)';
+COMMENT ON COLUMN chan_segment.created_at IS '创建时间 (UTC)';
+COMMENT ON COLUMN chan_segment.updated_at IS '更新时间 (UTC)';
+
+COMMENT ON TABLE chan_structure_state IS '笔和线段构建检查点表，用于重启后从最新K线继续增量构建';
+COMMENT ON COLUMN chan_structure_state.id IS '主键';
+COMMENT ON COLUMN chan_structure_state.symbol_id IS '交易对ID (外键)';
+COMMENT ON COLUMN chan_structure_state.interval IS '时间周期';
+COMMENT ON COLUMN chan_structure_state.last_open_time IS '检查点对应的最新一根K线开盘时间 (UTC)';
+COMMENT ON COLUMN chan_structure_state.state IS '构建状态 (JSON)：分型尾部、未确认笔、当前线段的笔';
+COMMENT ON COLUMN chan_structure_state.created_at IS '创建时间 (UTC)';
+COMMENT ON COLUMN chan_structure_state.updated_at IS '更新时间 (UTC)';
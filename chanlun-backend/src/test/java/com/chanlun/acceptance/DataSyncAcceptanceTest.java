@@ -5,7 +5,6 @@ import com.chanlun.exception.BusinessException;
 import com.chanlun.exchange.BinanceClient;
 import com.chanlun.exchange.BinanceClientFactory;
 import com.chanlun.exchange.model.BinanceApiResponse;
-import com.chanlun.exchange.model.BinanceKline;
 import com.chanlun.service.*;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -144,8 +143,8 @@ class DataSyncAcceptanceTest {
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
 
-            List<BinanceKline> mockKlines = createMockKlines(10);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
+            List<Kline> mockKlines = createMockKlines(10);
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(BinanceApiResponse.success(mockKlines));
 
             when(klineService.batchUpsert(anyList())).thenReturn(10);
@@ -176,8 +175,8 @@ class DataSyncAcceptanceTest {
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
 
-            List<BinanceKline> mockKlines = createMockKlines(5);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
+            List<Kline> mockKlines = createMockKlines(5);
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(BinanceApiResponse.success(mockKlines));
 
             when(klineService.batchUpsert(anyList())).thenReturn(5);
@@ -187,7 +186,7 @@ class DataSyncAcceptanceTest {
             int result = historySyncService.syncHistory(1L, "1h", startTime, endTime);
 
             // 验证分段调用（60天应该分成至少2段）
-            verify(binanceClient, atLeast(2)).getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class));
+            verify(binanceClient, atLeast(2)).getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class));
         }
 
         @Test
@@ -239,7 +238,7 @@ class DataSyncAcceptanceTest {
             when(syncService.createHistoryTask(eq(1L), eq("1m"), any(), any())).thenReturn(testTask);
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(BinanceApiResponse.success(createMockKlines(1)));
             when(klineService.batchUpsert(anyList())).thenReturn(1);
             when(klineService.getMaxOpenTime(anyLong(), anyString())).thenReturn(baseTime);
@@ -293,8 +292,8 @@ class DataSyncAcceptanceTest {
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
 
-            List<BinanceKline> mockKlines = createMockKlines(5);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
+            List<Kline> mockKlines = createMockKlines(5);
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(BinanceApiResponse.success(mockKlines));
 
             when(klineService.batchUpsert(anyList())).thenReturn(5);
@@ -332,8 +331,8 @@ class DataSyncAcceptanceTest {
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
 
-            List<BinanceKline> mockKlines = createMockKlines(5);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
+            List<Kline> mockKlines = createMockKlines(5);
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), any(Integer.class)))
                     .thenReturn(BinanceApiResponse.success(mockKlines));
 
             when(klineService.batchUpsert(anyList())).thenReturn(5);
@@ -387,11 +386,13 @@ class DataSyncAcceptanceTest {
 
     // ==================== 辅助方法 ====================
 
-    private List<BinanceKline> createMockKlines(int count) {
-        List<BinanceKline> klines = new ArrayList<>();
+    private List<Kline> createMockKlines(int count) {
+        List<Kline> klines = new ArrayList<>();
         for (int i = 0; i < count; i++) {
-            BinanceKline kline = new BinanceKline();
-            kline.setOpenTime(baseTime.plus(i, ChronoUnit.HOURS).toEpochMilli());
+            Kline kline = new Kline();
+            kline.setSymbolId(1L);
+            kline.setInterval("1h");
+            kline.setOpenTime(baseTime.plus(i, ChronoUnit.HOURS));
             kline.setOpen(new BigDecimal("50000.00"));
             kline.setHigh(new BigDecimal("51000.00"));
             kline.setLow(new BigDecimal("49000.00"));
@@ -399,7 +400,7 @@ class DataSyncAcceptanceTest {
             kline.setVolume(new BigDecimal("100.00"));
             kline.setQuoteVolume(new BigDecimal("5000000.00"));
             kline.setTrades(1000);
-            kline.setCloseTime(baseTime.plus(i + 1, ChronoUnit.HOURS).minusMillis(1).toEpochMilli());
+            kline.setCloseTime(baseTime.plus(i + 1, ChronoUnit.HOURS).minusMillis(1));
             klines.add(kline);
         }
         return klines;
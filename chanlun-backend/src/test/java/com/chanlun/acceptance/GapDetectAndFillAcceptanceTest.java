@@ -5,8 +5,8 @@ import com.chanlun.dto.SymbolDTO;
 import com.chanlun.entity.*;
 import com.chanlun.exchange.BinanceClient;
 import com.chanlun.exchange.BinanceClientFactory;
+import com.chanlun.exchange.BinanceRateLimiter;
 import com.chanlun.exchange.model.BinanceApiResponse;
-import com.chanlun.exchange.model.BinanceKline;
 import com.chanlun.mapper.DataGapMapper;
 import com.chanlun.mapper.KlineMapper;
 import com.chanlun.mapper.SyncStatusMapper;
@@ -19,11 +19,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -85,14 +85,23 @@ class GapDetectAndFillAcceptanceTest {
         gapFillService = new GapFillService(dataGapMapper, dataGapServiceMock, symbolService, 
                 marketService, dataSourceService, klineService, syncService, 
                 systemConfigService, binanceClientFactory);
+        lenient().when(dataGapMapper.claimById(anyLong())).thenReturn(1);
     }
 
-    private Kline createKline(Long symbolId, String interval, Instant openTime) {
-        return Kline.builder().id(1L).symbolId(symbolId).interval(interval)
-                .openTime(openTime).open(new BigDecimal("50000.00"))
-                .high(new BigDecimal("51000.00")).low(new BigDecimal("49000.00"))
-                .close(new BigDecimal("50500.00")).volume(new BigDecimal("1000.00"))
-                .closeTime(openTime.plusMillis(3600000 - 1)).build();
+    private DataGap createClaimedGap(Long id, String interval) {
+        return DataGap.builder().id(id).symbolId(1L).interval(interval)
+                .gapStart(baseTime).gapEnd(baseTime.plus(2, ChronoUnit.HOURS))
+                .missingCount(2).status("FILLING").retryCount(0).build();
+    }
+
+    private void stubKlineRange() {
+        lenient().when(klineMapper.selectMinOpenTimeBySymbolIdAndInterval(anyLong(), anyString())).thenReturn(baseTime);
+        lenient().when(klineMapper.selectMaxOpenTimeBySymbolIdAndInterval(anyLong(), anyString()))
+                .thenReturn(baseTime.plus(10, ChronoUnit.HOURS));
+    }
+
+    private DataGap createBoundary(Instant gapStart, Instant gapEnd, int missingCount) {
+        return DataGap.builder().gapStart(gapStart).gapEnd(gapEnd).missingCount(missingCount).build();
     }
 
     private DataGap createDataGap(Long symbolId, String interval, Instant gapStart, 
@@ -109,12 +118,14 @@ class GapDetectAndFillAcceptanceTest {
                 .historySyncEnabled(true).syncIntervals(intervals).build();
     }
 
-    private BinanceKline createBinanceKline(long openTime) {
-        return BinanceKline.builder()
-                .openTime(openTime).open(new BigDecimal("50000.00"))
+    private Kline createKline(long openTime) {
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1h")
+                .openTime(Instant.ofEpochMilli(openTime)).open(new BigDecimal("50000.00"))
                 .high(new BigDecimal("51000.00")).low(new BigDecimal("49000.00"))
                 .close(new BigDecimal("50500.00")).volume(new BigDecimal("1000.00"))
-                .closeTime(openTime + 3600000 - 1).quoteVolume(new BigDecimal("50000000.00"))
+                .closeTime(Instant.ofEpochMilli(openTime + 3600000 - 1)).quoteVolume(new BigDecimal("50000000.00"))
                 .trades(100).build();
     }
 
@@ -127,12 +138,10 @@ class GapDetectAndFillAcceptanceTest {
         @Test
         @DisplayName("连续K线数据无缺口")
         void continuousKlines_noGapsDetected() {
-            List<Kline> klines = new ArrayList<>();
-            for (int i = 0; i < 5; i++) {
-                klines.add(createKline(1L, "1h", baseTime.plus(i, ChronoUnit.HOURS)));
-            }
             when(symbolService.findById(1L)).thenReturn(testSymbol);
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L))
+                    .thenReturn(Collections.emptyList());
             when(dataGapMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(Collections.emptyList());
 
             GapDetectResult result = dataGapService.detectGaps(1L, "1h");
@@ -144,13 +153,10 @@ class GapDetectAndFillAcceptanceTest {
         @Test
         @DisplayName("单个缺口正确检测")
         void singleGap_correctlyDetected() {
-            List<Kline> klines = List.of(
-                    createKline(1L, "1h", baseTime),
-                    createKline(1L, "1h", baseTime.plus(3, ChronoUnit.HOURS)));
             when(symbolService.findById(1L)).thenReturn(testSymbol);
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
-            when(dataGapMapper.selectOverlapping(anyLong(), anyString(), any(), any()))
-                    .thenReturn(Collections.emptyList());
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L)).thenReturn(List.of(
+                    createBoundary(baseTime.plus(1, ChronoUnit.HOURS), baseTime.plus(2, ChronoUnit.HOURS), 2)));
             when(dataGapMapper.batchInsert(anyList())).thenReturn(1);
             when(dataGapMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(Collections.emptyList());
 
@@ -163,14 +169,11 @@ class GapDetectAndFillAcceptanceTest {
         @Test
         @DisplayName("多个缺口正确检测")
         void multipleGaps_correctlyDetected() {
-            List<Kline> klines = List.of(
-                    createKline(1L, "1h", baseTime),
-                    createKline(1L, "1h", baseTime.plus(3, ChronoUnit.HOURS)),
-                    createKline(1L, "1h", baseTime.plus(6, ChronoUnit.HOURS)));
             when(symbolService.findById(1L)).thenReturn(testSymbol);
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
-            when(dataGapMapper.selectOverlapping(anyLong(), anyString(), any(), any()))
-                    .thenReturn(Collections.emptyList());
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L)).thenReturn(List.of(
+                    createBoundary(baseTime.plus(1, ChronoUnit.HOURS), baseTime.plus(2, ChronoUnit.HOURS), 2),
+                    createBoundary(baseTime.plus(4, ChronoUnit.HOURS), baseTime.plus(5, ChronoUnit.HOURS), 2)));
             when(dataGapMapper.batchInsert(anyList())).thenReturn(2);
             when(dataGapMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(Collections.emptyList());
 
@@ -183,18 +186,16 @@ class GapDetectAndFillAcceptanceTest {
         @Test
         @DisplayName("已存在重叠缺口时不重复创建")
         void overlappingGapExists_notDuplicated() {
-            List<Kline> klines = List.of(
-                    createKline(1L, "1h", baseTime),
-                    createKline(1L, "1h", baseTime.plus(3, ChronoUnit.HOURS)));
             DataGap existingGap = createDataGap(1L, "1h", 
                     baseTime.plus(1, ChronoUnit.HOURS),
                     baseTime.plus(2, ChronoUnit.HOURS), 2, "PENDING");
             when(symbolService.findById(1L)).thenReturn(testSymbol);
             when(marketService.findById(1L)).thenReturn(testMarket);
             when(dataSourceService.findById(1L)).thenReturn(testDataSource);
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
-            when(dataGapMapper.selectOverlapping(anyLong(), anyString(), any(), any()))
-                    .thenReturn(List.of(existingGap));
+            // 已有缺口在检测语句内被反连接排除
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L))
+                    .thenReturn(Collections.emptyList());
             when(dataGapMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(List.of(existingGap));
 
             GapDetectResult result = dataGapService.detectGaps(1L, "1h");
@@ -222,10 +223,10 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
-            List<BinanceKline> klines = List.of(
-                    createBinanceKline(baseTime.toEpochMilli()),
-                    createBinanceKline(baseTime.plus(1, ChronoUnit.HOURS).toEpochMilli()));
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            List<Kline> klines = List.of(
+                    createKline(baseTime.toEpochMilli()),
+                    createKline(baseTime.plus(1, ChronoUnit.HOURS).toEpochMilli()));
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(2);
             when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(baseTime.plus(1, ChronoUnit.HOURS));
@@ -234,8 +235,8 @@ class GapDetectAndFillAcceptanceTest {
             
             assertTrue(result.isSuccess());
             assertEquals(2, result.getSyncedCount());
-            verify(dataGapServiceMock).updateStatus(1L, "FILLING");
-            verify(dataGapServiceMock).updateStatus(1L, "FILLED");
+            verify(dataGapMapper).claimById(1L);
+            verify(dataGapMapper).markFilled(List.of(1L));
         }
 
         @Test
@@ -248,14 +249,14 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.createGapFillTask(anyLong(), anyString(), any(), any())).thenReturn(testTask);
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.error(-1, "API Error"));
             when(systemConfigService.getGapFillMaxRetry()).thenReturn(3);
             
             GapFillResult result = gapFillService.fillGap(1L);
             
             assertFalse(result.isSuccess());
-            verify(dataGapServiceMock).updateStatus(1L, "FILLING");
+            verify(dataGapMapper).claimById(1L);
             verify(dataGapServiceMock).incrementRetryCount(1L);
             verify(syncService).failTask(eq(1L), anyString());
         }
@@ -263,8 +264,9 @@ class GapDetectAndFillAcceptanceTest {
         @Test
         @DisplayName("批量回补多个缺口")
         void batchFillGaps_multipleGaps() {
-            when(systemConfigService.getGapFillIntervalMs()).thenReturn(10L);
             when(dataGapServiceMock.findById(anyLong())).thenReturn(testGap);
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(false), eq(List.of(1L, 2L)), any()))
+                    .thenReturn(List.of(createClaimedGap(1L, "1h"), createClaimedGap(2L, "1d")), Collections.emptyList());
             when(symbolService.findById(1L)).thenReturn(testSymbol);
             when(marketService.findById(1L)).thenReturn(testMarket);
             when(dataSourceService.findById(1L)).thenReturn(testDataSource);
@@ -272,8 +274,8 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.startTask(anyLong())).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
-            List<BinanceKline> klines = List.of(createBinanceKline(baseTime.toEpochMilli()));
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            List<Kline> klines = List.of(createKline(baseTime.toEpochMilli()));
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(1);
             when(klineService.getMaxOpenTime(anyLong(), anyString())).thenReturn(baseTime);
@@ -324,11 +326,9 @@ class GapDetectAndFillAcceptanceTest {
             when(syncFilterService.getValidSyncIntervals(symbol1)).thenReturn(List.of("1h"));
             when(syncFilterService.getValidSyncIntervals(symbol2)).thenReturn(List.of("1h"));
 
-            List<Kline> klines = new ArrayList<>();
-            for (int i = 0; i < 3; i++) {
-                klines.add(createKline(1L, "1h", baseTime.plus(i, ChronoUnit.HOURS)));
-            }
-            when(klineMapper.selectBySymbolIdAndInterval(anyLong(), anyString())).thenReturn(klines);
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(anyLong(), anyString(), any(), anyLong(), anyLong()))
+                    .thenReturn(Collections.emptyList());
             when(dataGapMapper.countByStatus(anyString())).thenReturn(0L);
 
             GapDetectResult result = dataGapService.detectAllGaps();
@@ -358,10 +358,12 @@ class GapDetectAndFillAcceptanceTest {
     class AutoFillRateLimitTests {
 
         @Test
-        @DisplayName("批量回补按配置间隔执行")
-        void batchFill_respectsIntervalConfig() {
-            when(systemConfigService.getGapFillIntervalMs()).thenReturn(50L);
+        @DisplayName("批量回补按ID领取后并发执行，不再固定间隔休眠")
+        void batchFill_claimsAndFillsConcurrently() {
             when(dataGapServiceMock.findById(anyLong())).thenReturn(testGap);
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(false), eq(List.of(1L, 2L, 3L)), any()))
+                    .thenReturn(List.of(createClaimedGap(1L, "1m"), createClaimedGap(2L, "1h"),
+                            createClaimedGap(3L, "1d")), Collections.emptyList());
             when(symbolService.findById(1L)).thenReturn(testSymbol);
             when(marketService.findById(1L)).thenReturn(testMarket);
             when(dataSourceService.findById(1L)).thenReturn(testDataSource);
@@ -369,18 +371,17 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.startTask(anyLong())).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
-            List<BinanceKline> klines = List.of(createBinanceKline(baseTime.toEpochMilli()));
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            List<Kline> klines = List.of(createKline(baseTime.toEpochMilli()));
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(1);
             when(klineService.getMaxOpenTime(anyLong(), anyString())).thenReturn(baseTime);
             
-            long startTime = System.currentTimeMillis();
-            gapFillService.batchFillGaps(List.of(1L, 2L, 3L));
-            long elapsed = System.currentTimeMillis() - startTime;
+            BatchGapFillResult result = gapFillService.batchFillGaps(List.of(1L, 2L, 3L));
             
-            // 3个缺口，2次间隔，每次50ms，至少100ms
-            assertTrue(elapsed >= 100, "批量回补应遵守限流间隔");
+            assertEquals(3, result.getSuccessCount());
+            verify(systemConfigService, never()).getGapFillIntervalMs();
+            verify(binanceClient, times(3)).setRequestPriority(BinanceRateLimiter.Priority.GAP_FILL);
         }
 
         @Test
@@ -388,19 +389,18 @@ class GapDetectAndFillAcceptanceTest {
         void autoFill_respectsBatchSizeConfig() {
             when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
             when(systemConfigService.getGapFillBatchSize()).thenReturn(2);
-            when(systemConfigService.getGapFillIntervalMs()).thenReturn(10L);
             
-            DataGap gap1 = createDataGap(1L, "1h", baseTime, baseTime.plus(1, ChronoUnit.HOURS), 1, "PENDING");
-            DataGap gap2 = createDataGap(2L, "1h", baseTime.plus(2, ChronoUnit.HOURS), baseTime.plus(3, ChronoUnit.HOURS), 1, "PENDING");
-            when(dataGapMapper.selectPendingWithLimit(2)).thenReturn(List.of(gap1, gap2));
-            
-            SyncStatus syncStatus = SyncStatus.builder().symbolId(1L).interval("1h").autoGapFillEnabled(false).build();
-            when(syncService.getSyncStatus(anyLong(), anyString())).thenReturn(syncStatus);
+            DataGap gap1 = createDataGap(1L, "1h", baseTime, baseTime.plus(1, ChronoUnit.HOURS), 1, "FILLING");
+            DataGap gap2 = createDataGap(2L, "1h", baseTime.plus(2, ChronoUnit.HOURS), baseTime.plus(3, ChronoUnit.HOURS), 1, "FILLING");
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any())).thenReturn(List.of(gap1, gap2));
+            // 交易对不可用：退回 PENDING 并记为失败
+            when(symbolService.findById(anyLong())).thenThrow(new RuntimeException("交易对不存在"));
             
             BatchGapFillResult result = gapFillService.autoFillGaps();
             
             assertEquals(2, result.getTotalCount());
-            verify(dataGapMapper).selectPendingWithLimit(2);
+            verify(dataGapMapper, times(1)).claimPending(eq(2), anyInt(), eq(true), isNull(), any());
+            verify(dataGapServiceMock, times(2)).updateStatusAndError(anyLong(), eq("PENDING"), anyString());
         }
     }
 
@@ -411,21 +411,17 @@ class GapDetectAndFillAcceptanceTest {
     class IntervalAutoFillSwitchTests {
 
         @Test
-        @DisplayName("周期级开关关闭时跳过该周期缺口")
+        @DisplayName("周期级开关关闭时不领取该周期缺口")
         void intervalSwitchOff_skipsGap() {
             when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
             when(systemConfigService.getGapFillBatchSize()).thenReturn(10);
-            when(systemConfigService.getGapFillIntervalMs()).thenReturn(10L);
-            when(dataGapMapper.selectPendingWithLimit(10)).thenReturn(List.of(testGap));
-            
-            SyncStatus syncStatus = SyncStatus.builder()
-                    .symbolId(1L).interval("1h").autoGapFillEnabled(false).build();
-            when(syncService.getSyncStatus(1L, "1h")).thenReturn(syncStatus);
+            // 周期级开关关闭的缺口在领取时被排除
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any())).thenReturn(Collections.emptyList());
             
             BatchGapFillResult result = gapFillService.autoFillGaps();
             
-            assertEquals(1, result.getSkippedCount());
             assertEquals(0, result.getSuccessCount());
+            verify(syncService, never()).createGapFillTask(anyLong(), anyString(), any(), any());
         }
 
         @Test
@@ -433,13 +429,8 @@ class GapDetectAndFillAcceptanceTest {
         void intervalSwitchOn_fillsGap() {
             when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
             when(systemConfigService.getGapFillBatchSize()).thenReturn(10);
-            when(systemConfigService.getGapFillIntervalMs()).thenReturn(10L);
-            when(dataGapMapper.selectPendingWithLimit(10)).thenReturn(List.of(testGap));
-            
-            SyncStatus syncStatus = SyncStatus.builder()
-                    .symbolId(1L).interval("1h").autoGapFillEnabled(true).build();
-            when(syncService.getSyncStatus(1L, "1h")).thenReturn(syncStatus);
-            when(dataGapServiceMock.findById(1L)).thenReturn(testGap);
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any()))
+                    .thenReturn(List.of(createClaimedGap(1L, "1h")), Collections.emptyList());
             when(symbolService.findById(1L)).thenReturn(testSymbol);
             when(marketService.findById(1L)).thenReturn(testMarket);
             when(dataSourceService.findById(1L)).thenReturn(testDataSource);
@@ -447,8 +438,8 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.startTask(anyLong())).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
-            List<BinanceKline> klines = List.of(createBinanceKline(baseTime.toEpochMilli()));
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            List<Kline> klines = List.of(createKline(baseTime.toEpochMilli()));
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(1);
             when(klineService.getMaxOpenTime(anyLong(), anyString())).thenReturn(baseTime);
@@ -479,21 +470,17 @@ class GapDetectAndFillAcceptanceTest {
         }
 
         @Test
-        @DisplayName("全局开启+周期关闭时跳过")
+        @DisplayName("全局开启+周期关闭时不领取")
         void globalOn_intervalOff_skips() {
             when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
             when(systemConfigService.getGapFillBatchSize()).thenReturn(10);
-            when(systemConfigService.getGapFillIntervalMs()).thenReturn(10L);
-            when(dataGapMapper.selectPendingWithLimit(10)).thenReturn(List.of(testGap));
-            
-            SyncStatus syncStatus = SyncStatus.builder()
-                    .symbolId(1L).interval("1h").autoGapFillEnabled(false).build();
-            when(syncService.getSyncStatus(1L, "1h")).thenReturn(syncStatus);
+            // 周期级开关关闭的缺口在领取时被排除
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any())).thenReturn(Collections.emptyList());
             
             BatchGapFillResult result = gapFillService.autoFillGaps();
             
-            assertEquals(1, result.getSkippedCount());
-            assertTrue(result.getSkippedGaps().get(0).getReason().contains("周期级"));
+            assertEquals(0, result.getTotalCount());
+            verify(dataGapMapper).claimPending(anyInt(), anyInt(), eq(true), isNull(), any());
         }
 
         @Test
@@ -501,13 +488,8 @@ class GapDetectAndFillAcceptanceTest {
         void globalOn_intervalOn_fills() {
             when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
             when(systemConfigService.getGapFillBatchSize()).thenReturn(10);
-            when(systemConfigService.getGapFillIntervalMs()).thenReturn(10L);
-            when(dataGapMapper.selectPendingWithLimit(10)).thenReturn(List.of(testGap));
-            
-            SyncStatus syncStatus = SyncStatus.builder()
-                    .symbolId(1L).interval("1h").autoGapFillEnabled(true).build();
-            when(syncService.getSyncStatus(1L, "1h")).thenReturn(syncStatus);
-            when(dataGapServiceMock.findById(1L)).thenReturn(testGap);
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any()))
+                    .thenReturn(List.of(createClaimedGap(1L, "1h")), Collections.emptyList());
             when(symbolService.findById(1L)).thenReturn(testSymbol);
             when(marketService.findById(1L)).thenReturn(testMarket);
             when(dataSourceService.findById(1L)).thenReturn(testDataSource);
@@ -515,8 +497,8 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.startTask(anyLong())).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
-            List<BinanceKline> klines = List.of(createBinanceKline(baseTime.toEpochMilli()));
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            List<Kline> klines = List.of(createKline(baseTime.toEpochMilli()));
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(1);
             when(klineService.getMaxOpenTime(anyLong(), anyString())).thenReturn(baseTime);
@@ -547,7 +529,8 @@ class GapDetectAndFillAcceptanceTest {
             when(syncStatusMapper.updateAutoGapFillEnabled(1L, "1h", false)).thenReturn(1);
 
             KlineService klineServiceReal = new KlineService(klineMapper, dataGapMapper, 
-                    syncStatusMapper, symbolService);
+                    syncStatusMapper, symbolService, mock(KlineBulkLoader.class), mock(KlineCacheService.class),
+                    mock(ApplicationEventPublisher.class));
             int deleted = klineServiceReal.deleteByTimeRange(1L, "1h", baseTime, 
                     baseTime.plus(1, ChronoUnit.DAYS));
 
@@ -567,7 +550,8 @@ class GapDetectAndFillAcceptanceTest {
             when(syncStatusMapper.updateAutoGapFillEnabled(1L, "1h", false)).thenReturn(1);
 
             KlineService klineServiceReal = new KlineService(klineMapper, dataGapMapper, 
-                    syncStatusMapper, symbolService);
+                    syncStatusMapper, symbolService, mock(KlineBulkLoader.class), mock(KlineCacheService.class),
+                    mock(ApplicationEventPublisher.class));
             int deleted = klineServiceReal.deleteBySymbolIdAndInterval(1L, "1h");
 
             assertEquals(100, deleted);
@@ -583,7 +567,8 @@ class GapDetectAndFillAcceptanceTest {
                     baseTime.plus(1, ChronoUnit.DAYS))).thenReturn(0);
 
             KlineService klineServiceReal = new KlineService(klineMapper, dataGapMapper, 
-                    syncStatusMapper, symbolService);
+                    syncStatusMapper, symbolService, mock(KlineBulkLoader.class), mock(KlineCacheService.class),
+                    mock(ApplicationEventPublisher.class));
             int deleted = klineServiceReal.deleteByTimeRange(1L, "1h", baseTime, 
                     baseTime.plus(1, ChronoUnit.DAYS));
 
@@ -610,8 +595,8 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
-            List<BinanceKline> klines = List.of(createBinanceKline(baseTime.toEpochMilli()));
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            List<Kline> klines = List.of(createKline(baseTime.toEpochMilli()));
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(1);
             when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(baseTime);
@@ -633,10 +618,10 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
-            List<BinanceKline> klines = List.of(
-                    createBinanceKline(baseTime.toEpochMilli()),
-                    createBinanceKline(baseTime.plus(1, ChronoUnit.HOURS).toEpochMilli()));
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            List<Kline> klines = List.of(
+                    createKline(baseTime.toEpochMilli()),
+                    createKline(baseTime.plus(1, ChronoUnit.HOURS).toEpochMilli()));
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(2);
             when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(baseTime.plus(1, ChronoUnit.HOURS));
@@ -656,7 +641,7 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.createGapFillTask(anyLong(), anyString(), any(), any())).thenReturn(testTask);
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.error(-1, "API Error"));
             when(systemConfigService.getGapFillMaxRetry()).thenReturn(3);
             
@@ -684,10 +669,10 @@ class GapDetectAndFillAcceptanceTest {
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
             Instant lastKlineTime = baseTime.plus(1, ChronoUnit.HOURS);
-            List<BinanceKline> klines = List.of(
-                    createBinanceKline(baseTime.toEpochMilli()),
-                    createBinanceKline(lastKlineTime.toEpochMilli()));
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            List<Kline> klines = List.of(
+                    createKline(baseTime.toEpochMilli()),
+                    createKline(lastKlineTime.toEpochMilli()));
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(2);
             when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(lastKlineTime);
@@ -707,7 +692,7 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.createGapFillTask(anyLong(), anyString(), any(), any())).thenReturn(testTask);
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(Collections.emptyList()));
             
             gapFillService.fillGap(1L);
@@ -725,7 +710,7 @@ class GapDetectAndFillAcceptanceTest {
             when(syncService.createGapFillTask(anyLong(), anyString(), any(), any())).thenReturn(testTask);
             when(syncService.startTask(1L)).thenReturn(true);
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.error(-1, "API Error"));
             when(systemConfigService.getGapFillMaxRetry()).thenReturn(3);
             
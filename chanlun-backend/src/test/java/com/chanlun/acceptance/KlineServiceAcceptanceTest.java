@@ -6,6 +6,8 @@ import com.chanlun.exception.BusinessException;
 import com.chanlun.mapper.DataGapMapper;
 import com.chanlun.mapper.KlineMapper;
 import com.chanlun.mapper.SyncStatusMapper;
+import com.chanlun.service.KlineBulkLoader;
+import com.chanlun.service.KlineCacheService;
 import com.chanlun.service.KlineService;
 import com.chanlun.service.SymbolService;
 import org.junit.jupiter.api.*;
@@ -13,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -52,6 +55,15 @@ class KlineServiceAcceptanceTest {
     @Mock
     private SymbolService symbolService;
 
+    @Mock
+    private KlineBulkLoader klineBulkLoader;
+
+    @Mock
+    private KlineCacheService klineCacheService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private KlineService klineService;
 
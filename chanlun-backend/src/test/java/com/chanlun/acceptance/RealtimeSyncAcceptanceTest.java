@@ -59,6 +59,15 @@ class RealtimeSyncAcceptanceTest {
     @Mock
     private EncryptUtil encryptUtil;
 
+    @Mock
+    private KlineWriteBehindService klineWriteBehindService;
+
+    @Mock
+    private KlinePushService klinePushService;
+
+    @Mock
+    private KlineLatencyTracker klineLatencyTracker;
+
     private RealtimeSyncService realtimeSyncService;
 
     private DataSource testDataSource;
@@ -70,7 +79,8 @@ class RealtimeSyncAcceptanceTest {
         realtimeSyncService = new RealtimeSyncService(
                 symbolService, marketService, dataSourceService,
                 klineService, syncService, systemConfigService,
-                binanceClientFactory, encryptUtil);
+                binanceClientFactory, encryptUtil, klineWriteBehindService, klinePushService,
+                klineLatencyTracker);
         
         // 设置 mockEnabled = true 以便测试
         ReflectionTestUtils.setField(realtimeSyncService, "mockEnabled", true);
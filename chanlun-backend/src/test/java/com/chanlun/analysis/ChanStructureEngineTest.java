@@ -0,0 +1,276 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.event.ChanStructureChangedEvent;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.service.KlineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ChanStructureEngine 单元测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ChanStructureEngine 测试")
+class ChanStructureEngineTest {
+
+    @Mock
+    private KlineService klineService;
+
+    @Mock
+    private ChanStructureStore chanStructureStore;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private ChanStructureEngine engine;
+
+    private final List<Kline> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        engine = new ChanStructureEngine(klineService, chanStructureStore, eventPublisher);
+        // 构建任务在调用线程同步执行
+        engine.setBuilder(Runnable::run);
+    }
+
+    @Test
+    @DisplayName("首次写入 - 无检查点时全量构建，之后只增量更新")
+    void onKlineUpserted_buildsThenAppends() {
+        List<Kline> klines = ChanStructureTest.wave(0, 2000);
+        stubHistory(klines.subList(0, 1500));
+
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(1400, 1500)));
+
+        assertTrue(engine.isReady(1L, "1m"));
+        verify(klineService).forEachInTimeRange(eq(1L), eq("1m"), eq(Instant.EPOCH), any(), any());
+        verify(chanStructureStore).replace(eq(1L), eq("1m"), any(), argThat(c -> !c.getConfirmedStrokes().isEmpty()));
+
+        for (int i = 1500; i < 2000; i += 10) {
+            engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(i, i + 10)));
+        }
+
+        verify(klineService, times(1)).forEachInTimeRange(anyLong(), anyString(), any(), any(), any());
+        verify(chanStructureStore, atLeastOnce()).save(eq(1L), eq("1m"), any(), any());
+        assertEquals(1, engine.getBuildCount());
+        // 全量构建通知下游重新加载，之后只通知新确认的笔和线段
+        verify(eventPublisher).publishEvent(argThat((ChanStructureChangedEvent e) -> e.isRebuilt()));
+        verify(eventPublisher, atLeastOnce()).publishEvent(argThat((ChanStructureChangedEvent e) -> !e.isRebuilt()
+                && !e.getConfirmedStrokes().isEmpty()));
+    }
+
+    @Test
+    @DisplayName("存在检查点 - 恢复后只读取检查点之后的 K 线")
+    void onKlineUpserted_restoresFromCheckpoint() {
+        List<Kline> klines = ChanStructureTest.wave(0, 1200);
+        ChanStructure saved = new ChanStructure(1L, "1m");
+        klines.subList(0, 1000).forEach(kline -> saved.append(kline, new ChanStructure.Changes()));
+        Instant checkpointTime = klines.get(999).getOpenTime();
+        when(chanStructureStore.loadCheckpoint(1L, "1m"))
+                .thenReturn(new ChanStructureStore.SavedCheckpoint(checkpointTime, saved.checkpoint()));
+        stubHistory(klines.subList(1000, 1200));
+
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(1199, 1200)));
+
+        verify(klineService).forEachInTimeRange(eq(1L), eq("1m"), eq(checkpointTime.plusMillis(1)), any(), any());
+        verify(chanStructureStore).save(eq(1L), eq("1m"), argThat(s -> s.getRawCount() == 1200), any());
+        verify(chanStructureStore, never()).replace(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("写入早于最新一根的 K 线 - 后台全量重建")
+    void onKlineUpserted_outOfOrder_rebuilds() {
+        List<Kline> klines = ChanStructureTest.wave(0, 300);
+        stubHistory(klines);
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(299, 300)));
+
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(100, 101)));
+
+        assertEquals(1, engine.getRebuildCount());
+        verify(klineService, times(2)).forEachInTimeRange(eq(1L), eq("1m"), eq(Instant.EPOCH), any(), any());
+        verify(chanStructureStore, times(2)).replace(eq(1L), eq("1m"), any(), any());
+        assertTrue(engine.isReady(1L, "1m"));
+    }
+
+    @Test
+    @DisplayName("连续乱序 K 线（并行回补）- 合并为一次重建，写库不在事件线程执行")
+    void onKlineUpserted_outOfOrderBurst_coalescesRebuild() {
+        List<Runnable> queued = new ArrayList<>();
+        engine.setBuilder(queued::add);
+        List<Kline> klines = ChanStructureTest.wave(0, 300);
+        stubHistory(klines);
+
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(299, 300)));
+        verifyNoInteractions(klineService, chanStructureStore);
+        drain(queued);
+        assertTrue(engine.isReady(1L, "1m"));
+
+        // 回补分页乱序到达
+        for (int i = 0; i < 200; i += 50) {
+            engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(i, i + 50)));
+        }
+        drain(queued);
+
+        assertEquals(1, engine.getRebuildCount());
+        verify(klineService, times(2)).forEachInTimeRange(eq(1L), eq("1m"), eq(Instant.EPOCH), any(), any());
+        assertTrue(engine.isReady(1L, "1m"));
+    }
+
+    @Test
+    @DisplayName("未完结 K 线 - 不参与计算")
+    void onKlineUpserted_skipsOpenKline() {
+        Kline open = ChanStructureTest.wave(0, 1).get(0);
+        open.setCloseTime(Instant.now().plusSeconds(30));
+
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, List.of(open)));
+
+        assertEquals(0, engine.getSlotCount());
+        verifyNoInteractions(klineService, chanStructureStore);
+    }
+
+    @Test
+    @DisplayName("K 线删除事件 - 清除状态和已保存结果")
+    void onKlineDeleted_clears() {
+        List<Kline> klines = ChanStructureTest.wave(0, 100);
+        stubHistory(klines);
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(99, 100)));
+        assertEquals(1, engine.getSlotCount());
+
+        engine.onKlineDeleted(new KlineDeletedEvent(this, 1L, null));
+
+        assertEquals(0, engine.getSlotCount());
+        verify(chanStructureStore).clear(1L, null);
+    }
+
+    @Test
+    @DisplayName("达到常驻上限 - 移除最久未活动的已构建状态，全部在构建中时暂不跟踪")
+    void onKlineUpserted_maxSeries_evictsLeastActive() {
+        ReflectionTestUtils.setField(engine, "maxSeries", 1);
+        List<Kline> klines = ChanStructureTest.wave(0, 100);
+        stubHistory(klines);
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(99, 100)));
+
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, List.of(interval(klines.get(99), "5m"))));
+
+        assertEquals(1, engine.getSlotCount());
+        assertEquals(1, engine.getEvictionCount());
+        assertFalse(engine.isReady(1L, "1m"));
+        assertTrue(engine.isReady(1L, "5m"));
+
+        // 构建中的状态不移除
+        List<Runnable> queued = new ArrayList<>();
+        engine.setBuilder(queued::add);
+        engine.onKlineDeleted(new KlineDeletedEvent(this, 1L, "5m"));
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, List.of(interval(klines.get(99), "15m"))));
+        queued.remove(queued.size() - 1).run();
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, List.of(interval(klines.get(99), "30m"))));
+        queued.remove(queued.size() - 1).run();
+
+        assertEquals(1, engine.getSlotCount());
+        assertEquals(1, engine.getEvictionCount());
+        assertFalse(engine.isReady(1L, "30m"));
+    }
+
+    @Test
+    @DisplayName("空闲超时 - 移除状态，再次写入时从检查点恢复")
+    void evictIdle_removesThenRestoresFromCheckpoint() {
+        List<Kline> klines = ChanStructureTest.wave(0, 100);
+        stubHistory(klines);
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(99, 100)));
+
+        assertEquals(0, engine.evictIdle(System.currentTimeMillis()));
+        assertEquals(1, engine.evictIdle(System.currentTimeMillis() + 3600000));
+        assertEquals(0, engine.getSlotCount());
+
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, klines.subList(99, 100)));
+
+        assertTrue(engine.isReady(1L, "1m"));
+        verify(chanStructureStore, times(2)).loadCheckpoint(1L, "1m");
+    }
+
+    @Test
+    @DisplayName("构建失败 - 丢弃状态，下次写入重试")
+    void build_failure_discardsSlot() {
+        when(klineService.forEachInTimeRange(anyLong(), anyString(), any(), any(), any()))
+                .thenThrow(new RuntimeException("db down"));
+
+        engine.onKlineUpserted(new KlineUpsertedEvent(this, ChanStructureTest.wave(0, 1)));
+
+        assertEquals(0, engine.getSlotCount());
+        assertEquals(1, engine.getFailureCount());
+    }
+
+    @Test
+    @DisplayName("查询 - 无时间范围查最近结果，否则按时间范围查询")
+    void getStrokes_delegatesToStore() {
+        engine.getStrokes(1L, "1m", null, null, 100);
+        verify(chanStructureStore).getLatestStrokes(1L, "1m", 100);
+
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        engine.getSegments(1L, "1m", start, null, 100);
+        verify(chanStructureStore).getSegments(eq(1L), eq("1m"), eq(start), any(Instant.class), eq(100));
+    }
+
+    @Test
+    @DisplayName("引擎未启用 - 重建抛出业务异常")
+    void rebuild_disabled_shouldThrow() {
+        ReflectionTestUtils.setField(engine, "enabled", false);
+
+        assertThrows(BusinessException.class, () -> engine.rebuild(1L, "1m"));
+    }
+
+    private static Kline interval(Kline kline, String interval) {
+        return Kline.builder()
+                .symbolId(kline.getSymbolId())
+                .interval(interval)
+                .openTime(kline.getOpenTime())
+                .open(kline.getOpen())
+                .high(kline.getHigh())
+                .low(kline.getLow())
+                .close(kline.getClose())
+                .closeTime(kline.getCloseTime())
+                .build();
+    }
+
+    private static void drain(List<Runnable> queued) {
+        while (!queued.isEmpty()) {
+            queued.remove(0).run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubHistory(List<Kline> klines) {
+        stored.addAll(klines);
+        when(klineService.forEachInTimeRange(eq(1L), eq("1m"), any(), any(), any())).thenAnswer(invocation -> {
+            Instant from = invocation.getArgument(2);
+            Consumer<Kline> consumer = invocation.getArgument(4);
+            long rows = 0;
+            for (Kline kline : stored) {
+                if (!kline.getOpenTime().isBefore(from)) {
+                    consumer.accept(kline);
+                    rows++;
+                }
+            }
+            return rows;
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ChanStructure 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("ChanStructure 测试")
+class ChanStructureTest {
+
+    private static final long BASE = 1700000000000L;
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    @DisplayName("波动序列 - 笔首尾相连、方向交替，线段由已确认的笔组成")
+    void append_buildsStrokesAndSegments() {
+        ChanStructure structure = new ChanStructure(1L, "1m");
+        ChanStructure.Changes changes = new ChanStructure.Changes();
+        for (Kline kline : wave(0, 3000)) {
+            structure.append(kline, changes);
+        }
+
+        List<Stroke> strokes = changes.getConfirmedStrokes();
+        assertTrue(strokes.size() > 20);
+        for (int i = 1; i < strokes.size(); i++) {
+            assertEquals(strokes.get(i - 1).end(), strokes.get(i).start());
+            assertNotEquals(strokes.get(i - 1).direction(), strokes.get(i).direction());
+        }
+        assertEquals(strokes.get(strokes.size() - 1).end(), structure.getTailStroke().start());
+
+        List<Segment> segments = changes.getConfirmedSegments();
+        assertFalse(segments.isEmpty());
+        for (int i = 1; i < segments.size(); i++) {
+            assertTrue(segments.get(i).startTime() >= segments.get(i - 1).endTime());
+        }
+        segments.forEach(segment -> assertTrue(segment.strokeCount() >= SegmentBuilder.MIN_STROKES));
+    }
+
+    @Test
+    @DisplayName("检查点 JSON 往返恢复 - 与连续输入结果一致")
+    void checkpoint_roundTrip_matchesContinuousRun() throws Exception {
+        List<Kline> klines = wave(0, 3000);
+        ChanStructure continuous = new ChanStructure(1L, "1m");
+        ChanStructure.Changes all = new ChanStructure.Changes();
+        klines.forEach(kline -> continuous.append(kline, all));
+
+        ChanStructure first = new ChanStructure(1L, "1m");
+        ChanStructure.Changes before = new ChanStructure.Changes();
+        klines.subList(0, 1700).forEach(kline -> first.append(kline, before));
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = objectMapper.writeValueAsString(first.checkpoint());
+        ChanStructure restored = new ChanStructure(1L, "1m",
+                objectMapper.readValue(json, ChanStructure.Checkpoint.class));
+        ChanStructure.Changes after = new ChanStructure.Changes();
+        klines.subList(1700, klines.size()).forEach(kline -> restored.append(kline, after));
+
+        List<Stroke> strokes = new ArrayList<>(before.getConfirmedStrokes());
+        strokes.addAll(after.getConfirmedStrokes());
+        List<Segment> segments = new ArrayList<>(before.getConfirmedSegments());
+        segments.addAll(after.getConfirmedSegments());
+        assertEquals(all.getConfirmedStrokes(), strokes);
+        assertEquals(all.getConfirmedSegments(), segments);
+        assertEquals(continuous.getTailStroke(), restored.getTailStroke());
+        assertEquals(continuous.getTailSegment(), restored.getTailSegment());
+        assertEquals(continuous.getLastOpenTime(), restored.getLastOpenTime());
+    }
+
+    @Test
+    @DisplayName("早于最新一根的 K 线 - 返回 OUT_OF_ORDER")
+    void append_outOfOrder() {
+        ChanStructure structure = new ChanStructure(1L, "1m");
+        ChanStructure.Changes changes = new ChanStructure.Changes();
+        wave(0, 10).forEach(kline -> structure.append(kline, changes));
+
+        assertEquals(FractalSeries.AppendResult.DUPLICATE, structure.append(wave(9, 1).get(0), changes));
+        assertEquals(FractalSeries.AppendResult.OUT_OF_ORDER, structure.append(wave(3, 1).get(0), changes));
+    }
+
+    /**
+     * 两个周期叠加的波动，带缓慢上升趋势
+     */
+    static List<Kline> wave(int from, int count) {
+        List<Kline> klines = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            double price = 100 + 10 * Math.sin(i / 7.0) + 25 * Math.sin(i / 61.0) + i * 0.01;
+            long openTime = BASE + i * MINUTE;
+            klines.add(Kline.builder()
+                    .symbolId(1L)
+                    .interval("1m")
+                    .openTime(Instant.ofEpochMilli(openTime))
+                    .closeTime(Instant.ofEpochMilli(openTime + MINUTE - 1))
+                    .high(BigDecimal.valueOf(price + 0.5 + (i % 3) * 0.1))
+                    .low(BigDecimal.valueOf(price - 0.5))
+                    .build());
+        }
+        return klines;
+    }
+}
@@ -0,0 +1,159 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.service.KlineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * FractalEngine 单元测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FractalEngine 测试")
+class FractalEngineTest {
+
+    private static final long BASE = 1700000000000L;
+    private static final long MINUTE = 60_000L;
+
+    @Mock
+    private KlineService klineService;
+
+    private FractalEngine fractalEngine;
+
+    @BeforeEach
+    void setUp() {
+        fractalEngine = new FractalEngine(klineService);
+    }
+
+    @Test
+    @DisplayName("首次查询 - 向前翻页加载最近 lookback 根 K 线")
+    void getFractals_loadsRecentPages() {
+        ReflectionTestUtils.setField(fractalEngine, "lookback", 1500);
+        List<Kline> history = zigzag(0, 1500);
+        when(klineService.getLatest(1L, "1m", 1000)).thenReturn(history.subList(500, 1500));
+        when(klineService.getLatestBefore(1L, "1m", history.get(500).getOpenTime(), 500))
+                .thenReturn(history.subList(0, 500));
+
+        List<Fractal> fractals = fractalEngine.getLatestFractals(1L, "1m", 5000);
+
+        assertEquals(1498, fractals.size());
+        assertEquals(1, fractals.get(0).barIndex());
+        assertEquals(1, fractalEngine.getSeriesCount());
+
+        // 再次查询直接使用已加载状态
+        fractalEngine.getLatestFractals(1L, "1m", 10);
+        verify(klineService, times(1)).getLatest(anyLong(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("K 线写入事件 - 已加载的交易对周期增量更新")
+    void onKlineUpserted_appendsToLoadedSeries() {
+        when(klineService.getLatest(1L, "1m", 1000)).thenReturn(zigzag(0, 10));
+        assertEquals(8, fractalEngine.getLatestFractals(1L, "1m", 100).size());
+
+        fractalEngine.onKlineUpserted(new KlineUpsertedEvent(this, zigzag(10, 2)));
+
+        List<Fractal> fractals = fractalEngine.getLatestFractals(1L, "1m", 100);
+        assertEquals(10, fractals.size());
+        assertEquals(10, fractals.get(9).barIndex());
+        verify(klineService, times(1)).getLatest(anyLong(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("K 线写入事件 - 未加载的交易对周期忽略")
+    void onKlineUpserted_ignoresUnloadedSeries() {
+        fractalEngine.onKlineUpserted(new KlineUpsertedEvent(this, zigzag(0, 10)));
+
+        assertEquals(0, fractalEngine.getSeriesCount());
+        verifyNoInteractions(klineService);
+    }
+
+    @Test
+    @DisplayName("K 线写入事件 - 未完结 K 线不参与计算")
+    void onKlineUpserted_skipsOpenKline() {
+        when(klineService.getLatest(1L, "1m", 1000)).thenReturn(zigzag(0, 10));
+        fractalEngine.getLatestFractals(1L, "1m", 100);
+
+        Kline open = kline(10, 10, 9);
+        open.setCloseTime(Instant.now().plusSeconds(30));
+        fractalEngine.onKlineUpserted(new KlineUpsertedEvent(this, List.of(open)));
+
+        assertEquals(10, fractalEngine.getSeries(1L, "1m").getRawCount());
+    }
+
+    @Test
+    @DisplayName("写入早于最新一根的 K 线 - 失效后重新加载")
+    void onKlineUpserted_outOfOrder_invalidates() {
+        when(klineService.getLatest(1L, "1m", 1000)).thenReturn(zigzag(0, 10));
+        fractalEngine.getLatestFractals(1L, "1m", 100);
+
+        fractalEngine.onKlineUpserted(new KlineUpsertedEvent(this, zigzag(3, 1)));
+
+        assertEquals(0, fractalEngine.getSeriesCount());
+        assertEquals(1, fractalEngine.getInvalidationCount());
+        fractalEngine.getLatestFractals(1L, "1m", 100);
+        assertEquals(2, fractalEngine.getLoadCount());
+    }
+
+    @Test
+    @DisplayName("K 线删除事件 - 失效指定周期或交易对全部周期")
+    void onKlineDeleted_invalidates() {
+        when(klineService.getLatest(eq(1L), anyString(), eq(1000))).thenReturn(zigzag(0, 10));
+        fractalEngine.getLatestFractals(1L, "1m", 100);
+        fractalEngine.getLatestFractals(1L, "5m", 100);
+
+        fractalEngine.onKlineDeleted(new KlineDeletedEvent(this, 1L, "1m"));
+        assertEquals(1, fractalEngine.getSeriesCount());
+
+        fractalEngine.onKlineDeleted(new KlineDeletedEvent(this, 1L, null));
+        assertEquals(0, fractalEngine.getSeriesCount());
+    }
+
+    @Test
+    @DisplayName("引擎未启用 - 查询抛出业务异常")
+    void getFractals_disabled_shouldThrow() {
+        ReflectionTestUtils.setField(fractalEngine, "enabled", false);
+
+        assertThrows(BusinessException.class, () -> fractalEngine.getLatestFractals(1L, "1m", 100));
+    }
+
+    private static List<Kline> zigzag(int from, int count) {
+        List<Kline> klines = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            double high = i % 2 == 0 ? 10 : 12;
+            klines.add(kline(i, high, high - 1));
+        }
+        return klines;
+    }
+
+    private static Kline kline(int index, double high, double low) {
+        long openTime = BASE + index * MINUTE;
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1m")
+                .openTime(Instant.ofEpochMilli(openTime))
+                .closeTime(Instant.ofEpochMilli(openTime + MINUTE - 1))
+                .high(BigDecimal.valueOf(high))
+                .low(BigDecimal.valueOf(low))
+                .build();
+    }
+}
@@ -0,0 +1,158 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * FractalSeries 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("FractalSeries 测试")
+class FractalSeriesTest {
+
+    private static final long BASE = 1700000000000L;
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    @DisplayName("顶分型 - 第三根合并后 K 线生成时确认")
+    void append_detectsTop() {
+        FractalSeries series = new FractalSeries(1L, "1m", 100);
+
+        assertEquals(FractalSeries.AppendResult.APPENDED, series.append(time(0), 10, 5));
+        assertEquals(FractalSeries.AppendResult.APPENDED, series.append(time(1), 12, 7));
+        assertEquals(FractalSeries.AppendResult.FRACTAL, series.append(time(2), 11, 6));
+
+        List<Fractal> fractals = series.latest(10);
+        assertEquals(1, fractals.size());
+        assertEquals(new Fractal(FractalType.TOP, 1, time(1), 12, 7), fractals.get(0));
+        assertEquals(12, fractals.get(0).price());
+    }
+
+    @Test
+    @DisplayName("包含处理 - 向上取高高")
+    void append_mergesUpward() {
+        FractalSeries series = new FractalSeries(1L, "1m", 100);
+        series.append(time(0), 10, 5);
+        series.append(time(1), 12, 7);
+        // 被第二根包含，向上合并：高点不变，低点取 7.5
+        assertEquals(FractalSeries.AppendResult.APPENDED, series.append(time(2), 11.5, 7.5));
+        // 包含第二根，向上合并：高点取 12.5（时间更新），低点不变
+        assertEquals(FractalSeries.AppendResult.APPENDED, series.append(time(3), 12.5, 7));
+        assertEquals(FractalSeries.AppendResult.FRACTAL, series.append(time(4), 11, 6));
+
+        assertEquals(5, series.getRawCount());
+        assertEquals(3, series.getBarCount());
+        assertEquals(new Fractal(FractalType.TOP, 1, time(3), 12.5, 7.5), series.latest(1).get(0));
+    }
+
+    @Test
+    @DisplayName("包含处理 - 向下取低低，底分型时间为最低点所在 K 线")
+    void append_mergesDownward() {
+        FractalSeries series = new FractalSeries(1L, "1m", 100);
+        series.append(time(0), 12, 7);
+        series.append(time(1), 10, 5);
+        // 被第二根包含，向下合并：高点取 9.5，低点不变
+        series.append(time(2), 9.5, 5.5);
+        assertEquals(FractalSeries.AppendResult.FRACTAL, series.append(time(3), 11, 6));
+
+        assertEquals(new Fractal(FractalType.BOTTOM, 1, time(1), 9.5, 5), series.latest(1).get(0));
+        assertEquals(5, series.latest(1).get(0).price());
+    }
+
+    @Test
+    @DisplayName("无包含关系的锯齿序列 - 顶底分型交替")
+    void append_alternatesTopAndBottom() {
+        FractalSeries series = zigzag(new FractalSeries(1L, "1m", 100), 0, 10);
+
+        List<Fractal> fractals = series.latest(100);
+        assertEquals(8, fractals.size());
+        for (int i = 0; i < fractals.size(); i++) {
+            assertEquals(i % 2 == 0 ? FractalType.TOP : FractalType.BOTTOM, fractals.get(i).type());
+            assertEquals(i + 1, fractals.get(i).barIndex());
+        }
+    }
+
+    @Test
+    @DisplayName("重复和乱序 K 线 - 重复忽略，乱序标记失效")
+    void append_duplicateAndOutOfOrder() {
+        FractalSeries series = new FractalSeries(1L, "1m", 100);
+        series.append(time(0), 10, 5);
+        series.append(time(1), 12, 7);
+
+        assertEquals(FractalSeries.AppendResult.DUPLICATE, series.append(time(1), 20, 1));
+        assertEquals(2, series.getRawCount());
+
+        assertEquals(FractalSeries.AppendResult.OUT_OF_ORDER, series.append(time(0) - MINUTE, 10, 5));
+        assertTrue(series.isStale());
+        assertEquals(FractalSeries.AppendResult.OUT_OF_ORDER, series.append(time(2), 11, 6));
+    }
+
+    @Test
+    @DisplayName("分型超过上限 - 丢弃最早部分，序号保持不变")
+    void append_compactsOldFractals() {
+        FractalSeries series = zigzag(new FractalSeries(1L, "1m", 4), 0, 22);
+
+        assertEquals(20, series.getTotalFractalCount());
+        assertTrue(series.getFractalCount() <= 8);
+        List<Fractal> latest = series.latest(3);
+        assertEquals(List.of(18L, 19L, 20L), latest.stream().map(Fractal::barIndex).toList());
+    }
+
+    @Test
+    @DisplayName("时间范围查询 - 按极值时间筛选")
+    void range_filtersByTime() {
+        FractalSeries series = zigzag(new FractalSeries(1L, "1m", 100), 0, 10);
+
+        List<Fractal> fractals = series.range(time(3), time(5), 100);
+
+        assertEquals(List.of(time(3), time(4), time(5)), fractals.stream().map(Fractal::time).toList());
+        assertEquals(2, series.range(time(3), time(5), 2).size());
+        assertTrue(series.range(time(20), time(30), 100).isEmpty());
+    }
+
+    @Test
+    @DisplayName("加载期间到达的 K 线 - 暂存后与快照合并")
+    void load_mergesPending() {
+        FractalSeries series = new FractalSeries(1L, "1m", 100);
+
+        assertEquals(FractalSeries.AppendResult.PENDING, series.append(kline(1, 12, 7)));
+        assertEquals(FractalSeries.AppendResult.PENDING, series.append(kline(2, 11, 6)));
+        assertFalse(series.isReady());
+
+        series.load(List.of(kline(0, 10, 5), kline(1, 12, 7)));
+
+        assertTrue(series.isReady());
+        assertEquals(3, series.getRawCount());
+        assertEquals(FractalType.TOP, series.latest(1).get(0).type());
+    }
+
+    private static FractalSeries zigzag(FractalSeries series, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            double high = i % 2 == 0 ? 10 : 12;
+            series.append(time(i), high, high - 1);
+        }
+        return series;
+    }
+
+    private static long time(int index) {
+        return BASE + index * MINUTE;
+    }
+
+    private static Kline kline(int index, double high, double low) {
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1m")
+                .openTime(Instant.ofEpochMilli(time(index)))
+                .high(BigDecimal.valueOf(high))
+                .low(BigDecimal.valueOf(low))
+                .build();
+    }
+}
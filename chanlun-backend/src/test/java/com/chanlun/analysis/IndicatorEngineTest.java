@@ -0,0 +1,156 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.service.KlineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * IndicatorEngine 单元测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("IndicatorEngine 测试")
+class IndicatorEngineTest {
+
+    private static final long BASE = 1700000000000L;
+    private static final long MINUTE = 60_000L;
+
+    @Mock
+    private KlineService klineService;
+
+    private IndicatorEngine indicatorEngine;
+
+    @BeforeEach
+    void setUp() {
+        indicatorEngine = new IndicatorEngine(klineService);
+    }
+
+    @Test
+    @DisplayName("首次查询加载完整历史，之后 K 线写入事件增量更新")
+    void getValues_loadsThenAppends() {
+        List<Kline> history = IndicatorSeriesTest.wave(0, 300);
+        when(klineService.getLatest(1L, "1m", 1000)).thenReturn(history.subList(0, 200));
+
+        List<IndicatorValue> values = indicatorEngine.getValues(1L, "1m", history.subList(190, 200));
+        assertEquals(10, values.size());
+        assertEquals(BASE + 190 * MINUTE, values.get(0).openTime());
+
+        indicatorEngine.onKlineUpserted(new KlineUpsertedEvent(this, history.subList(200, 300)));
+
+        List<Kline> latest = history.subList(290, 300);
+        IndicatorSeries expected = new IndicatorSeries(1L, "1m", IndicatorSeries.Params.DEFAULT, 1000);
+        expected.load(history, true);
+        assertEquals(expected.valueAt(BASE + 299 * MINUTE), indicatorEngine.getValues(1L, "1m", latest).get(9));
+        assertEquals(1, indicatorEngine.getLoadCount());
+        assertEquals(0, indicatorEngine.getBulkCount());
+        verify(klineService, times(1)).getLatest(anyLong(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("未完结 K 线不参与计算，对应位置为 null")
+    void getValues_openKline_null() {
+        List<Kline> history = IndicatorSeriesTest.wave(0, 10);
+        when(klineService.getLatest(1L, "1m", 1000)).thenReturn(history);
+        indicatorEngine.getValues(1L, "1m", history);
+
+        Kline open = IndicatorSeriesTest.kline(10, 100);
+        open.setCloseTime(Instant.now().plusSeconds(30));
+        indicatorEngine.onKlineUpserted(new KlineUpsertedEvent(this, List.of(open)));
+
+        List<IndicatorValue> values = indicatorEngine.getValues(1L, "1m", List.of(history.get(9), open));
+        assertNotNull(values.get(0));
+        assertNull(values.get(1));
+    }
+
+    @Test
+    @DisplayName("查询区间早于缓存可信范围 - 连同预热 K 线批量计算且不缓存")
+    void getMacdArea_beforeTrustedRange_computesInBulk() {
+        ReflectionTestUtils.setField(indicatorEngine, "lookback", 500);
+        List<Kline> history = IndicatorSeriesTest.wave(0, 2000);
+        when(klineService.getLatest(1L, "1m", 500)).thenReturn(history.subList(1500, 2000));
+        when(klineService.forEachInTimeRange(eq(1L), eq("1m"), any(), any(), any())).thenAnswer(invocation -> {
+            long from = ((Instant) invocation.getArgument(2)).toEpochMilli();
+            long to = ((Instant) invocation.getArgument(3)).toEpochMilli();
+            Consumer<Kline> consumer = invocation.getArgument(4);
+            long rows = 0;
+            for (Kline kline : history) {
+                long openTime = kline.getOpenTime().toEpochMilli();
+                if (openTime >= from && openTime <= to) {
+                    consumer.accept(kline);
+                    rows++;
+                }
+            }
+            return rows;
+        });
+
+        Instant start = Instant.ofEpochMilli(BASE + 1000 * MINUTE);
+        Instant end = Instant.ofEpochMilli(BASE + 1100 * MINUTE);
+        MacdArea area = indicatorEngine.getMacdArea(1L, "1m", start, end);
+
+        int warmup = IndicatorSeries.Params.DEFAULT.warmupBars();
+        verify(klineService).forEachInTimeRange(eq(1L), eq("1m"),
+                eq(start.minusMillis(warmup * MINUTE)), eq(end), any());
+        IndicatorSeries full = new IndicatorSeries(1L, "1m", IndicatorSeries.Params.DEFAULT, 2000);
+        full.load(history, true);
+        MacdArea expected = full.macdArea(start.toEpochMilli(), end.toEpochMilli());
+        assertEquals(101, area.bars());
+        // 预热期后 EMA 初值影响已可忽略
+        assertEquals(expected.positive(), area.positive(), 1e-6);
+        assertEquals(expected.negative(), area.negative(), 1e-6);
+        assertEquals(1, indicatorEngine.getBulkCount());
+
+        ReflectionTestUtils.setField(indicatorEngine, "maxBulkKlines", 100);
+        assertThrows(BusinessException.class, () -> indicatorEngine.getMacdArea(1L, "1m", start, end));
+    }
+
+    @Test
+    @DisplayName("写入早于最新一根或删除 K 线 - 失效后重新加载")
+    void events_invalidate() {
+        when(klineService.getLatest(eq(1L), anyString(), eq(1000))).thenReturn(IndicatorSeriesTest.wave(0, 10));
+        indicatorEngine.getSeries(1L, "1m");
+        indicatorEngine.getSeries(1L, "5m");
+
+        indicatorEngine.onKlineUpserted(new KlineUpsertedEvent(this, IndicatorSeriesTest.wave(3, 1)));
+        assertEquals(1, indicatorEngine.getSeriesCount());
+        assertEquals(1, indicatorEngine.getInvalidationCount());
+
+        indicatorEngine.getSeries(1L, "1m");
+        assertEquals(3, indicatorEngine.getLoadCount());
+
+        indicatorEngine.onKlineDeleted(new KlineDeletedEvent(this, 1L, "5m"));
+        assertEquals(1, indicatorEngine.getSeriesCount());
+        indicatorEngine.onKlineDeleted(new KlineDeletedEvent(this, 1L, null));
+        assertEquals(0, indicatorEngine.getSeriesCount());
+    }
+
+    @Test
+    @DisplayName("参数校验与引擎未启用 - 抛出业务异常")
+    void getMacdArea_invalid_shouldThrow() {
+        Instant start = Instant.ofEpochMilli(BASE);
+        assertThrows(BusinessException.class, () -> indicatorEngine.getMacdArea(1L, "1m", null, start));
+        assertThrows(BusinessException.class,
+                () -> indicatorEngine.getMacdArea(1L, "1m", start.plusSeconds(60), start));
+
+        ReflectionTestUtils.setField(indicatorEngine, "enabled", false);
+        assertThrows(BusinessException.class, () -> indicatorEngine.getMacdArea(1L, "1m", start, start));
+        verifyNoInteractions(klineService);
+    }
+}
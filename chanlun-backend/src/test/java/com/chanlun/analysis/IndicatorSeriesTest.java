@@ -0,0 +1,167 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.Kline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IndicatorSeries 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("IndicatorSeries 测试")
+class IndicatorSeriesTest {
+
+    private static final long BASE = 1700000000000L;
+    private static final long MINUTE = 60_000L;
+
+    static Kline kline(long index, double close) {
+        Instant openTime = Instant.ofEpochMilli(BASE + index * MINUTE);
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1m")
+                .openTime(openTime)
+                .close(BigDecimal.valueOf(close))
+                .closeTime(openTime.plusMillis(MINUTE - 1))
+                .build();
+    }
+
+    /**
+     * 带趋势和振荡的收盘价序列，MACD 柱正负交替
+     */
+    static List<Kline> wave(int from, int count) {
+        List<Kline> klines = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            klines.add(kline(i, 100 + i * 0.05 + 8 * Math.sin(i / 7.0)));
+        }
+        return klines;
+    }
+
+    private static IndicatorSeries loaded(List<Kline> klines, int capacity) {
+        IndicatorSeries series = new IndicatorSeries(1L, "1m", IndicatorSeries.Params.DEFAULT, capacity);
+        series.load(klines, true);
+        return series;
+    }
+
+    @Test
+    @DisplayName("批量计算与逐根增量结果完全一致")
+    void load_matchesIncrementalAppend() {
+        List<Kline> klines = wave(0, 300);
+        IndicatorSeries bulk = loaded(klines, 1000);
+        IndicatorSeries incremental = loaded(List.of(), 1000);
+        for (Kline kline : klines) {
+            assertEquals(IndicatorSeries.AppendResult.APPENDED, incremental.append(kline));
+        }
+
+        List<IndicatorValue> expected = bulk.range(Long.MIN_VALUE, Long.MAX_VALUE, 1000);
+        assertEquals(300, expected.size());
+        assertEquals(expected, incremental.range(Long.MIN_VALUE, Long.MAX_VALUE, 1000));
+        assertEquals(bulk.macdArea(BASE, BASE + 299 * MINUTE), incremental.macdArea(BASE, BASE + 299 * MINUTE));
+    }
+
+    @Test
+    @DisplayName("EMA / MACD / BOLL 数值与逐项定义一致，BOLL 不足周期时为 NaN")
+    void values_matchDefinition() {
+        List<Kline> klines = wave(0, 40);
+        IndicatorSeries series = loaded(klines, 100);
+
+        double fast = 0;
+        double slow = 0;
+        double dea = 0;
+        for (int i = 0; i < 40; i++) {
+            double close = klines.get(i).getClose().doubleValue();
+            fast = i == 0 ? close : fast * 11 / 13 + close * 2 / 13;
+            slow = i == 0 ? close : slow * 25 / 27 + close * 2 / 27;
+            dea = dea * 8 / 10 + (fast - slow) * 2 / 10;
+            IndicatorValue value = series.valueAt(BASE + i * MINUTE);
+            assertEquals(fast, value.emaFast(), 1e-9);
+            assertEquals(slow, value.emaSlow(), 1e-9);
+            assertEquals(fast - slow, value.dif(), 1e-9);
+            assertEquals(dea, value.dea(), 1e-9);
+            assertEquals(2 * (fast - slow - dea), value.macd(), 1e-9);
+        }
+
+        assertTrue(Double.isNaN(series.valueAt(BASE + 18 * MINUTE).bollMid()));
+        double sum = 0;
+        double sumSq = 0;
+        for (int i = 20; i < 40; i++) {
+            double close = klines.get(i).getClose().doubleValue();
+            sum += close;
+            sumSq += close * close;
+        }
+        double mean = sum / 20;
+        double std = Math.sqrt(sumSq / 20 - mean * mean);
+        IndicatorValue last = series.valueAt(BASE + 39 * MINUTE);
+        assertEquals(mean, last.bollMid(), 1e-9);
+        assertEquals(mean + 2 * std, last.bollUpper(), 1e-9);
+        assertEquals(mean - 2 * std, last.bollLower(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("MACD 面积 - 前缀和与逐根累加一致，压缩后仍正确")
+    void macdArea_matchesBruteForce() {
+        IndicatorSeries series = loaded(wave(0, 50), 60);
+        for (Kline kline : wave(50, 150)) {
+            series.append(kline);
+        }
+        // 容量 60：最多保留 120 根
+        assertTrue(series.getSize() <= 120);
+        assertEquals(200, series.getCount());
+
+        List<IndicatorValue> values = series.range(Long.MIN_VALUE, Long.MAX_VALUE, 1000);
+        for (int[] range : new int[][]{{0, values.size() - 1}, {3, 40}, {10, 10}}) {
+            double positive = 0;
+            double negative = 0;
+            for (int i = range[0]; i <= range[1]; i++) {
+                double bar = values.get(i).macd();
+                positive += Math.max(bar, 0);
+                negative += Math.max(-bar, 0);
+            }
+            MacdArea area = series.macdArea(values.get(range[0]).openTime(), values.get(range[1]).openTime());
+            assertEquals(range[1] - range[0] + 1, area.bars());
+            assertEquals(positive, area.positive(), 1e-9);
+            assertEquals(negative, area.negative(), 1e-9);
+            assertEquals(positive - negative, area.net(), 1e-9);
+        }
+        assertTrue(series.macdArea(BASE + 500 * MINUTE, BASE + 600 * MINUTE) == null);
+    }
+
+    @Test
+    @DisplayName("相同开盘时间原地重算最新一根，早于最新一根时失效")
+    void append_replaceAndOutOfOrder() {
+        List<Kline> klines = wave(0, 30);
+        IndicatorSeries series = loaded(klines.subList(0, 29), 100);
+        series.append(kline(29, 1));
+
+        assertEquals(IndicatorSeries.AppendResult.REPLACED, series.append(klines.get(29)));
+        assertEquals(30, series.getCount());
+        assertEquals(loaded(klines, 100).valueAt(BASE + 29 * MINUTE), series.valueAt(BASE + 29 * MINUTE));
+
+        assertEquals(IndicatorSeries.AppendResult.OUT_OF_ORDER, series.append(klines.get(10)));
+        assertTrue(series.isStale());
+        assertFalse(series.isReady());
+    }
+
+    @Test
+    @DisplayName("加载期间暂存的 K 线在加载后合并，非完整历史时预热期内不可信")
+    void load_mergesPendingAndTracksTrustedFrom() {
+        IndicatorSeries series = new IndicatorSeries(1L, "1m", IndicatorSeries.Params.DEFAULT, 1000);
+        assertEquals(IndicatorSeries.AppendResult.PENDING, series.append(kline(400, 1)));
+        assertEquals(Long.MAX_VALUE, series.getTrustedFrom());
+
+        series.load(wave(0, 400), false);
+
+        assertEquals(401, series.getCount());
+        assertEquals(BASE + 400 * MINUTE, series.getLastOpenTime());
+        int warmup = IndicatorSeries.Params.DEFAULT.warmupBars();
+        assertEquals(BASE + warmup * MINUTE, series.getTrustedFrom());
+        assertEquals(BASE, loaded(wave(0, 10), 100).getTrustedFrom());
+    }
+}
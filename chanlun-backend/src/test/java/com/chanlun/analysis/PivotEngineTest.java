@@ -0,0 +1,145 @@
+package com.chanlun.analysis;
+
+import com.chanlun.entity.ChanStroke;
+import com.chanlun.event.ChanStructureChangedEvent;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * PivotEngine 单元测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PivotEngine 测试")
+class PivotEngineTest {
+
+    /**
+     * 笔中枢 [14, 18]，之后 25 → 22 离开
+     */
+    private static final double[] POINTS = {10, 20, 14, 18, 25, 22};
+
+    @Mock
+    private ChanStructureStore chanStructureStore;
+
+    private PivotEngine pivotEngine;
+
+    @BeforeEach
+    void setUp() {
+        pivotEngine = new PivotEngine(chanStructureStore);
+    }
+
+    @Test
+    @DisplayName("首次查询 - 游标读取已确认的笔和线段，之后直接使用内存状态")
+    void getPivots_loadsOnce() {
+        stubStrokes(3);
+
+        List<Pivot> pivots = pivotEngine.getLatestPivots(1L, "1m", 1, 10);
+
+        assertEquals(1, pivots.size());
+        assertEquals(18, pivots.get(0).zg());
+        assertEquals(14, pivots.get(0).zd());
+        assertFalse(pivots.get(0).closed());
+
+        pivotEngine.getPivots(1L, "1m", 1, Instant.EPOCH, null, 10);
+        verify(chanStructureStore, times(1)).forEachConfirmedStroke(anyLong(), anyString(), any());
+        assertEquals(1, pivotEngine.getLoadCount());
+    }
+
+    @Test
+    @DisplayName("笔和线段变化事件 - 已加载的交易对周期增量延伸和结束中枢")
+    void onStructureChanged_appends() {
+        stubStrokes(3);
+        pivotEngine.getLatestPivots(1L, "1m", 1, 10);
+
+        List<Stroke> strokes = PivotEngineTest.strokes(POINTS);
+        pivotEngine.onStructureChanged(new ChanStructureChangedEvent(this, 1L, "1m",
+                strokes.subList(3, 5), List.of(), false));
+
+        List<Pivot> pivots = pivotEngine.getLatestPivots(1L, "1m", 1, 10);
+        assertEquals(1, pivots.size());
+        assertTrue(pivots.get(0).closed());
+        assertEquals(4, pivots.get(0).moveCount());
+        assertEquals(1, pivotEngine.getLoadCount());
+    }
+
+    @Test
+    @DisplayName("未加载的交易对周期 - 事件忽略")
+    void onStructureChanged_ignoresUnloaded() {
+        pivotEngine.onStructureChanged(new ChanStructureChangedEvent(this, 1L, "1m",
+                strokes(POINTS), List.of(), false));
+
+        assertEquals(0, pivotEngine.getSeriesCount());
+        verifyNoInteractions(chanStructureStore);
+    }
+
+    @Test
+    @DisplayName("全量重建或删除 K 线 - 失效后重新加载")
+    void invalidation() {
+        stubStrokes(3);
+        pivotEngine.getLatestPivots(1L, "1m", 1, 10);
+        pivotEngine.getLatestPivots(1L, "5m", 1, 10);
+
+        pivotEngine.onStructureChanged(new ChanStructureChangedEvent(this, 1L, "1m", List.of(), List.of(), true));
+        assertEquals(1, pivotEngine.getSeriesCount());
+
+        pivotEngine.onKlineDeleted(new KlineDeletedEvent(this, 1L, null));
+        assertEquals(0, pivotEngine.getSeriesCount());
+        assertEquals(2, pivotEngine.getInvalidationCount());
+    }
+
+    @Test
+    @DisplayName("不支持的级别或引擎未启用 - 抛出业务异常")
+    void invalidLevelOrDisabled_shouldThrow() {
+        assertThrows(BusinessException.class, () -> pivotEngine.getLatestPivots(1L, "1m", 0, 10));
+        assertThrows(BusinessException.class, () -> pivotEngine.getLatestPivots(1L, "1m", 5, 10));
+
+        ReflectionTestUtils.setField(pivotEngine, "enabled", false);
+        assertThrows(BusinessException.class, () -> pivotEngine.getLatestPivots(1L, "1m", 1, 10));
+    }
+
+    private void stubStrokes(int count) {
+        List<ChanStroke> rows = new ArrayList<>();
+        for (Stroke stroke : strokes(POINTS).subList(0, count)) {
+            rows.add(ChanStructureStore.toStroke(1L, "1m", stroke, true));
+        }
+        when(chanStructureStore.forEachConfirmedStroke(eq(1L), anyString(), any())).thenAnswer(invocation -> {
+            Consumer<ChanStroke> consumer = invocation.getArgument(2);
+            rows.forEach(consumer);
+            return (long) rows.size();
+        });
+    }
+
+    private static List<Stroke> strokes(double... points) {
+        List<Stroke> strokes = new ArrayList<>();
+        for (int i = 0; i + 1 < points.length; i++) {
+            boolean up = points[i + 1] > points[i];
+            strokes.add(new Stroke(up ? Direction.UP : Direction.DOWN,
+                    fractal(i, points[i], up ? FractalType.BOTTOM : FractalType.TOP),
+                    fractal(i + 1, points[i + 1], up ? FractalType.TOP : FractalType.BOTTOM)));
+        }
+        return strokes;
+    }
+
+    private static Fractal fractal(int index, double price, FractalType type) {
+        return type == FractalType.TOP
+                ? new Fractal(type, index * 5L, index * 1000L, price, price - 1)
+                : new Fractal(type, index * 5L, index * 1000L, price + 1, price);
+    }
+}
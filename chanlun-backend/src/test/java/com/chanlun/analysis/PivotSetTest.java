@@ -0,0 +1,134 @@
+package com.chanlun.analysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PivotSet 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("PivotSet 测试")
+class PivotSetTest {
+
+    /**
+     * 两个中枢：[14, 18]（10 → 25，离开走势 25 → 22）和 [24, 28]（22 → 35，离开走势 35 → 31）
+     */
+    private static final double[] TWO_PIVOTS = {10, 20, 14, 18, 25, 22, 30, 24, 28, 35, 31};
+
+    @Test
+    @DisplayName("笔中枢 - 三笔重叠形成，重叠走势延伸，完全离开时结束")
+    void strokes_formExtendAndClose() {
+        PivotSet set = ready(new PivotSet(1L, "1m", 4));
+        List<Stroke> strokes = strokes(10, 20, 14, 18, 25, 22);
+
+        set.append(strokes.subList(0, 3), List.of());
+        assertEquals(List.of(new Pivot(1, 0, time(3), 18, 14, 20, 10, 3, false)), set.latest(1, 10));
+
+        set.append(strokes.subList(3, 5), List.of());
+        assertEquals(1, set.getClosedCount(1));
+        assertEquals(new Pivot(1, 0, time(4), 18, 14, 25, 10, 4, true), set.latest(1, 10).get(0));
+        // 离开的走势不参与下一个中枢
+        assertEquals(1, set.latest(1, 10).size());
+    }
+
+    @Test
+    @DisplayName("时间范围查询 - 返回有重叠的已结束和进行中的中枢")
+    void range_returnsOverlappingPivots() {
+        PivotSet set = ready(new PivotSet(1L, "1m", 4));
+        // 之后 31 → 29 → 33 → 30 形成进行中的第三个中枢 [30, 31]
+        set.append(strokes(10, 20, 14, 18, 25, 22, 30, 24, 28, 35, 31, 29, 33, 30), List.of());
+
+        assertEquals(2, set.getClosedCount(1));
+        List<Pivot> all = set.range(1, Long.MIN_VALUE, Long.MAX_VALUE, 100);
+        assertEquals(3, all.size());
+        assertFalse(all.get(2).closed());
+
+        assertEquals(List.of(all.get(1)), set.range(1, time(7), time(8), 100));
+        assertEquals(List.of(all.get(1), all.get(2)), set.range(1, time(9), time(20), 100));
+        assertEquals(1, set.range(1, Long.MIN_VALUE, Long.MAX_VALUE, 1).size());
+        assertTrue(set.range(1, time(100), time(200), 100).isEmpty());
+    }
+
+    @Test
+    @DisplayName("递归 - 波动区间重叠的两个线段中枢扩张为更高级别中枢")
+    void segments_recurseToHigherLevel() {
+        PivotSet set = ready(new PivotSet(1L, "1m", 4));
+
+        set.append(List.of(), segments(TWO_PIVOTS));
+
+        assertEquals(2, set.getClosedCount(2));
+        List<Pivot> higher = set.latest(3, 10);
+        assertEquals(1, higher.size());
+        Pivot pivot = higher.get(0);
+        assertEquals(3, pivot.level());
+        assertEquals(time(0), pivot.startTime());
+        assertEquals(time(9), pivot.endTime());
+        assertEquals(25, pivot.zg());
+        assertEquals(22, pivot.zd());
+        assertFalse(pivot.closed());
+        // 笔中枢不受线段影响
+        assertTrue(set.latest(1, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("加载期间确认的笔 - 暂存后与快照按起点时间去重合并")
+    void finishLoad_mergesPending() {
+        PivotSet set = new PivotSet(1L, "1m", 4);
+        List<Stroke> strokes = strokes(10, 20, 14, 18, 25, 22);
+
+        set.append(strokes.subList(2, 5), List.of());
+        assertFalse(set.isReady());
+
+        for (Stroke stroke : strokes.subList(0, 3)) {
+            set.loadStroke(stroke.startTime(), stroke.endTime(), stroke.high(), stroke.low());
+        }
+        set.finishLoad();
+
+        assertTrue(set.isReady());
+        assertEquals(new Pivot(1, 0, time(4), 18, 14, 25, 10, 4, true), set.latest(1, 1).get(0));
+    }
+
+    private static PivotSet ready(PivotSet set) {
+        set.finishLoad();
+        return set;
+    }
+
+    private static long time(int index) {
+        return index * 1000L;
+    }
+
+    /**
+     * 依次连接各点生成笔，第 i 个点的时间为 time(i)
+     */
+    private static List<Stroke> strokes(double... points) {
+        List<Stroke> strokes = new ArrayList<>();
+        for (int i = 0; i + 1 < points.length; i++) {
+            boolean up = points[i + 1] > points[i];
+            strokes.add(new Stroke(up ? Direction.UP : Direction.DOWN,
+                    fractal(i, points[i], up ? FractalType.BOTTOM : FractalType.TOP),
+                    fractal(i + 1, points[i + 1], up ? FractalType.TOP : FractalType.BOTTOM)));
+        }
+        return strokes;
+    }
+
+    private static List<Segment> segments(double... points) {
+        List<Segment> segments = new ArrayList<>();
+        for (int i = 0; i + 1 < points.length; i++) {
+            segments.add(new Segment(points[i + 1] > points[i] ? Direction.UP : Direction.DOWN,
+                    time(i), points[i], time(i + 1), points[i + 1], 3));
+        }
+        return segments;
+    }
+
+    private static Fractal fractal(int index, double price, FractalType type) {
+        return type == FractalType.TOP
+                ? new Fractal(type, index * 5L, time(index), price, price - 1)
+                : new Fractal(type, index * 5L, time(index), price + 1, price);
+    }
+}
@@ -0,0 +1,110 @@
+package com.chanlun.analysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SegmentBuilder 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("SegmentBuilder 测试")
+class SegmentBuilderTest {
+
+    /**
+     * 向上线段 10 → 30，之后向下笔跌破前一个特征元素：特征序列 [20,15] [25,18] [30,22] [28,12] 在 [30,22] 处形成顶分型
+     */
+    private static final double[] UP_THEN_DOWN = {10, 20, 15, 25, 18, 30, 22, 28, 12};
+
+    @Test
+    @DisplayName("不足以结束线段时 - 当前线段延伸到极值笔")
+    void onStroke_tentativeSegment() {
+        SegmentBuilder builder = new SegmentBuilder();
+        List<Segment> confirmed = feed(builder, strokes(10, 20, 15, 25, 18, 30));
+
+        assertTrue(confirmed.isEmpty());
+        assertEquals(new Segment(Direction.UP, 0, 10, 5, 30, 5), builder.getCurrent());
+    }
+
+    @Test
+    @DisplayName("特征序列顶分型 - 向上线段在分型中间元素的起点结束")
+    void onStroke_featureFractal_endsSegment() {
+        SegmentBuilder builder = new SegmentBuilder();
+        List<Segment> confirmed = feed(builder, strokes(UP_THEN_DOWN));
+
+        assertEquals(List.of(new Segment(Direction.UP, 0, 10, 5, 30, 5)), confirmed);
+        // 之后的笔重新输入向下线段
+        assertEquals(Direction.DOWN, builder.getDirection());
+        assertEquals(3, builder.getStrokes().size());
+        assertEquals(new Segment(Direction.DOWN, 5, 30, 8, 12, 3), builder.getCurrent());
+    }
+
+    @Test
+    @DisplayName("包含关系 - 向上线段的特征序列取高高后不形成分型")
+    void onStroke_featureInclusion() {
+        SegmentBuilder builder = new SegmentBuilder();
+        // 特征元素 [25,18] 包含 [24,19]，合并为 [25,19]；[30,22] 之后未出现更低的元素
+        List<Segment> confirmed = feed(builder, strokes(10, 20, 15, 25, 18, 24, 19, 30, 22, 32));
+
+        assertTrue(confirmed.isEmpty());
+        assertEquals(new Segment(Direction.UP, 0, 10, 9, 32, 9), builder.getCurrent());
+    }
+
+    @Test
+    @DisplayName("反向笔跌破起点且不足三笔 - 从该笔重新开始")
+    void onStroke_startBroken_restarts() {
+        SegmentBuilder builder = new SegmentBuilder();
+        List<Segment> confirmed = feed(builder, strokes(10, 20, 8));
+
+        assertTrue(confirmed.isEmpty());
+        assertEquals(new Segment(Direction.DOWN, 1, 20, 2, 8, 1), builder.getCurrent());
+    }
+
+    @Test
+    @DisplayName("从检查点恢复 - 与连续输入结果一致")
+    void restore_matchesContinuousRun() {
+        List<Stroke> strokes = strokes(UP_THEN_DOWN);
+        SegmentBuilder continuous = new SegmentBuilder();
+        feed(continuous, strokes.subList(0, 6));
+
+        SegmentBuilder restored = new SegmentBuilder(continuous.getDirection(), continuous.getStartTime(),
+                continuous.getStartPrice(), continuous.getStrokes());
+
+        List<Stroke> rest = strokes.subList(6, strokes.size());
+        assertEquals(feed(continuous, rest), feed(restored, rest));
+        assertEquals(continuous.getCurrent(), restored.getCurrent());
+    }
+
+    private static List<Segment> feed(SegmentBuilder builder, List<Stroke> strokes) {
+        List<Segment> confirmed = new ArrayList<>();
+        for (Stroke stroke : strokes) {
+            confirmed.addAll(builder.onStroke(stroke));
+        }
+        return confirmed;
+    }
+
+    /**
+     * 依次连接各点生成笔，第 i 个点的时间为 i
+     */
+    private static List<Stroke> strokes(double... points) {
+        List<Stroke> strokes = new ArrayList<>();
+        for (int i = 0; i + 1 < points.length; i++) {
+            boolean up = points[i + 1] > points[i];
+            strokes.add(new Stroke(up ? Direction.UP : Direction.DOWN,
+                    fractal(i, points[i], up ? FractalType.BOTTOM : FractalType.TOP),
+                    fractal(i + 1, points[i + 1], up ? FractalType.TOP : FractalType.BOTTOM)));
+        }
+        return strokes;
+    }
+
+    private static Fractal fractal(int index, double price, FractalType type) {
+        return type == FractalType.TOP
+                ? new Fractal(type, index * 5L, index, price, price - 1)
+                : new Fractal(type, index * 5L, index, price + 1, price);
+    }
+}
@@ -0,0 +1,106 @@
+package com.chanlun.analysis;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * StrokeBuilder 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("StrokeBuilder 测试")
+class StrokeBuilderTest {
+
+    @Test
+    @DisplayName("底分型到更高的顶分型且间隔足够 - 生成向上笔（未确认）")
+    void onFractal_formsUpStroke() {
+        StrokeBuilder builder = new StrokeBuilder();
+        Fractal bottom = bottom(1, 10);
+        Fractal top = top(5, 20);
+
+        assertNull(builder.onFractal(bottom));
+        assertNull(builder.onFractal(top));
+
+        assertEquals(new Stroke(Direction.UP, bottom, top), builder.getLast());
+        assertNull(builder.getAnchor());
+    }
+
+    @Test
+    @DisplayName("间隔不足 - 不成笔")
+    void onFractal_tooClose_ignored() {
+        StrokeBuilder builder = new StrokeBuilder();
+        builder.onFractal(bottom(1, 10));
+        builder.onFractal(top(4, 20));
+
+        assertNull(builder.getLast());
+        assertEquals(1, builder.getAnchor().barIndex());
+    }
+
+    @Test
+    @DisplayName("尚未成笔时 - 更低的底分型移动起点")
+    void onFractal_movesAnchor() {
+        StrokeBuilder builder = new StrokeBuilder();
+        builder.onFractal(bottom(1, 10));
+        builder.onFractal(top(3, 20));
+        builder.onFractal(bottom(5, 8));
+        builder.onFractal(top(9, 25));
+
+        assertEquals(5, builder.getLast().start().barIndex());
+        assertEquals(8, builder.getLast().startPrice());
+    }
+
+    @Test
+    @DisplayName("同类型更极端的分型 - 延伸最后一笔")
+    void onFractal_extendsLastStroke() {
+        StrokeBuilder builder = new StrokeBuilder();
+        builder.onFractal(bottom(1, 10));
+        builder.onFractal(top(5, 20));
+
+        assertNull(builder.onFractal(top(7, 22)));
+        assertEquals(22, builder.getLast().endPrice());
+
+        // 更低的顶不改变终点
+        assertNull(builder.onFractal(top(9, 21)));
+        assertEquals(7, builder.getLast().end().barIndex());
+    }
+
+    @Test
+    @DisplayName("反向成笔 - 确认上一笔并从其终点开始新的一笔")
+    void onFractal_confirmsPreviousStroke() {
+        StrokeBuilder builder = new StrokeBuilder();
+        builder.onFractal(bottom(1, 10));
+        builder.onFractal(top(5, 20));
+
+        // 间隔不足的底分型忽略
+        assertNull(builder.onFractal(bottom(7, 12)));
+
+        Stroke confirmed = builder.onFractal(bottom(9, 12));
+        assertNotNull(confirmed);
+        assertEquals(Direction.UP, confirmed.direction());
+        assertEquals(20, confirmed.endPrice());
+        assertEquals(Direction.DOWN, builder.getLast().direction());
+        assertEquals(confirmed.end(), builder.getLast().start());
+    }
+
+    @Test
+    @DisplayName("从检查点恢复 - 继续延伸和确认")
+    void restore_continues() {
+        Stroke last = new Stroke(Direction.UP, bottom(1, 10), top(5, 20));
+        StrokeBuilder builder = new StrokeBuilder(null, last);
+
+        Stroke confirmed = builder.onFractal(bottom(10, 11));
+
+        assertEquals(last, confirmed);
+        assertEquals(11, builder.getLast().endPrice());
+    }
+
+    private static Fractal top(long bar, double high) {
+        return new Fractal(FractalType.TOP, bar, bar * 60_000L, high, high - 2);
+    }
+
+    private static Fractal bottom(long bar, double low) {
+        return new Fractal(FractalType.BOTTOM, bar, bar * 60_000L, low + 2, low);
+    }
+}
@@ -0,0 +1,222 @@
+package com.chanlun.controller;
+
+import com.chanlun.analysis.ChanStructureEngine;
+import com.chanlun.analysis.Fractal;
+import com.chanlun.analysis.FractalEngine;
+import com.chanlun.analysis.IndicatorEngine;
+import com.chanlun.analysis.MacdArea;
+import com.chanlun.analysis.FractalType;
+import com.chanlun.analysis.Pivot;
+import com.chanlun.analysis.PivotEngine;
+import com.chanlun.entity.ChanSegment;
+import com.chanlun.entity.ChanStroke;
+import com.chanlun.exception.BusinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * AnalysisController 测试
+ * 
+ * @author Chanlun Team
+ */
+@WebMvcTest(AnalysisController.class)
+@DisplayName("AnalysisController 测试")
+class AnalysisControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FractalEngine fractalEngine;
+
+    @MockBean
+    private ChanStructureEngine chanStructureEngine;
+
+    @MockBean
+    private PivotEngine pivotEngine;
+
+    @MockBean
+    private IndicatorEngine indicatorEngine;
+
+    private static final long TIME = 1700000000000L;
+
+    @Test
+    @DisplayName("获取分型 - 无时间范围返回最近分型")
+    void getFractals_latest() throws Exception {
+        when(fractalEngine.getLatestFractals(1L, "1m", 200)).thenReturn(List.of(
+                new Fractal(FractalType.TOP, 5, TIME, 42100.5, 42000),
+                new Fractal(FractalType.BOTTOM, 9, TIME + 240_000, 41950, 41800.25)));
+
+        mockMvc.perform(get("/api/v1/analysis/fractals")
+                        .param("symbolId", "1")
+                        .param("interval", "1m"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].type").value("TOP"))
+                .andExpect(jsonPath("$.data[0].price").value(42100.5))
+                .andExpect(jsonPath("$.data[1].type").value("BOTTOM"))
+                .andExpect(jsonPath("$.data[1].price").value(41800.25))
+                .andExpect(jsonPath("$.data[1].barIndex").value(9));
+    }
+
+    @Test
+    @DisplayName("获取分型 - 按时间范围查询，limit 超过上限时截断")
+    void getFractals_range() throws Exception {
+        Instant start = Instant.ofEpochMilli(TIME);
+        Instant end = start.plusSeconds(3600);
+        when(fractalEngine.getFractals(1L, "1h", start, end, 2000)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/analysis/fractals")
+                        .param("symbolId", "1")
+                        .param("interval", "1h")
+                        .param("startTime", start.toString())
+                        .param("endTime", end.toString())
+                        .param("limit", "10000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").isEmpty());
+
+        verify(fractalEngine).getFractals(1L, "1h", start, end, 2000);
+    }
+
+    @Test
+    @DisplayName("获取分型 - 无效周期返回错误")
+    void getFractals_invalidInterval() throws Exception {
+        when(fractalEngine.getLatestFractals(eq(1L), eq("2m"), anyInt()))
+                .thenThrow(new BusinessException("无效的时间周期: 2m"));
+
+        mockMvc.perform(get("/api/v1/analysis/fractals")
+                        .param("symbolId", "1")
+                        .param("interval", "2m"))
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    @DisplayName("获取笔 - 无时间范围返回最近笔，最后一笔未确认")
+    void getStrokes_latest() throws Exception {
+        when(chanStructureEngine.getStrokes(1L, "1m", null, null, 200)).thenReturn(List.of(
+                ChanStroke.builder().direction("UP").startTime(Instant.ofEpochMilli(TIME))
+                        .endTime(Instant.ofEpochMilli(TIME + 300_000)).startPrice(new BigDecimal("41800.25"))
+                        .endPrice(new BigDecimal("42100.5")).startBar(3L).endBar(8L).confirmed(true).build(),
+                ChanStroke.builder().direction("DOWN").startTime(Instant.ofEpochMilli(TIME + 300_000))
+                        .endTime(Instant.ofEpochMilli(TIME + 600_000)).startPrice(new BigDecimal("42100.5"))
+                        .endPrice(new BigDecimal("41900")).startBar(8L).endBar(13L).confirmed(false).build()));
+
+        mockMvc.perform(get("/api/v1/analysis/strokes")
+                        .param("symbolId", "1")
+                        .param("interval", "1m"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].direction").value("UP"))
+                .andExpect(jsonPath("$.data[0].endPrice").value(42100.5))
+                .andExpect(jsonPath("$.data[0].confirmed").value(true))
+                .andExpect(jsonPath("$.data[1].startBar").value(8))
+                .andExpect(jsonPath("$.data[1].confirmed").value(false));
+    }
+
+    @Test
+    @DisplayName("获取线段 - 按时间范围查询")
+    void getSegments_range() throws Exception {
+        Instant start = Instant.ofEpochMilli(TIME);
+        Instant end = start.plusSeconds(86400);
+        when(chanStructureEngine.getSegments(1L, "5m", start, end, 50)).thenReturn(List.of(
+                ChanSegment.builder().direction("DOWN").startTime(start).endTime(start.plusSeconds(7200))
+                        .startPrice(new BigDecimal("42100.5")).endPrice(new BigDecimal("41000"))
+                        .strokeCount(5).confirmed(true).build()));
+
+        mockMvc.perform(get("/api/v1/analysis/segments")
+                        .param("symbolId", "1")
+                        .param("interval", "5m")
+                        .param("startTime", start.toString())
+                        .param("endTime", end.toString())
+                        .param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].direction").value("DOWN"))
+                .andExpect(jsonPath("$.data[0].strokeCount").value(5));
+    }
+
+    @Test
+    @DisplayName("获取中枢 - 默认笔中枢，按时间范围返回已结束和进行中的中枢")
+    void getPivots_range() throws Exception {
+        Instant start = Instant.ofEpochMilli(TIME);
+        Instant end = start.plusSeconds(86400);
+        when(pivotEngine.getPivots(1L, "1m", 1, start, end, 200)).thenReturn(List.of(
+                new Pivot(1, TIME, TIME + 600_000, 42100, 41900, 42300.5, 41700, 5, true),
+                new Pivot(1, TIME + 900_000, TIME + 1_500_000, 42600, 42400, 42700, 42200, 3, false)));
+
+        mockMvc.perform(get("/api/v1/analysis/pivots")
+                        .param("symbolId", "1")
+                        .param("interval", "1m")
+                        .param("startTime", start.toString())
+                        .param("endTime", end.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2))
+                .andExpect(jsonPath("$.data[0].level").value(1))
+                .andExpect(jsonPath("$.data[0].zg").value(42100.0))
+                .andExpect(jsonPath("$.data[0].gg").value(42300.5))
+                .andExpect(jsonPath("$.data[0].closed").value(true))
+                .andExpect(jsonPath("$.data[1].closed").value(false));
+    }
+
+    @Test
+    @DisplayName("获取中枢 - 指定级别返回最近中枢")
+    void getPivots_latestByLevel() throws Exception {
+        when(pivotEngine.getLatestPivots(1L, "1h", 2, 20)).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/analysis/pivots")
+                        .param("symbolId", "1")
+                        .param("interval", "1h")
+                        .param("level", "2")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").isEmpty());
+
+        verify(pivotEngine).getLatestPivots(1L, "1h", 2, 20);
+    }
+
+    @Test
+    @DisplayName("重建笔和线段 - 提交后台任务")
+    void rebuildStructures() throws Exception {
+        mockMvc.perform(post("/api/v1/analysis/structures/rebuild")
+                        .param("symbolId", "1")
+                        .param("interval", "1m"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200));
+
+        verify(chanStructureEngine).rebuild(1L, "1m");
+    }
+
+    @Test
+    @DisplayName("MACD 面积 - 返回红绿柱面积和净面积")
+    void getMacdArea() throws Exception {
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        Instant end = Instant.parse("2025-01-01T10:00:00Z");
+        when(indicatorEngine.getMacdArea(1L, "1h", start, end)).thenReturn(
+                new MacdArea(start.toEpochMilli(), end.toEpochMilli(), 11, 12.5, 2.5));
+
+        mockMvc.perform(get("/api/v1/analysis/macd-area")
+                        .param("symbolId", "1")
+                        .param("interval", "1h")
+                        .param("startTime", start.toString())
+                        .param("endTime", end.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.bars").value(11))
+                .andExpect(jsonPath("$.data.positive").value(12.5))
+                .andExpect(jsonPath("$.data.negative").value(2.5))
+                .andExpect(jsonPath("$.data.net").value(10.0));
+    }
+}
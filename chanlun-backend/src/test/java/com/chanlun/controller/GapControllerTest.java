@@ -197,7 +197,7 @@ class GapControllerTest {
             GapDetectResult result = GapDetectResult.success(
                     "缺口检测完成", 1, 1, 2, 2, Collections.emptyList());
 
-            when(dataGapService.detectGaps(1L, "1h")).thenReturn(result);
+            when(dataGapService.detectGaps(1L, "1h", false)).thenReturn(result);
 
             mockMvc.perform(post("/api/v1/gaps/detect")
                             .contentType(MediaType.APPLICATION_JSON)
@@ -218,7 +218,7 @@ class GapControllerTest {
             GapDetectResult result = GapDetectResult.success(
                     "批量缺口检测完成", 10, 30, 5, 15, Collections.emptyList());
 
-            when(dataGapService.detectAllGaps()).thenReturn(result);
+            when(dataGapService.detectAllGaps(false)).thenReturn(result);
 
             mockMvc.perform(post("/api/v1/gaps/detect")
                             .contentType(MediaType.APPLICATION_JSON)
@@ -267,7 +267,7 @@ class GapControllerTest {
 
             GapDetectResult result = GapDetectResult.failure("交易对不符合缺口检测条件");
 
-            when(dataGapService.detectGaps(1L, "1h")).thenReturn(result);
+            when(dataGapService.detectGaps(1L, "1h", false)).thenReturn(result);
 
             mockMvc.perform(post("/api/v1/gaps/detect")
                             .contentType(MediaType.APPLICATION_JSON)
@@ -285,7 +285,7 @@ class GapControllerTest {
                     .interval("1s")
                     .build();
 
-            when(dataGapService.detectGaps(1L, "1s"))
+            when(dataGapService.detectGaps(1L, "1s", false))
                     .thenThrow(new BusinessException("不支持的时间周期: 1s"));
 
             mockMvc.perform(post("/api/v1/gaps/detect")
@@ -1,7 +1,12 @@
 package com.chanlun.controller;
 
+import com.chanlun.analysis.IndicatorEngine;
+import com.chanlun.analysis.IndicatorValue;
 import com.chanlun.entity.Kline;
 import com.chanlun.exception.BusinessException;
+import com.chanlun.service.KlineCacheService;
+import com.chanlun.service.KlineExportService;
+import com.chanlun.service.KlineRollupService;
 import com.chanlun.service.KlineService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -10,6 +15,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -38,6 +44,18 @@ class KlineControllerTest {
     @MockBean
     private KlineService klineService;
 
+    @MockBean
+    private KlineCacheService klineCacheService;
+
+    @MockBean
+    private KlineExportService klineExportService;
+
+    @MockBean
+    private KlineRollupService klineRollupService;
+
+    @MockBean
+    private IndicatorEngine indicatorEngine;
+
     private Kline createTestKline(Long id, Instant openTime) {
         return Kline.builder()
                 .id(id)
@@ -137,18 +155,11 @@ class KlineControllerTest {
     @Test
     @DisplayName("GET /api/v1/klines - 无时间范围时返回最新数据")
     void getKlines_noTimeRange_returnsLatest() throws Exception {
-        Instant minTime = Instant.parse("2025-01-01T00:00:00Z");
-        Instant maxTime = Instant.parse("2025-01-01T12:00:00Z");
-        
         List<Kline> klines = List.of(
-                createTestKline(1L, Instant.parse("2025-01-01T00:00:00Z"))
+                createTestKline(1L, Instant.parse("2025-01-01T12:00:00Z"))
         );
 
-        when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(maxTime);
-        when(klineService.getMinOpenTime(1L, "1h")).thenReturn(minTime);
-        when(klineService.getBySymbolIdAndIntervalAndTimeRangeWithLimit(
-                eq(1L), eq("1h"), eq(minTime), eq(maxTime), eq(500)))
-                .thenReturn(klines);
+        when(klineService.getLatest(1L, "1h", 500)).thenReturn(klines);
 
         mockMvc.perform(get("/api/v1/klines")
                         .param("symbolId", "1")
@@ -158,10 +169,44 @@ class KlineControllerTest {
                 .andExpect(jsonPath("$.data.length()").value(1));
     }
 
+    @Test
+    @DisplayName("GET /api/v1/klines - before 参数按键集向前翻页")
+    void getKlines_withBefore_returnsPageBefore() throws Exception {
+        Instant before = Instant.parse("2025-01-01T12:00:00Z");
+        List<Kline> klines = List.of(
+                createTestKline(1L, Instant.parse("2025-01-01T10:00:00Z")),
+                createTestKline(2L, Instant.parse("2025-01-01T11:00:00Z"))
+        );
+
+        when(klineService.getLatestBefore(1L, "1h", before, 2)).thenReturn(klines);
+
+        mockMvc.perform(get("/api/v1/klines")
+                        .param("symbolId", "1")
+                        .param("interval", "1h")
+                        .param("before", "2025-01-01T12:00:00Z")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(2));
+
+        verify(klineService, never()).getLatest(anyLong(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/klines - before 与时间范围同时使用返回400")
+    void getKlines_beforeWithTimeRange_returns400() throws Exception {
+        mockMvc.perform(get("/api/v1/klines")
+                        .param("symbolId", "1")
+                        .param("interval", "1h")
+                        .param("startTime", "2025-01-01T00:00:00Z")
+                        .param("before", "2025-01-01T12:00:00Z"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
     @Test
     @DisplayName("GET /api/v1/klines - 无数据时返回空列表")
     void getKlines_noData_returnsEmptyList() throws Exception {
-        when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(null);
+        when(klineService.getLatest(1L, "1h", 500)).thenReturn(List.of());
 
         mockMvc.perform(get("/api/v1/klines")
                         .param("symbolId", "1")
@@ -191,7 +236,7 @@ class KlineControllerTest {
     @Test
     @DisplayName("GET /api/v1/klines - 无效的 interval 返回400")
     void getKlines_invalidInterval_returns400() throws Exception {
-        when(klineService.getMaxOpenTime(1L, "1s"))
+        when(klineService.getLatest(1L, "1s", 500))
                 .thenThrow(new BusinessException("不支持的时间周期: 1s"));
 
         mockMvc.perform(get("/api/v1/klines")
@@ -396,4 +441,136 @@ class KlineControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.code").value(400));
     }
+
+    @Test
+    @DisplayName("GET /api/v1/klines/cache/stats - 返回缓存统计")
+    void getCacheStats_success() throws Exception {
+        when(klineCacheService.getStats()).thenReturn(KlineCacheService.CacheStats.builder()
+                .enabled(true)
+                .entries(2)
+                .hits(9)
+                .misses(1)
+                .hitRate(0.9)
+                .build());
+
+        mockMvc.perform(get("/api/v1/klines/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.entries").value(2))
+                .andExpect(jsonPath("$.data.hitRate").value(0.9));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/klines/export - 流式导出 CSV 并 gzip 压缩")
+    void exportKlines_csv_streamsGzip() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/v1/klines/export")
+                        .param("symbolId", "1")
+                        .param("interval", "1m")
+                        .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"klines_1_1m.csv\""))
+                .andExpect(content().contentTypeCompatibleWith("text/csv"));
+
+        verify(klineExportService).export(eq(1L), eq("1m"), isNull(), isNull(),
+                eq(KlineExportService.ExportFormat.CSV), eq(true), any());
+        verify(klineExportService).acquire();
+        verify(klineExportService).release();
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/klines/export - 超过并发导出上限返回429")
+    void exportKlines_overLimit_returns429() throws Exception {
+        doThrow(new BusinessException(429, "导出任务过多，请稍后再试")).when(klineExportService).acquire();
+
+        mockMvc.perform(get("/api/v1/klines/export")
+                        .param("symbolId", "1")
+                        .param("interval", "1m"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(jsonPath("$.code").value(429));
+
+        verify(klineExportService, never()).export(any(), any(), any(), any(), any(), anyBoolean(), any());
+        verify(klineExportService, never()).release();
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/klines/export - 不支持的格式返回400")
+    void exportKlines_invalidFormat_returns400() throws Exception {
+        mockMvc.perform(get("/api/v1/klines/export")
+                        .param("symbolId", "1")
+                        .param("interval", "1m")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400));
+
+        verifyNoInteractions(klineExportService);
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/klines/rollup - 批量合成返回结果")
+    void rollupKlines_success() throws Exception {
+        Instant startTime = Instant.parse("2025-01-01T00:00:00Z");
+        Instant endTime = Instant.parse("2025-01-02T00:00:00Z");
+        when(klineRollupService.rollup(1L, startTime, endTime)).thenReturn(KlineRollupService.RollupResult.builder()
+                .symbolId(1L)
+                .startTime(startTime)
+                .endTime(endTime)
+                .baseKlines(1440)
+                .derivedKlines(600)
+                .verifiedKlines(24)
+                .build());
+
+        mockMvc.perform(post("/api/v1/klines/rollup")
+                        .param("symbolId", "1")
+                        .param("startTime", "2025-01-01T00:00:00Z")
+                        .param("endTime", "2025-01-02T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.baseKlines").value(1440))
+                .andExpect(jsonPath("$.data.derivedKlines").value(600))
+                .andExpect(jsonPath("$.data.verifiedKlines").value(24));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/klines/rollup - 合成未启用返回400")
+    void rollupKlines_disabled_returns400() throws Exception {
+        when(klineRollupService.rollup(eq(1L), any(), any())).thenThrow(new BusinessException("K线周期合成未启用"));
+
+        mockMvc.perform(post("/api/v1/klines/rollup")
+                        .param("symbolId", "1")
+                        .param("startTime", "2025-01-01T00:00:00Z")
+                        .param("endTime", "2025-01-02T00:00:00Z"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/klines?indicators=true - 附带技术指标，默认不返回")
+    void getKlines_withIndicators() throws Exception {
+        Instant openTime = Instant.parse("2025-01-01T00:00:00Z");
+        List<Kline> klines = List.of(createTestKline(1L, openTime), createTestKline(2L, openTime.plusSeconds(3600)));
+        when(klineService.getLatest(1L, "1h", 500)).thenReturn(klines);
+        when(indicatorEngine.getValues(1L, "1h", klines)).thenReturn(java.util.Arrays.asList(
+                new IndicatorValue(openTime.toEpochMilli(), 50100, 50050, 50, 20, 60, Double.NaN, Double.NaN, Double.NaN),
+                null));
+
+        mockMvc.perform(get("/api/v1/klines")
+                        .param("symbolId", "1")
+                        .param("interval", "1h")
+                        .param("indicators", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].indicators.dif").value(50.0))
+                .andExpect(jsonPath("$.data[0].indicators.macd").value(60.0))
+                .andExpect(jsonPath("$.data[0].indicators.bollMid").doesNotExist())
+                .andExpect(jsonPath("$.data[1].indicators").doesNotExist());
+
+        mockMvc.perform(get("/api/v1/klines")
+                        .param("symbolId", "1")
+                        .param("interval", "1h"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].indicators").doesNotExist());
+        verify(indicatorEngine, times(1)).getValues(any(), any(), any());
+    }
 }
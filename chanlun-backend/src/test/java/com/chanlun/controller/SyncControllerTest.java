@@ -4,10 +4,12 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.chanlun.dto.AutoGapFillRequest;
 import com.chanlun.dto.HistorySyncRequest;
+import com.chanlun.dto.KlineLatencyDTO;
 import com.chanlun.entity.SyncStatus;
 import com.chanlun.entity.SyncTask;
 import com.chanlun.exception.ResourceNotFoundException;
 import com.chanlun.service.HistorySyncService;
+import com.chanlun.service.KlineLatencyTracker;
 import com.chanlun.service.SyncService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
@@ -47,6 +49,9 @@ class SyncControllerTest {
     @MockBean
     private HistorySyncService historySyncService;
 
+    @MockBean
+    private KlineLatencyTracker klineLatencyTracker;
+
     private ObjectMapper objectMapper;
     private Instant baseTime;
 
@@ -295,4 +300,38 @@ class SyncControllerTest {
                         .content("{}"))
                 .andExpect(status().isBadRequest());
     }
+
+    // ==================== 实时同步延迟 API 测试 ====================
+
+    @Test
+    @DisplayName("获取实时链路延迟 - 按周期筛选")
+    void getRealtimeLatency_success() throws Exception {
+        KlineLatencyDTO stat = KlineLatencyDTO.builder()
+                .interval("1m")
+                .stage("CLOSE_TO_COMMIT")
+                .count(120)
+                .p50Ms(210.5)
+                .p99Ms(890.0)
+                .p999Ms(1500.0)
+                .maxMs(1502.3)
+                .meanMs(260.1)
+                .build();
+        when(klineLatencyTracker.getStats("1m")).thenReturn(List.of(stat));
+
+        mockMvc.perform(get("/api/v1/sync/realtime/latency").param("interval", "1m"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data[0].stage").value("CLOSE_TO_COMMIT"))
+                .andExpect(jsonPath("$.data[0].p99Ms").value(890.0));
+    }
+
+    @Test
+    @DisplayName("重置实时链路延迟 - 成功")
+    void resetRealtimeLatency_success() throws Exception {
+        mockMvc.perform(delete("/api/v1/sync/realtime/latency"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200));
+
+        verify(klineLatencyTracker).reset();
+    }
 }
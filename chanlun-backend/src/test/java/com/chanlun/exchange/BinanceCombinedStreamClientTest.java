@@ -0,0 +1,241 @@
+package com.chanlun.exchange;
+
+import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * BinanceCombinedStreamClient 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("BinanceCombinedStreamClient 测试")
+class BinanceCombinedStreamClientTest {
+
+    private static final String KLINE_MESSAGE = """
+            {"stream":"btcusdt@kline_1m","data":{"e":"kline","E":1700000060000,"s":"BTCUSDT",
+            "k":{"t":1700000000000,"T":1700000059999,"s":"BTCUSDT","i":"1m","o":"100","c":"101",
+            "h":"102","l":"99","v":"10","n":5,"x":true,"q":"1000","V":"5","Q":"500"}}}
+            """;
+
+    private ScheduledExecutorService scheduler;
+    private AtomicReference<String> routedStream;
+    private AtomicReference<BinanceWsKlineEvent> routedEvent;
+    private BinanceCombinedStreamClient client;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        routedStream = new AtomicReference<>();
+        routedEvent = new AtomicReference<>();
+        client = new BinanceCombinedStreamClient(
+                1,
+                "wss://stream.binance.com:9443/stream",
+                null,
+                new ObjectMapper(),
+                scheduler,
+                (stream, event) -> {
+                    routedStream.set(stream);
+                    routedEvent.set(event);
+                },
+                error -> {},
+                streams -> {},
+                true  // Mock 模式
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.close();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("测试组合流 URL 转换")
+    void testToCombinedStreamUrl() {
+        assertEquals("wss://stream.binance.com:9443/stream",
+                BinanceCombinedStreamClient.toCombinedStreamUrl("wss://stream.binance.com:9443/ws"));
+        assertEquals("wss://fstream.binance.com/stream",
+                BinanceCombinedStreamClient.toCombinedStreamUrl("wss://fstream.binance.com/ws/"));
+        assertEquals("wss://fstream.binance.com/stream",
+                BinanceCombinedStreamClient.toCombinedStreamUrl("wss://fstream.binance.com/stream"));
+    }
+
+    @Test
+    @DisplayName("测试连接 URL 携带全部流")
+    void testBuildConnectUrl() {
+        client.addStream("ethusdt@kline_5m");
+        client.addStream("btcusdt@kline_1m");
+
+        assertEquals("wss://stream.binance.com:9443/stream?streams=btcusdt@kline_1m/ethusdt@kline_5m",
+                client.buildConnectUrl());
+    }
+
+    @Test
+    @DisplayName("测试单连接流数量上限")
+    void testStreamCapacity() {
+        for (int i = 0; i < BinanceCombinedStreamClient.MAX_STREAMS_PER_CONNECTION; i++) {
+            assertTrue(client.addStream("sym" + i + "@kline_1m"));
+        }
+
+        assertFalse(client.hasCapacity());
+        assertFalse(client.addStream("overflow@kline_1m"));
+        assertEquals(BinanceCombinedStreamClient.MAX_STREAMS_PER_CONNECTION, client.getStreamCount());
+
+        assertTrue(client.removeStream("sym0@kline_1m"));
+        assertTrue(client.hasCapacity());
+    }
+
+    @Test
+    @DisplayName("测试按流名称路由 K 线事件")
+    void testHandleMessageRoutesByStream() {
+        client.handleMessage(KLINE_MESSAGE);
+
+        assertEquals("btcusdt@kline_1m", routedStream.get());
+        assertNotNull(routedEvent.get());
+        assertEquals("BTCUSDT", routedEvent.get().getSymbol());
+        assertTrue(routedEvent.get().getKline().getClosed());
+    }
+
+    @Test
+    @DisplayName("测试无人需要的未完结 K 线不解码不路由")
+    void testHandleMessageSkipsUnwantedOpenEvents() {
+        BinanceCombinedStreamClient filtered = new BinanceCombinedStreamClient(
+                2,
+                "wss://stream.binance.com:9443/stream",
+                null,
+                new ObjectMapper(),
+                scheduler,
+                (stream, event) -> routedEvent.set(event),
+                stream -> false,
+                error -> {},
+                streams -> {},
+                true
+        );
+
+        filtered.handleMessage(KLINE_MESSAGE.replace("\"x\":true", "\"x\":false"));
+        assertNull(routedEvent.get());
+
+        filtered.handleMessage(KLINE_MESSAGE);
+        assertNotNull(routedEvent.get());
+        filtered.close();
+    }
+
+    @Test
+    @DisplayName("测试控制帧响应不触发路由")
+    void testHandleControlResponse() {
+        client.handleMessage("{\"result\":null,\"id\":1}");
+
+        assertNull(routedStream.get());
+    }
+
+    @Test
+    @DisplayName("测试 Mock 模式连接与关闭")
+    void testMockConnectAndClose() {
+        client.addStream("btcusdt@kline_1m");
+        client.connect();
+        assertTrue(client.isConnected());
+        assertEquals(Set.of("btcusdt@kline_1m"), client.getStreams());
+
+        client.close();
+        assertFalse(client.isConnected());
+        assertTrue(client.isClosed());
+    }
+
+    @Test
+    @DisplayName("测试每个间隔只发送一帧控制帧，UNSUBSCRIBE 优先")
+    void testFlushSendsOneFramePerTick() {
+        ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+        OkHttpClient httpClient = mock(OkHttpClient.class);
+        WebSocket socket = mock(WebSocket.class);
+        ArgumentCaptor<WebSocketListener> listener = ArgumentCaptor.forClass(WebSocketListener.class);
+        when(httpClient.newWebSocket(any(Request.class), listener.capture())).thenReturn(socket);
+        when(socket.send(anyString())).thenReturn(true);
+        BinanceCombinedStreamClient live = liveClient(httpClient, timer);
+
+        live.addStream("btcusdt@kline_1m");
+        live.connect();
+        listener.getValue().onOpen(socket, null);
+        live.removeStream("btcusdt@kline_1m");
+        live.addStream("ethusdt@kline_1m");
+        live.addStream("bnbusdt@kline_1m");
+        verify(timer, times(1)).schedule(any(Runnable.class), eq(400L), eq(TimeUnit.MILLISECONDS));
+
+        live.flushControlFrames();
+        ArgumentCaptor<String> frames = ArgumentCaptor.forClass(String.class);
+        verify(socket, times(1)).send(frames.capture());
+        assertTrue(frames.getValue().contains("UNSUBSCRIBE"));
+        // SUBSCRIBE 留到下一个间隔
+        verify(timer, times(2)).schedule(any(Runnable.class), eq(400L), eq(TimeUnit.MILLISECONDS));
+
+        live.flushControlFrames();
+        verify(socket, times(2)).send(frames.capture());
+        assertTrue(frames.getValue().contains("\"SUBSCRIBE\""));
+        assertTrue(frames.getValue().contains("ethusdt@kline_1m"));
+        assertTrue(frames.getValue().contains("bnbusdt@kline_1m"));
+        verify(timer, times(2)).schedule(any(Runnable.class), eq(400L), eq(TimeUnit.MILLISECONDS));
+
+        live.close();
+    }
+
+    @Test
+    @DisplayName("测试连续失败后持续重连，延迟封顶不放弃")
+    void testReconnectNeverGivesUp() {
+        ScheduledExecutorService timer = mock(ScheduledExecutorService.class);
+        OkHttpClient httpClient = mock(OkHttpClient.class);
+        WebSocket socket = mock(WebSocket.class);
+        ArgumentCaptor<WebSocketListener> listener = ArgumentCaptor.forClass(WebSocketListener.class);
+        when(httpClient.newWebSocket(any(Request.class), listener.capture())).thenReturn(socket);
+        ArgumentCaptor<Runnable> reconnect = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Long> delays = ArgumentCaptor.forClass(Long.class);
+        BinanceCombinedStreamClient live = liveClient(httpClient, timer);
+
+        live.addStream("btcusdt@kline_1m");
+        live.connect();
+        for (int i = 1; i <= 30; i++) {
+            listener.getValue().onFailure(socket, new IOException("refused"), null);
+            verify(timer, times(i)).schedule(reconnect.capture(), delays.capture(), eq(TimeUnit.MILLISECONDS));
+            reconnect.getValue().run();
+        }
+
+        verify(httpClient, times(31)).newWebSocket(any(Request.class), any(WebSocketListener.class));
+        assertEquals(1000L, delays.getAllValues().get(0));
+        assertEquals(60000L, delays.getValue());
+        assertEquals(30, live.getReconnectAttempts());
+
+        live.close();
+    }
+
+    private BinanceCombinedStreamClient liveClient(OkHttpClient httpClient, ScheduledExecutorService timer) {
+        return new BinanceCombinedStreamClient(
+                3,
+                "wss://stream.binance.com:9443/stream",
+                httpClient,
+                new ObjectMapper(),
+                timer,
+                (stream, event) -> {},
+                error -> {},
+                streams -> {},
+                false
+        );
+    }
+}
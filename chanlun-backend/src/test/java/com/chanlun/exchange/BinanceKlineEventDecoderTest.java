@@ -0,0 +1,92 @@
+package com.chanlun.exchange;
+
+import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BinanceKlineEventDecoder 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("BinanceKlineEventDecoder 测试")
+class BinanceKlineEventDecoderTest {
+
+    private static final String RAW_EVENT = """
+            {"e":"kline","E":1700000060123,"s":"BTCUSDT","k":{"t":1700000000000,"T":1700000059999,
+            "s":"BTCUSDT","i":"1m","f":100,"L":200,"o":"42000.10","c":"42050.00","h":"42100.00",
+            "l":"41900.00","v":"12.5","n":101,"x":false,"q":"525000.00","V":"6.2","Q":"260000.00","B":"0"}}
+            """;
+
+    private static final String COMBINED_EVENT = """
+            {"stream":"btcusdt@kline_1m","data":{"e":"kline","E":1700000060123,"s":"BTCUSDT",
+            "k":{"t":1700000000000,"T":1700000059999,"s":"BTCUSDT","i":"1m","o":"100","c":"101",
+            "h":"102","l":"99","v":"10","n":5,"x":true,"q":"1000","V":"5","Q":"500","B":"0"}}}
+            """;
+
+    @Test
+    @DisplayName("peek - 单流消息读取事件类型和完结标志")
+    void peek_rawEvent() throws Exception {
+        BinanceKlineEventDecoder.Peek peek = BinanceKlineEventDecoder.peek(RAW_EVENT);
+
+        assertTrue(peek.isKlineEvent());
+        assertFalse(peek.closed());
+        assertNull(peek.stream());
+    }
+
+    @Test
+    @DisplayName("peek - 组合流消息读取流名称，控制帧无事件数据")
+    void peek_combinedAndControlFrames() throws Exception {
+        BinanceKlineEventDecoder.Peek peek = BinanceKlineEventDecoder.peek(COMBINED_EVENT);
+        assertEquals("btcusdt@kline_1m", peek.stream());
+        assertTrue(peek.isKlineEvent());
+        assertTrue(peek.closed());
+
+        BinanceKlineEventDecoder.Peek control = BinanceKlineEventDecoder.peek("{\"result\":null,\"id\":1}");
+        assertFalse(control.hasData());
+        assertFalse(control.error());
+
+        BinanceKlineEventDecoder.Peek error = BinanceKlineEventDecoder.peek(
+                "{\"error\":{\"code\":2,\"msg\":\"Invalid request\"},\"id\":2}");
+        assertTrue(error.error());
+    }
+
+    @Test
+    @DisplayName("decode - 与 ObjectMapper 解码结果一致，忽略未知字段")
+    void decode_matchesObjectMapper() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        BinanceWsKlineEvent expected = objectMapper.readValue(RAW_EVENT, BinanceWsKlineEvent.class);
+        BinanceWsKlineEvent actual = BinanceKlineEventDecoder.decode(RAW_EVENT);
+
+        assertEquals(expected, actual);
+        assertEquals(new BigDecimal("42000.10"), actual.getKline().getOpen());
+        assertEquals(101, actual.getKline().getTrades());
+        assertEquals(200L, actual.getKline().getLastTradeId());
+    }
+
+    @Test
+    @DisplayName("decode - 组合流消息解码 data 内的事件")
+    void decode_combinedEvent() throws Exception {
+        BinanceWsKlineEvent event = BinanceKlineEventDecoder.decode(COMBINED_EVENT);
+
+        assertTrue(event.isKlineEvent());
+        assertTrue(event.isKlineClosed());
+        assertEquals("1m", event.getKline().getInterval());
+        assertEquals(new BigDecimal("1000"), event.getKline().getQuoteVolume());
+    }
+
+    @Test
+    @DisplayName("格式错误 - 抛出解析异常")
+    void malformed_shouldThrow() {
+        assertThrows(JsonParseException.class, () -> BinanceKlineEventDecoder.peek("{\"e\":kline}"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.chanlun.exchange;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.exchange.model.BinanceKline;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BinanceKlineResponseParser 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("BinanceKlineResponseParser 测试")
+class BinanceKlineResponseParserTest {
+
+    private static final String RESPONSE = """
+            [[1700000000000,"42000.10","42100.00","41900.00","42050.00","12.50000000",1700000059999,
+              "525000.12345678",101,"6.20000000","260000.00000000","0"],
+             [1700000060000,"42050.00","42080.00","42010.00","42020.00","3.1",1700000119999,
+              "130000.5",25,"1.5","63000.0","0"]]
+            """;
+
+    @Test
+    @DisplayName("解析 - 与 BinanceKline.fromArray 转换结果一致")
+    void parse_matchesFromArray() throws Exception {
+        List<Object[]> rows = new ObjectMapper().readValue(RESPONSE, new TypeReference<List<Object[]>>() {});
+
+        List<Kline> klines = BinanceKlineResponseParser.parse(RESPONSE, 1L, "1m");
+
+        assertEquals(rows.size(), klines.size());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(BinanceKline.fromArray(rows.get(i)).toKline(1L, "1m"), klines.get(i));
+        }
+        assertEquals(Instant.ofEpochMilli(1700000000000L), klines.get(0).getOpenTime());
+        assertEquals(new BigDecimal("525000.12345678"), klines.get(0).getQuoteVolume());
+        assertEquals(101, klines.get(0).getTrades());
+    }
+
+    @Test
+    @DisplayName("解析 - 从响应流读取，空数组返回空列表")
+    void parse_fromStream() throws Exception {
+        List<Kline> klines = BinanceKlineResponseParser.parse(
+                new ByteArrayInputStream(RESPONSE.getBytes(StandardCharsets.UTF_8)), 2L, "1m", 1000);
+        assertEquals(2, klines.size());
+        assertEquals(2L, klines.get(1).getSymbolId());
+
+        assertTrue(BinanceKlineResponseParser.parse("[]", 1L, "1m").isEmpty());
+    }
+
+    @Test
+    @DisplayName("格式错误的行 - 跳过该行，继续解析后续行")
+    void parse_skipsInvalidRows() throws Exception {
+        String body = """
+                [[1700000000000,"bad","42100.00","41900.00","42050.00","12.5",1700000059999,"1",1,"1","1","0"],
+                 [1700000060000,"1"],
+                 {"unexpected":true},
+                 [1700000120000,"42000","42100","41900","42050","12.5",1700000179999,"1",1,"1","1","0"]]
+                """;
+
+        List<Kline> klines = BinanceKlineResponseParser.parse(body, 1L, "1m");
+
+        assertEquals(1, klines.size());
+        assertEquals(Instant.ofEpochMilli(1700000120000L), klines.get(0).getOpenTime());
+    }
+
+    @Test
+    @DisplayName("非数组响应 - 抛出异常")
+    void parse_nonArray_shouldThrow() {
+        assertThrows(IOException.class,
+                () -> BinanceKlineResponseParser.parse("{\"code\":-1121,\"msg\":\"Invalid symbol.\"}", 1L, "1m"));
+    }
+}
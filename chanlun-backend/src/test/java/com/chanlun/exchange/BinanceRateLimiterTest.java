@@ -0,0 +1,116 @@
+package com.chanlun.exchange;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BinanceRateLimiter 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("BinanceRateLimiter 测试")
+class BinanceRateLimiterTest {
+
+    private AtomicLong now;
+    private BinanceRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        // 固定在某分钟的第 10 秒
+        now = new AtomicLong(1_700_000_040_000L + 10_000L);
+        limiter = new BinanceRateLimiter("https://api.binance.com", 100, now::get);
+    }
+
+    @Test
+    @DisplayName("同一 baseUrl 共享同一个限流器")
+    void forBaseUrl_shouldShareInstance() {
+        BinanceRateLimiter a = BinanceRateLimiter.forBaseUrl("https://fapi.binance.com");
+        BinanceRateLimiter b = BinanceRateLimiter.forBaseUrl("https://FAPI.binance.com/");
+
+        assertSame(a, b);
+        assertEquals(BinanceRateLimiter.FUTURES_WEIGHT_LIMIT, a.getWeightLimit());
+        assertEquals(BinanceRateLimiter.SPOT_WEIGHT_LIMIT,
+                BinanceRateLimiter.forBaseUrl(null).getWeightLimit());
+    }
+
+    @Test
+    @DisplayName("预算内获取权重立即返回")
+    void acquire_withinBudget_shouldAccumulate() throws Exception {
+        limiter.acquire(5, BinanceRateLimiter.Priority.NORMAL);
+        limiter.acquire(10, BinanceRateLimiter.Priority.HISTORY);
+
+        assertEquals(15, limiter.getUsedWeight());
+        assertEquals(85, limiter.getRemainingWeight());
+    }
+
+    @Test
+    @DisplayName("进入下一分钟后权重重置")
+    void acquire_nextWindow_shouldReset() throws Exception {
+        limiter.acquire(50, BinanceRateLimiter.Priority.NORMAL);
+        now.addAndGet(60_000);
+
+        assertEquals(0, limiter.getUsedWeight());
+    }
+
+    @Test
+    @DisplayName("响应头已用权重更大时校准")
+    void updateUsedWeight_shouldTakeMax() throws Exception {
+        limiter.acquire(10, BinanceRateLimiter.Priority.NORMAL);
+
+        limiter.updateUsedWeight(40);
+        assertEquals(40, limiter.getUsedWeight());
+
+        limiter.updateUsedWeight(5);
+        assertEquals(40, limiter.getUsedWeight());
+    }
+
+    @Test
+    @DisplayName("历史同步超过预算比例后等待下一窗口，实时回补仍可获取")
+    void acquire_lowPriority_shouldWaitForNextWindow() throws Exception {
+        limiter.updateUsedWeight(60);
+
+        // 实时回补可使用全部预算
+        limiter.acquire(30, BinanceRateLimiter.Priority.REALTIME_FILL);
+        assertEquals(90, limiter.getUsedWeight());
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread history = new Thread(() -> {
+            try {
+                limiter.acquire(5, BinanceRateLimiter.Priority.HISTORY);
+                acquired.countDown();
+            } catch (InterruptedException | RateLimitTimeoutException ignored) {
+                // 测试结束
+            }
+        });
+        history.start();
+
+        assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+
+        // 进入下一分钟，校准时触发窗口重置并唤醒等待者
+        now.addAndGet(60_000);
+        limiter.updateUsedWeight(0);
+
+        assertTrue(acquired.await(2, TimeUnit.SECONDS));
+        assertEquals(5, limiter.getUsedWeight());
+        history.join(1000);
+    }
+
+    @Test
+    @DisplayName("429 后暂停，等待过长时直接放弃")
+    void onRateLimited_shouldPauseRequests() {
+        limiter.onRateLimited(429, 600L);
+
+        assertTrue(limiter.isPaused());
+        assertThrows(RateLimitTimeoutException.class,
+                () -> limiter.acquire(1, BinanceRateLimiter.Priority.REALTIME_FILL));
+        // 等待超时不是中断，不影响调用线程后续的 IO
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+}
@@ -250,4 +250,47 @@ class BinanceWebSocketManagerTest {
         
         assertEquals(0, manager.getSubscriptionCount());
     }
+
+    @Test
+    @DisplayName("测试组合流模式复用连接")
+    void testCombinedStreamSharesConnection() {
+        BinanceWebSocketManager combined = new BinanceWebSocketManager(true, true);
+        try {
+            combined.subscribe(testDataSource, testSymbol, "1m", null);
+            combined.subscribe(testDataSource, testSymbol, "5m", null);
+            combined.subscribe(testDataSource, testSymbol, "1h", null);
+
+            assertTrue(combined.isCombinedStreamEnabled());
+            assertEquals(3, combined.getSubscriptionCount());
+            assertEquals(1, combined.getPhysicalConnectionCount());
+            assertEquals(3, combined.getConnectedCount());
+
+            BinanceWebSocketManager.SubscriptionInfo info =
+                    combined.getSubscription(testDataSource.getId(), testSymbol.getId(), "5m");
+            assertNull(info.getClient());
+            assertNotNull(info.getConnection());
+            assertEquals("btcusdt@kline_5m", info.getStreamName());
+        } finally {
+            combined.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("测试组合流模式取消全部订阅后释放连接")
+    void testCombinedStreamReleaseConnection() {
+        BinanceWebSocketManager combined = new BinanceWebSocketManager(true, true);
+        try {
+            combined.subscribe(testDataSource, testSymbol, "1m", null);
+            combined.subscribe(testDataSource, testSymbol, "5m", null);
+
+            combined.unsubscribe(testDataSource.getId(), testSymbol.getId(), "1m");
+            assertEquals(1, combined.getPhysicalConnectionCount());
+
+            combined.unsubscribe(testDataSource.getId(), testSymbol.getId(), "5m");
+            assertEquals(0, combined.getPhysicalConnectionCount());
+            assertEquals(0, combined.getSubscriptionCount());
+        } finally {
+            combined.shutdown();
+        }
+    }
 }
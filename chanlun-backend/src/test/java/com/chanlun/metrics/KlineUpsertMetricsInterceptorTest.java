@@ -0,0 +1,85 @@
+package com.chanlun.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.binding.MapperMethod;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * KlineUpsertMetricsInterceptor 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("KlineUpsertMetricsInterceptor 测试")
+class KlineUpsertMetricsInterceptorTest {
+
+    private SimpleMeterRegistry registry;
+    private KlineUpsertMetricsInterceptor interceptor;
+    private Executor executor;
+    private Executor plugged;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        interceptor = new KlineUpsertMetricsInterceptor(registry);
+        executor = mock(Executor.class);
+        plugged = (Executor) interceptor.plugin(executor);
+    }
+
+    private static MappedStatement statement(String statementId) {
+        MappedStatement statement = mock(MappedStatement.class);
+        when(statement.getId()).thenReturn(statementId);
+        return statement;
+    }
+
+    private static MapperMethod.ParamMap<Object> klinesParam(int rows) {
+        MapperMethod.ParamMap<Object> params = new MapperMethod.ParamMap<>();
+        params.put("klines", Collections.nCopies(rows, new Object()));
+        return params;
+    }
+
+    @Test
+    @DisplayName("batchUpsert - 记录耗时和行数")
+    void batchUpsert_recordsLatencyAndRows() throws Exception {
+        when(executor.update(any(), any())).thenReturn(500);
+
+        int result = plugged.update(statement(KlineUpsertMetricsInterceptor.STATEMENT_ID), klinesParam(500));
+
+        assertEquals(500, result);
+        assertEquals(1, registry.get(KlineWriteMetrics.UPSERT_METRIC)
+                .tags("method", "batch", "outcome", "success").timer().count());
+        assertEquals(500, registry.get(KlineWriteMetrics.UPSERT_ROWS_METRIC).summary().totalAmount());
+    }
+
+    @Test
+    @DisplayName("batchUpsert 失败 - 记录失败耗时并继续抛出异常")
+    void batchUpsert_failure_recordsErrorOutcome() throws Exception {
+        when(executor.update(any(), any())).thenThrow(new SQLException("deadlock"));
+
+        assertThrows(SQLException.class, () ->
+                plugged.update(statement(KlineUpsertMetricsInterceptor.STATEMENT_ID), klinesParam(3)));
+
+        assertEquals(1, registry.get(KlineWriteMetrics.UPSERT_METRIC)
+                .tags("method", "batch", "outcome", "error").timer().count());
+    }
+
+    @Test
+    @DisplayName("其他语句 - 直接放行，不记录指标")
+    void otherStatement_passThrough() throws Exception {
+        when(executor.update(any(), any())).thenReturn(1);
+
+        assertEquals(1, plugged.update(statement("com.chanlun.mapper.DataGapMapper.updateStatus"), List.of()));
+
+        assertTrue(registry.find(KlineWriteMetrics.UPSERT_METRIC).timers().isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package com.chanlun.metrics;
+
+import com.chanlun.mapper.DataGapMapper;
+import com.chanlun.service.KlineWriteBehindService;
+import com.chanlun.service.RealtimeSyncService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * SyncMetricsBinder 单元测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SyncMetricsBinder 测试")
+class SyncMetricsBinderTest {
+
+    @Mock
+    private RealtimeSyncService realtimeSyncService;
+
+    @Mock
+    private KlineWriteBehindService klineWriteBehindService;
+
+    @Mock
+    private DataGapMapper dataGapMapper;
+
+    private ThreadPoolTaskScheduler taskScheduler;
+    private SimpleMeterRegistry registry;
+    private SyncMetricsBinder binder;
+
+    @BeforeEach
+    void setUp() {
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.initialize();
+        registry = new SimpleMeterRegistry();
+        binder = new SyncMetricsBinder(realtimeSyncService, klineWriteBehindService, dataGapMapper, taskScheduler);
+        binder.bindTo(registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    @DisplayName("WebSocket 订阅数和连接数 - 读取实时同步服务")
+    void webSocketGauges() {
+        when(realtimeSyncService.getSubscriptionCount()).thenReturn(600);
+        when(realtimeSyncService.getConnectedCount()).thenReturn(598);
+        when(realtimeSyncService.getPhysicalConnectionCount()).thenReturn(3);
+
+        assertEquals(600, registry.get("binance.ws.subscriptions").tag("state", "all").gauge().value());
+        assertEquals(598, registry.get("binance.ws.subscriptions").tag("state", "connected").gauge().value());
+        assertEquals(3, registry.get("binance.ws.connections").gauge().value());
+    }
+
+    @Test
+    @DisplayName("任务队列积压 - 调度器、写入队列和断线回补队列")
+    void queueDepthGauges() {
+        when(klineWriteBehindService.getQueueDepth()).thenReturn(42);
+        when(realtimeSyncService.getGapFillQueueSize()).thenReturn(5);
+        taskScheduler.schedule(() -> { }, Instant.now().plusSeconds(3600));
+
+        assertEquals(1, registry.get("scheduler.queue.depth").tag("queue", "task-scheduler").gauge().value());
+        assertEquals(42, registry.get("scheduler.queue.depth").tag("queue", "kline-write-behind").gauge().value());
+        assertEquals(5, registry.get("scheduler.queue.depth").tag("queue", "realtime-gap-fill").gauge().value());
+    }
+
+    @Test
+    @DisplayName("缺口积压 - 刷新间隔内复用上次查询结果")
+    void gapBacklog_cachedWithinRefreshInterval() {
+        when(dataGapMapper.countByStatus("PENDING")).thenReturn(12L, 20L);
+        when(dataGapMapper.countByStatus("FILLING")).thenReturn(2L);
+        when(dataGapMapper.countByStatus("FAILED")).thenReturn(1L);
+
+        assertEquals(12, registry.get("gap.backlog").tag("status", "PENDING").gauge().value());
+        assertEquals(2, registry.get("gap.backlog").tag("status", "FILLING").gauge().value());
+        assertEquals(1, registry.get("gap.backlog").tag("status", "FAILED").gauge().value());
+        verify(dataGapMapper, times(1)).countByStatus("PENDING");
+
+        ReflectionTestUtils.setField(binder, "gapBacklogRefreshMs", 0L);
+        assertEquals(20, registry.get("gap.backlog").tag("status", "PENDING").gauge().value());
+    }
+
+    @Test
+    @DisplayName("缺口积压 - 查询失败时保留上次结果")
+    void gapBacklog_queryFailure_keepsLastValue() {
+        when(dataGapMapper.countByStatus(anyString())).thenReturn(7L, 7L, 7L)
+                .thenThrow(new RuntimeException("db down"));
+        ReflectionTestUtils.setField(binder, "gapBacklogRefreshMs", 0L);
+
+        assertEquals(7, registry.get("gap.backlog").tag("status", "PENDING").gauge().value());
+        assertEquals(7, registry.get("gap.backlog").tag("status", "PENDING").gauge().value());
+    }
+}
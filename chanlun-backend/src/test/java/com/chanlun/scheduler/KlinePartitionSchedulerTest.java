@@ -0,0 +1,59 @@
+package com.chanlun.scheduler;
+
+import com.chanlun.service.KlinePartitionService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * K线分区维护定时任务测试
+ */
+@ExtendWith(MockitoExtension.class)
+class KlinePartitionSchedulerTest {
+
+    @Mock
+    private KlinePartitionService klinePartitionService;
+
+    @InjectMocks
+    private KlinePartitionScheduler klinePartitionScheduler;
+
+    @Test
+    @DisplayName("执行分区维护 - 正常执行")
+    void executePartitionMaintenance_Success() {
+        when(klinePartitionService.maintain()).thenReturn(KlinePartitionService.MaintenanceResult.builder()
+                .ensuredPartitions(List.of("kline_y2025m01"))
+                .retiredPartitions(List.of())
+                .build());
+
+        klinePartitionScheduler.executePartitionMaintenance();
+
+        verify(klinePartitionService).maintain();
+    }
+
+    @Test
+    @DisplayName("执行分区维护 - 异常不向外抛出")
+    void executePartitionMaintenance_Exception() {
+        when(klinePartitionService.maintain()).thenThrow(new RuntimeException("function does not exist"));
+
+        assertDoesNotThrow(() -> klinePartitionScheduler.executePartitionMaintenance());
+    }
+
+    @Test
+    @DisplayName("执行分区维护 - 关闭时跳过")
+    void executePartitionMaintenance_Disabled() {
+        ReflectionTestUtils.setField(klinePartitionScheduler, "enabled", false);
+
+        klinePartitionScheduler.executePartitionMaintenance();
+
+        verifyNoInteractions(klinePartitionService);
+    }
+}
@@ -4,9 +4,9 @@ import com.chanlun.dto.DataGapDTO;
 import com.chanlun.dto.GapDetectResult;
 import com.chanlun.entity.DataGap;
 import com.chanlun.entity.DataSource;
-import com.chanlun.entity.Kline;
 import com.chanlun.entity.Market;
 import com.chanlun.entity.Symbol;
+import com.chanlun.entity.SyncStatus;
 import com.chanlun.exception.BusinessException;
 import com.chanlun.exception.ResourceNotFoundException;
 import com.chanlun.mapper.DataGapMapper;
@@ -17,14 +17,13 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -71,19 +70,22 @@ class DataGapServiceTest {
                 .id(1L).name("Binance").enabled(true).build();
     }
 
-    private Kline createKline(Long symbolId, String interval, Instant openTime) {
-        return Kline.builder().id(1L).symbolId(symbolId).interval(interval)
-                .openTime(openTime).open(new BigDecimal("50000.00"))
-                .high(new BigDecimal("51000.00")).low(new BigDecimal("49000.00"))
-                .close(new BigDecimal("50500.00")).volume(new BigDecimal("1000.00")).build();
-    }
-
     private DataGap createDataGap(Long symbolId, String interval, Instant gapStart, Instant gapEnd, int missingCount) {
         return DataGap.builder().id(1L).symbolId(symbolId).interval(interval)
                 .gapStart(gapStart).gapEnd(gapEnd).missingCount(missingCount)
                 .status("PENDING").retryCount(0).createdAt(Instant.now()).updatedAt(Instant.now()).build();
     }
 
+    private void stubKlineRange() {
+        lenient().when(klineMapper.selectMinOpenTimeBySymbolIdAndInterval(anyLong(), anyString())).thenReturn(baseTime);
+        lenient().when(klineMapper.selectMaxOpenTimeBySymbolIdAndInterval(anyLong(), anyString()))
+                .thenReturn(baseTime.plus(10, ChronoUnit.HOURS));
+    }
+
+    private DataGap createBoundary(Instant gapStart, Instant gapEnd, int missingCount) {
+        return DataGap.builder().gapStart(gapStart).gapEnd(gapEnd).missingCount(missingCount).build();
+    }
+
     @Nested
     @DisplayName("getIntervalMillis tests")
     class GetIntervalMillisTest {
@@ -125,12 +127,10 @@ class DataGapServiceTest {
         }
         @Test
         void continuousKlines_noGaps() {
-            List<Kline> klines = new ArrayList<>();
-            for (int i = 0; i < 5; i++) {
-                klines.add(createKline(1L, "1h", baseTime.plus(i, ChronoUnit.HOURS)));
-            }
             when(symbolService.findById(1L)).thenReturn(testSymbol);
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L))
+                    .thenReturn(Collections.emptyList());
             when(dataGapMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(Collections.emptyList());
             GapDetectResult result = dataGapService.detectGaps(1L, "1h");
             assertTrue(result.isSuccess());
@@ -138,18 +138,96 @@ class DataGapServiceTest {
         }
         @Test
         void singleGap_detected() {
-            List<Kline> klines = List.of(
-                    createKline(1L, "1h", baseTime),
-                    createKline(1L, "1h", baseTime.plus(3, ChronoUnit.HOURS)));
             when(symbolService.findById(1L)).thenReturn(testSymbol);
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
-            when(dataGapMapper.selectOverlapping(anyLong(), anyString(), any(), any())).thenReturn(Collections.emptyList());
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L)).thenReturn(List.of(
+                    createBoundary(baseTime.plus(1, ChronoUnit.HOURS), baseTime.plus(2, ChronoUnit.HOURS), 2)));
             when(dataGapMapper.batchInsert(anyList())).thenReturn(1);
             when(dataGapMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(Collections.emptyList());
             GapDetectResult result = dataGapService.detectGaps(1L, "1h");
             assertTrue(result.isSuccess());
             assertEquals(1, result.getNewGapCount());
         }
+        @Test
+        @DisplayName("数据库返回的缺口边界补全交易对、周期和初始状态后入库")
+        @SuppressWarnings("unchecked")
+        void detectedBoundaries_filledBeforeInsert() {
+            when(symbolService.findById(1L)).thenReturn(testSymbol);
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L)).thenReturn(List.of(
+                    createBoundary(baseTime.plus(1, ChronoUnit.HOURS), baseTime.plus(2, ChronoUnit.HOURS), 2)));
+            when(dataGapMapper.batchInsert(anyList())).thenReturn(1);
+            dataGapService.detectGaps(1L, "1h");
+            ArgumentCaptor<List<DataGap>> captor = ArgumentCaptor.forClass(List.class);
+            verify(dataGapMapper).batchInsert(captor.capture());
+            DataGap gap = captor.getValue().get(0);
+            assertEquals(1L, gap.getSymbolId());
+            assertEquals("1h", gap.getInterval());
+            assertEquals("PENDING", gap.getStatus());
+            assertEquals(0, gap.getRetryCount());
+            assertEquals(2, gap.getMissingCount());
+            verify(dataGapMapper, never()).selectOverlapping(anyLong(), anyString(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("增量检测水位线")
+    class WatermarkTest {
+
+        private SyncStatus watermark(Instant from, Instant until) {
+            return SyncStatus.builder().symbolId(1L).interval("1h")
+                    .gapCheckedFrom(from).gapCheckedUntil(until).build();
+        }
+
+        @Test
+        @DisplayName("有水位线时只从水位线开始扫描，并推进到最新K线")
+        void withWatermark_scansFromWatermark() {
+            Instant until = baseTime.plus(8, ChronoUnit.HOURS);
+            stubKlineRange();
+            when(symbolService.findById(1L)).thenReturn(testSymbol);
+            when(syncStatusMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(watermark(baseTime, until));
+
+            dataGapService.detectGaps(1L, "1h");
+
+            verify(dataGapMapper).selectNewGapBoundaries(1L, "1h", until, 3_600_000L, 1000L);
+            verify(syncStatusMapper).upsertGapWatermark(1L, "1h", baseTime, baseTime.plus(10, ChronoUnit.HOURS));
+        }
+
+        @Test
+        @DisplayName("出现早于水位线起点的数据时全量扫描")
+        void earlierDataBackfilled_fullScan() {
+            stubKlineRange();
+            when(symbolService.findById(1L)).thenReturn(testSymbol);
+            when(syncStatusMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(
+                    watermark(baseTime.plus(1, ChronoUnit.HOURS), baseTime.plus(8, ChronoUnit.HOURS)));
+
+            dataGapService.detectGaps(1L, "1h");
+
+            verify(dataGapMapper).selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L);
+        }
+
+        @Test
+        @DisplayName("指定全量检测时忽略水位线")
+        void fullScanRequested_ignoresWatermark() {
+            stubKlineRange();
+            when(symbolService.findById(1L)).thenReturn(testSymbol);
+
+            dataGapService.detectGaps(1L, "1h", true);
+
+            verify(syncStatusMapper, never()).selectBySymbolIdAndInterval(anyLong(), anyString());
+            verify(dataGapMapper).selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L);
+        }
+
+        @Test
+        @DisplayName("无K线数据时不扫描也不记录水位线")
+        void noKlines_skipsScan() {
+            when(symbolService.findById(1L)).thenReturn(testSymbol);
+
+            dataGapService.detectGaps(1L, "1h");
+
+            verify(dataGapMapper, never()).selectNewGapBoundaries(anyLong(), anyString(), any(), anyLong(), anyLong());
+            verify(syncStatusMapper, never()).upsertGapWatermark(anyLong(), anyString(), any(), any());
+        }
     }
 
     @Nested
@@ -176,6 +254,36 @@ class DataGapServiceTest {
         }
     }
 
+    @Nested
+    @DisplayName("recordMissing tests - 登记未落库的 K 线")
+    class RecordMissingTest {
+        @Test
+        @SuppressWarnings("unchecked")
+        void contiguousRunsMerged_queuedRangesSkipped() {
+            Instant t0 = baseTime;
+            Instant t1 = baseTime.plus(1, ChronoUnit.HOURS);
+            Instant t5 = baseTime.plus(5, ChronoUnit.HOURS);
+            Instant t9 = baseTime.plus(9, ChronoUnit.HOURS);
+            when(dataGapMapper.selectOverlapping(1L, "1h", t0, t1))
+                    .thenReturn(List.of(createDataGap(1L, "1h", t0, t0, 1)));
+            DataGap filled = createDataGap(1L, "1h", t5, t5, 1);
+            filled.setStatus("FILLED");
+            when(dataGapMapper.selectOverlapping(1L, "1h", t5, t5)).thenReturn(List.of(filled));
+            when(dataGapMapper.selectOverlapping(1L, "1h", t9, t9)).thenReturn(List.of());
+            when(dataGapMapper.batchInsert(anyList())).thenAnswer(inv -> ((List<DataGap>) inv.getArgument(0)).size());
+
+            int saved = dataGapService.recordMissing(1L, "1h", List.of(t9, t1, t0, t5));
+
+            assertEquals(2, saved);
+            ArgumentCaptor<List<DataGap>> captor = ArgumentCaptor.forClass(List.class);
+            verify(dataGapMapper).batchInsert(captor.capture());
+            // 与待回补缺口重叠的 [t0, t1] 跳过，已回补过的 t5 再次丢失时重新登记
+            assertEquals(List.of(t5, t9), captor.getValue().stream().map(DataGap::getGapStart).toList());
+            assertEquals("PENDING", captor.getValue().get(0).getStatus());
+            assertEquals(1, captor.getValue().get(0).getMissingCount());
+        }
+    }
+
     @Nested
     @DisplayName("detectAllGaps tests - 批量缺口检测")
     class DetectAllGapsTest {
@@ -214,12 +322,10 @@ class DataGapServiceTest {
             when(syncFilterService.getGapDetectTargets()).thenReturn(List.of(symbolDTO));
             when(syncFilterService.getValidSyncIntervals(symbolDTO)).thenReturn(List.of("1h"));
 
-            // 模拟有缺口的 K 线数据
-            List<Kline> klines = List.of(
-                    createKline(1L, "1h", baseTime),
-                    createKline(1L, "1h", baseTime.plus(3, ChronoUnit.HOURS)));
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
-            when(dataGapMapper.selectOverlapping(anyLong(), anyString(), any(), any())).thenReturn(Collections.emptyList());
+            // 模拟数据库检测到一个缺口
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L)).thenReturn(List.of(
+                    createBoundary(baseTime.plus(1, ChronoUnit.HOURS), baseTime.plus(2, ChronoUnit.HOURS), 2)));
             when(dataGapMapper.batchInsert(anyList())).thenReturn(1);
             when(dataGapMapper.countByStatus("PENDING")).thenReturn(1L);
             when(dataGapMapper.countByStatus("FILLING")).thenReturn(0L);
@@ -243,11 +349,9 @@ class DataGapServiceTest {
             when(syncFilterService.getValidSyncIntervals(symbol2)).thenReturn(List.of("1h"));
 
             // 模拟连续的 K 线数据（无缺口）
-            List<Kline> continuousKlines = new ArrayList<>();
-            for (int i = 0; i < 5; i++) {
-                continuousKlines.add(createKline(1L, "1h", baseTime.plus(i, ChronoUnit.HOURS)));
-            }
-            when(klineMapper.selectBySymbolIdAndInterval(anyLong(), anyString())).thenReturn(continuousKlines);
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(anyLong(), anyString(), any(), anyLong(), anyLong()))
+                    .thenReturn(Collections.emptyList());
             when(dataGapMapper.countByStatus("PENDING")).thenReturn(0L);
             when(dataGapMapper.countByStatus("FILLING")).thenReturn(0L);
             when(dataGapMapper.countByStatus("FAILED")).thenReturn(0L);
@@ -270,14 +374,12 @@ class DataGapServiceTest {
             when(syncFilterService.getValidSyncIntervals(symbol2)).thenReturn(List.of("1h"));
 
             // symbol1 抛出异常
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h"))
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(eq(1L), eq("1h"), any(), anyLong(), anyLong()))
                     .thenThrow(new RuntimeException("Database error"));
             // symbol2 正常返回
-            List<Kline> klines = new ArrayList<>();
-            for (int i = 0; i < 3; i++) {
-                klines.add(createKline(2L, "1h", baseTime.plus(i, ChronoUnit.HOURS)));
-            }
-            when(klineMapper.selectBySymbolIdAndInterval(2L, "1h")).thenReturn(klines);
+            when(dataGapMapper.selectNewGapBoundaries(eq(2L), eq("1h"), any(), anyLong(), anyLong()))
+                    .thenReturn(Collections.emptyList());
             when(dataGapMapper.countByStatus("PENDING")).thenReturn(0L);
             when(dataGapMapper.countByStatus("FILLING")).thenReturn(0L);
             when(dataGapMapper.countByStatus("FAILED")).thenReturn(0L);
@@ -291,15 +393,16 @@ class DataGapServiceTest {
         }
 
         @Test
-        @DisplayName("K线数据不足时不检测缺口")
-        void insufficientKlines_noGapsDetected() {
+        @DisplayName("未检测到新缺口时不写入")
+        void noNewGaps_nothingInserted() {
             var symbolDTO = createSymbolDTO(1L, "BTCUSDT", List.of("1h"));
             when(syncFilterService.getGapDetectTargets()).thenReturn(List.of(symbolDTO));
             when(syncFilterService.getValidSyncIntervals(symbolDTO)).thenReturn(List.of("1h"));
 
-            // 只有一根 K 线，无法检测缺口
-            when(klineMapper.selectBySymbolIdAndInterval(1L, "1h"))
-                    .thenReturn(List.of(createKline(1L, "1h", baseTime)));
+            // K 线不足两根或缺口均已记录时，数据库不返回边界
+            stubKlineRange();
+            when(dataGapMapper.selectNewGapBoundaries(1L, "1h", Instant.EPOCH, 3_600_000L, 1000L))
+                    .thenReturn(Collections.emptyList());
             when(dataGapMapper.countByStatus("PENDING")).thenReturn(0L);
             when(dataGapMapper.countByStatus("FILLING")).thenReturn(0L);
             when(dataGapMapper.countByStatus("FAILED")).thenReturn(0L);
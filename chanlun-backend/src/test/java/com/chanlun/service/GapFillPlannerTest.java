@@ -0,0 +1,98 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.DataGap;
+import com.chanlun.service.GapFillPlanner.FillWindow;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * GapFillPlanner 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("GapFillPlanner 测试")
+class GapFillPlannerTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    private DataGap gap(long id, long startMinute, long endMinute) {
+        return DataGap.builder()
+                .id(id)
+                .symbolId(1L)
+                .interval("1m")
+                .gapStart(BASE.plusMillis(startMinute * MINUTE))
+                .gapEnd(BASE.plusMillis(endMinute * MINUTE))
+                .status("PENDING")
+                .build();
+    }
+
+    @Test
+    @DisplayName("重叠和相邻的缺口合并为一个窗口")
+    void plan_overlappingAndAdjacent_merged() {
+        List<FillWindow> windows = GapFillPlanner.plan(
+                List.of(gap(2, 5, 9), gap(1, 0, 5), gap(3, 10, 12)), MINUTE, 1000);
+
+        assertEquals(1, windows.size());
+        assertEquals(BASE, windows.get(0).start());
+        assertEquals(BASE.plusMillis(12 * MINUTE), windows.get(0).end());
+        assertEquals(List.of(1L, 2L, 3L), windows.get(0).gapIds());
+    }
+
+    @Test
+    @DisplayName("相隔不远的多个小缺口合并到同一页请求")
+    void plan_nearbySmallGaps_mergedIntoOnePage() {
+        // 10 个相隔 50 分钟的单根缺口，总跨度 < 1000 根
+        List<DataGap> gaps = new java.util.ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            gaps.add(gap(i + 1, i * 50L, i * 50L));
+        }
+
+        List<FillWindow> windows = GapFillPlanner.plan(gaps, MINUTE, 1000);
+
+        assertEquals(1, windows.size());
+        assertEquals(10, windows.get(0).gapIds().size());
+        assertEquals(1, windows.get(0).requests(MINUTE, 1000));
+    }
+
+    @Test
+    @DisplayName("合并会增加请求数时保持分开")
+    void plan_farGaps_keptSeparate() {
+        List<FillWindow> windows = GapFillPlanner.plan(
+                List.of(gap(1, 0, 10), gap(2, 5000, 5010)), MINUTE, 1000);
+
+        assertEquals(2, windows.size());
+        assertEquals(List.of(1L), windows.get(0).gapIds());
+        assertEquals(List.of(2L), windows.get(1).gapIds());
+    }
+
+    @Test
+    @DisplayName("合并不增加请求数时连同中间数据一起拉取")
+    void plan_mergeWithinPageBudget() {
+        // 单独拉取各 1 页，合并后 1500 根需要 2 页，不多于分开拉取
+        List<FillWindow> windows = GapFillPlanner.plan(
+                List.of(gap(1, 0, 499), gap(2, 1000, 1499)), MINUTE, 1000);
+
+        assertEquals(1, windows.size());
+        assertEquals(1500, windows.get(0).candles(MINUTE));
+        assertEquals(2, windows.get(0).requests(MINUTE, 1000));
+    }
+
+    @Test
+    @DisplayName("返回包含已领取缺口的窗口")
+    void windowFor_returnsWindowContainingPrimary() {
+        DataGap primary = gap(2, 5000, 5010);
+        List<DataGap> pending = List.of(gap(1, 0, 10), gap(3, 5020, 5030), primary);
+
+        FillWindow window = GapFillPlanner.windowFor(primary, pending, MINUTE, 1000);
+
+        assertEquals(List.of(2L, 3L), window.gapIds());
+        assertEquals(BASE.plusMillis(5000 * MINUTE), window.start());
+        assertEquals(BASE.plusMillis(5030 * MINUTE), window.end());
+    }
+}
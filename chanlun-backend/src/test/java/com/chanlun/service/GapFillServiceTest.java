@@ -5,7 +5,6 @@ import com.chanlun.exception.BusinessException;
 import com.chanlun.exchange.BinanceClient;
 import com.chanlun.exchange.BinanceClientFactory;
 import com.chanlun.exchange.model.BinanceApiResponse;
-import com.chanlun.exchange.model.BinanceKline;
 import com.chanlun.mapper.DataGapMapper;
 import com.chanlun.service.GapFillService.BatchGapFillResult;
 import com.chanlun.service.GapFillService.GapFillResult;
@@ -17,6 +16,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -110,15 +110,17 @@ class GapFillServiceTest {
                 .build();
     }
 
-    private BinanceKline createBinanceKline(long openTime) {
-        return BinanceKline.builder()
-                .openTime(openTime)
+    private Kline createKline(long openTime) {
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1h")
+                .openTime(Instant.ofEpochMilli(openTime))
                 .open(new BigDecimal("50000.00"))
                 .high(new BigDecimal("51000.00"))
                 .low(new BigDecimal("49000.00"))
                 .close(new BigDecimal("50500.00"))
                 .volume(new BigDecimal("1000.00"))
-                .closeTime(openTime + 3600000 - 1)
+                .closeTime(Instant.ofEpochMilli(openTime + 3600000 - 1))
                 .quoteVolume(new BigDecimal("50000000.00"))
                 .trades(100)
                 .build();
@@ -141,15 +143,17 @@ class GapFillServiceTest {
             when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
             
             // 模拟 API 返回 K 线数据
-            List<BinanceKline> klines = List.of(
-                    createBinanceKline(baseTime.toEpochMilli()),
-                    createBinanceKline(baseTime.plus(1, ChronoUnit.HOURS).toEpochMilli())
+            List<Kline> klines = List.of(
+                    createKline(baseTime.toEpochMilli()),
+                    createKline(baseTime.plus(1, ChronoUnit.HOURS).toEpochMilli())
             );
-            when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                     .thenReturn(BinanceApiResponse.success(klines));
             when(klineService.batchUpsert(anyList())).thenReturn(2);
             when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(baseTime.plus(1, ChronoUnit.HOURS));
             
+            when(dataGapMapper.claimById(1L)).thenReturn(1);
+            
             // 执行
             GapFillResult result = gapFillService.fillGap(1L);
             
@@ -158,13 +162,49 @@ class GapFillServiceTest {
             assertEquals(1L, result.getGapId());
             assertEquals(2, result.getSyncedCount());
             
-            // 验证状态更新
-            verify(dataGapService).updateStatus(1L, "FILLING");
-            verify(dataGapService).updateStatus(1L, "FILLED");
+            // 验证状态更新（领取即 FILLING，每页刷新心跳）
+            verify(dataGapMapper).claimById(1L);
+            verify(dataGapMapper).touchFilling(1L);
+            verify(dataGapMapper).markFilled(List.of(1L));
             verify(syncService).completeTask(1L, 2);
             verify(syncService).updateSyncStatus(eq(1L), eq("1h"), any(), eq(2L));
         }
 
+        @Test
+        @DisplayName("相邻的待回补缺口合并为一个窗口拉取，并一次性标记为已回补")
+        void fillGap_mergesNearbyPendingGaps() {
+            // 缺口1: 00:00-02:00，缺口2: 05:00-06:00，缺口3: 相隔 2000 小时，单独回补
+            DataGap near = DataGap.builder().id(2L).symbolId(1L).interval("1h")
+                    .gapStart(baseTime.plus(5, ChronoUnit.HOURS)).gapEnd(baseTime.plus(6, ChronoUnit.HOURS))
+                    .missingCount(2).status("PENDING").retryCount(0).build();
+            DataGap far = DataGap.builder().id(3L).symbolId(1L).interval("1h")
+                    .gapStart(baseTime.plus(2000, ChronoUnit.HOURS)).gapEnd(baseTime.plus(2001, ChronoUnit.HOURS))
+                    .missingCount(2).status("PENDING").retryCount(0).build();
+            when(dataGapService.findById(1L)).thenReturn(testGap);
+            when(symbolService.findById(1L)).thenReturn(testSymbol);
+            when(marketService.findById(1L)).thenReturn(testMarket);
+            when(dataSourceService.findById(1L)).thenReturn(testDataSource);
+            when(dataGapMapper.claimById(1L)).thenReturn(1);
+            when(dataGapMapper.selectBySymbolIdAndIntervalAndStatus(1L, "1h", "PENDING"))
+                    .thenReturn(List.of(near, far));
+            when(syncService.createGapFillTask(anyLong(), anyString(), any(), any())).thenReturn(testTask);
+            when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+                    .thenReturn(BinanceApiResponse.success(List.of(createKline(baseTime.toEpochMilli()))));
+            when(klineService.batchUpsert(anyList())).thenReturn(7);
+            when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(baseTime);
+            
+            GapFillResult result = gapFillService.fillGap(1L);
+            
+            assertTrue(result.isSuccess());
+            assertEquals(List.of(1L, 2L), result.getCoveredGapIds());
+            // 一次请求覆盖两个缺口
+            verify(binanceClient, times(1)).getKlineEntities(1L, "BTCUSDT", "1h",
+                    baseTime, baseTime.plus(6, ChronoUnit.HOURS), 1000);
+            verify(syncService).createGapFillTask(1L, "1h", baseTime, baseTime.plus(6, ChronoUnit.HOURS));
+            verify(dataGapMapper).markFilled(List.of(1L, 2L));
+        }
+
         @Test
         @DisplayName("缺口已回补时抛出异常")
         void fillGap_alreadyFilled_throws() {
@@ -195,6 +235,20 @@ class GapFillServiceTest {
             assertThrows(BusinessException.class, () -> gapFillService.fillGap(1L));
         }
 
+        @Test
+        @DisplayName("同一交易对周期已有缺口在回补时抛出异常")
+        void fillGap_pairBusy_throws() {
+            when(dataGapService.findById(1L)).thenReturn(testGap);
+            when(symbolService.findById(1L)).thenReturn(testSymbol);
+            when(marketService.findById(1L)).thenReturn(testMarket);
+            when(dataSourceService.findById(1L)).thenReturn(testDataSource);
+            when(dataGapMapper.claimById(1L)).thenThrow(new DuplicateKeyException("uk_data_gap_filling_pair"));
+            
+            BusinessException ex = assertThrows(BusinessException.class, () -> gapFillService.fillGap(1L));
+            assertTrue(ex.getMessage().contains("正在回补"));
+            verify(syncService, never()).createGapFillTask(anyLong(), anyString(), any(), any());
+        }
+
         @Test
         @DisplayName("市场未启用时抛出异常")
         void fillGap_marketDisabled_throws() {
@@ -228,6 +282,25 @@ class GapFillServiceTest {
             
             assertEquals(0, result.getTotalCount());
         }
+
+        @Test
+        @DisplayName("非待回补缺口直接失败，其余按ID领取，未领取到的记为失败")
+        void batchFillGaps_invalidAndUnclaimed_reportedAsFailure() {
+            DataGap filled = DataGap.builder().id(2L).symbolId(1L).interval("1h").status("FILLED").build();
+            DataGap other = DataGap.builder().id(3L).symbolId(1L).interval("4h").status("PENDING").build();
+            when(dataGapService.findById(1L)).thenReturn(testGap);
+            when(dataGapService.findById(2L)).thenReturn(filled);
+            when(dataGapService.findById(3L)).thenReturn(other);
+            // 两个缺口都未领取到（被其他实例领取）
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(false), eq(List.of(1L, 3L)), any()))
+                    .thenReturn(Collections.emptyList());
+            
+            BatchGapFillResult result = gapFillService.batchFillGaps(List.of(1L, 2L, 3L));
+            
+            assertEquals(3, result.getTotalCount());
+            assertEquals(3, result.getFailureCount());
+            verify(syncService, never()).createGapFillTask(anyLong(), anyString(), any(), any());
+        }
     }
 
     @Nested
@@ -250,35 +323,88 @@ class GapFillServiceTest {
         void autoFillGaps_noPendingGaps_returnsEmpty() {
             when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
             when(systemConfigService.getGapFillBatchSize()).thenReturn(10);
-            when(dataGapMapper.selectPendingWithLimit(10)).thenReturn(Collections.emptyList());
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any())).thenReturn(Collections.emptyList());
             
             BatchGapFillResult result = gapFillService.autoFillGaps();
             
             assertEquals(0, result.getTotalCount());
             assertEquals("没有待回补的缺口", result.getMessage());
+            verify(dataGapMapper).releaseStaleFilling(any(Instant.class), anyString());
         }
 
         @Test
-        @DisplayName("周期级开关关闭时跳过缺口")
+        @DisplayName("只领取周期级开关开启的缺口")
         void autoFillGaps_intervalDisabled_skipsGap() {
             when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
             when(systemConfigService.getGapFillBatchSize()).thenReturn(10);
-            when(systemConfigService.getGapFillIntervalMs()).thenReturn(100L);
-            when(dataGapMapper.selectPendingWithLimit(10)).thenReturn(List.of(testGap));
-            
-            // 周期级开关关闭
-            SyncStatus syncStatus = SyncStatus.builder()
-                    .symbolId(1L)
-                    .interval("1h")
-                    .autoGapFillEnabled(false)
-                    .build();
-            when(syncService.getSyncStatus(1L, "1h")).thenReturn(syncStatus);
+            // 周期级开关关闭的缺口不会被领取
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any())).thenReturn(Collections.emptyList());
             
             BatchGapFillResult result = gapFillService.autoFillGaps();
             
-            assertEquals(1, result.getTotalCount());
             assertEquals(0, result.getSuccessCount());
-            assertEquals(1, result.getSkippedCount());
+            verify(dataGapMapper).claimPending(anyInt(), anyInt(), eq(true), isNull(), any());
+            verify(dataGapService, never()).updateStatus(anyLong(), anyString());
+        }
+
+        @Test
+        @DisplayName("领取到的缺口并发回补，每次领取数量不超过工作线程空位和批量大小")
+        void autoFillGaps_claimedGaps_filledByWorkers() {
+            DataGap gap2 = DataGap.builder().id(2L).symbolId(1L).interval("1d")
+                    .gapStart(baseTime).gapEnd(baseTime.plus(2, ChronoUnit.DAYS))
+                    .missingCount(1).status("FILLING").retryCount(0).build();
+            when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
+            when(systemConfigService.getGapFillBatchSize()).thenReturn(2);
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any()))
+                    .thenReturn(List.of(testGap, gap2));
+            when(symbolService.findById(1L)).thenReturn(testSymbol);
+            when(marketService.findById(1L)).thenReturn(testMarket);
+            when(dataSourceService.findById(1L)).thenReturn(testDataSource);
+            when(syncService.createGapFillTask(anyLong(), anyString(), any(), any())).thenReturn(testTask);
+            when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
+            when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+                    .thenReturn(BinanceApiResponse.success(List.of(createKline(baseTime.toEpochMilli()))));
+            when(klineService.batchUpsert(anyList())).thenReturn(1);
+            when(klineService.getMaxOpenTime(eq(1L), anyString())).thenReturn(baseTime);
+            
+            BatchGapFillResult result = gapFillService.autoFillGaps();
+            
+            assertEquals(2, result.getSuccessCount());
+            assertEquals(2, result.getTotalSyncedKlines());
+            // 批量大小为 2，一次领取后不再领取
+            verify(dataGapMapper, times(1)).claimPending(eq(2), anyInt(), eq(true), isNull(), any());
+            verify(dataGapMapper).markFilled(List.of(1L));
+            verify(dataGapMapper).markFilled(List.of(2L));
+        }
+
+        @Test
+        @DisplayName("交易对不可用退回 PENDING 后本轮不再领取该交易对的缺口")
+        void autoFillGaps_unavailableSymbol_excludedForRun() {
+            when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
+            when(systemConfigService.getGapFillBatchSize()).thenReturn(10);
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any()))
+                    .thenReturn(List.of(testGap), Collections.emptyList());
+            when(symbolService.findById(1L)).thenThrow(new BusinessException("交易对不存在"));
+            
+            BatchGapFillResult result = gapFillService.autoFillGaps();
+            
+            assertEquals(1, result.getFailureCount());
+            verify(dataGapService).updateStatusAndError(1L, "PENDING", "交易对不存在");
+            // 缺口完成后的下一次领取排除该交易对
+            verify(dataGapMapper, atLeastOnce()).claimPending(anyInt(), anyInt(), eq(true), isNull(), eq(List.of(1L)));
+        }
+
+        @Test
+        @DisplayName("与其他实例领取冲突时本轮视为无缺口")
+        void autoFillGaps_claimConflict_returnsEmpty() {
+            when(systemConfigService.isAutoGapFillEnabled()).thenReturn(true);
+            when(systemConfigService.getGapFillBatchSize()).thenReturn(10);
+            when(dataGapMapper.claimPending(anyInt(), anyInt(), eq(true), isNull(), any()))
+                    .thenThrow(new DuplicateKeyException("uk_data_gap_filling_pair"));
+            
+            BatchGapFillResult result = gapFillService.autoFillGaps();
+            
+            assertEquals(0, result.getTotalCount());
         }
     }
 
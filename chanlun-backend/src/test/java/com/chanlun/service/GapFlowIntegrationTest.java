@@ -5,6 +5,7 @@ import com.chanlun.entity.*;
 import com.chanlun.exception.BusinessException;
 import com.chanlun.mapper.DataGapMapper;
 import com.chanlun.mapper.KlineMapper;
+import com.chanlun.mapper.SyncStatusMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,7 +14,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -37,6 +37,9 @@ class GapFlowIntegrationTest {
     @Mock
     private KlineMapper klineMapper;
 
+    @Mock
+    private SyncStatusMapper syncStatusMapper;
+
     @Mock
     private SymbolService symbolService;
 
@@ -71,41 +74,39 @@ class GapFlowIntegrationTest {
     @Test
     @DisplayName("缺口检测 - 发现时间缺口")
     void detectGaps_withTimeGap_shouldFindGap() {
-        List<Kline> klines = List.of(
-                createKline(1L, baseTime),
-                createKline(2L, baseTime.plus(1, ChronoUnit.HOURS)),
-                createKline(3L, baseTime.plus(3, ChronoUnit.HOURS))
-        );
+        // 01:00 与 03:00 之间缺少 02:00 一根
+        DataGap boundary = DataGap.builder()
+                .gapStart(baseTime.plus(2, ChronoUnit.HOURS))
+                .gapEnd(baseTime.plus(2, ChronoUnit.HOURS))
+                .missingCount(1)
+                .build();
         
         when(symbolService.findById(1L)).thenReturn(testSymbol);
-        when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
-        when(dataGapMapper.selectOverlapping(anyLong(), anyString(), any(), any()))
-                .thenReturn(List.of());
+        stubKlineRange();
+        when(dataGapMapper.selectNewGapBoundaries(eq(1L), eq("1h"), any(), eq(3_600_000L), anyLong()))
+                .thenReturn(List.of(boundary));
+        when(dataGapMapper.batchInsert(anyList())).thenReturn(1);
         
         GapDetectResult result = dataGapService.detectGaps(1L, "1h");
         
         assertTrue(result.isSuccess());
         assertEquals(1, result.getNewGapCount());
-        verify(dataGapMapper, times(1)).insert(any(DataGap.class));
+        verify(dataGapMapper, times(1)).batchInsert(anyList());
     }
 
     @Test
     @DisplayName("缺口检测 - 无缺口")
     void detectGaps_noGap_shouldReturnZero() {
-        List<Kline> klines = List.of(
-                createKline(1L, baseTime),
-                createKline(2L, baseTime.plus(1, ChronoUnit.HOURS)),
-                createKline(3L, baseTime.plus(2, ChronoUnit.HOURS))
-        );
-        
         when(symbolService.findById(1L)).thenReturn(testSymbol);
-        when(klineMapper.selectBySymbolIdAndInterval(1L, "1h")).thenReturn(klines);
+        stubKlineRange();
+        when(dataGapMapper.selectNewGapBoundaries(eq(1L), eq("1h"), any(), eq(3_600_000L), anyLong()))
+                .thenReturn(List.of());
         
         GapDetectResult result = dataGapService.detectGaps(1L, "1h");
         
         assertTrue(result.isSuccess());
         assertEquals(0, result.getNewGapCount());
-        verify(dataGapMapper, never()).insert(any(DataGap.class));
+        verify(dataGapMapper, never()).batchInsert(anyList());
     }
 
     @Test
@@ -131,19 +132,10 @@ class GapFlowIntegrationTest {
                 () -> dataGapService.updateStatus(1L, DataGapService.STATUS_PENDING));
     }
 
-    private Kline createKline(Long id, Instant openTime) {
-        return Kline.builder()
-                .id(id)
-                .symbolId(1L)
-                .interval("1h")
-                .openTime(openTime)
-                .open(BigDecimal.valueOf(50000))
-                .high(BigDecimal.valueOf(50100))
-                .low(BigDecimal.valueOf(49900))
-                .close(BigDecimal.valueOf(50050))
-                .volume(BigDecimal.valueOf(1000))
-                .closeTime(openTime.plus(1, ChronoUnit.HOURS).minusMillis(1))
-                .build();
+    private void stubKlineRange() {
+        lenient().when(klineMapper.selectMinOpenTimeBySymbolIdAndInterval(anyLong(), anyString())).thenReturn(baseTime);
+        lenient().when(klineMapper.selectMaxOpenTimeBySymbolIdAndInterval(anyLong(), anyString()))
+                .thenReturn(baseTime.plus(10, ChronoUnit.HOURS));
     }
 
     private DataGap createDataGap(Long id, String status) {
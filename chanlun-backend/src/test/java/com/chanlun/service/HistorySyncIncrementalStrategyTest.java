@@ -6,7 +6,6 @@ import com.chanlun.exception.BusinessException;
 import com.chanlun.exchange.BinanceClient;
 import com.chanlun.exchange.BinanceClientFactory;
 import com.chanlun.exchange.model.BinanceApiResponse;
-import com.chanlun.exchange.model.BinanceKline;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -236,8 +235,8 @@ class HistorySyncIncrementalStrategyTest {
             
             historySyncService.syncIncremental(1L, "1h");
             
-            // 验证调用了多次 getKlines（分段拉取）
-            verify(binanceClient, atLeast(2)).getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
+            // 验证调用了多次 getKlineEntities（分段拉取）
+            verify(binanceClient, atLeast(2)).getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
         }
     }
 
@@ -330,8 +329,8 @@ class HistorySyncIncrementalStrategyTest {
             
             historySyncService.syncHistory(1L, "1h", startTime, endTime);
             
-            // 验证只调用了一次 getKlines
-            verify(binanceClient, times(1)).getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
+            // 验证只调用了一次 getKlineEntities
+            verify(binanceClient, times(1)).getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
         }
 
         @Test
@@ -344,8 +343,8 @@ class HistorySyncIncrementalStrategyTest {
             
             historySyncService.syncHistory(1L, "1h", startTime, endTime);
             
-            // 验证只调用了一次 getKlines
-            verify(binanceClient, times(1)).getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
+            // 验证只调用了一次 getKlineEntities
+            verify(binanceClient, times(1)).getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
         }
 
         @Test
@@ -358,8 +357,8 @@ class HistorySyncIncrementalStrategyTest {
             
             historySyncService.syncHistory(1L, "1h", startTime, endTime);
             
-            // 验证调用了多次 getKlines（至少2次）
-            verify(binanceClient, atLeast(2)).getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
+            // 验证调用了多次 getKlineEntities（至少2次）
+            verify(binanceClient, atLeast(2)).getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
         }
 
         @Test
@@ -372,8 +371,8 @@ class HistorySyncIncrementalStrategyTest {
             
             historySyncService.syncHistory(1L, "1h", startTime, endTime);
             
-            // 验证调用了至少3次 getKlines
-            verify(binanceClient, atLeast(3)).getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
+            // 验证调用了至少3次 getKlineEntities
+            verify(binanceClient, atLeast(3)).getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt());
         }
     }
 
@@ -453,8 +452,8 @@ class HistorySyncIncrementalStrategyTest {
         when(syncService.startTask(anyLong())).thenReturn(true);
         when(binanceClientFactory.createClient(any())).thenReturn(binanceClient);
         
-        List<BinanceKline> mockKlines = createMockKlines(10);
-        when(binanceClient.getKlines(anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
+        List<Kline> mockKlines = createMockKlines(10);
+        when(binanceClient.getKlineEntities(any(), anyString(), anyString(), any(Instant.class), any(Instant.class), anyInt()))
                 .thenReturn(BinanceApiResponse.success(mockKlines));
         
         when(klineService.batchUpsert(anyList())).thenReturn(10);
@@ -465,23 +464,23 @@ class HistorySyncIncrementalStrategyTest {
     /**
      * 创建 Mock K线数据
      */
-    private List<BinanceKline> createMockKlines(int count) {
-        List<BinanceKline> klines = new ArrayList<>();
+    private List<Kline> createMockKlines(int count) {
+        List<Kline> klines = new ArrayList<>();
         long startTime = Instant.now().minus(1, ChronoUnit.DAYS).toEpochMilli();
         
         for (int i = 0; i < count; i++) {
-            klines.add(BinanceKline.builder()
-                    .openTime(startTime + i * 3600_000L)
+            klines.add(Kline.builder()
+                    .symbolId(1L)
+                    .interval("1h")
+                    .openTime(Instant.ofEpochMilli(startTime + i * 3600_000L))
                     .open(BigDecimal.valueOf(50000))
                     .high(BigDecimal.valueOf(50100))
                     .low(BigDecimal.valueOf(49900))
                     .close(BigDecimal.valueOf(50050))
                     .volume(BigDecimal.valueOf(1000))
-                    .closeTime(startTime + (i + 1) * 3600_000L - 1)
+                    .closeTime(Instant.ofEpochMilli(startTime + (i + 1) * 3600_000L - 1))
                     .quoteVolume(BigDecimal.valueOf(50000000))
                     .trades(500)
-                    .takerBuyBaseVolume(BigDecimal.valueOf(500))
-                    .takerBuyQuoteVolume(BigDecimal.valueOf(25000000))
                     .build());
         }
         
@@ -3,10 +3,10 @@ package com.chanlun.service;
 import com.chanlun.dto.SymbolDTO;
 import com.chanlun.entity.*;
 import com.chanlun.exception.BusinessException;
+import com.chanlun.exception.ResourceNotFoundException;
 import com.chanlun.exchange.BinanceClient;
 import com.chanlun.exchange.BinanceClientFactory;
 import com.chanlun.exchange.model.BinanceApiResponse;
-import com.chanlun.exchange.model.BinanceKline;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -119,8 +119,8 @@ class HistorySyncServiceTest {
         when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
         
         // Mock K线数据返回
-        List<BinanceKline> mockKlines = createMockKlines(10);
-        when(binanceClient.getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+        List<Kline> mockKlines = createMockKlines(10);
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
                 .thenReturn(BinanceApiResponse.success(mockKlines));
         
         when(klineService.batchUpsert(anyList())).thenReturn(10);
@@ -218,8 +218,8 @@ class HistorySyncServiceTest {
         when(syncService.startTask(1L)).thenReturn(true);
         when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
         
-        List<BinanceKline> mockKlines = createMockKlines(5);
-        when(binanceClient.getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+        List<Kline> mockKlines = createMockKlines(5);
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
                 .thenReturn(BinanceApiResponse.success(mockKlines));
         
         when(klineService.batchUpsert(anyList())).thenReturn(5);
@@ -257,8 +257,8 @@ class HistorySyncServiceTest {
         when(syncService.startTask(1L)).thenReturn(true);
         when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
         
-        List<BinanceKline> mockKlines = createMockKlines(2);
-        when(binanceClient.getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+        List<Kline> mockKlines = createMockKlines(2);
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
                 .thenReturn(BinanceApiResponse.success(mockKlines));
         
         when(klineService.batchUpsert(anyList())).thenReturn(2);
@@ -329,8 +329,8 @@ class HistorySyncServiceTest {
         when(syncService.startTask(1L)).thenReturn(true);
         when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
         
-        List<BinanceKline> mockKlines = createMockKlines(5);
-        when(binanceClient.getKlines(eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+        List<Kline> mockKlines = createMockKlines(5);
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
                 .thenReturn(BinanceApiResponse.success(mockKlines));
         
         when(klineService.batchUpsert(anyList())).thenReturn(5);
@@ -364,26 +364,257 @@ class HistorySyncServiceTest {
         verify(syncService, never()).createHistoryTask(anyLong(), anyString(), any(), any());
     }
 
+    @Test
+    @DisplayName("批量增量同步 - 长跨度按时间片并发执行并汇总")
+    void syncAllIncremental_longRange_shouldFanOutSlices() {
+        List<SymbolDTO> symbols = List.of(
+                SymbolDTO.builder()
+                        .id(1L)
+                        .symbol("BTCUSDT")
+                        .syncIntervals(List.of("1h"))
+                        .build()
+        );
+        SyncStatus status = SyncStatus.builder()
+                .symbolId(1L)
+                .interval("1h")
+                .lastKlineTime(Instant.now().minus(Duration.ofDays(45)))
+                .build();
+        
+        when(symbolService.getHistorySyncEnabled()).thenReturn(symbols);
+        when(syncService.getSyncStatus(1L, "1h")).thenReturn(status);
+        when(symbolService.findById(1L)).thenReturn(testSymbol);
+        when(marketService.findById(1L)).thenReturn(testMarket);
+        when(dataSourceService.findById(1L)).thenReturn(testDataSource);
+        when(syncService.createHistoryTask(eq(1L), eq("1h"), any(), any())).thenReturn(testTask);
+        when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+                .thenReturn(BinanceApiResponse.success(createMockKlines(3)));
+        when(klineService.batchUpsert(anyList())).thenReturn(3);
+        when(klineService.getMaxOpenTime(1L, "1h")).thenReturn(Instant.now());
+        
+        HistorySyncService.IncrementalSyncSummary summary = historySyncService.syncAllIncremental();
+        
+        // 45 天切成 2 个时间片
+        assertEquals(2, summary.getUnitResults().size());
+        assertTrue(summary.getUnitResults().stream().allMatch(HistorySyncService.IncrementalSyncSummary.UnitResult::success));
+        assertEquals(1, summary.getSuccessCount());
+        assertEquals(6, summary.getTotalKlines());
+        verify(syncService, times(2)).completeTask(eq(1L), eq(3));
+        // sync_status 只汇总更新一次
+        verify(syncService, times(1)).updateSyncStatus(eq(1L), eq("1h"), any(), eq(6L));
+    }
+
+    @Test
+    @DisplayName("批量增量同步 - 中间时间片失败时 sync_status 只推进到失败时间片之前")
+    void syncAllIncremental_sliceFailure_shouldNotAdvancePastHole() {
+        List<SymbolDTO> symbols = List.of(
+                SymbolDTO.builder()
+                        .id(1L)
+                        .symbol("BTCUSDT")
+                        .syncIntervals(List.of("1h"))
+                        .build()
+        );
+        Instant lastKlineTime = Instant.now().minus(Duration.ofDays(75));
+        SyncStatus status = SyncStatus.builder()
+                .symbolId(1L)
+                .interval("1h")
+                .lastKlineTime(lastKlineTime)
+                .build();
+        Instant firstSliceEnd = lastKlineTime.plus(1, ChronoUnit.HOURS).plus(Duration.ofDays(30));
+        Kline prefixLast = createMockKlines(1).get(0);
+        
+        when(symbolService.getHistorySyncEnabled()).thenReturn(symbols);
+        when(syncService.getSyncStatus(1L, "1h")).thenReturn(status);
+        when(symbolService.findById(1L)).thenReturn(testSymbol);
+        when(marketService.findById(1L)).thenReturn(testMarket);
+        when(dataSourceService.findById(1L)).thenReturn(testDataSource);
+        when(syncService.createHistoryTask(eq(1L), eq("1h"), any(), any())).thenReturn(testTask);
+        when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
+        // 第二个时间片失败
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+                .thenAnswer(invocation -> {
+                    Instant start = invocation.getArgument(3);
+                    return !start.isBefore(firstSliceEnd) && start.isBefore(firstSliceEnd.plus(Duration.ofDays(30)))
+                            ? BinanceApiResponse.error(500, "server error")
+                            : BinanceApiResponse.success(createMockKlines(3));
+                });
+        when(klineService.batchUpsert(anyList())).thenReturn(3);
+        when(klineService.getLatestBefore(1L, "1h", firstSliceEnd.plusMillis(1), 1)).thenReturn(List.of(prefixLast));
+        
+        HistorySyncService.IncrementalSyncSummary summary = historySyncService.syncAllIncremental();
+        
+        assertEquals(3, summary.getUnitResults().size());
+        assertEquals(1, summary.getFailureCount());
+        // 只计入第一个时间片，第三个时间片的 K 线由下次增量同步重新覆盖
+        verify(syncService).updateSyncStatus(1L, "1h", prefixLast.getOpenTime(), 3L);
+        verify(klineService, never()).getMaxOpenTime(anyLong(), anyString());
+    }
+
+    @Test
+    @DisplayName("历史同步 - 每页提交后记录断点")
+    void syncHistory_shouldCheckpointAfterEachPage() {
+        Instant startTime = baseTime;
+        Instant endTime = baseTime.plus(1, ChronoUnit.DAYS);
+        
+        when(symbolService.findById(1L)).thenReturn(testSymbol);
+        when(marketService.findById(1L)).thenReturn(testMarket);
+        when(dataSourceService.findById(1L)).thenReturn(testDataSource);
+        when(syncService.createHistoryTask(eq(1L), eq("1h"), any(), any())).thenReturn(testTask);
+        when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+                .thenReturn(BinanceApiResponse.success(createMockKlines(5)));
+        when(klineService.batchUpsert(anyList())).thenReturn(5);
+        
+        historySyncService.syncHistory(1L, "1h", startTime, endTime);
+        
+        // 断点为最后一根 K 线的开盘时间
+        verify(syncService).updateSyncedCount(1L, 5, baseTime.plus(4, ChronoUnit.HOURS));
+    }
+
+    @Test
+    @DisplayName("恢复任务 - 从断点的下一根 K 线继续")
+    void resumeTask_shouldContinueFromCheckpoint() {
+        Instant checkpoint = baseTime.plus(10, ChronoUnit.HOURS);
+        SyncTask interrupted = SyncTask.builder()
+                .id(2L)
+                .symbolId(1L)
+                .interval("1h")
+                .taskType(SyncTask.TaskType.HISTORY)
+                .status(SyncTask.Status.FAILED)
+                .startTime(baseTime)
+                .endTime(baseTime.plus(1, ChronoUnit.DAYS))
+                .syncedCount(11)
+                .checkpointTime(checkpoint)
+                .build();
+        
+        when(syncService.getTaskById(2L)).thenReturn(interrupted);
+        when(syncService.retryTask(2L)).thenReturn(true);
+        when(symbolService.findById(1L)).thenReturn(testSymbol);
+        when(marketService.findById(1L)).thenReturn(testMarket);
+        when(dataSourceService.findById(1L)).thenReturn(testDataSource);
+        when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+                .thenReturn(BinanceApiResponse.success(createMockKlines(3)));
+        when(klineService.batchUpsert(anyList())).thenReturn(3);
+        
+        int result = historySyncService.resumeTask(2L);
+        
+        assertEquals(3, result);
+        verify(binanceClient).getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), eq(checkpoint.plusMillis(1)), 
+                eq(interrupted.getEndTime()), anyInt());
+        verify(syncService, never()).createHistoryTask(any(), any(), any(), any());
+        verify(syncService).completeTask(2L, 14);
+        verify(syncService).updateSyncStatus(eq(1L), eq("1h"), any(), eq(3L));
+    }
+
+    @Test
+    @DisplayName("恢复任务 - 已完成任务不重复执行")
+    void resumeTask_completedTask_shouldSkip() {
+        SyncTask completed = SyncTask.builder()
+                .id(3L)
+                .taskType(SyncTask.TaskType.HISTORY)
+                .status(SyncTask.Status.SUCCESS)
+                .build();
+        when(syncService.getTaskById(3L)).thenReturn(completed);
+        
+        assertEquals(0, historySyncService.resumeTask(3L));
+        verifyNoInteractions(binanceClientFactory);
+    }
+
+    @Test
+    @DisplayName("恢复中断任务 - 仅执行原子领取成功的任务")
+    void resumeInterruptedTasks_shouldResumeOnlyClaimedTasks() {
+        SyncTask failed = SyncTask.builder()
+                .id(2L)
+                .symbolId(1L)
+                .interval("1h")
+                .taskType(SyncTask.TaskType.HISTORY)
+                .status(SyncTask.Status.FAILED)
+                .startTime(baseTime)
+                .endTime(baseTime.plus(1, ChronoUnit.DAYS))
+                .syncedCount(0)
+                .build();
+        SyncTask stale = SyncTask.builder()
+                .id(3L)
+                .taskType(SyncTask.TaskType.HISTORY)
+                .status(SyncTask.Status.RUNNING)
+                .build();
+        SyncTask claimed = SyncTask.builder()
+                .id(2L)
+                .symbolId(1L)
+                .interval("1h")
+                .taskType(SyncTask.TaskType.HISTORY)
+                .status(SyncTask.Status.RUNNING)
+                .startTime(failed.getStartTime())
+                .endTime(failed.getEndTime())
+                .syncedCount(0)
+                .retryCount(1)
+                .build();
+        
+        when(syncService.getResumableHistoryTasks(any(), anyInt())).thenReturn(List.of(failed, stale));
+        when(syncService.claimResumableHistoryTask(eq(failed), any())).thenReturn(claimed);
+        // 另一实例已领取
+        when(syncService.claimResumableHistoryTask(eq(stale), any())).thenReturn(null);
+        when(symbolService.findById(1L)).thenReturn(testSymbol);
+        when(marketService.findById(1L)).thenReturn(testMarket);
+        when(dataSourceService.findById(1L)).thenReturn(testDataSource);
+        when(binanceClientFactory.createClient(testDataSource)).thenReturn(binanceClient);
+        when(binanceClient.getKlineEntities(any(), eq("BTCUSDT"), eq("1h"), any(Instant.class), any(Instant.class), anyInt()))
+                .thenReturn(BinanceApiResponse.success(createMockKlines(3)));
+        when(klineService.batchUpsert(anyList())).thenReturn(3);
+        
+        assertEquals(1, historySyncService.resumeInterruptedTasks());
+        
+        // 领取时已计入重试次数，不再单独重试
+        verify(syncService, never()).retryTask(any());
+        verify(syncService).completeTask(2L, 3);
+        verify(syncService, never()).startTask(3L);
+        verify(syncService, never()).getTaskById(any());
+    }
+
+    @Test
+    @DisplayName("恢复中断任务 - 领取后校验失败时标记任务失败")
+    void resumeInterruptedTasks_validationFailure_shouldFailClaimedTask() {
+        SyncTask stale = SyncTask.builder()
+                .id(3L)
+                .symbolId(9L)
+                .interval("1h")
+                .taskType(SyncTask.TaskType.HISTORY)
+                .status(SyncTask.Status.RUNNING)
+                .startTime(baseTime)
+                .endTime(baseTime.plus(1, ChronoUnit.DAYS))
+                .build();
+        
+        when(syncService.getResumableHistoryTasks(any(), anyInt())).thenReturn(List.of(stale));
+        when(syncService.claimResumableHistoryTask(eq(stale), any())).thenReturn(stale);
+        when(symbolService.findById(9L)).thenThrow(new ResourceNotFoundException("交易对不存在: 9"));
+        
+        assertEquals(0, historySyncService.resumeInterruptedTasks());
+        
+        verify(syncService).failTask(3L, "交易对不存在: 9");
+        verifyNoInteractions(binanceClientFactory);
+    }
+
     /**
      * 创建 Mock K线数据
      */
-    private List<BinanceKline> createMockKlines(int count) {
-        List<BinanceKline> klines = new ArrayList<>();
+    private List<Kline> createMockKlines(int count) {
+        List<Kline> klines = new ArrayList<>();
         long startTime = baseTime.toEpochMilli();
         
         for (int i = 0; i < count; i++) {
-            klines.add(BinanceKline.builder()
-                    .openTime(startTime + i * 3600_000L)
+            klines.add(Kline.builder()
+                    .symbolId(1L)
+                    .interval("1h")
+                    .openTime(Instant.ofEpochMilli(startTime + i * 3600_000L))
                     .open(BigDecimal.valueOf(50000 + i * 100))
                     .high(BigDecimal.valueOf(50100 + i * 100))
                     .low(BigDecimal.valueOf(49900 + i * 100))
                     .close(BigDecimal.valueOf(50050 + i * 100))
                     .volume(BigDecimal.valueOf(1000))
-                    .closeTime(startTime + (i + 1) * 3600_000L - 1)
+                    .closeTime(Instant.ofEpochMilli(startTime + (i + 1) * 3600_000L - 1))
                     .quoteVolume(BigDecimal.valueOf(50000000))
                     .trades(500)
-                    .takerBuyBaseVolume(BigDecimal.valueOf(500))
-                    .takerBuyQuoteVolume(BigDecimal.valueOf(25000000))
                     .build());
         }
         
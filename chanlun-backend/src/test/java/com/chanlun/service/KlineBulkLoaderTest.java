@@ -0,0 +1,137 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KlineBulkLoader 二进制 COPY 编码测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("KlineBulkLoader 测试")
+class KlineBulkLoaderTest {
+
+    private DataInputStream encodeNumeric(String value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        KlineBulkLoader.writeNumeric(new DataOutputStream(bytes), new BigDecimal(value));
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    @Test
+    @DisplayName("NUMERIC 编码 - 整数与小数按 10000 进制分组")
+    void writeNumeric_shouldEncodeBase10000Digits() throws IOException {
+        DataInputStream in = encodeNumeric("12345.678");
+
+        assertEquals(8 + 2 * 3, in.readInt());
+        assertEquals(3, in.readShort());      // ndigits
+        assertEquals(1, in.readShort());      // weight
+        assertEquals(0x0000, in.readShort()); // sign
+        assertEquals(3, in.readShort());      // dscale
+        assertEquals(1, in.readShort());
+        assertEquals(2345, in.readShort());
+        assertEquals(6780, in.readShort());
+    }
+
+    @Test
+    @DisplayName("NUMERIC 编码 - 纯小数与负数")
+    void writeNumeric_fractionAndNegative() throws IOException {
+        DataInputStream in = encodeNumeric("-0.00012345");
+
+        assertEquals(8 + 2 * 2, in.readInt());
+        assertEquals(2, in.readShort());
+        assertEquals(-1, in.readShort());
+        assertEquals(0x4000, in.readShort());
+        assertEquals(8, in.readShort());
+        assertEquals(1, in.readShort());
+        assertEquals(2345, in.readShort());
+
+        // 首个小数组为 0 时 weight 继续下移
+        DataInputStream small = encodeNumeric("0.00001234");
+        assertEquals(8 + 2, small.readInt());
+        assertEquals(1, small.readShort());
+        assertEquals(-2, small.readShort());
+        assertEquals(0x0000, small.readShort());
+        assertEquals(8, small.readShort());
+        assertEquals(1234, small.readShort());
+    }
+
+    @Test
+    @DisplayName("NUMERIC 编码 - 零和尾部零组")
+    void writeNumeric_zeroAndTrailingZeros() throws IOException {
+        DataInputStream zero = encodeNumeric("0.00000000");
+        assertEquals(8, zero.readInt());
+        assertEquals(0, zero.readShort());
+        assertEquals(0, zero.readShort());
+        assertEquals(0, zero.readShort());
+        assertEquals(8, zero.readShort());
+
+        DataInputStream round = encodeNumeric("50000.00");
+        assertEquals(8 + 2, round.readInt());
+        assertEquals(1, round.readShort());
+        assertEquals(1, round.readShort());
+        assertEquals(0, round.readShort());
+        assertEquals(2, round.readShort());
+        assertEquals(5, round.readShort());
+    }
+
+    @Test
+    @DisplayName("TIMESTAMPTZ 编码 - 以 2000-01-01 为纪元的微秒数")
+    void toPgMicros_shouldUsePostgresEpoch() {
+        assertEquals(0L, KlineBulkLoader.toPgMicros(Instant.parse("2000-01-01T00:00:00Z")));
+        assertEquals(1_500L, KlineBulkLoader.toPgMicros(Instant.parse("2000-01-01T00:00:00.0015Z")));
+        assertEquals(-1_000_000L, KlineBulkLoader.toPgMicros(Instant.parse("1999-12-31T23:59:59Z")));
+    }
+
+    @Test
+    @DisplayName("行编码 - 11 个字段，空值长度为 -1")
+    void writeRow_shouldWriteAllFields() throws IOException {
+        Kline kline = Kline.builder()
+                .symbolId(7L)
+                .interval("1m")
+                .openTime(Instant.parse("2025-01-01T00:00:00Z"))
+                .open(new BigDecimal("1"))
+                .high(new BigDecimal("2"))
+                .low(new BigDecimal("1"))
+                .close(new BigDecimal("2"))
+                .volume(new BigDecimal("3"))
+                .trades(4)
+                .closeTime(Instant.parse("2025-01-01T00:00:59.999Z"))
+                .build();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        KlineBulkLoader.writeRow(new DataOutputStream(bytes), kline);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertEquals(11, in.readShort());
+        assertEquals(8, in.readInt());
+        assertEquals(7L, in.readLong());
+        assertEquals(2, in.readInt());
+        assertEquals('1', in.readByte());
+        assertEquals('m', in.readByte());
+        assertEquals(8, in.readInt());
+        assertEquals(KlineBulkLoader.toPgMicros(kline.getOpenTime()), in.readLong());
+        // open/high/low/close/volume 各 1 个 NUMERIC 数字
+        for (int i = 0; i < 5; i++) {
+            assertEquals(10, in.readInt());
+            in.skipBytes(10);
+        }
+        // quote_volume 为空
+        assertEquals(-1, in.readInt());
+        assertEquals(4, in.readInt());
+        assertEquals(4, in.readInt());
+        assertEquals(8, in.readInt());
+        assertEquals(KlineBulkLoader.toPgMicros(kline.getCloseTime()), in.readLong());
+        assertEquals(0, in.available());
+    }
+}
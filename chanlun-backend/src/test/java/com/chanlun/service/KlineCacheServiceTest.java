@@ -0,0 +1,151 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.entity.Symbol;
+import com.chanlun.event.KlineDeletedEvent;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.mapper.KlineMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * K 线热窗口缓存服务测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KlineCacheService 测试")
+class KlineCacheServiceTest {
+
+    @Mock
+    private KlineMapper klineMapper;
+
+    @Mock
+    private SymbolService symbolService;
+
+    @InjectMocks
+    private KlineCacheService klineCacheService;
+
+    private Instant baseTime;
+
+    @BeforeEach
+    void setUp() {
+        baseTime = Instant.parse("2025-01-01T00:00:00Z");
+        ReflectionTestUtils.setField(klineCacheService, "capacity", 10);
+    }
+
+    private Kline kline(int hour) {
+        Instant openTime = baseTime.plus(hour, ChronoUnit.HOURS);
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1h")
+                .openTime(openTime)
+                .open(new BigDecimal("100"))
+                .high(new BigDecimal("110"))
+                .low(new BigDecimal("90"))
+                .close(new BigDecimal("105"))
+                .volume(new BigDecimal("1"))
+                .quoteVolume(new BigDecimal("100"))
+                .trades(1)
+                .closeTime(openTime.plus(1, ChronoUnit.HOURS).minusMillis(1))
+                .build();
+    }
+
+    /**
+     * 数据库按降序返回
+     */
+    private List<Kline> descending(int from, int to) {
+        List<Kline> result = new ArrayList<>();
+        for (int i = to - 1; i >= from; i--) {
+            result.add(kline(i));
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("首次未命中时加载，之后直接命中并追加实时数据")
+    void getLatest_shouldLoadOnceThenServeFromCache() {
+        when(klineMapper.selectRecentBySymbolIdAndInterval(1L, "1h", 10)).thenReturn(descending(0, 10));
+
+        List<Kline> first = klineCacheService.getLatest(1L, "1h", 3).orElseThrow();
+        klineCacheService.append(kline(10));
+        List<Kline> second = klineCacheService.getLatest(1L, "1h", 3).orElseThrow();
+
+        assertEquals(baseTime.plus(9, ChronoUnit.HOURS), first.get(2).getOpenTime());
+        assertEquals(baseTime.plus(10, ChronoUnit.HOURS), second.get(2).getOpenTime());
+        verify(klineMapper, times(1)).selectRecentBySymbolIdAndInterval(anyLong(), anyString(), anyInt());
+        assertEquals(2, klineCacheService.getStats().getHits());
+    }
+
+    @Test
+    @DisplayName("超过缓存容量的请求未命中")
+    void getLatest_aboveCapacity_shouldMiss() {
+        assertTrue(klineCacheService.getLatest(1L, "1h", 11).isEmpty());
+        assertEquals(1, klineCacheService.getStats().getMisses());
+        verifyNoInteractions(klineMapper);
+    }
+
+    @Test
+    @DisplayName("删除后失效并在下次查询时重新加载")
+    void invalidate_shouldReloadOnNextQuery() {
+        when(klineMapper.selectRecentBySymbolIdAndInterval(1L, "1h", 10))
+                .thenReturn(descending(0, 5), descending(0, 2));
+
+        assertEquals(5, klineCacheService.getLatest(1L, "1h", 10).orElseThrow().size());
+        klineCacheService.invalidate(1L, "1h");
+        assertEquals(2, klineCacheService.getLatest(1L, "1h", 10).orElseThrow().size());
+        assertEquals(1, klineCacheService.getStats().getInvalidations());
+    }
+
+    @Test
+    @DisplayName("写库事务提交后的事件 - 追加到已缓存的交易对周期，删除事件失效")
+    void onKlineEvents_shouldApplyAndInvalidate() {
+        when(klineMapper.selectRecentBySymbolIdAndInterval(1L, "1h", 10)).thenReturn(descending(0, 5));
+        klineCacheService.getLatest(1L, "1h", 1);
+
+        klineCacheService.onKlineUpserted(new KlineUpsertedEvent(this, List.of(kline(5), kline(6))));
+        assertEquals(baseTime.plus(6, ChronoUnit.HOURS),
+                klineCacheService.getLatest(1L, "1h", 1).orElseThrow().get(0).getOpenTime());
+
+        klineCacheService.onKlineDeleted(new KlineDeletedEvent(this, 1L, null));
+        assertEquals(0, klineCacheService.getStats().getEntries());
+        assertEquals(1, klineCacheService.getStats().getInvalidations());
+    }
+
+    @Test
+    @DisplayName("范围查询不触发加载")
+    void getRange_notCached_shouldMissWithoutLoading() {
+        assertTrue(klineCacheService.getRange(1L, "1h", baseTime, baseTime.plus(1, ChronoUnit.DAYS), 100).isEmpty());
+        verifyNoInteractions(klineMapper);
+    }
+
+    @Test
+    @DisplayName("启动预热加载开启实时同步的交易对周期")
+    void warmUp_shouldLoadRealtimeSymbols() {
+        when(symbolService.getRealtimeSyncEnabledSymbols()).thenReturn(List.of(
+                Symbol.builder().id(1L).syncIntervals("1h, 4h").build()));
+        when(klineMapper.selectRecentBySymbolIdAndInterval(eq(1L), anyString(), eq(10)))
+                .thenReturn(descending(0, 3));
+
+        klineCacheService.warmUp();
+
+        assertEquals(2, klineCacheService.getStats().getEntries());
+        verify(klineMapper).selectRecentBySymbolIdAndInterval(1L, "4h", 10);
+    }
+}
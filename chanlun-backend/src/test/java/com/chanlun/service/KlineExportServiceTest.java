@@ -0,0 +1,164 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.exception.BusinessException;
+import com.chanlun.mapper.KlineMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * KlineExportService 单元测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KlineExportService 测试")
+class KlineExportServiceTest {
+
+    @Mock
+    private KlineMapper klineMapper;
+
+    @InjectMocks
+    private KlineExportService klineExportService;
+
+    @BeforeEach
+    void setUp() {
+        klineExportService.init();
+    }
+
+    private Kline createKline(Instant openTime) {
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1m")
+                .openTime(openTime)
+                .open(new BigDecimal("42000.50000000"))
+                .high(new BigDecimal("42100.00000000"))
+                .low(new BigDecimal("41900.00000000"))
+                .close(new BigDecimal("42050.00000000"))
+                .volume(new BigDecimal("1.5"))
+                .quoteVolume(null)
+                .trades(12)
+                .closeTime(openTime.plusSeconds(59))
+                .build();
+    }
+
+    private void stubPage(List<Kline> klines) {
+        when(klineMapper.selectBySymbolIdAndIntervalAndTimeRangeWithLimit(eq(1L), eq("1m"), any(), any(),
+                eq(KlineExportService.PAGE_SIZE))).thenReturn(klines);
+    }
+
+    @Test
+    @DisplayName("NDJSON 导出 - gzip 压缩，每行一个对象，不足一页时只查询一次")
+    void export_ndjsonGzip() throws Exception {
+        Instant t = Instant.parse("2025-01-01T00:00:00Z");
+        stubPage(List.of(createKline(t), createKline(t.plusSeconds(60))));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = klineExportService.export(1L, "1m", t, null,
+                KlineExportService.ExportFormat.NDJSON, true, out);
+
+        String text;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = text.split("\n");
+        assertEquals(2, rows);
+        assertEquals(2, lines.length);
+        assertEquals("{\"symbolId\":1,\"interval\":\"1m\",\"openTime\":\"2025-01-01T00:00:00Z\","
+                + "\"open\":42000.50000000,\"high\":42100.00000000,\"low\":41900.00000000,"
+                + "\"close\":42050.00000000,\"volume\":1.5,\"quoteVolume\":null,\"trades\":12,"
+                + "\"closeTime\":\"2025-01-01T00:00:59Z\"}", lines[0]);
+        verify(klineMapper, times(1)).selectBySymbolIdAndIntervalAndTimeRangeWithLimit(
+                anyLong(), anyString(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("CSV 导出 - 不压缩时输出表头和明文行，默认时间范围从最早开始")
+    void export_csvPlain() throws Exception {
+        Instant t = Instant.parse("2025-01-01T00:00:00Z");
+        stubPage(List.of(createKline(t)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = klineExportService.export(1L, "1m", null, null,
+                KlineExportService.ExportFormat.CSV, false, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(1, rows);
+        assertEquals(KlineExportService.CSV_HEADER, lines[0]);
+        assertEquals("1,1m,2025-01-01T00:00:00Z,42000.50000000,42100.00000000,41900.00000000,"
+                + "42050.00000000,1.5,,12,2025-01-01T00:00:59Z", lines[1]);
+        verify(klineMapper).selectBySymbolIdAndIntervalAndTimeRangeWithLimit(eq(1L), eq("1m"), eq(Instant.EPOCH), any(),
+                eq(KlineExportService.PAGE_SIZE));
+    }
+
+    @Test
+    @DisplayName("分页导出 - 满页后从最后一根的下一毫秒继续查询")
+    void export_keysetPaging() throws Exception {
+        Instant t = Instant.parse("2025-01-01T00:00:00Z");
+        List<Kline> fullPage = new ArrayList<>();
+        for (int i = 0; i < KlineExportService.PAGE_SIZE; i++) {
+            fullPage.add(createKline(t.plusSeconds(60L * i)));
+        }
+        Instant nextStart = fullPage.get(fullPage.size() - 1).getOpenTime().plusMillis(1);
+        Instant end = t.plusSeconds(86400 * 7);
+        when(klineMapper.selectBySymbolIdAndIntervalAndTimeRangeWithLimit(1L, "1m", t, end, KlineExportService.PAGE_SIZE))
+                .thenReturn(fullPage);
+        when(klineMapper.selectBySymbolIdAndIntervalAndTimeRangeWithLimit(1L, "1m", nextStart, end, KlineExportService.PAGE_SIZE))
+                .thenReturn(List.of(createKline(nextStart.plusSeconds(59))));
+
+        long rows = klineExportService.export(1L, "1m", t, end,
+                KlineExportService.ExportFormat.CSV, false, new ByteArrayOutputStream());
+
+        assertEquals(KlineExportService.PAGE_SIZE + 1, rows);
+    }
+
+    @Test
+    @DisplayName("并发上限 - 名额用完时拒绝，释放后可再次占用")
+    void acquire_overLimit_shouldReject() {
+        klineExportService.acquire();
+        klineExportService.acquire();
+
+        BusinessException e = assertThrows(BusinessException.class, () -> klineExportService.acquire());
+        assertEquals(429, e.getCode());
+
+        klineExportService.release();
+        assertDoesNotThrow(() -> klineExportService.acquire());
+    }
+
+    @Test
+    @DisplayName("导出格式解析 - 忽略大小写，默认 NDJSON，非法值抛出异常")
+    void exportFormat_of() {
+        assertEquals(KlineExportService.ExportFormat.NDJSON, KlineExportService.ExportFormat.of(null));
+        assertEquals(KlineExportService.ExportFormat.CSV, KlineExportService.ExportFormat.of("CSV"));
+        assertThrows(BusinessException.class, () -> KlineExportService.ExportFormat.of("xml"));
+    }
+
+    @Test
+    @DisplayName("参数校验 - 非法周期和时间范围抛出异常")
+    void validate_invalidParams_shouldThrow() {
+        Instant now = Instant.now();
+        assertThrows(BusinessException.class, () -> klineExportService.validate(1L, "1s", null, null));
+        assertThrows(BusinessException.class, () -> klineExportService.validate(null, "1m", null, null));
+        assertThrows(BusinessException.class,
+                () -> klineExportService.validate(1L, "1m", now, now.minusSeconds(60)));
+        assertDoesNotThrow(() -> klineExportService.validate(1L, "1m", null, now));
+    }
+}
@@ -0,0 +1,176 @@
+package com.chanlun.service;
+
+import com.chanlun.dto.KlineLatencyDTO;
+import com.chanlun.entity.Kline;
+import com.chanlun.exchange.model.BinanceWsKlineEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KlineLatencyTracker 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("KlineLatencyTracker 测试")
+class KlineLatencyTrackerTest {
+
+    private static final long OPEN_TIME = 1700000040000L;
+
+    private KlineLatencyTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new KlineLatencyTracker();
+    }
+
+    @Test
+    @DisplayName("记录收到、解码、推送阶段")
+    void recordDispatch_recordsStages() {
+        long receivedNanos = System.nanoTime();
+        BinanceWsKlineEvent event = event(OPEN_TIME + 60_000 + 50, OPEN_TIME + 60_000 + 250,
+                receivedNanos, receivedNanos + TimeUnit.MICROSECONDS.toNanos(40));
+
+        tracker.recordDispatch("1m", event, receivedNanos + TimeUnit.MICROSECONDS.toNanos(140));
+
+        List<KlineLatencyDTO> stats = tracker.getStats("1m");
+        assertEquals(3, stats.size());
+        assertStage(stats.get(0), "EXCHANGE_TO_RECEIVE", 200.0);
+        assertStage(stats.get(1), "RECEIVE_TO_DECODE", 0.04);
+        assertStage(stats.get(2), "DECODE_TO_PUSH", 0.1);
+        assertTrue(tracker.getStats("5m").isEmpty());
+    }
+
+    @Test
+    @DisplayName("模拟数据事件（无本地埋点）- 不记录")
+    void recordDispatch_withoutReceiveStamp_shouldSkip() {
+        BinanceWsKlineEvent event = BinanceWsKlineEvent.builder().eventTime(OPEN_TIME).build();
+
+        tracker.recordDispatch("1m", event, System.nanoTime());
+        tracker.expectCommit(kline(1L), event, System.nanoTime());
+
+        assertTrue(tracker.getStats(null).isEmpty());
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("落库回调 - 记录落库阶段，按周期统计分位数")
+    void onCommitted_recordsCommitStages() {
+        long closeMillis = OPEN_TIME + 60_000;
+        for (long symbolId = 1; symbolId <= 100; symbolId++) {
+            long receivedNanos = System.nanoTime();
+            BinanceWsKlineEvent event = event(closeMillis, closeMillis + 10, receivedNanos, receivedNanos + 1000);
+            tracker.expectCommit(kline(symbolId), event, receivedNanos + 2000);
+        }
+        assertEquals(100, tracker.getPendingCount());
+
+        List<Kline> batch = new ArrayList<>();
+        for (long symbolId = 1; symbolId <= 100; symbolId++) {
+            batch.add(kline(symbolId));
+        }
+        tracker.onCommitted(batch, Instant.ofEpochMilli(closeMillis + 500));
+
+        assertEquals(0, tracker.getPendingCount());
+        KlineLatencyDTO closeToCommit = tracker.getStats("1m").stream()
+                .filter(stat -> stat.getStage().equals("CLOSE_TO_COMMIT"))
+                .findFirst().orElseThrow();
+        assertEquals(100, closeToCommit.getCount());
+        assertEquals(500.0, closeToCommit.getP50Ms(), 1.0);
+        assertEquals(500.0, closeToCommit.getP99Ms(), 1.0);
+        assertEquals(500.0, closeToCommit.getP999Ms(), 1.0);
+        assertTrue(tracker.getStats("1m").stream().anyMatch(stat -> stat.getStage().equals("DECODE_TO_COMMIT")));
+    }
+
+    @Test
+    @DisplayName("落库回调 - 未登记的 K 线（历史 / 回补写入）不记录")
+    void onCommitted_unexpectedKline_shouldSkip() {
+        tracker.onCommitted(List.of(kline(1L)), Instant.ofEpochMilli(OPEN_TIME + 120_000));
+
+        assertTrue(tracker.getStats(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("慢链路 - 超过阈值仍记录统计")
+    void onCommitted_slowPath_recorded() {
+        ReflectionTestUtils.setField(tracker, "slowThresholdMs", 100L);
+        long closeMillis = OPEN_TIME + 60_000;
+        long receivedNanos = System.nanoTime();
+        BinanceWsKlineEvent event = event(closeMillis, closeMillis + 10, receivedNanos, receivedNanos + 1000);
+        event.setSubscriptionKey("1_1_1m");
+        tracker.expectCommit(kline(1L), event, receivedNanos + 2000);
+
+        tracker.onCommitted(List.of(kline(1L)), Instant.ofEpochMilli(closeMillis + 5000));
+
+        KlineLatencyDTO closeToCommit = tracker.getStats("1m").stream()
+                .filter(stat -> stat.getStage().equals("CLOSE_TO_COMMIT"))
+                .findFirst().orElseThrow();
+        assertEquals(5000.0, closeToCommit.getMaxMs(), 5.0);
+    }
+
+    @Test
+    @DisplayName("写入队列拒绝 - 取消登记")
+    void discard_removesPending() {
+        long receivedNanos = System.nanoTime();
+        tracker.expectCommit(kline(1L), event(OPEN_TIME, OPEN_TIME, receivedNanos, receivedNanos), receivedNanos);
+        assertEquals(1, tracker.getPendingCount());
+
+        tracker.discard(kline(1L));
+
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    @DisplayName("重置 - 清空已累计的统计")
+    void reset_clearsHistograms() {
+        long receivedNanos = System.nanoTime();
+        tracker.recordDispatch("1m", event(OPEN_TIME, OPEN_TIME + 5, receivedNanos, receivedNanos + 1000),
+                receivedNanos + 2000);
+        assertEquals(1, tracker.getStats("1m").get(0).getCount());
+
+        tracker.reset();
+
+        tracker.getStats("1m").forEach(stat -> assertEquals(0, stat.getCount()));
+    }
+
+    @Test
+    @DisplayName("关闭追踪 - 不记录")
+    void disabled_shouldSkip() {
+        ReflectionTestUtils.setField(tracker, "enabled", false);
+        long receivedNanos = System.nanoTime();
+
+        tracker.recordDispatch("1m", event(OPEN_TIME, OPEN_TIME, receivedNanos, receivedNanos), receivedNanos);
+
+        assertTrue(tracker.getStats(null).isEmpty());
+    }
+
+    private static void assertStage(KlineLatencyDTO stat, String stage, double expectedMs) {
+        assertEquals(stage, stat.getStage());
+        assertEquals(1, stat.getCount());
+        assertEquals(expectedMs, stat.getP50Ms(), expectedMs * 0.01 + 0.001);
+    }
+
+    private static BinanceWsKlineEvent event(long eventTime, long receivedAt, long receivedNanos, long decodedNanos) {
+        BinanceWsKlineEvent event = BinanceWsKlineEvent.builder().eventTime(eventTime).build();
+        event.setReceivedAt(receivedAt);
+        event.setReceivedNanos(receivedNanos);
+        event.setDecodedNanos(decodedNanos);
+        return event;
+    }
+
+    private static Kline kline(Long symbolId) {
+        return Kline.builder()
+                .symbolId(symbolId)
+                .interval("1m")
+                .openTime(Instant.ofEpochMilli(OPEN_TIME))
+                .closeTime(Instant.ofEpochMilli(OPEN_TIME + 59_999))
+                .build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.chanlun.service;
+
+import com.chanlun.mapper.KlinePartitionMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * K线分区维护服务测试
+ * 
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KlinePartitionService 测试")
+class KlinePartitionServiceTest {
+
+    @Mock
+    private KlinePartitionMapper klinePartitionMapper;
+
+    @InjectMocks
+    private KlinePartitionService klinePartitionService;
+
+    @Test
+    @DisplayName("预建当前月及未来 3 个月分区，默认不清理")
+    void maintain_shouldPremakeFuturePartitions() {
+        when(klinePartitionMapper.ensurePartition(any(LocalDate.class)))
+                .thenAnswer(inv -> "kline_" + inv.getArgument(0));
+
+        KlinePartitionService.MaintenanceResult result = klinePartitionService.maintain(YearMonth.of(2025, 11));
+
+        assertEquals(4, result.getEnsuredPartitions().size());
+        verify(klinePartitionMapper).ensurePartition(LocalDate.of(2025, 11, 1));
+        verify(klinePartitionMapper).ensurePartition(LocalDate.of(2026, 2, 1));
+        verify(klinePartitionMapper, never()).retirePartitions(any(), anyBoolean());
+        assertTrue(result.getRetiredPartitions().isEmpty());
+    }
+
+    @Test
+    @DisplayName("按保留月数删除过期分区")
+    void retireExpiredPartitions_shouldUseMonthBoundaryCutoff() {
+        ReflectionTestUtils.setField(klinePartitionService, "retentionMonths", 12);
+        ReflectionTestUtils.setField(klinePartitionService, "retentionDrop", true);
+        when(klinePartitionMapper.retirePartitions(any(), eq(true)))
+                .thenReturn(List.of("kline_y2024m01", "kline_y2024m02"));
+
+        List<String> retired = klinePartitionService.retireExpiredPartitions(YearMonth.of(2025, 3));
+
+        assertEquals(2, retired.size());
+        verify(klinePartitionMapper).retirePartitions(Instant.parse("2024-03-01T00:00:00Z"), true);
+    }
+}
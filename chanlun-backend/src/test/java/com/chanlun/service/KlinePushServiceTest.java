@@ -0,0 +1,242 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * KlinePushService 单元测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KlinePushService 测试")
+class KlinePushServiceTest {
+
+    @Mock
+    private WebSocketSession session1;
+
+    @Mock
+    private WebSocketSession session2;
+
+    private KlinePushService klinePushService;
+
+    /**
+     * 手动执行的发送队列，测试中按需触发发送
+     */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private static final Instant OPEN_TIME = Instant.parse("2025-01-01T00:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        klinePushService = new KlinePushService(new ObjectMapper().findAndRegisterModules());
+        klinePushService.setSender(tasks::add);
+        lenient().when(session1.getId()).thenReturn("s1");
+        lenient().when(session2.getId()).thenReturn("s2");
+        lenient().when(session1.isOpen()).thenReturn(true);
+        lenient().when(session2.isOpen()).thenReturn(true);
+        klinePushService.register(session1);
+        klinePushService.register(session2);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private Kline createKline(Instant openTime, String close) {
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1m")
+                .openTime(openTime)
+                .open(new BigDecimal("42000"))
+                .high(new BigDecimal("42100"))
+                .low(new BigDecimal("41900"))
+                .close(new BigDecimal(close))
+                .volume(new BigDecimal("1.5"))
+                .closeTime(openTime.plusSeconds(59))
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<WebSocketMessage<?>> sentMessages(WebSocketSession session, int times) throws Exception {
+        ArgumentCaptor<WebSocketMessage<?>> captor = ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session, times(times)).sendMessage(captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    @DisplayName("发布 - 同一事件只序列化一次，所有订阅者共享同一消息对象")
+    void publish_fanOutSharesSerializedMessage() throws Exception {
+        klinePushService.subscribe(session1, 1L, "1m");
+        klinePushService.subscribe(session2, 1L, "1m");
+
+        klinePushService.publish(createKline(OPEN_TIME, "42050"), false);
+        runTasks();
+
+        WebSocketMessage<?> m1 = sentMessages(session1, 1).get(0);
+        WebSocketMessage<?> m2 = sentMessages(session2, 1).get(0);
+        assertSame(m1, m2);
+        String payload = ((TextMessage) m1).getPayload();
+        assertTrue(payload.contains("\"type\":\"kline\""));
+        assertTrue(payload.contains("\"closed\":false"));
+        assertEquals(1, klinePushService.getStats().getPublished());
+        assertEquals(2, klinePushService.getStats().getSent());
+    }
+
+    @Test
+    @DisplayName("发布 - 发送跟不上时同一根 K 线只保留最新状态")
+    void publish_conflatesSameCandle() throws Exception {
+        klinePushService.subscribe(session1, 1L, "1m");
+
+        klinePushService.publish(createKline(OPEN_TIME, "42050"), false);
+        klinePushService.publish(createKline(OPEN_TIME, "42060"), false);
+        klinePushService.publish(createKline(OPEN_TIME, "42070"), true);
+        klinePushService.publish(createKline(OPEN_TIME.plusSeconds(60), "42080"), false);
+        runTasks();
+
+        List<WebSocketMessage<?>> sent = sentMessages(session1, 2);
+        String first = ((TextMessage) sent.get(0)).getPayload();
+        assertTrue(first.contains("\"closed\":true"));
+        assertTrue(first.contains("42070"));
+        assertTrue(((TextMessage) sent.get(1)).getPayload().contains("42080"));
+        assertEquals(2, klinePushService.getStats().getConflated());
+    }
+
+    @Test
+    @DisplayName("订阅快照 - 下发主题最近一次事件")
+    void sendSnapshot_sendsLastEvent() throws Exception {
+        klinePushService.publish(createKline(OPEN_TIME, "42050"), false);
+
+        assertTrue(klinePushService.subscribe(session1, 1L, "1m"));
+        klinePushService.sendSnapshot(session1, 1L, "1m");
+        runTasks();
+
+        assertTrue(((TextMessage) sentMessages(session1, 1).get(0)).getPayload().contains("42050"));
+    }
+
+    @Test
+    @DisplayName("取消订阅与注销 - 不再收到推送")
+    void unsubscribeAndUnregister_stopDelivery() throws Exception {
+        klinePushService.subscribe(session1, 1L, "1m");
+        klinePushService.subscribe(session2, 1L, "1m");
+        klinePushService.unsubscribe(session1, 1L, "1m");
+        klinePushService.unregister(session2);
+
+        klinePushService.publish(createKline(OPEN_TIME, "42050"), false);
+        runTasks();
+
+        verify(session1, never()).sendMessage(any());
+        verify(session2, never()).sendMessage(any());
+        assertEquals(0, klinePushService.getStats().getTopics());
+    }
+
+    @Test
+    @DisplayName("订阅上限 - 超过单连接主题数时拒绝")
+    void subscribe_overLimit_shouldReject() {
+        ReflectionTestUtils.setField(klinePushService, "maxTopicsPerSession", 1);
+
+        assertTrue(klinePushService.subscribe(session1, 1L, "1m"));
+        assertTrue(klinePushService.subscribe(session1, 1L, "1m"));
+        assertFalse(klinePushService.subscribe(session1, 2L, "1m"));
+    }
+
+    @Test
+    @DisplayName("发送失败 - 断开连接并移除订阅")
+    void send_failure_dropsSession() throws Exception {
+        doThrow(new IOException("broken pipe")).when(session1).sendMessage(any());
+        klinePushService.subscribe(session1, 1L, "1m");
+
+        klinePushService.publish(createKline(OPEN_TIME, "42050"), false);
+        runTasks();
+
+        verify(session1).close(any());
+        // 只剩 session2
+        assertEquals(1, klinePushService.getStats().getSessions());
+        assertEquals(1, klinePushService.getStats().getDroppedSessions());
+    }
+
+    @Test
+    @DisplayName("控制消息 - 未注册或已被丢弃的连接直接忽略，不重建订阅者")
+    void reply_unknownSession_ignored() throws Exception {
+        doThrow(new IOException("broken pipe")).when(session1).sendMessage(any());
+        klinePushService.reply(session1, "{\"type\":\"pong\"}");
+        runTasks();
+        assertEquals(1, klinePushService.getStats().getDroppedSessions());
+
+        klinePushService.reply(session1, "{\"type\":\"pong\"}");
+        assertFalse(klinePushService.subscribe(session1, 1L, "1m"));
+        runTasks();
+
+        verify(session1, times(1)).sendMessage(any());
+        assertEquals(1, klinePushService.getStats().getSessions());
+    }
+
+    @Test
+    @DisplayName("原生会话 - 异步发送，未完成前不占用发送线程，完成后继续发送合并后的最新状态")
+    void send_nativeSession_async() throws Exception {
+        WebSocketSession nativeSession = mock(WebSocketSession.class, withSettings().extraInterfaces(NativeWebSocketSession.class));
+        Session endpoint = mock(Session.class);
+        RemoteEndpoint.Async async = mock(RemoteEndpoint.Async.class);
+        when(nativeSession.getId()).thenReturn("s3");
+        when(nativeSession.isOpen()).thenReturn(true);
+        when(((NativeWebSocketSession) nativeSession).getNativeSession(Session.class)).thenReturn(endpoint);
+        when(endpoint.getAsyncRemote()).thenReturn(async);
+        klinePushService.register(nativeSession);
+        verify(async).setSendTimeout(5000L);
+        klinePushService.subscribe(nativeSession, 1L, "1m");
+
+        klinePushService.publish(createKline(OPEN_TIME, "42050"), false);
+        runTasks();
+        ArgumentCaptor<SendHandler> handler = ArgumentCaptor.forClass(SendHandler.class);
+        verify(async, times(1)).sendText(anyString(), handler.capture());
+
+        // 前一条未完成，后续更新留在待发送表中合并
+        klinePushService.publish(createKline(OPEN_TIME, "42060"), false);
+        klinePushService.publish(createKline(OPEN_TIME, "42070"), false);
+        runTasks();
+        verify(async, times(1)).sendText(anyString(), any());
+
+        handler.getValue().onResult(new SendResult());
+        runTasks();
+        ArgumentCaptor<String> payloads = ArgumentCaptor.forClass(String.class);
+        verify(async, times(2)).sendText(payloads.capture(), handler.capture());
+        assertTrue(payloads.getValue().contains("42070"));
+        verify(nativeSession, never()).sendMessage(any());
+
+        handler.getValue().onResult(new SendResult(new IOException("timeout")));
+        verify(nativeSession).close(any());
+        assertEquals(1, klinePushService.getStats().getSent());
+        assertEquals(1, klinePushService.getStats().getDroppedSessions());
+    }
+}
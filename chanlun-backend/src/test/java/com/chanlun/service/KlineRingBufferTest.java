@@ -0,0 +1,124 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * K 线环形缓冲区测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("KlineRingBuffer 测试")
+class KlineRingBufferTest {
+
+    private Instant baseTime;
+
+    @BeforeEach
+    void setUp() {
+        baseTime = Instant.parse("2025-01-01T00:00:00Z");
+    }
+
+    private Kline kline(int minute, String close) {
+        Instant openTime = baseTime.plus(minute, ChronoUnit.MINUTES);
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1m")
+                .openTime(openTime)
+                .open(new BigDecimal("100"))
+                .high(new BigDecimal("110"))
+                .low(new BigDecimal("90"))
+                .close(new BigDecimal(close))
+                .volume(new BigDecimal("1.5"))
+                .quoteVolume(new BigDecimal("123456789012345.12345678"))
+                .trades(3)
+                .closeTime(openTime.plusSeconds(59))
+                .build();
+    }
+
+    private List<Kline> klines(int from, int to) {
+        List<Kline> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            result.add(kline(i, String.valueOf(100 + i)));
+        }
+        return result;
+    }
+
+    @Test
+    @DisplayName("满后覆盖最早数据，最新 N 根按升序返回")
+    void upsert_shouldOverwriteOldestWhenFull() {
+        KlineRingBuffer buffer = new KlineRingBuffer(1L, "1m", 5);
+        buffer.load(klines(0, 5), 5);
+        buffer.upsert(kline(5, "105"));
+        buffer.upsert(kline(6, "106"));
+
+        List<Kline> latest = buffer.latest(5);
+        assertEquals(5, latest.size());
+        assertEquals(baseTime.plus(2, ChronoUnit.MINUTES), latest.get(0).getOpenTime());
+        assertEquals(baseTime.plus(6, ChronoUnit.MINUTES), latest.get(4).getOpenTime());
+        // 超过缓存数量且不是完整历史时未命中
+        assertNull(buffer.latest(6));
+    }
+
+    @Test
+    @DisplayName("数值按 8 位小数还原，超出 long 范围的值保持精确")
+    void roundTrip_shouldKeepDatabaseScale() {
+        KlineRingBuffer buffer = new KlineRingBuffer(1L, "1m", 2);
+        buffer.load(List.of(kline(0, "100.12345678")), 2);
+
+        Kline cached = buffer.latest(1).get(0);
+        assertEquals(new BigDecimal("100.12345678"), cached.getClose());
+        assertEquals(new BigDecimal("1.50000000"), cached.getVolume());
+        assertEquals(new BigDecimal("123456789012345.12345678"), cached.getQuoteVolume());
+        assertEquals(3, cached.getTrades());
+    }
+
+    @Test
+    @DisplayName("已存在的开盘时间原地更新，窗口内插入则失效")
+    void upsert_existingUpdatesAndGapInsertInvalidates() {
+        KlineRingBuffer buffer = new KlineRingBuffer(1L, "1m", 10);
+        List<Kline> withGap = new ArrayList<>(klines(0, 3));
+        withGap.add(kline(5, "105"));
+        buffer.load(withGap, 10);
+
+        assertTrue(buffer.upsert(kline(1, "999")));
+        assertEquals(new BigDecimal("999.00000000"), buffer.latest(4).get(1).getClose());
+
+        assertFalse(buffer.upsert(kline(4, "104")));
+        assertFalse(buffer.isReady());
+        assertNull(buffer.latest(1));
+    }
+
+    @Test
+    @DisplayName("时间范围查询只在窗口覆盖起点时命中")
+    void range_shouldRequireCoverage() {
+        KlineRingBuffer buffer = new KlineRingBuffer(1L, "1m", 5);
+        buffer.load(klines(10, 15), 5);
+
+        List<Kline> hit = buffer.range(baseTime.plus(11, ChronoUnit.MINUTES),
+                baseTime.plus(13, ChronoUnit.MINUTES), 100);
+        assertEquals(3, hit.size());
+        assertEquals(2, buffer.range(baseTime.plus(11, ChronoUnit.MINUTES),
+                baseTime.plus(20, ChronoUnit.MINUTES), 2).size());
+        assertNull(buffer.range(baseTime, baseTime.plus(12, ChronoUnit.MINUTES), 100));
+    }
+
+    @Test
+    @DisplayName("完整历史可满足任意数量与更早的起点")
+    void completeHistory_shouldServeAnyLimit() {
+        KlineRingBuffer buffer = new KlineRingBuffer(1L, "1m", 10);
+        buffer.load(klines(0, 3), 10);
+
+        assertEquals(3, buffer.latest(10).size());
+        assertEquals(3, buffer.range(baseTime.minus(1, ChronoUnit.DAYS), baseTime.plus(1, ChronoUnit.DAYS), 100).size());
+    }
+}
@@ -0,0 +1,262 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import com.chanlun.entity.Symbol;
+import com.chanlun.event.KlineUpsertedEvent;
+import com.chanlun.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * KlineRollupService 单元测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KlineRollupService 测试")
+class KlineRollupServiceTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    @Mock
+    private KlineService klineService;
+
+    @Mock
+    private SymbolService symbolService;
+
+    @Mock
+    private SyncFilterService syncFilterService;
+
+    private KlineRollupService service;
+
+    private final List<Kline> stored = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        service = new KlineRollupService(klineService, symbolService, syncFilterService, new SimpleMeterRegistry());
+        service.setIntervals(List.of("5m"));
+        // 合成任务在调用线程同步执行，迟到周期立即合成
+        service.setWorker(Runnable::run);
+        service.setLateSettleMillis(0);
+    }
+
+    @Test
+    @DisplayName("增量 - 未由交易所同步的周期在最后一分钟到达时写入")
+    void onKlineUpserted_derivedInterval_written() {
+        stubExchangeIntervals("1m");
+
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(0, 3)));
+        verify(klineService, never()).batchUpsert(anyList());
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(3, 5)));
+
+        List<Kline> written = captureWrites().get(0);
+        assertEquals(1, written.size());
+        assertEquals("5m", written.get(0).getInterval());
+        assertEquals(BASE, written.get(0).getOpenTime());
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(written.get(0).getVolume()));
+        assertEquals(1, service.getStats().getDerivedKlines());
+        verify(klineService, never()).forEachInTimeRange(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("增量 - 从周期中间开始时从数据库按整个周期重新合成")
+    void onKlineUpserted_partialBucket_reaggregatedFromStore() {
+        stubExchangeIntervals("1m");
+        stubStore(minutes(0, 5));
+
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(2, 5)));
+
+        Kline written = captureWrites().get(0).get(0);
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(written.getVolume()));
+        assertEquals(0, BigDecimal.valueOf(100).compareTo(written.getOpen()));
+        assertEquals(1, service.getStats().getStoreReaggregations());
+    }
+
+    @Test
+    @DisplayName("增量 - 交易所同步的周期只校验不写入，交易所 K 线后到达时再校验")
+    void onKlineUpserted_exchangeInterval_verifiedNotWritten() {
+        stubExchangeIntervals("1m", "5m");
+
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(0, 5)));
+        assertEquals(0, service.getStats().getVerifiedKlines());
+
+        // 交易所 5m K 线到达（成交量不一致）
+        Kline exchange = aggregate(0, 5);
+        exchange.setVolume(BigDecimal.valueOf(6));
+        service.onKlineUpserted(new KlineUpsertedEvent(this, List.of(exchange)));
+
+        // 下一根 5m 交易所先到
+        when(klineService.getByOpenTime(1L, "5m", BASE.plusMillis(5 * MINUTE))).thenReturn(aggregate(5, 5));
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(5, 5)));
+
+        verify(klineService, never()).batchUpsert(anyList());
+        assertEquals(1, service.getStats().getMismatchedKlines());
+        assertEquals(1, service.getStats().getVerifiedKlines());
+    }
+
+    @Test
+    @DisplayName("增量 - 早于已处理位置的 1m K 线按所在周期批量重新合成")
+    void onKlineUpserted_lateMinutes_rolledUpFromStore() {
+        stubExchangeIntervals("1m");
+        stubStore(minutes(0, 10));
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(0, 10)));
+        clearInvocations(klineService);
+
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(6, 1)));
+
+        verify(klineService).forEachInTimeRange(eq(1L), eq("1m"), eq(BASE.plusMillis(5 * MINUTE)),
+                eq(BASE.plusMillis(10 * MINUTE - 1)), any());
+        List<Kline> written = captureWrites().get(0);
+        assertEquals(1, written.size());
+        assertEquals(BASE.plusMillis(5 * MINUTE), written.get(0).getOpenTime());
+    }
+
+    @Test
+    @DisplayName("迟到 - 持续回补期间不合成，稳定后只读取被触及的周期并合并相邻区间")
+    void onKlineUpserted_lateMinutes_coalescedUntilSettled() {
+        stubExchangeIntervals("1m");
+        service.setIntervals(List.of("5m", "1M"));
+        service.setLateSettleMillis(60_000);
+        stubStore(minutes(0, 30));
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(0, 30)));
+        clearInvocations(klineService);
+
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(6, 2)));
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(12, 1)));
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(22, 1)));
+        verify(klineService, never()).forEachInTimeRange(any(), any(), any(), any(), any());
+
+        service.settleLate(System.currentTimeMillis() + 60_000);
+
+        // 1M 所在周期尚未结束，由增量状态输出；5m 相邻两根合并为一次读取
+        verify(klineService).forEachInTimeRange(eq(1L), eq("1m"), eq(BASE.plusMillis(5 * MINUTE)),
+                eq(BASE.plusMillis(15 * MINUTE - 1)), any());
+        verify(klineService).forEachInTimeRange(eq(1L), eq("1m"), eq(BASE.plusMillis(20 * MINUTE)),
+                eq(BASE.plusMillis(25 * MINUTE - 1)), any());
+        verify(klineService, times(2)).forEachInTimeRange(any(), any(), any(), any(), any());
+        List<Kline> written = captureWrites().get(0);
+        assertEquals(List.of(BASE.plusMillis(5 * MINUTE), BASE.plusMillis(10 * MINUTE), BASE.plusMillis(20 * MINUTE)),
+                written.stream().map(Kline::getOpenTime).toList());
+    }
+
+    @Test
+    @DisplayName("迟到 - 重新合成结果与已存 K 线相同时不写入")
+    void onKlineUpserted_lateMinutes_unchangedNotWritten() {
+        stubExchangeIntervals("1m");
+        stubStore(minutes(0, 10));
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(0, 10)));
+        clearInvocations(klineService);
+        Kline existing = aggregate(5, 5);
+        existing.setQuoteVolume(BigDecimal.valueOf(50));
+        existing.setTrades(10);
+        when(klineService.getBySymbolIdAndIntervalAndTimeRange(1L, "5m", existing.getOpenTime(),
+                existing.getOpenTime())).thenReturn(List.of(existing));
+
+        service.onKlineUpserted(new KlineUpsertedEvent(this, minutes(6, 1)));
+
+        verify(klineService, never()).batchUpsert(anyList());
+        assertEquals(1, service.getStats().getUnchangedKlines());
+    }
+
+    @Test
+    @DisplayName("批量 - 按周期边界对齐读取 1m K 线，未读到末尾的周期不输出")
+    void rollup_bulk_alignsAndSkipsOpenBucket() {
+        stubExchangeIntervals("1m");
+        stubStore(minutes(0, 13));
+
+        KlineRollupService.RollupResult result = service.rollup(1L, BASE.plusMillis(3 * MINUTE),
+                BASE.plusMillis(12 * MINUTE));
+
+        verify(klineService).forEachInTimeRange(eq(1L), eq("1m"), eq(BASE), eq(BASE.plusMillis(15 * MINUTE - 1)),
+                any());
+        assertEquals(13, result.getBaseKlines());
+        assertEquals(2, result.getDerivedKlines());
+        assertEquals(2, captureWrites().get(0).size());
+    }
+
+    @Test
+    @DisplayName("批量 - 未启用或时间范围无效时抛出异常")
+    void rollup_invalid_throws() {
+        assertThrows(BusinessException.class, () -> service.rollup(1L, BASE.plusMillis(MINUTE), BASE));
+
+        ReflectionTestUtils.setField(service, "enabled", false);
+        assertThrows(BusinessException.class, () -> service.rollup(1L, BASE, BASE.plusMillis(MINUTE)));
+        verifyNoInteractions(klineService);
+    }
+
+    private void stubExchangeIntervals(String... intervals) {
+        Symbol symbol = Symbol.builder().id(1L).syncIntervals(String.join(",", intervals)).build();
+        when(symbolService.findById(1L)).thenReturn(symbol);
+        when(syncFilterService.getValidSyncIntervals(symbol)).thenReturn(List.of(intervals));
+    }
+
+    private void stubStore(List<Kline> klines) {
+        stored.addAll(klines);
+        when(klineService.forEachInTimeRange(eq(1L), eq("1m"), any(), any(), any())).thenAnswer(invocation -> {
+            Instant from = invocation.getArgument(2);
+            Instant to = invocation.getArgument(3);
+            Consumer<Kline> consumer = invocation.getArgument(4);
+            long rows = 0;
+            for (Kline kline : stored) {
+                if (!kline.getOpenTime().isBefore(from) && !kline.getOpenTime().isAfter(to)) {
+                    consumer.accept(kline);
+                    rows++;
+                }
+            }
+            return rows;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Kline>> captureWrites() {
+        ArgumentCaptor<List<Kline>> captor = ArgumentCaptor.forClass(List.class);
+        verify(klineService, atLeastOnce()).batchUpsert(captor.capture());
+        return captor.getAllValues();
+    }
+
+    /**
+     * 从第 from 分钟开始的 count 根 1m K 线，开盘价 100 + 分钟序号，成交量 1
+     */
+    private static List<Kline> minutes(int from, int count) {
+        List<Kline> klines = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            klines.add(KlineRollupTest.minute(i, 100 + i, 101 + i, 99 + i, 100.5 + i));
+        }
+        return klines;
+    }
+
+    /**
+     * 交易所提供的 5m K 线（与 minutes 合成结果一致）
+     */
+    private static Kline aggregate(int from, int count) {
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("5m")
+                .openTime(BASE.plusMillis(from * MINUTE))
+                .open(BigDecimal.valueOf(100 + from))
+                .high(BigDecimal.valueOf(100 + from + count))
+                .low(BigDecimal.valueOf(99 + from))
+                .close(BigDecimal.valueOf(100.5 + from + count - 1))
+                .volume(BigDecimal.valueOf(count))
+                .closeTime(BASE.plusMillis((from + count) * MINUTE - 1))
+                .build();
+    }
+}
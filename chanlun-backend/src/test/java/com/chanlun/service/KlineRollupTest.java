@@ -0,0 +1,130 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KlineRollup 单元测试
+ *
+ * @author Chanlun Team
+ */
+@DisplayName("KlineRollup 测试")
+class KlineRollupTest {
+
+    private static final long MINUTE = 60_000L;
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    static Kline minute(long index, double open, double high, double low, double close) {
+        Instant openTime = BASE.plusMillis(index * MINUTE);
+        return Kline.builder()
+                .symbolId(1L)
+                .interval("1m")
+                .openTime(openTime)
+                .open(BigDecimal.valueOf(open))
+                .high(BigDecimal.valueOf(high))
+                .low(BigDecimal.valueOf(low))
+                .close(BigDecimal.valueOf(close))
+                .volume(BigDecimal.ONE)
+                .quoteVolume(BigDecimal.TEN)
+                .trades(2)
+                .closeTime(openTime.plusMillis(MINUTE - 1))
+                .build();
+    }
+
+    @Test
+    @DisplayName("周期对齐：固定时长按 UTC 纪元，1w 从周一开始，1M 从每月 1 日开始")
+    void bucketStart_alignment() {
+        long time = Instant.parse("2025-03-19T13:47:00Z").toEpochMilli();
+
+        assertEquals(Instant.parse("2025-03-19T13:45:00Z").toEpochMilli(), KlineRollup.bucketStart(time, "5m"));
+        assertEquals(Instant.parse("2025-03-19T12:00:00Z").toEpochMilli(), KlineRollup.bucketStart(time, "4h"));
+        assertEquals(Instant.parse("2025-03-19T00:00:00Z").toEpochMilli(), KlineRollup.bucketStart(time, "1d"));
+        assertEquals(Instant.parse("2025-03-17T00:00:00Z").toEpochMilli(), KlineRollup.bucketStart(time, "1w"));
+        assertEquals(Instant.parse("2025-03-01T00:00:00Z").toEpochMilli(), KlineRollup.bucketStart(time, "1M"));
+        assertEquals(Instant.parse("2025-04-01T00:00:00Z").toEpochMilli(),
+                KlineRollup.bucketEnd(KlineRollup.bucketStart(time, "1M"), "1M"));
+        assertEquals(Instant.parse("2024-03-01T00:00:00Z").toEpochMilli(), KlineRollup.bucketEnd(
+                Instant.parse("2024-02-01T00:00:00Z").toEpochMilli(), "1M"));
+        assertFalse(KlineRollup.isSupported("1m"));
+        assertFalse(KlineRollup.isSupported("1s"));
+    }
+
+    @Test
+    @DisplayName("周期最后一分钟到达时输出开高低收和成交量")
+    void add_lastMinute_completesBucket() {
+        KlineRollup rollup = new KlineRollup(1L, List.of("5m"));
+        List<KlineRollup.Completed> out = new ArrayList<>();
+
+        rollup.add(minute(0, 10, 12, 9, 11), out);
+        rollup.add(minute(1, 11, 15, 10, 14), out);
+        rollup.add(minute(2, 14, 14, 8, 9), out);
+        rollup.add(minute(3, 9, 10, 9, 10), out);
+        assertTrue(out.isEmpty());
+        rollup.add(minute(4, 10, 11, 10, 10.5), out);
+
+        assertEquals(1, out.size());
+        KlineRollup.Completed completed = out.get(0);
+        Kline kline = completed.kline();
+        assertTrue(completed.contiguous());
+        assertEquals(5, completed.bars());
+        assertEquals("5m", kline.getInterval());
+        assertEquals(BASE, kline.getOpenTime());
+        assertEquals(BASE.plusMillis(5 * MINUTE - 1), kline.getCloseTime());
+        assertEquals(0, BigDecimal.valueOf(10).compareTo(kline.getOpen()));
+        assertEquals(0, BigDecimal.valueOf(15).compareTo(kline.getHigh()));
+        assertEquals(0, BigDecimal.valueOf(8).compareTo(kline.getLow()));
+        assertEquals(0, BigDecimal.valueOf(10.5).compareTo(kline.getClose()));
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(kline.getVolume()));
+        assertEquals(0, BigDecimal.valueOf(50).compareTo(kline.getQuoteVolume()));
+        assertEquals(10, kline.getTrades());
+    }
+
+    @Test
+    @DisplayName("从周期中间开始或跳过末尾时标记为不连续")
+    void add_missingMinutes_notContiguous() {
+        KlineRollup rollup = new KlineRollup(1L, List.of("5m"));
+        List<KlineRollup.Completed> out = new ArrayList<>();
+
+        // 从第 2 分钟开始输入
+        for (int i = 2; i < 5; i++) {
+            rollup.add(minute(i, 1, 2, 1, 2), out);
+        }
+        // 缺少 8、9 分钟，直接进入下一周期
+        for (int i = 5; i < 8; i++) {
+            rollup.add(minute(i, 1, 2, 1, 2), out);
+        }
+        rollup.add(minute(10, 1, 2, 1, 2), out);
+
+        assertEquals(2, out.size());
+        assertFalse(out.get(0).contiguous());
+        assertEquals(3, out.get(0).bars());
+        assertFalse(out.get(1).contiguous());
+        assertEquals(BASE.plusMillis(5 * MINUTE), out.get(1).kline().getOpenTime());
+    }
+
+    @Test
+    @DisplayName("多个周期同时合成，乱序 K 线被拒绝")
+    void add_multipleIntervals_rejectsOutOfOrder() {
+        KlineRollup rollup = new KlineRollup(1L, List.of("3m", "15m"));
+        List<KlineRollup.Completed> out = new ArrayList<>();
+
+        for (int i = 0; i < 15; i++) {
+            assertTrue(rollup.add(minute(i, 1, 2, 1, 2), out));
+        }
+
+        assertEquals(6, out.size());
+        assertEquals(5, out.stream().filter(c -> "3m".equals(c.kline().getInterval())).count());
+        assertEquals(1, out.stream().filter(c -> "15m".equals(c.kline().getInterval())).count());
+        assertFalse(rollup.add(minute(14, 1, 2, 1, 2), out));
+        assertFalse(rollup.add(minute(3, 1, 2, 1, 2), out));
+        assertEquals(6, out.size());
+    }
+}
@@ -13,6 +13,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -20,6 +21,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -46,6 +48,15 @@ class KlineServiceTest {
     @Mock
     private SymbolService symbolService;
 
+    @Mock
+    private KlineBulkLoader klineBulkLoader;
+
+    @Mock
+    private KlineCacheService klineCacheService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private KlineService klineService;
 
@@ -105,6 +116,8 @@ class KlineServiceTest {
 
         assertEquals(1, result);
         verify(klineMapper).batchUpsert(klines);
+        // 缓存在事务提交后由事件更新，不在事务内写入
+        verifyNoInteractions(klineCacheService);
     }
 
     @Test
@@ -139,6 +152,84 @@ class KlineServiceTest {
         verify(klineMapper, times(2)).batchUpsert(anyList());
     }
 
+    @Test
+    @DisplayName("批量插入 - 超过阈值且支持 COPY 时走 COPY 路径")
+    void batchUpsert_aboveCopyThreshold_shouldUseCopy() {
+        List<Kline> klines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            klines.add(createTestKline(1L, "1m", baseTime.plus(i, ChronoUnit.MINUTES)));
+        }
+        when(klineBulkLoader.isCopySupported()).thenReturn(true);
+        when(klineBulkLoader.copyUpsert(klines)).thenReturn(1000);
+
+        int result = klineService.batchUpsert(klines);
+
+        assertEquals(1000, result);
+        verify(klineMapper, never()).batchUpsert(anyList());
+    }
+
+    @Test
+    @DisplayName("批量插入 - 数据源不支持 COPY 时回退到分批 INSERT")
+    void batchUpsert_copyNotSupported_shouldFallback() {
+        List<Kline> klines = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            klines.add(createTestKline(1L, "1m", baseTime.plus(i, ChronoUnit.MINUTES)));
+        }
+        when(klineBulkLoader.isCopySupported()).thenReturn(false);
+        when(klineMapper.batchUpsert(anyList())).thenReturn(500);
+
+        int result = klineService.batchUpsert(klines);
+
+        assertEquals(1000, result);
+        verify(klineBulkLoader, never()).copyUpsert(anyList());
+        verify(klineMapper, times(2)).batchUpsert(anyList());
+    }
+
+    @Test
+    @DisplayName("查询最新数据 - 缓存未命中时倒序查询后反转为升序")
+    void getLatest_cacheMiss_shouldQueryDescendingAndReverse() {
+        Kline newer = createTestKline(1L, "1h", baseTime.plus(1, ChronoUnit.HOURS));
+        when(klineMapper.selectRecentBySymbolIdAndInterval(1L, "1h", 2))
+                .thenReturn(new ArrayList<>(List.of(newer, testKline)));
+
+        List<Kline> result = klineService.getLatest(1L, "1h", 2);
+
+        assertEquals(baseTime, result.get(0).getOpenTime());
+        assertEquals(baseTime.plus(1, ChronoUnit.HOURS), result.get(1).getOpenTime());
+    }
+
+    @Test
+    @DisplayName("向前翻页 - 倒序查询 before 之前的数据后反转为升序")
+    void getLatestBefore_shouldQueryDescendingAndReverse() {
+        Instant before = baseTime.plus(2, ChronoUnit.HOURS);
+        Kline newer = createTestKline(1L, "1h", baseTime.plus(1, ChronoUnit.HOURS));
+        when(klineMapper.selectRecentBeforeBySymbolIdAndInterval(1L, "1h", before, 2))
+                .thenReturn(new ArrayList<>(List.of(newer, testKline)));
+
+        List<Kline> result = klineService.getLatestBefore(1L, "1h", before, 2);
+
+        assertEquals(2, result.size());
+        assertEquals(baseTime, result.get(0).getOpenTime());
+        verifyNoInteractions(klineCacheService);
+    }
+
+    @Test
+    @DisplayName("向前翻页 - before 为空抛出异常")
+    void getLatestBefore_nullBefore_shouldThrow() {
+        assertThrows(BusinessException.class, () -> klineService.getLatestBefore(1L, "1h", null, 10));
+    }
+
+    @Test
+    @DisplayName("查询最新数据 - 缓存命中时不查库")
+    void getLatest_cacheHit_shouldSkipDatabase() {
+        when(klineCacheService.getLatest(1L, "1h", 1)).thenReturn(Optional.of(List.of(testKline)));
+
+        List<Kline> result = klineService.getLatest(1L, "1h", 1);
+
+        assertEquals(1, result.size());
+        verifyNoInteractions(klineMapper);
+    }
+
     @Test
     @DisplayName("批量插入 - 指定批大小")
     void batchUpsert_customBatchSize_success() {
@@ -476,6 +567,8 @@ class KlineServiceTest {
         verify(syncStatusMapper).updateLastKlineTime(1L, "1h", newMaxOpenTime);
         verify(syncStatusMapper).updateTotalKlines(1L, "1h", 100L);
         verify(syncStatusMapper).updateAutoGapFillEnabled(1L, "1h", false);
+        // 触及已检测区间时清除缺口检测水位线
+        verify(syncStatusMapper).resetGapWatermarkFrom(1L, "1h", startTime);
     }
 
     @Test
@@ -524,6 +617,7 @@ class KlineServiceTest {
         verify(syncStatusMapper, never()).updateLastKlineTime(anyLong(), anyString(), any());
         verify(syncStatusMapper, never()).updateTotalKlines(anyLong(), anyString(), anyLong());
         verify(syncStatusMapper, never()).updateAutoGapFillEnabled(anyLong(), anyString(), anyBoolean());
+        verify(syncStatusMapper, never()).resetGapWatermarkFrom(anyLong(), anyString(), any());
     }
 
     @Test
@@ -0,0 +1,233 @@
+package com.chanlun.service;
+
+import com.chanlun.entity.Kline;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * K 线异步批量写入服务测试
+ *
+ * @author Chanlun Team
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KlineWriteBehindService 测试")
+class KlineWriteBehindServiceTest {
+
+    @Mock
+    private KlineService klineService;
+
+    @Mock
+    private SyncService syncService;
+
+    @Mock
+    private KlineCacheService klineCacheService;
+
+    @Mock
+    private DataGapService dataGapService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private KlineWriteBehindService writeBehindService;
+
+    private Instant baseTime;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writeBehindService = new KlineWriteBehindService(klineService, syncService, klineCacheService,
+                dataGapService, meterRegistry);
+        ReflectionTestUtils.setField(writeBehindService, "retryBackoffMs", 0L);
+        baseTime = Instant.parse("2025-01-01T00:00:00Z");
+    }
+
+    @AfterEach
+    void tearDown() {
+        writeBehindService.stop();
+    }
+
+    private Kline createKline(Long symbolId, String interval, Instant openTime, String close) {
+        return Kline.builder()
+                .symbolId(symbolId)
+                .interval(interval)
+                .openTime(openTime)
+                .open(new BigDecimal("100"))
+                .high(new BigDecimal("110"))
+                .low(new BigDecimal("90"))
+                .close(new BigDecimal(close))
+                .volume(new BigDecimal("1"))
+                .build();
+    }
+
+    @Test
+    @DisplayName("flush 合并写入并按交易对周期聚合更新 sync_status")
+    @SuppressWarnings("unchecked")
+    void flush_shouldBatchUpsertAndAggregateSyncStatus() {
+        List<Kline> batch = List.of(
+                createKline(1L, "1m", baseTime, "101"),
+                createKline(1L, "1m", baseTime.plus(1, ChronoUnit.MINUTES), "102"),
+                createKline(2L, "1m", baseTime, "103"),
+                createKline(1L, "1h", baseTime, "104"));
+
+        writeBehindService.flush(batch);
+
+        ArgumentCaptor<List<Kline>> captor = ArgumentCaptor.forClass(List.class);
+        verify(klineService, times(1)).batchUpsert(captor.capture());
+        assertEquals(4, captor.getValue().size());
+
+        verify(syncService).updateSyncStatus(1L, "1m", baseTime.plus(1, ChronoUnit.MINUTES), 2L);
+        verify(syncService).updateSyncStatus(2L, "1m", baseTime, 1L);
+        verify(syncService).updateSyncStatus(1L, "1h", baseTime, 1L);
+        verifyNoMoreInteractions(syncService);
+
+        KlineWriteBehindService.WriteBehindStats stats = writeBehindService.getStats();
+        assertEquals(1, stats.getFlushes());
+        assertEquals(4, stats.getFlushedKlines());
+        assertEquals(3, stats.getSyncStatusUpdates());
+    }
+
+    @Test
+    @DisplayName("flush 同一根 K 线只保留最后一条")
+    @SuppressWarnings("unchecked")
+    void flush_shouldDeduplicateSameOpenTime() {
+        writeBehindService.flush(List.of(
+                createKline(1L, "1m", baseTime, "101"),
+                createKline(1L, "1m", baseTime, "105")));
+
+        ArgumentCaptor<List<Kline>> captor = ArgumentCaptor.forClass(List.class);
+        verify(klineService).batchUpsert(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals(new BigDecimal("105"), captor.getValue().get(0).getClose());
+        verify(syncService).updateSyncStatus(1L, "1m", baseTime, 1L);
+    }
+
+    @Test
+    @DisplayName("写库重试仍失败 - 不更新 sync_status，失效热窗口缓存并登记缺口")
+    void flush_whenUpsertFails_shouldInvalidateCacheAndRecordGap() {
+        when(klineService.batchUpsert(anyList())).thenThrow(new RuntimeException("db down"));
+        when(dataGapService.recordMissing(eq(1L), eq("1m"), anyCollection())).thenReturn(1);
+
+        writeBehindService.flush(List.of(
+                createKline(1L, "1m", baseTime, "101"),
+                createKline(1L, "1m", baseTime.plus(1, ChronoUnit.MINUTES), "102")));
+
+        verify(klineService, times(3)).batchUpsert(anyList());
+        verifyNoInteractions(syncService);
+        verify(klineCacheService).invalidate(1L, "1m");
+        verify(dataGapService).recordMissing(1L, "1m", List.of(baseTime, baseTime.plus(1, ChronoUnit.MINUTES)));
+        KlineWriteBehindService.WriteBehindStats stats = writeBehindService.getStats();
+        assertEquals(1, stats.getFailedFlushes());
+        assertEquals(2, stats.getRetries());
+        assertEquals(2, stats.getLostKlines());
+        assertEquals(1, stats.getRecordedGaps());
+    }
+
+    @Test
+    @DisplayName("写库重试仍失败 - 按交易对周期拆分写入，只丢弃失败的组")
+    void flush_whenOnePairFails_shouldSplitByPair() {
+        when(klineService.batchUpsert(anyList())).thenAnswer(invocation -> {
+            List<Kline> klines = invocation.getArgument(0);
+            if (klines.stream().anyMatch(k -> k.getSymbolId() == 2L)) {
+                throw new RuntimeException("value out of range");
+            }
+            return klines.size();
+        });
+
+        writeBehindService.flush(List.of(
+                createKline(1L, "1m", baseTime, "101"),
+                createKline(2L, "1m", baseTime, "102")));
+
+        verify(syncService).updateSyncStatus(1L, "1m", baseTime, 1L);
+        verify(syncService, never()).updateSyncStatus(eq(2L), any(), any(), anyLong());
+        verify(klineCacheService).invalidate(2L, "1m");
+        verify(klineCacheService, never()).invalidate(1L, "1m");
+        verify(dataGapService).recordMissing(2L, "1m", List.of(baseTime));
+        assertEquals(1, writeBehindService.getStats().getFlushedKlines());
+    }
+
+    @Test
+    @DisplayName("flush 成功后按周期记录收盘到落库延迟")
+    void flush_shouldRecordCloseToCommitLatency() {
+        Instant openTime = Instant.now().minus(2, ChronoUnit.MINUTES).truncatedTo(ChronoUnit.MINUTES);
+        Kline kline = createKline(1L, "1m", openTime, "101");
+        kline.setCloseTime(openTime.plus(1, ChronoUnit.MINUTES).minusMillis(1));
+
+        writeBehindService.flush(List.of(kline, createKline(1L, "1h", baseTime, "102")));
+
+        Timer timer = meterRegistry.get(KlineWriteBehindService.COMMIT_LATENCY_METRIC).tag("interval", "1m").timer();
+        assertEquals(1, timer.count());
+        assertTrue(timer.totalTime(TimeUnit.SECONDS) >= 60);
+        // 缺少收盘时间的 K 线不计入
+        assertNull(meterRegistry.find(KlineWriteBehindService.COMMIT_LATENCY_METRIC).tag("interval", "1h").timer());
+    }
+
+    @Test
+    @DisplayName("提交的 K 线由写线程按时间批量落库")
+    void submit_shouldFlushByInterval() {
+        ReflectionTestUtils.setField(writeBehindService, "flushIntervalMs", 20L);
+        writeBehindService.start();
+
+        assertTrue(writeBehindService.submit(createKline(1L, "1m", baseTime, "101")));
+        assertTrue(writeBehindService.submit(createKline(1L, "1m", baseTime.plus(1, ChronoUnit.MINUTES), "102")));
+
+        verify(klineService, timeout(2000).atLeastOnce()).batchUpsert(anyList());
+        verify(syncService, timeout(2000).atLeastOnce()).updateSyncStatus(eq(1L), eq("1m"), any(), anyLong());
+        assertEquals(2, writeBehindService.getStats().getEnqueued());
+    }
+
+    @Test
+    @DisplayName("写库进行中停止 - 不中断写线程，正在写出的 K 线正常落库")
+    void stop_duringFlush_shouldCompleteWithoutInterrupt() throws Exception {
+        CountDownLatch flushing = new CountDownLatch(1);
+        when(klineService.batchUpsert(anyList())).thenAnswer(invocation -> {
+            flushing.countDown();
+            // 停止标记置位前保持写库中，模拟连接池获取连接时检查中断标记
+            while (Boolean.TRUE.equals(ReflectionTestUtils.getField(writeBehindService, "running"))) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("interrupted during getConnection");
+            }
+            return ((List<?>) invocation.getArgument(0)).size();
+        });
+        ReflectionTestUtils.setField(writeBehindService, "flushIntervalMs", 20L);
+        writeBehindService.start();
+        writeBehindService.submit(createKline(1L, "1m", baseTime, "101"));
+        assertTrue(flushing.await(2, TimeUnit.SECONDS));
+
+        writeBehindService.stop();
+
+        verify(klineService, times(1)).batchUpsert(anyList());
+        verify(syncService).updateSyncStatus(1L, "1m", baseTime, 1L);
+        verifyNoInteractions(dataGapService);
+        assertEquals(0, writeBehindService.getStats().getLostKlines());
+    }
+
+    @Test
+    @DisplayName("未启动时拒绝提交")
+    void submit_whenNotStarted_shouldReject() {
+        assertFalse(writeBehindService.submit(createKline(1L, "1m", baseTime, "101")));
+        assertEquals(0, writeBehindService.getQueueDepth());
+    }
+}
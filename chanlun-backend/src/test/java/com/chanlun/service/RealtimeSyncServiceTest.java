@@ -54,6 +54,15 @@ class RealtimeSyncServiceTest {
     @Mock
     private EncryptUtil encryptUtil;
 
+    @Mock
+    private KlineWriteBehindService klineWriteBehindService;
+
+    @Mock
+    private KlinePushService klinePushService;
+
+    @Mock
+    private KlineLatencyTracker klineLatencyTracker;
+
     private RealtimeSyncService realtimeSyncService;
 
     private DataSource testDataSource;
@@ -66,7 +75,8 @@ class RealtimeSyncServiceTest {
         realtimeSyncService = new RealtimeSyncService(
                 symbolService, marketService, dataSourceService,
                 klineService, syncService, systemConfigService,
-                binanceClientFactory, encryptUtil
+                binanceClientFactory, encryptUtil, klineWriteBehindService, klinePushService,
+                klineLatencyTracker
         );
         
         // 设置 mockEnabled
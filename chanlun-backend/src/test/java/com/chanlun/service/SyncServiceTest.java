@@ -218,6 +218,19 @@ class SyncServiceTest {
         verify(syncTaskMapper).updateStatus(1L, SyncTask.Status.PENDING);
     }
 
+    @Test
+    @DisplayName("领取可恢复任务 - 按查询时的状态原子领取")
+    void claimResumableHistoryTask_shouldClaimByObservedStatus() {
+        Instant staleBefore = Instant.now();
+        SyncTask task = SyncTask.builder().id(1L).status(SyncTask.Status.FAILED).build();
+        SyncTask claimed = SyncTask.builder().id(1L).status(SyncTask.Status.RUNNING).build();
+        when(syncTaskMapper.claimResumableHistoryTask(1L, SyncTask.Status.FAILED, staleBefore)).thenReturn(claimed);
+
+        assertSame(claimed, syncService.claimResumableHistoryTask(task, staleBefore));
+        assertNull(syncService.claimResumableHistoryTask(
+                SyncTask.builder().id(2L).status(SyncTask.Status.RUNNING).build(), staleBefore));
+    }
+
     @Test
     @DisplayName("重试任务 - 达到最大重试次数应返回false")
     void retryTask_maxRetriesReached_shouldReturnFalse() {